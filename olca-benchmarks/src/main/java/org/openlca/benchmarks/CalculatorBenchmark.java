@@ -0,0 +1,77 @@
+package org.openlca.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openlca.core.math.LcaCalculator;
+import org.openlca.core.matrix.MatrixData;
+import org.openlca.core.matrix.solvers.IMatrixSolver;
+import org.openlca.core.results.ContributionResult;
+import org.openlca.core.results.FullResult;
+import org.openlca.core.results.SimpleResult;
+
+/**
+ * Benchmarks the calculation of the different result types with the
+ * `LcaCalculator` on synthetic matrix data. As the upstream results of a full
+ * result are calculated on demand, the `fullWithUpstreams` benchmark also
+ * calculates the upstream results of all LCIA categories.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CalculatorBenchmark {
+
+	@Param({ Solvers.JAVA, Solvers.SPARSE_LU })
+	public String solver;
+
+	@Param({ "1000" })
+	public int size;
+
+	private IMatrixSolver _solver;
+	private MatrixData data;
+
+	@Setup
+	public void setup() {
+		_solver = Solvers.get(solver);
+		data = SyntheticMatrices.matrixData(size, 42, _solver);
+	}
+
+	@Benchmark
+	public SimpleResult simple() {
+		return new LcaCalculator(_solver, data).calculateSimple();
+	}
+
+	@Benchmark
+	public ContributionResult contributions() {
+		return new LcaCalculator(_solver, data).calculateContributions();
+	}
+
+	@Benchmark
+	public FullResult full() {
+		return new LcaCalculator(_solver, data).calculateFull();
+	}
+
+	@Benchmark
+	public double fullWithUpstreams() {
+		FullResult r = new LcaCalculator(_solver, data).calculateFull();
+		double sum = 0;
+		for (int i = 0; i < r.upstreamImpactResults.rows(); i++) {
+			sum += r.upstreamImpactResults.get(i, 0);
+		}
+		r.dispose();
+		return sum;
+	}
+}
@@ -0,0 +1,95 @@
+package org.openlca.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openlca.expressions.CompiledFormula;
+import org.openlca.expressions.FormulaInterpreter;
+import org.openlca.expressions.InterpreterException;
+import org.openlca.expressions.Scope;
+
+/**
+ * Benchmarks the evaluation of formulas with the `FormulaInterpreter`: simple
+ * arithmetic, function calls, and formulas that reference variables which are
+ * defined by other formulas in a global and local scope. The local formulas
+ * are also evaluated as pre-compiled formulas.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class FormulaBenchmark {
+
+	private static final int VARIABLES = 100;
+
+	private FormulaInterpreter interpreter;
+	private Scope local;
+	private String[] formulas;
+	private CompiledFormula[] compiled;
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(42);
+		interpreter = new FormulaInterpreter();
+		for (int i = 0; i < VARIABLES; i++) {
+			interpreter.bind("g" + i, rand.nextDouble());
+		}
+		local = interpreter.createScope(1);
+		for (int i = 0; i < VARIABLES; i++) {
+			local.bind("l" + i, "2 * g" + i + " + " + rand.nextDouble());
+		}
+		formulas = new String[VARIABLES];
+		for (int i = 0; i < VARIABLES; i++) {
+			int j = rand.nextInt(VARIABLES);
+			formulas[i] = "if(l" + i + " > g" + j + "; sqr(l" + i
+					+ ") / (1 + g" + j + "); l" + i + " * 0.5)";
+		}
+		compiled = new CompiledFormula[VARIABLES];
+		for (int i = 0; i < VARIABLES; i++) {
+			try {
+				compiled[i] = interpreter.compile(formulas[i]);
+			} catch (InterpreterException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	@Benchmark
+	public double arithmetic() throws InterpreterException {
+		return interpreter.eval("2 * (3.5 + 4) / 7 - 1.5^2");
+	}
+
+	@Benchmark
+	public double globalVariables() throws InterpreterException {
+		return interpreter.eval("g1 * g2 + sqrt(g3) - abs(g4 - g5)");
+	}
+
+	@Benchmark
+	public double localFormulas() throws InterpreterException {
+		double sum = 0;
+		for (String formula : formulas) {
+			sum += local.eval(formula);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public double compiledLocalFormulas() throws InterpreterException {
+		double sum = 0;
+		for (CompiledFormula formula : compiled) {
+			sum += formula.eval(local);
+		}
+		return sum;
+	}
+}
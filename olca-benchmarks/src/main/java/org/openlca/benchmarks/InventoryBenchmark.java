@@ -0,0 +1,81 @@
+package org.openlca.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openlca.core.math.CalculationSetup;
+import org.openlca.core.math.DataStructures;
+import org.openlca.core.matrix.FastMatrixBuilder;
+import org.openlca.core.matrix.InventoryBuilder;
+import org.openlca.core.matrix.InventoryConfig;
+import org.openlca.core.matrix.MatrixData;
+import org.openlca.core.matrix.TechIndex;
+
+/**
+ * Benchmarks the creation of the matrix data from a synthetic database with
+ * the `FastMatrixBuilder` (which skips the linking of the product system) and
+ * the `InventoryBuilder`.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class InventoryBenchmark {
+
+	@Param({ "1000" })
+	public int size;
+
+	@Param({ "false", "true" })
+	public boolean withUncertainties;
+
+	private SyntheticDatabase db;
+	private CalculationSetup setup;
+	private TechIndex techIndex;
+
+	@Setup
+	public void setup() {
+		db = SyntheticDatabase.create(size, 42);
+		setup = db.setup();
+		setup.withUncertainties = withUncertainties;
+		techIndex = DataStructures.createProductIndex(db.system, db.db);
+		techIndex.setDemand(setup.getDemandValue());
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		db.close();
+	}
+
+	@Benchmark
+	public MatrixData fastMatrixBuilder() {
+		return new FastMatrixBuilder(db.db, setup).build();
+	}
+
+	@Benchmark
+	public MatrixData inventoryBuilder() {
+		InventoryConfig conf = new InventoryConfig(db.db, techIndex);
+		conf.allocationMethod = setup.allocationMethod;
+		conf.withUncertainties = withUncertainties;
+		conf.interpreter = DataStructures.interpreter(
+				db.db, setup, techIndex);
+		return new InventoryBuilder(conf).build();
+	}
+
+	@Benchmark
+	public TechIndex techIndex() {
+		return DataStructures.createProductIndex(db.system, db.db);
+	}
+}
@@ -0,0 +1,92 @@
+package org.openlca.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openlca.core.matrix.format.HashPointMatrix;
+import org.openlca.core.matrix.format.IMatrix;
+import org.openlca.core.matrix.format.MatrixBuilder;
+
+/**
+ * Benchmarks filling matrices with the entries of a synthetic technology
+ * matrix via the `MatrixBuilder` and directly into a `HashPointMatrix`.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MatrixFillBenchmark {
+
+	@Param({ "1000", "10000" })
+	public int size;
+
+	private int[] rows;
+	private int[] cols;
+	private double[] values;
+
+	@Setup
+	public void setup() {
+		HashPointMatrix m = SyntheticMatrices.techMatrix(size, 42);
+		int n = m.getNumberOfEntries();
+		rows = new int[n];
+		cols = new int[n];
+		values = new double[n];
+		int[] i = { 0 };
+		m.iterate((row, col, val) -> {
+			rows[i[0]] = row;
+			cols[i[0]] = col;
+			values[i[0]] = val;
+			i[0]++;
+		});
+		// the entries of the exchange tables are not sorted
+		Random rand = new Random(42);
+		for (int k = n - 1; k > 0; k--) {
+			int j = rand.nextInt(k + 1);
+			swap(k, j);
+		}
+	}
+
+	private void swap(int k, int j) {
+		int row = rows[k];
+		rows[k] = rows[j];
+		rows[j] = row;
+		int col = cols[k];
+		cols[k] = cols[j];
+		cols[j] = col;
+		double val = values[k];
+		values[k] = values[j];
+		values[j] = val;
+	}
+
+	@Benchmark
+	public IMatrix matrixBuilder() {
+		MatrixBuilder builder = new MatrixBuilder();
+		for (int k = 0; k < values.length; k++) {
+			builder.add(rows[k], cols[k], values[k]);
+		}
+		builder.minSize(size, size);
+		return builder.finish();
+	}
+
+	@Benchmark
+	public IMatrix hashPointMatrix() {
+		HashPointMatrix m = new HashPointMatrix(size, size);
+		for (int k = 0; k < values.length; k++) {
+			m.set(rows[k], cols[k], values[k]);
+		}
+		return m;
+	}
+}
@@ -0,0 +1,61 @@
+package org.openlca.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openlca.core.math.CalculationSetup;
+import org.openlca.core.math.Simulator;
+import org.openlca.core.results.SimpleResult;
+
+/**
+ * Benchmarks a single Monte Carlo simulation run of a product system in a
+ * synthetic database: sampling the uncertainty distributions and parameters,
+ * and solving the system.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SimulatorBenchmark {
+
+	@Param({ Solvers.JAVA, Solvers.SPARSE_LU, Solvers.BICGSTAB })
+	public String solver;
+
+	@Param({ "1000" })
+	public int size;
+
+	private SyntheticDatabase db;
+	private Simulator simulator;
+
+	@Setup
+	public void setup() {
+		db = SyntheticDatabase.create(size, 42);
+		CalculationSetup setup = db.setup();
+		setup.withUncertainties = true;
+		simulator = Simulator.create(setup, db.db, Solvers.get(solver))
+				.withSeed(42);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		db.close();
+	}
+
+	@Benchmark
+	public SimpleResult nextRun() {
+		return simulator.nextRun();
+	}
+}
@@ -0,0 +1,90 @@
+package org.openlca.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openlca.core.matrix.format.IMatrix;
+import org.openlca.core.matrix.solvers.BiCGStabSolver;
+import org.openlca.core.matrix.solvers.IMatrixSolver;
+
+/**
+ * Benchmarks the basic operations of the matrix solvers on a synthetic
+ * technology matrix A and intervention matrix B: solving A * s = f, inverting
+ * A, and the products B * s and B * A^-1.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SolverBenchmark {
+
+	/**
+	 * The native solvers (`dense`, `julia`) and the `sequential` solver are
+	 * not benchmarked by default; they can be added via the `-p` option.
+	 */
+	@Param({ Solvers.JAVA, Solvers.SPARSE_LU, Solvers.BICGSTAB })
+	public String solver;
+
+	@Param({ "1000" })
+	public int size;
+
+	private IMatrixSolver _solver;
+	private IMatrix techMatrix;
+	private IMatrix enviMatrix;
+	private IMatrix inverse;
+	private double[] scalingVector;
+
+	@Setup
+	public void setup() {
+		_solver = Solvers.get(solver);
+		techMatrix = SyntheticMatrices.convert(
+				SyntheticMatrices.techMatrix(size, 42), _solver);
+		enviMatrix = SyntheticMatrices.convert(
+				SyntheticMatrices.enviMatrix(size, 42), _solver);
+		if (_solver instanceof BiCGStabSolver) {
+			((BiCGStabSolver) _solver).precondition(techMatrix);
+		}
+		inverse = _solver.invert(techMatrix);
+		scalingVector = _solver.solve(techMatrix, 0, 1);
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (_solver instanceof BiCGStabSolver) {
+			((BiCGStabSolver) _solver).dispose();
+		}
+	}
+
+	@Benchmark
+	public double[] solve() {
+		return _solver.solve(techMatrix, 0, 1);
+	}
+
+	@Benchmark
+	public IMatrix invert() {
+		return _solver.invert(techMatrix);
+	}
+
+	@Benchmark
+	public double[] multiplyVector() {
+		return _solver.multiply(enviMatrix, scalingVector);
+	}
+
+	@Benchmark
+	public IMatrix multiplyMatrix() {
+		return _solver.multiply(enviMatrix, inverse);
+	}
+}
@@ -0,0 +1,61 @@
+package org.openlca.benchmarks;
+
+import java.io.File;
+
+import org.openlca.core.matrix.solvers.BiCGStabSolver;
+import org.openlca.core.matrix.solvers.DenseSolver;
+import org.openlca.core.matrix.solvers.IMatrixSolver;
+import org.openlca.core.matrix.solvers.JavaSolver;
+import org.openlca.core.matrix.solvers.SequentialSolver;
+import org.openlca.core.matrix.solvers.SparseLUSolver;
+import org.openlca.eigen.NativeLibrary;
+import org.openlca.julia.Julia;
+import org.openlca.julia.JuliaSolver;
+
+/**
+ * Creates the solvers by the names that are used as benchmark parameters. The
+ * native solvers require that the respective libraries can be loaded: the
+ * Julia libraries from the folder of the `OLCA_JULIA` environment variable and
+ * the Eigen/BLAS library from the folder of the `olca.native` system property
+ * (defaults to the temp. folder).
+ */
+final class Solvers {
+
+	static final String JAVA = "java";
+	static final String SPARSE_LU = "sparse-lu";
+	static final String BICGSTAB = "bicgstab";
+	static final String SEQUENTIAL = "sequential";
+	static final String DENSE = "dense";
+	static final String JULIA = "julia";
+
+	private Solvers() {
+	}
+
+	static IMatrixSolver get(String name) {
+		switch (name) {
+		case JAVA:
+			return new JavaSolver();
+		case SPARSE_LU:
+			return new SparseLUSolver();
+		case BICGSTAB:
+			return new BiCGStabSolver(new SparseLUSolver());
+		case SEQUENTIAL:
+			return new SequentialSolver(1e-12, 1_000_000);
+		case DENSE:
+			String dir = System.getProperty("olca.native",
+					System.getProperty("java.io.tmpdir"));
+			NativeLibrary.loadFromDir(new File(dir));
+			if (!NativeLibrary.isLoaded())
+				throw new IllegalStateException(
+						"could not load native library from " + dir);
+			return new DenseSolver();
+		case JULIA:
+			if (!Julia.load())
+				throw new IllegalStateException(
+						"could not load Julia libraries; is OLCA_JULIA set?");
+			return new JuliaSolver();
+		default:
+			throw new IllegalArgumentException("unknown solver: " + name);
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package org.openlca.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.openlca.core.database.FlowDao;
+import org.openlca.core.database.FlowPropertyDao;
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.database.ParameterDao;
+import org.openlca.core.database.ProcessDao;
+import org.openlca.core.database.ProductSystemDao;
+import org.openlca.core.database.UnitGroupDao;
+import org.openlca.core.database.derby.DerbyDatabase;
+import org.openlca.core.math.CalculationSetup;
+import org.openlca.core.model.Exchange;
+import org.openlca.core.model.Flow;
+import org.openlca.core.model.FlowProperty;
+import org.openlca.core.model.Parameter;
+import org.openlca.core.model.Process;
+import org.openlca.core.model.ProcessLink;
+import org.openlca.core.model.ProductSystem;
+import org.openlca.core.model.Uncertainty;
+import org.openlca.core.model.Unit;
+import org.openlca.core.model.UnitGroup;
+
+import gnu.trove.map.hash.TLongLongHashMap;
+
+/**
+ * Generates an in-memory database with a linked product system of a
+ * configurable size. Each process has a reference product, a few product
+ * inputs from other processes, and elementary flows. Some of the exchange
+ * amounts are given as formulas of global parameters and some have
+ * uncertainty distributions so that the database can be also used for
+ * Monte Carlo simulations. The generated data only depend on the size and
+ * seed.
+ */
+public final class SyntheticDatabase implements AutoCloseable {
+
+	/** The number of global parameters. */
+	static final int PARAMETERS = 10;
+
+	public final IDatabase db;
+	public final ProductSystem system;
+
+	private SyntheticDatabase(IDatabase db, ProductSystem system) {
+		this.db = db;
+		this.system = system;
+	}
+
+	/**
+	 * Creates a new database with a product system of the given number of
+	 * processes.
+	 */
+	public static SyntheticDatabase create(int processes, long seed) {
+		IDatabase db = DerbyDatabase.createInMemory();
+		Random rand = new Random(seed);
+
+		UnitGroup units = new UnitGroupDao(db).insert(
+				UnitGroup.of("Units of mass", Unit.of("kg")));
+		FlowProperty mass = new FlowPropertyDao(db).insert(
+				FlowProperty.of("Mass", units));
+
+		ParameterDao paramDao = new ParameterDao(db);
+		for (int i = 0; i < PARAMETERS; i++) {
+			Parameter param = Parameter.global("p" + i, 1 + rand.nextDouble());
+			param.uncertainty = Uncertainty.normal(param.value, 0.1);
+			paramDao.insert(param);
+		}
+
+		FlowDao flowDao = new FlowDao(db);
+		List<Flow> products = new ArrayList<>(processes);
+		for (int i = 0; i < processes; i++) {
+			products.add(flowDao.insert(Flow.product("product " + i, mass)));
+		}
+		int m = SyntheticMatrices.flowCount(processes);
+		List<Flow> elemFlows = new ArrayList<>(m);
+		for (int i = 0; i < m; i++) {
+			elemFlows.add(flowDao.insert(
+					Flow.elementary("elementary flow " + i, mass)));
+		}
+
+		ProcessDao processDao = new ProcessDao(db);
+		List<Process> list = new ArrayList<>(processes);
+		for (int i = 0; i < processes; i++) {
+			Process process = Process.of("process " + i, products.get(i));
+			if (processes > 1) {
+				for (int k = 0; k < SyntheticMatrices.INPUTS; k++) {
+					int j = rand.nextInt(processes);
+					if (j == i)
+						continue;
+					Exchange e = process.input(
+							products.get(j), 0.1 * rand.nextDouble());
+					withVariation(e, rand);
+				}
+			}
+			for (int k = 0; k < SyntheticMatrices.FLOWS_PER_PROCESS; k++) {
+				Flow flow = elemFlows.get(rand.nextInt(m));
+				Exchange e = rand.nextBoolean()
+						? process.output(flow, rand.nextDouble())
+						: process.input(flow, rand.nextDouble());
+				withVariation(e, rand);
+			}
+			list.add(processDao.insert(process));
+		}
+
+		// products are only produced by a single process
+		TLongLongHashMap providers = new TLongLongHashMap();
+		for (int i = 0; i < processes; i++) {
+			providers.put(products.get(i).id, list.get(i).id);
+		}
+		ProductSystem system = ProductSystem.of(list.get(0));
+		system.name = "synthetic system";
+		for (Process process : list) {
+			system.processes.add(process.id);
+			for (Exchange e : process.exchanges) {
+				if (!e.isInput || !providers.containsKey(e.flow.id))
+					continue;
+				ProcessLink link = new ProcessLink();
+				link.providerId = providers.get(e.flow.id);
+				link.flowId = e.flow.id;
+				link.processId = process.id;
+				link.exchangeId = e.id;
+				system.processLinks.add(link);
+			}
+		}
+		system = new ProductSystemDao(db).insert(system);
+		return new SyntheticDatabase(db, system);
+	}
+
+	/**
+	 * Every fifth exchange gets a formula and every third an uncertainty
+	 * distribution (on average).
+	 */
+	private static void withVariation(Exchange e, Random rand) {
+		if (rand.nextInt(5) == 0) {
+			e.formula = e.amount + " * p" + rand.nextInt(PARAMETERS);
+		}
+		if (rand.nextInt(3) == 0) {
+			e.uncertainty = Uncertainty.logNormal(e.amount, 1.2);
+		}
+	}
+
+	public CalculationSetup setup() {
+		return new CalculationSetup(system);
+	}
+
+	@Override
+	public void close() throws Exception {
+		db.close();
+	}
+}
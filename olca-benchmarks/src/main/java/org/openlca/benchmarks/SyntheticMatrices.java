@@ -0,0 +1,154 @@
+package org.openlca.benchmarks;
+
+import java.util.Random;
+
+import org.openlca.core.matrix.DIndex;
+import org.openlca.core.matrix.FlowIndex;
+import org.openlca.core.matrix.MatrixData;
+import org.openlca.core.matrix.ProcessProduct;
+import org.openlca.core.matrix.TechIndex;
+import org.openlca.core.matrix.format.HashPointMatrix;
+import org.openlca.core.matrix.format.IMatrix;
+import org.openlca.core.matrix.solvers.IMatrixSolver;
+import org.openlca.core.model.descriptors.FlowDescriptor;
+import org.openlca.core.model.descriptors.ImpactCategoryDescriptor;
+import org.openlca.core.model.descriptors.ProcessDescriptor;
+
+/**
+ * Generates matrix data with a structure that is similar to the data of
+ * real product systems: a sparse, non-singular technology matrix where each
+ * process has a few product inputs, a sparse intervention matrix, and a
+ * characterization matrix with a few LCIA categories. The generated data only
+ * depend on the size and seed, so that benchmark runs are comparable.
+ */
+public final class SyntheticMatrices {
+
+	/** The number of product inputs per process. */
+	static final int INPUTS = 5;
+
+	/** The number of elementary flows per process. */
+	static final int FLOWS_PER_PROCESS = 10;
+
+	/** The number of LCIA categories. */
+	static final int IMPACTS = 20;
+
+	private SyntheticMatrices() {
+	}
+
+	/**
+	 * Returns the number of elementary flows that are generated for a system
+	 * with the given number of processes.
+	 */
+	static int flowCount(int processes) {
+		return Math.max(10, processes / 5);
+	}
+
+	/**
+	 * Creates a technology matrix with the given number of processes. The
+	 * diagonal contains the reference products with an amount of 1 and the
+	 * sum of the inputs of each column is less than 0.5 so that the matrix is
+	 * non-singular.
+	 */
+	public static HashPointMatrix techMatrix(int n, long seed) {
+		Random rand = new Random(seed);
+		HashPointMatrix a = new HashPointMatrix(n, n);
+		for (int col = 0; col < n; col++) {
+			a.set(col, col, 1);
+			if (n == 1)
+				continue;
+			for (int k = 0; k < INPUTS; k++) {
+				int row = rand.nextInt(n);
+				if (row != col) {
+					a.set(row, col, -0.1 * rand.nextDouble());
+				}
+			}
+		}
+		return a;
+	}
+
+	public static HashPointMatrix enviMatrix(int n, long seed) {
+		Random rand = new Random(seed + 1);
+		int m = flowCount(n);
+		HashPointMatrix b = new HashPointMatrix(m, n);
+		for (int col = 0; col < n; col++) {
+			for (int k = 0; k < FLOWS_PER_PROCESS; k++) {
+				b.set(rand.nextInt(m), col, rand.nextDouble());
+			}
+		}
+		return b;
+	}
+
+	public static HashPointMatrix impactMatrix(int n, long seed) {
+		Random rand = new Random(seed + 2);
+		int m = flowCount(n);
+		HashPointMatrix c = new HashPointMatrix(IMPACTS, m);
+		for (int row = 0; row < IMPACTS; row++) {
+			for (int col = 0; col < m; col++) {
+				if (rand.nextDouble() < 0.3) {
+					c.set(row, col, rand.nextDouble());
+				}
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * Creates the full matrix data of a system with the given number of
+	 * processes. The matrices are created in the formats of the given solver.
+	 */
+	public static MatrixData matrixData(int n, long seed, IMatrixSolver solver) {
+		MatrixData data = new MatrixData();
+
+		TechIndex techIndex = new TechIndex(product(1));
+		for (int i = 2; i <= n; i++) {
+			techIndex.put(product(i));
+		}
+		techIndex.setDemand(1);
+		data.techIndex = techIndex;
+
+		FlowIndex flowIndex = FlowIndex.create();
+		int m = flowCount(n);
+		for (int i = 1; i <= m; i++) {
+			FlowDescriptor flow = new FlowDescriptor();
+			flow.id = n + i;
+			flow.name = "elementary flow " + i;
+			flowIndex.putOutput(flow);
+		}
+		data.flowIndex = flowIndex;
+
+		DIndex<ImpactCategoryDescriptor> impactIndex = new DIndex<>();
+		for (int i = 1; i <= IMPACTS; i++) {
+			ImpactCategoryDescriptor impact = new ImpactCategoryDescriptor();
+			impact.id = n + m + i;
+			impact.name = "impact " + i;
+			impactIndex.put(impact);
+		}
+		data.impactIndex = impactIndex;
+
+		data.techMatrix = convert(techMatrix(n, seed), solver);
+		data.enviMatrix = convert(enviMatrix(n, seed), solver);
+		data.impactMatrix = convert(impactMatrix(n, seed), solver);
+		return data;
+	}
+
+	/**
+	 * Copies the given matrix into a matrix of the given solver.
+	 */
+	public static IMatrix convert(HashPointMatrix m, IMatrixSolver solver) {
+		double density = (double) m.getNumberOfEntries()
+				/ ((double) m.rows() * m.columns());
+		IMatrix copy = solver.matrix(m.rows(), m.columns(), density);
+		m.iterate(copy::set);
+		return copy;
+	}
+
+	private static ProcessProduct product(long id) {
+		ProcessDescriptor process = new ProcessDescriptor();
+		process.id = id;
+		process.name = "process " + id;
+		FlowDescriptor flow = new FlowDescriptor();
+		flow.id = id;
+		flow.name = "product " + id;
+		return ProcessProduct.of(process, flow);
+	}
+}
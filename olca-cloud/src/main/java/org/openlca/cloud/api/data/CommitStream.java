@@ -24,7 +24,16 @@ public class CommitStream extends ModelStream<Dataset> {
 	private final Gson gson = new Gson();
 
 	public CommitStream(IDatabase db, String commitMessage, Set<Dataset> datasets, Consumer<Dataset> callback) {
-		super(commitMessage, datasets.iterator(), datasets.size(), callback);
+		this(db, commitMessage, datasets, callback, false);
+	}
+
+	/**
+	 * Creates a commit stream that is optionally compressed with gzip as a
+	 * whole; see {@link ModelStream}.
+	 */
+	public CommitStream(IDatabase db, String commitMessage, Set<Dataset> datasets, Consumer<Dataset> callback,
+			boolean gzip) {
+		super(commitMessage, datasets.iterator(), datasets.size(), callback, gzip);
 		this.db = db;
 	}
 
@@ -1,8 +1,10 @@
 package org.openlca.cloud.api.data;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.file.FileVisitResult;
@@ -12,12 +14,17 @@ import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
 
 import org.openlca.cloud.model.data.BinaryFile;
 import org.openlca.cloud.model.data.Dataset;
@@ -27,76 +34,307 @@ import org.slf4j.LoggerFactory;
 
 import com.google.gson.Gson;
 
+/**
+ * Streams the data sets of a commit to the server. The data sets are
+ * converted into byte buffers by a producer task that runs on a shared,
+ * bounded thread pool, while the HTTP client reads the stream. Both sides are
+ * decoupled by a bounded queue, so the producer waits when the client cannot
+ * send the data fast enough (back-pressure). Closing the stream cancels the
+ * producer, also when it waits for the client. The stream copies whole
+ * buffers in the bulk `read` and `transferTo` methods. Optionally, the
+ * complete stream can be compressed with gzip (this requires that the server
+ * accepts a request with the `Content-Encoding: gzip` header).
+ */
 public abstract class ModelStream<T extends Dataset> extends InputStream {
 
 	private static final Logger log = LoggerFactory.getLogger(CommitStream.class);
 	public static final Charset CHARSET = Charset.forName("utf-8");
+
+	/**
+	 * The shared thread pool of the producer tasks. It runs at most 4
+	 * producers at the same time and queues at most 16 further producers;
+	 * when both are exhausted, reading a new stream fails. The threads are
+	 * daemon threads and are terminated when they are idle for some time.
+	 */
+	private static final ThreadPoolExecutor producers;
+
+	static {
+		var counter = new AtomicInteger();
+		producers = new ThreadPoolExecutor(4, 4, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(16), runnable -> {
+					var thread = new Thread(runnable,
+							"model-stream-" + counter.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}, new ThreadPoolExecutor.AbortPolicy());
+		producers.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * The time in milliseconds after which a waiting producer or consumer
+	 * checks whether the stream was closed or the producer terminated.
+	 */
+	private static final long WAIT_MILLIS = 100;
+
+	/** Marks the end of the stream in the queue. */
+	private final Part<T> endOfStream = new Part<>(new byte[0], null);
+
 	private final Gson gson = new Gson();
 	// Reading and converting is expected to be faster than
 	// reading the data (and streaming it to the server), so the bufferQueue is
 	// only used to parallelize reading/converting and streaming
-	private final BlockingQueue<byte[]> bufferQueue = new ArrayBlockingQueue<>(10);
-	// Used to identify which is the current dataset in the bufferQueue
-	private final Queue<T> datasetQueue = new LinkedList<>();
+	private final BlockingQueue<Part<T>> bufferQueue = new ArrayBlockingQueue<>(10);
 	private final Consumer<T> callback;
+	private final boolean gzip;
+	private final Stats stats = new Stats();
+	private final Iterator<T> datasets;
 	private final int total;
-	private int count;
-	private byte[] buffer = new byte[0];
+
+	/**
+	 * The producer task; it is started with the first read so that the
+	 * fields of sub-classes are initialized.
+	 */
+	private Future<?> producer;
+
+	/** The current part and the position in it. */
+	private Part<T> current;
 	private int position = 0;
+	private boolean finished;
+	private volatile boolean closed;
+
+	/** Only accessed by the producer (and the constructor before). */
+	private ByteArrayOutputStream zipBuffer;
+	private GZIPOutputStream zipStream;
 
 	protected ModelStream(String message, Iterator<T> datasets, int total) {
 		this(message, datasets, total, null);
 	}
 
 	protected ModelStream(String message, Iterator<T> datasets, int total, Consumer<T> callback) {
+		this(message, datasets, total, callback, false);
+	}
+
+	/**
+	 * Creates a new model stream.
+	 *
+	 * @param gzip if true, the complete stream is compressed with gzip
+	 */
+	protected ModelStream(String message, Iterator<T> datasets, int total,
+			Consumer<T> callback, boolean gzip) {
 		this.callback = callback;
+		this.gzip = gzip;
+		this.datasets = datasets;
+		this.total = total;
 		byte[] messageBytes = message.getBytes(CHARSET);
-		buffer = new byte[4 + 4 + messageBytes.length];
+		byte[] buffer = new byte[4 + 4 + messageBytes.length];
 		addTo(buffer, 0, asByteArray(total));
 		addTo(buffer, 4, asByteArray(messageBytes.length));
 		addTo(buffer, 8, messageBytes);
-		this.total = total;
-		if (total > 0) {
-			new Thread(() -> addAll(datasets)).start();			
+		try {
+			if (gzip) {
+				zipBuffer = new ByteArrayOutputStream();
+				zipStream = new GZIPOutputStream(zipBuffer, true);
+				buffer = compress(buffer);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("failed to create gzip stream", e);
 		}
+		current = new Part<>(buffer, null);
+	}
+
+	/**
+	 * Returns true if the content of this stream is compressed with gzip.
+	 */
+	public boolean isGzip() {
+		return gzip;
+	}
+
+	/**
+	 * Returns the statistics of this stream. These can be used to check
+	 * whether the client (the consumer) or the conversion of the data sets
+	 * (the producer) is the bottleneck.
+	 */
+	public Stats getStats() {
+		return stats;
 	}
 
 	@Override
 	public final int read() throws IOException {
-		if (position == buffer.length) {
-			if (total == count && bufferQueue.isEmpty())
-				return -1;
+		if (!ensureData())
+			return -1;
+		stats.bytes.incrementAndGet();
+		return current.bytes[position++] & 0xff;
+	}
+
+	@Override
+	public final int read(byte[] b, int off, int len) throws IOException {
+		if (off < 0 || len < 0 || len > b.length - off)
+			throw new IndexOutOfBoundsException();
+		if (len == 0)
+			return 0;
+		if (!ensureData())
+			return -1;
+		int n = Math.min(len, current.bytes.length - position);
+		System.arraycopy(current.bytes, position, b, off, n);
+		position += n;
+		stats.bytes.addAndGet(n);
+		return n;
+	}
+
+	@Override
+	public final long transferTo(OutputStream out) throws IOException {
+		long transferred = 0;
+		while (ensureData()) {
+			int n = current.bytes.length - position;
+			out.write(current.bytes, position, n);
+			position += n;
+			transferred += n;
+			stats.bytes.addAndGet(n);
+		}
+		return transferred;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return current == null
+				? 0
+				: current.bytes.length - position;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed)
+			return;
+		closed = true;
+		if (producer != null) {
+			producer.cancel(true);
+			// remove the task from the pool queue if it was not started yet
+			producers.purge();
+		}
+		bufferQueue.clear();
+		log.debug("closed model stream: {}", stats);
+	}
+
+	/**
+	 * Makes sure that the current part has unread bytes. Returns false when
+	 * the end of the stream is reached.
+	 */
+	private boolean ensureData() throws IOException {
+		if (closed)
+			throw new IOException("stream closed");
+		if (producer == null) {
 			try {
-				if (callback != null && !datasetQueue.isEmpty()) {
-					callback.accept(datasetQueue.poll());
-				}
-				buffer = bufferQueue.take();
-				count++;
-			} catch (InterruptedException e) {
-				throw new IOException(e);
+				producer = producers.submit(() -> addAll(datasets, total));
+			} catch (RejectedExecutionException e) {
+				throw new IOException(
+						"too many model streams are read at the same time", e);
+			}
+		}
+		while (!finished && position == current.bytes.length) {
+			if (callback != null && current.dataset != null) {
+				callback.accept(current.dataset);
 			}
+			Part<T> next = bufferQueue.poll();
+			if (next == null) {
+				// the consumer waits for the producer
+				long start = System.nanoTime();
+				next = take();
+				stats.consumerStalls.incrementAndGet();
+				stats.consumerStallNanos.addAndGet(System.nanoTime() - start);
+			}
+			if (next.error != null)
+				throw new IOException("failed to convert data set",
+						next.error);
+			current = next;
 			position = 0;
+			if (next == endOfStream) {
+				finished = true;
+			} else {
+				stats.parts.incrementAndGet();
+			}
 		}
-		return buffer[position++] & 0xff;
+		return !finished;
 	}
 
-	private void addAll(Iterator<T> all) {
-		while (all.hasNext()) {
-			T dataset = all.next();
-			try {
+	private void addAll(Iterator<T> all, int total) {
+		try {
+			int count = 0;
+			while (count < total && all.hasNext()) {
+				T dataset = all.next();
+				count++;
 				byte[] dsJson = gson.toJson(dataset).getBytes(CHARSET);
 				dsJson = BinUtils.gzip(dsJson);
 				byte[] data = getData(dataset);
 				List<BinaryFile> binaryData = getBinaryFiles(dataset);
 				byte[] buffer = buildBuffer(dsJson, data, binaryData);
-				if (callback != null) {
-					datasetQueue.add(dataset);
+				if (gzip) {
+					buffer = compress(buffer);
 				}
-				bufferQueue.put(buffer);
-			} catch (Exception e) {
-				log.error("Error adding model to stream", e);
+				put(new Part<>(buffer, dataset));
 			}
+			if (gzip) {
+				zipStream.finish();
+				put(new Part<>(zipBuffer.toByteArray(), null));
+			}
+			put(endOfStream);
+		} catch (InterruptedException e) {
+			log.trace("model stream closed before all data were sent");
+		} catch (Exception e) {
+			log.error("Error adding model to stream", e);
+			try {
+				put(new Part<>(e));
+			} catch (InterruptedException ie) {
+				log.trace("model stream closed before all data were sent");
+			}
+		}
+	}
+
+	/**
+	 * Waits for the next part of the producer. Fails when the stream is
+	 * closed or when the producer terminated without an end-of-stream or
+	 * error part.
+	 */
+	private Part<T> take() throws IOException {
+		try {
+			while (true) {
+				var next = bufferQueue.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+				if (next != null)
+					return next;
+				if (closed)
+					throw new IOException("stream closed");
+				if (producer.isDone() && bufferQueue.isEmpty())
+					throw new IOException("model stream producer terminated");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Adds the given part to the queue. When the queue is full, the producer
+	 * waits until the consumer took a part or the stream is closed; in the
+	 * latter case an InterruptedException is thrown.
+	 */
+	private void put(Part<T> part) throws InterruptedException {
+		if (bufferQueue.offer(part))
+			return;
+		// the producer waits for the consumer
+		long start = System.nanoTime();
+		while (!bufferQueue.offer(part, WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+			if (closed)
+				throw new InterruptedException("model stream closed");
 		}
+		stats.producerStalls.incrementAndGet();
+		stats.producerStallNanos.addAndGet(System.nanoTime() - start);
+	}
+
+	private byte[] compress(byte[] buffer) throws IOException {
+		zipStream.write(buffer);
+		zipStream.flush();
+		byte[] compressed = zipBuffer.toByteArray();
+		zipBuffer.reset();
+		return compressed;
 	}
 
 	protected abstract byte[] getData(T dataset) throws IOException;
@@ -178,4 +416,60 @@ public abstract class ModelStream<T extends Dataset> extends InputStream {
 
 	}
 
+	private static class Part<T> {
+
+		final byte[] bytes;
+		final T dataset;
+		final Exception error;
+
+		Part(byte[] bytes, T dataset) {
+			this.bytes = bytes;
+			this.dataset = dataset;
+			this.error = null;
+		}
+
+		Part(Exception error) {
+			this.bytes = new byte[0];
+			this.dataset = null;
+			this.error = error;
+		}
+	}
+
+	/**
+	 * Statistics of a model stream: the number of bytes and parts (data sets)
+	 * that were read, and how often and how long the consumer waited for the
+	 * producer and vice versa (queue stalls).
+	 */
+	public static class Stats {
+
+		private final long start = System.nanoTime();
+		public final AtomicLong bytes = new AtomicLong();
+		public final AtomicLong parts = new AtomicLong();
+		public final AtomicLong consumerStalls = new AtomicLong();
+		public final AtomicLong consumerStallNanos = new AtomicLong();
+		public final AtomicLong producerStalls = new AtomicLong();
+		public final AtomicLong producerStallNanos = new AtomicLong();
+
+		/**
+		 * The average number of bytes per second that were read since the
+		 * stream was created.
+		 */
+		public double bytesPerSecond() {
+			double seconds = (System.nanoTime() - start) / 1e9;
+			return seconds > 0
+					? bytes.get() / seconds
+					: 0;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d bytes, %d parts, %.0f bytes/s, "
+					+ "%d consumer stalls (%d ms), "
+					+ "%d producer stalls (%d ms)",
+					bytes.get(), parts.get(), bytesPerSecond(),
+					consumerStalls.get(), consumerStallNanos.get() / 1000000,
+					producerStalls.get(), producerStallNanos.get() / 1000000);
+		}
+	}
+
 }
@@ -11,6 +11,7 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response.Status.Family;
 
 import org.openlca.cloud.api.RepositoryClient;
+import org.openlca.cloud.api.data.ModelStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -76,6 +77,8 @@ public class WebRequests {
 		builder.header("lca-cs-client-api-version", RepositoryClient.API_VERSION);
 		if (sessionId != null)
 			builder.cookie(new Cookie("JSESSIONID", sessionId));
+		if (data instanceof ModelStream && ((ModelStream<?>) data).isGzip())
+			builder.header("Content-Encoding", "gzip");
 		if (data instanceof InputStream)
 			builder.entity(data, MediaType.APPLICATION_OCTET_STREAM_TYPE);
 		else if (data != null)
@@ -0,0 +1,216 @@
+package org.openlca.cloud.api.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openlca.cloud.model.data.Dataset;
+import org.openlca.core.model.ModelType;
+import org.openlca.util.BinUtils;
+
+public class ModelStreamTest {
+
+	@Test
+	public void testBulkRead() throws Exception {
+		var callbacks = new ArrayList<Dataset>();
+		var stream = new TestStream(50, -1, callbacks::add, false);
+		byte[] bytes = stream.readAllBytes();
+		stream.close();
+		check(new ByteArrayInputStream(bytes), 50);
+		Assert.assertEquals(50, callbacks.size());
+		Assert.assertEquals(bytes.length, stream.getStats().bytes.get());
+		Assert.assertEquals(50, stream.getStats().parts.get());
+
+		// reading single bytes gives the same content
+		var single = new TestStream(50, -1, null, false);
+		var out = new ByteArrayOutputStream();
+		int b;
+		while ((b = single.read()) != -1) {
+			out.write(b);
+		}
+		single.close();
+		Assert.assertArrayEquals(bytes, out.toByteArray());
+	}
+
+	@Test
+	public void testTransferTo() throws Exception {
+		var stream = new TestStream(20, -1, null, false);
+		var out = new ByteArrayOutputStream();
+		long n = stream.transferTo(out);
+		stream.close();
+		Assert.assertEquals(out.size(), n);
+		check(new ByteArrayInputStream(out.toByteArray()), 20);
+	}
+
+	@Test
+	public void testGzip() throws Exception {
+		var stream = new TestStream(50, -1, null, true);
+		Assert.assertTrue(stream.isGzip());
+		byte[] bytes = stream.readAllBytes();
+		stream.close();
+		check(new GZIPInputStream(new ByteArrayInputStream(bytes)), 50);
+	}
+
+	@Test
+	public void testEmpty() throws Exception {
+		var stream = new TestStream(0, -1, null, true);
+		byte[] bytes = stream.readAllBytes();
+		stream.close();
+		check(new GZIPInputStream(new ByteArrayInputStream(bytes)), 0);
+	}
+
+	@Test
+	public void testProducerError() throws Exception {
+		var stream = new TestStream(50, 25, null, false);
+		try {
+			stream.readAllBytes();
+			Assert.fail("the producer error was not propagated");
+		} catch (IOException e) {
+			Assert.assertNotNull(e.getCause());
+			Assert.assertEquals("failed to read data set 25",
+					e.getCause().getMessage());
+		} finally {
+			stream.close();
+		}
+	}
+
+	@Test
+	public void testCloseStopsProducer() throws Exception {
+		var stream = new TestStream(10_000, -1, null, false);
+		Assert.assertTrue(stream.read(new byte[16]) > 0);
+		stream.close();
+		try {
+			stream.read();
+			Assert.fail("a closed stream can not be read");
+		} catch (IOException e) {
+			// expected
+		}
+
+		// the producer waits on the full queue and must stop now
+		Thread.sleep(500);
+		int produced = stream.produced.get();
+		Thread.sleep(500);
+		Assert.assertEquals(produced, stream.produced.get());
+		Assert.assertTrue(produced < 10_000);
+	}
+
+	@Test
+	public void testBoundedProducers() throws Exception {
+		// 4 running and 16 queued producers are allowed
+		var streams = new ArrayList<TestStream>();
+		for (int i = 0; i < 20; i++) {
+			var stream = new TestStream(10_000, -1, null, false);
+			streams.add(stream);
+			Assert.assertTrue(stream.read() >= 0);
+		}
+		var rejected = new TestStream(10, -1, null, false);
+		try {
+			rejected.read();
+			Assert.fail("the producer should have been rejected");
+		} catch (IOException e) {
+			// expected
+		} finally {
+			rejected.close();
+		}
+
+		// closing the streams cancels their producers
+		for (var stream : streams) {
+			stream.close();
+		}
+		var stream = new TestStream(10, -1, null, false);
+		byte[] bytes = stream.readAllBytes();
+		stream.close();
+		check(new ByteArrayInputStream(bytes), 10);
+	}
+
+	private void check(InputStream in, int total) throws IOException {
+		try (var reader = new ModelStreamReader(in)) {
+			Assert.assertEquals(total, reader.getTotal());
+			Assert.assertEquals("test commit", reader.readNextPartAsString());
+			int i = 0;
+			while (reader.hasMore()) {
+				Dataset dataset = reader.readNextPartAsDataset();
+				Assert.assertEquals("ds" + i, dataset.refId);
+				byte[] data = BinUtils.gunzip(reader.readNextPart());
+				Assert.assertEquals("data of ds" + i,
+						new String(data, ModelStream.CHARSET));
+				Assert.assertEquals(0, reader.readNextInt());
+				i++;
+			}
+			Assert.assertEquals(total, i);
+		}
+	}
+
+	private static class TestStream extends ModelStream<Dataset> {
+
+		private final AtomicInteger produced;
+		private final int failAt;
+
+		TestStream(int total, int failAt, Consumer<Dataset> callback,
+				boolean gzip) {
+			this(total, failAt, callback, gzip, new AtomicInteger());
+		}
+
+		private TestStream(int total, int failAt, Consumer<Dataset> callback,
+				boolean gzip, AtomicInteger produced) {
+			super("test commit", datasets(total, produced), total, callback,
+					gzip);
+			this.produced = produced;
+			this.failAt = failAt;
+		}
+
+		private static Iterator<Dataset> datasets(
+				int total, AtomicInteger produced) {
+			List<Dataset> list = new ArrayList<>();
+			for (int i = 0; i < total; i++) {
+				var dataset = new Dataset();
+				dataset.type = ModelType.FLOW;
+				dataset.refId = "ds" + i;
+				dataset.name = "data set " + i;
+				list.add(dataset);
+			}
+			var it = list.iterator();
+			return new Iterator<>() {
+				@Override
+				public boolean hasNext() {
+					return it.hasNext();
+				}
+
+				@Override
+				public Dataset next() {
+					produced.incrementAndGet();
+					return it.next();
+				}
+			};
+		}
+
+		@Override
+		protected byte[] getData(Dataset dataset) throws IOException {
+			if (dataset.refId.equals("ds" + failAt))
+				throw new IOException("failed to read data set " + failAt);
+			return BinUtils.gzip(
+					("data of " + dataset.refId).getBytes(CHARSET));
+		}
+
+		@Override
+		protected File getBinaryFilesLocation(Dataset dataset) {
+			return null;
+		}
+
+		@Override
+		protected byte[] getBinaryData(Path file) throws IOException {
+			return new byte[0];
+		}
+	}
+}
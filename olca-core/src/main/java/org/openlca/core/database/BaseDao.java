@@ -163,6 +163,25 @@ public class BaseDao<T extends AbstractEntity> implements IDao<T> {
 		}
 	}
 
+	@Override
+	public void insertAll(Collection<T> entities) {
+		if (entities == null || entities.isEmpty())
+			return;
+		EntityManager em = createManager();
+		try {
+			em.getTransaction().begin();
+			for (T entity : entities) {
+				em.persist(entity);
+			}
+			em.getTransaction().commit();
+		} catch (Exception e) {
+			DatabaseException.logAndThrow(log, "Error while inserting "
+					+ entityType.getSimpleName(), e);
+		} finally {
+			em.close();
+		}
+	}
+
 	@Override
 	public T getForId(long id) {
 		log.trace("get {} for id={}", entityType, id);
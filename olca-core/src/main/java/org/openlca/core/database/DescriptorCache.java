@@ -0,0 +1,362 @@
+package org.openlca.core.database;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.openlca.core.model.ModelType;
+import org.openlca.core.model.descriptors.CategorizedDescriptor;
+import org.openlca.core.model.descriptors.Descriptor;
+import org.openlca.core.model.descriptors.FlowDescriptor;
+import org.openlca.core.model.descriptors.LocationDescriptor;
+import org.openlca.core.model.descriptors.ProcessDescriptor;
+import org.openlca.core.model.descriptors.ProductSystemDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.map.hash.TObjectLongHashMap;
+
+/**
+ * A database scoped cache of the descriptors of processes, flows, product
+ * systems, and locations that are used for building the indices of a
+ * calculation. There is one cache per database instance which is shared by all
+ * callers; use `DescriptorCache.of(db)` to get it.
+ * <p>
+ * A table of the cache is loaded on first access. After that, it is kept in
+ * sync with the database: descriptors of models that were inserted, updated,
+ * or deleted via the DAOs are reloaded on the next access (the cache is
+ * registered as database listener); other accesses do not query the
+ * database. Changes that bypass the DAOs (e.g. native SQL imports) are only
+ * detected after `checkExternalChanges` was called, which should be done once
+ * per batch of work (the product index and the matrix builders do this once
+ * per build): the next access of a table then runs a check of the row count,
+ * maximum ID, and maximum `last_change` value of the table; when this check
+ * fails, the `version` and `last_change` fields of all rows are compared with
+ * the cached descriptors and only the changed descriptors are reloaded.
+ * `IDatabase.clearCache()` drops the cached tables completely.
+ * <p>
+ * The tables returned from the cache are immutable snapshots. Thus, they can
+ * be shared between threads and a calculation sees a consistent state even
+ * when the database is modified in the meantime. The descriptors in the tables
+ * are not copied but shared by all callers; they must be treated as read-only
+ * and must not be modified.
+ */
+public final class DescriptorCache {
+
+	private static final Map<IDatabase, DescriptorCache> caches = new WeakHashMap<>();
+
+	/**
+	 * We only keep a weak reference to the database here as the cache is a
+	 * value in the weak map of caches (which would otherwise never release
+	 * the database).
+	 */
+	private final WeakReference<IDatabase> db;
+	private final Map<ModelType, Sync<?>> syncs = new EnumMap<>(ModelType.class);
+	private final Sync<ProcessDescriptor> processes;
+	private final Sync<FlowDescriptor> flows;
+	private final Sync<ProductSystemDescriptor> systems;
+	private final Sync<LocationDescriptor> locations;
+
+	private DescriptorCache(IDatabase db) {
+		this.db = new WeakReference<>(db);
+		processes = register(ModelType.PROCESS, ProcessDao::new);
+		flows = register(ModelType.FLOW, FlowDao::new);
+		systems = register(ModelType.PRODUCT_SYSTEM, ProductSystemDao::new);
+		locations = register(ModelType.LOCATION, LocationDao::new);
+	}
+
+	private <T extends CategorizedDescriptor> Sync<T> register(
+			ModelType type, Function<IDatabase, CategorizedEntityDao<?, T>> dao) {
+		Sync<T> sync = new Sync<>(dao);
+		syncs.put(type, sync);
+		return sync;
+	}
+
+	/**
+	 * Returns the descriptor cache of the given database.
+	 */
+	public static DescriptorCache of(IDatabase db) {
+		synchronized (caches) {
+			DescriptorCache cache = caches.get(db);
+			if (cache != null)
+				return cache;
+			cache = new DescriptorCache(db);
+			db.addListener(cache.new Listener());
+			caches.put(db, cache);
+			return cache;
+		}
+	}
+
+	/**
+	 * Drops the cached descriptors of the given database (if there are any)
+	 * so that they are completely reloaded on the next access.
+	 */
+	public static void invalidate(IDatabase db) {
+		DescriptorCache cache;
+		synchronized (caches) {
+			cache = caches.get(db);
+		}
+		if (cache == null)
+			return;
+		for (Sync<?> sync : cache.syncs.values()) {
+			sync.invalidate();
+		}
+	}
+
+	/**
+	 * Marks the tables of this cache so that the next access of each table
+	 * checks once whether the table was modified outside of the DAOs. This
+	 * should be called once per batch of work, e.g. at the begin of a
+	 * calculation, and not for each access of a table.
+	 */
+	public void checkExternalChanges() {
+		for (Sync<?> sync : syncs.values()) {
+			sync.check = true;
+		}
+	}
+
+	public Table<ProcessDescriptor> processes() {
+		return processes.get(database());
+	}
+
+	public Table<FlowDescriptor> flows() {
+		return flows.get(database());
+	}
+
+	public Table<ProductSystemDescriptor> productSystems() {
+		return systems.get(database());
+	}
+
+	public Table<LocationDescriptor> locations() {
+		return locations.get(database());
+	}
+
+	private IDatabase database() {
+		IDatabase database = db.get();
+		if (database == null)
+			throw new IllegalStateException("database was already released");
+		return database;
+	}
+
+	/**
+	 * An immutable snapshot of the descriptors of a model type, indexed by ID
+	 * and reference ID. The descriptors are shared and must not be modified.
+	 */
+	public static final class Table<T extends CategorizedDescriptor> {
+
+		private final TLongObjectHashMap<T> descriptors;
+		private final TObjectLongHashMap<String> refIds;
+
+		private Table(TLongObjectHashMap<T> descriptors) {
+			this.descriptors = descriptors;
+			this.refIds = new TObjectLongHashMap<>(descriptors.size());
+			descriptors.forEachValue(d -> {
+				if (d.refId != null) {
+					refIds.put(d.refId, d.id);
+				}
+				return true;
+			});
+		}
+
+		/** Returns the descriptor with the given ID or null. */
+		public T get(long id) {
+			return descriptors.get(id);
+		}
+
+		/** Returns the descriptor with the given reference ID or null. */
+		public T getForRefId(String refId) {
+			if (refId == null || !refIds.containsKey(refId))
+				return null;
+			return descriptors.get(refIds.get(refId));
+		}
+
+		public int size() {
+			return descriptors.size();
+		}
+
+		public void forEach(Consumer<T> fn) {
+			descriptors.forEachValue(d -> {
+				fn.accept(d);
+				return true;
+			});
+		}
+	}
+
+	/**
+	 * Synchronizes the table of a model type with the database.
+	 */
+	private static class Sync<T extends CategorizedDescriptor> {
+
+		/**
+		 * Creates the DAO for a database; we do not store the DAO as it would
+		 * hold a strong reference to the database.
+		 */
+		private final Function<IDatabase, CategorizedEntityDao<?, T>> daoFn;
+
+		/** IDs of models that were changed via the DAOs. */
+		private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+		private Table<T> table;
+		private long[] stamp;
+
+		/** True when the stamp should be checked on the next access. */
+		private volatile boolean check;
+
+		Sync(Function<IDatabase, CategorizedEntityDao<?, T>> daoFn) {
+			this.daoFn = daoFn;
+		}
+
+		void notify(Descriptor d) {
+			if (d != null) {
+				pending.add(d.id);
+			}
+		}
+
+		synchronized void invalidate() {
+			table = null;
+			stamp = null;
+			pending.clear();
+		}
+
+		synchronized Table<T> get(IDatabase db) {
+			if (table != null && !check && pending.isEmpty())
+				return table;
+			CategorizedEntityDao<?, T> dao = daoFn.apply(db);
+			String tableName = dao.getEntityTable();
+			if (table == null) {
+				check = false;
+				pending.clear();
+				stamp = stamp(db, tableName);
+				TLongObjectHashMap<T> map = new TLongObjectHashMap<>();
+				for (T d : dao.getDescriptors()) {
+					map.put(d.id, d);
+				}
+				table = new Table<>(map);
+				return table;
+			}
+			boolean scan = false;
+			if (check) {
+				check = false;
+				long[] current = stamp(db, tableName);
+				scan = !Arrays.equals(current, stamp);
+				stamp = current;
+			}
+			if (!scan && pending.isEmpty())
+				return table;
+			table = update(db, dao, tableName, scan);
+			return table;
+		}
+
+		/**
+		 * Creates a new snapshot with the reloaded descriptors of the pending
+		 * models. When `scan` is true, also the descriptors of the models
+		 * which `version` or `last_change` fields differ from the cached
+		 * descriptors are reloaded and descriptors of deleted models removed.
+		 */
+		private Table<T> update(IDatabase db, CategorizedEntityDao<?, T> dao,
+				String tableName, boolean scan) {
+			Set<Long> changed = new HashSet<>(pending);
+			pending.removeAll(changed);
+			TLongObjectHashMap<T> map;
+			if (scan) {
+				map = scan(db, tableName, changed);
+			} else {
+				map = new TLongObjectHashMap<>(table.descriptors);
+			}
+			for (Long id : changed) {
+				map.remove(id);
+			}
+			for (T d : dao.getDescriptors(changed)) {
+				map.put(d.id, d);
+			}
+			Logger log = LoggerFactory.getLogger(DescriptorCache.class);
+			log.trace("reloaded {} descriptors of {}", changed.size(), tableName);
+			return new Table<>(map);
+		}
+
+		/**
+		 * Compares the `version` and `last_change` fields of the rows in the
+		 * table with the cached descriptors. Returns a map with the cached
+		 * descriptors that are still valid and adds the IDs of the other rows
+		 * to the given set.
+		 */
+		private TLongObjectHashMap<T> scan(IDatabase db, String tableName,
+				Set<Long> changed) {
+			TLongObjectHashMap<T> map = new TLongObjectHashMap<>(
+					table.descriptors.size());
+			String sql = "select id, version, last_change from " + tableName;
+			NativeSql.on(db).query(sql, r -> {
+				long id = r.getLong(1);
+				T d = table.descriptors.get(id);
+				if (d == null
+						|| d.version != r.getLong(2)
+						|| d.lastChange != r.getLong(3)) {
+					changed.add(id);
+				} else {
+					map.put(id, d);
+				}
+				return true;
+			});
+			return map;
+		}
+
+		/**
+		 * Returns the row count, maximum ID, and maximum `last_change` value of
+		 * the table.
+		 */
+		private long[] stamp(IDatabase db, String tableName) {
+			long[] s = new long[3];
+			String sql = "select count(id), max(id), max(last_change) from "
+					+ tableName;
+			NativeSql.on(db).query(sql, r -> {
+				s[0] = r.getLong(1);
+				s[1] = r.getLong(2);
+				s[2] = r.getLong(3);
+				return false;
+			});
+			return s;
+		}
+	}
+
+	private class Listener implements IDatabaseListener {
+
+		@Override
+		public void modelInserted(Descriptor d) {
+			dispatch(d);
+		}
+
+		@Override
+		public void modelUpdated(Descriptor d) {
+			dispatch(d);
+		}
+
+		@Override
+		public void modelDeleted(Descriptor d) {
+			dispatch(d);
+		}
+
+		@Override
+		public void cacheCleared() {
+			for (Sync<?> sync : syncs.values()) {
+				sync.invalidate();
+			}
+		}
+
+		private void dispatch(Descriptor d) {
+			if (d == null || d.type == null)
+				return;
+			Sync<?> sync = syncs.get(d.type);
+			if (sync != null) {
+				sync.notify(d);
+			}
+		}
+	}
+}
@@ -129,6 +129,7 @@ public class FlowDao extends CategorizedEntityDao<Flow, FlowDescriptor> {
 				query += " AND f_default_provider IS NULL";
 			}
 			NativeSql.on(database).runUpdate(query);
+			database.clearCache();
 		} catch (Exception e) {
 			DatabaseException.logAndThrow(log,
 					"failed to replace flow " + oldId + " with " + newId, e);
@@ -46,11 +46,13 @@ public interface IDatabase extends Closeable, INotifiable {
 	File getFileStorageLocation();
 
 	/**
-	 * Clears the cache of the entity manager of this database. You should
-	 * always call this method when you modified the database (via native SQL
-	 * queries) outside of the entity manager.
+	 * Clears the cache of the entity manager of this database and notifies
+	 * the database listeners so that they can drop their cached data. You
+	 * should always call this method when you modified the database (via
+	 * native SQL queries) outside of the entity manager.
 	 */
 	default void clearCache() {
+		notifyCacheCleared();
 		var emf = getEntityFactory();
 		if (emf == null)
 			return;
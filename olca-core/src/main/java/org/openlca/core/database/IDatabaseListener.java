@@ -10,4 +10,12 @@ public interface IDatabaseListener {
 
 	void modelDeleted(Descriptor descriptor);
 
+	/**
+	 * Called when the caches of the database were cleared, e.g. after the
+	 * database was modified via native SQL. Listeners that cache data of the
+	 * database should drop them then.
+	 */
+	default void cacheCleared() {
+	}
+
 }
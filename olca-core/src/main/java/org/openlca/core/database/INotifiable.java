@@ -13,5 +13,7 @@ public interface INotifiable {
 	void notifyUpdate(Descriptor descriptor);
 
 	void notifyDelete(Descriptor descriptor);
+
+	void notifyCacheCleared();
 	
 }
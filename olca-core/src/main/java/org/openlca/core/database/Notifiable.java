@@ -37,4 +37,10 @@ public class Notifiable implements INotifiable {
 			listener.modelDeleted(descriptor);
 	}
 
+	@Override
+	public void notifyCacheCleared() {
+		for (IDatabaseListener listener : listeners)
+			listener.cacheCleared();
+	}
+
 }
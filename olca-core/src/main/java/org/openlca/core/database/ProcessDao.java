@@ -87,6 +87,7 @@ public class ProcessDao extends CategorizedEntityDao<Process, ProcessDescriptor>
 				+ "WHERE f_default_provider = " + oldId + " AND f_flow = " + productId;
 		try {
 			NativeSql.on(database).runUpdate(statement);
+			database.clearCache();
 		} catch (Exception e) {
 			DatabaseException.logAndThrow(log, "failed to replace provider " + oldId + " for product " + productId
 					+ " with " + newId, e);
@@ -36,6 +36,14 @@ public class RootEntityDao<T extends RootEntity, V extends Descriptor> extends B
 		return entity;
 	}
 
+	@Override
+	public void insertAll(Collection<T> entities) {
+		super.insertAll(entities);
+		for (T entity : entities) {
+			database.notifyInsert(Descriptor.of(entity));
+		}
+	}
+
 	@Override
 	public T update(T entity) {
 		entity = super.update(entity);
@@ -5,15 +5,12 @@ import java.io.FileInputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
-import org.openlca.core.database.CategorizedEntityDao;
+import org.openlca.core.database.DescriptorCache;
 import org.openlca.core.database.FlowDao;
 import org.openlca.core.database.IDatabase;
 import org.openlca.core.database.LocationDao;
-import org.openlca.core.database.ProcessDao;
 import org.openlca.core.matrix.FlowIndex;
 import org.openlca.core.matrix.ProcessProduct;
 import org.openlca.core.matrix.TechIndex;
@@ -21,7 +18,6 @@ import org.openlca.core.matrix.format.IMatrix;
 import org.openlca.core.matrix.io.npy.Npy;
 import org.openlca.core.matrix.io.npy.Npz;
 import org.openlca.core.model.Exchange;
-import org.openlca.core.model.descriptors.CategorizedDescriptor;
 import org.openlca.jsonld.Json;
 import org.slf4j.LoggerFactory;
 
@@ -58,16 +54,17 @@ public class Library {
 		if (!file.exists())
 			return Optional.empty();
 
-		var processes = descriptors(new ProcessDao(db));
-		var products = descriptors(new FlowDao(db));
+		var cache = DescriptorCache.of(db);
+		var processes = cache.processes();
+		var products = cache.flows();
 		TechIndex index = null;
 		try (var stream = new FileInputStream(file)) {
 			var proto = Proto.ProductIndex.parseFrom(stream);
 			int size = proto.getProductCount();
 			for (int i = 0; i < size; i++) {
 				var entry = proto.getProduct(i);
-				var process = processes.get(entry.getProcess().getId());
-				var product = products.get(entry.getProduct().getId());
+				var process = processes.getForRefId(entry.getProcess().getId());
+				var product = products.getForRefId(entry.getProduct().getId());
 				if (process == null || product == null)
 					return Optional.empty();
 				if (index == null) {
@@ -99,15 +96,16 @@ public class Library {
 				? FlowIndex.createRegionalized()
 				: FlowIndex.create();
 
-		var flows = descriptors(new FlowDao(db));
-		var locations = descriptors(new LocationDao(db));
+		var cache = DescriptorCache.of(db);
+		var flows = cache.flows();
+		var locations = cache.locations();
 		try (var stream = new FileInputStream(file)) {
 			var proto = Proto.ElemFlowIndex.parseFrom(stream);
 			int size = proto.getFlowCount();
 			for (int i = 0; i < size; i++) {
 				var entry = proto.getFlow(i);
-				var flow = flows.get(entry.getFlow().getId());
-				var location = locations.get(entry.getLocation().getId());
+				var flow = flows.getForRefId(entry.getFlow().getId());
+				var location = locations.getForRefId(entry.getLocation().getId());
 				if (flow == null)
 					return Optional.empty();
 				if (entry.getIsInput()) {
@@ -124,15 +122,6 @@ public class Library {
 		}
 	}
 
-	private <T extends CategorizedDescriptor> Map<String, T> descriptors(
-			CategorizedEntityDao<?, T> dao) {
-		return dao.getDescriptors()
-				.stream()
-				.collect(Collectors.toMap(
-						d -> d.refId,
-						d -> d));
-	}
-
 	public boolean hasMatrix(LibraryMatrix m) {
 		var npy = new File(folder, m.name() + ".npy");
 		if (npy.exists())
@@ -2,12 +2,11 @@ package org.openlca.core.math;
 
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
-import org.openlca.core.database.FlowDao;
+import org.openlca.core.database.DescriptorCache;
 import org.openlca.core.database.IDatabase;
 import org.openlca.core.database.ImpactMethodDao;
-import org.openlca.core.database.ProcessDao;
-import org.openlca.core.database.ProductSystemDao;
 import org.openlca.core.matrix.DIndex;
 import org.openlca.core.matrix.ImpactBuilder;
 import org.openlca.core.matrix.InventoryBuilder;
@@ -24,13 +23,9 @@ import org.openlca.core.model.ProductSystem;
 import org.openlca.core.model.descriptors.CategorizedDescriptor;
 import org.openlca.core.model.descriptors.FlowDescriptor;
 import org.openlca.core.model.descriptors.ImpactCategoryDescriptor;
-import org.openlca.core.model.descriptors.ProcessDescriptor;
-import org.openlca.core.model.descriptors.ProductSystemDescriptor;
 import org.openlca.core.results.SimpleResult;
 import org.openlca.expressions.FormulaInterpreter;
 
-import gnu.trove.map.hash.TLongObjectHashMap;
-
 /**
  * Provides helper methods for creating matrix-like data structures that can be
  * used in calculations (but also exports, validations, etc.).
@@ -65,14 +60,12 @@ public class DataStructures {
 		}
 		index.setDemand(demand);
 
-		// initialize the fast descriptor maps
-		ProductSystemDao sysDao = new ProductSystemDao(db);
-		TLongObjectHashMap<ProductSystemDescriptor> systems = sysDao
-				.descriptorMap();
-		TLongObjectHashMap<ProcessDescriptor> processes = new ProcessDao(
-				db).descriptorMap();
-		TLongObjectHashMap<FlowDescriptor> flows = new FlowDao(
-				db).descriptorMap();
+		// get the descriptors from the shared cache
+		DescriptorCache cache = DescriptorCache.of(db);
+		cache.checkExternalChanges();
+		var systems = cache.productSystems();
+		var processes = cache.processes();
+		var flows = cache.flows();
 
 		for (ProcessLink link : system.processLinks) {
 			CategorizedDescriptor p = processes.get(link.providerId);
@@ -102,10 +95,26 @@ public class DataStructures {
 			CalculationSetup setup,
 			IDatabase db,
 			Map<ProcessProduct, SimpleResult> subResults) {
-
 		var techIndex = createProductIndex(setup.productSystem, db);
 		techIndex.setDemand(setup.getDemandValue());
 		var interpreter = interpreter(db, setup, techIndex);
+		return matrixData(setup, db, techIndex, interpreter,
+				subResults, false);
+	}
+
+	/**
+	 * Create the matrix data for the calculation of the given setup with the
+	 * given tech. index and formula interpreter. If `withFormulaCells` is
+	 * true, the cells that depend on formulas are recorded in the returned
+	 * data.
+	 */
+	static MatrixData matrixData(
+			CalculationSetup setup,
+			IDatabase db,
+			TechIndex techIndex,
+			FormulaInterpreter interpreter,
+			Map<ProcessProduct, SimpleResult> subResults,
+			boolean withFormulaCells) {
 
 		var conf = new InventoryConfig(db, techIndex);
 		conf.allocationMethod = setup.allocationMethod;
@@ -114,6 +123,7 @@ public class DataStructures {
 		conf.withCosts = setup.withCosts;
 		conf.withRegionalization = setup.withRegionalization;
 		conf.withUncertainties = setup.withUncertainties;
+		conf.withFormulaCells = withFormulaCells;
 		var builder = new InventoryBuilder(conf);
 		var data = builder.build();
 
@@ -125,11 +135,13 @@ public class DataStructures {
 			if (!impactIdx.isEmpty()) {
 				var impactBuilder = new ImpactBuilder(db);
 				impactBuilder.withUncertainties(conf.withUncertainties);
+				impactBuilder.withFormulaCells(withFormulaCells);
 				var impactData = impactBuilder.build(
 						data.flowIndex, impactIdx, interpreter);
 				data.impactMatrix = impactData.impactMatrix;
 				data.impactIndex = impactIdx;
 				data.impactUncertainties = impactData.impactUncertainties;
+				data.impactFormulas = impactData.impactFormulas;
 			}
 		}
 
@@ -138,8 +150,17 @@ public class DataStructures {
 
 	public static FormulaInterpreter interpreter(IDatabase db,
 			CalculationSetup setup, TechIndex techIndex) {
-		// collect the process and LCIA category IDs; these
-		// are the possible contexts of local parameters
+		return ParameterTable.interpreter(db,
+				parameterContexts(db, setup, techIndex),
+				setup.parameterRedefs);
+	}
+
+	/**
+	 * Collects the process and LCIA category IDs of the given setup; these are
+	 * the possible contexts of local parameters.
+	 */
+	static Set<Long> parameterContexts(IDatabase db,
+			CalculationSetup setup, TechIndex techIndex) {
 		HashSet<Long> contexts = new HashSet<>();
 		if (techIndex != null) {
 			contexts.addAll(techIndex.getProcessIds());
@@ -149,7 +170,6 @@ public class DataStructures {
 			dao.getCategoryDescriptors(setup.impactMethod.id).forEach(
 					d -> contexts.add(d.id));
 		}
-		return ParameterTable.interpreter(
-				db, contexts, setup.parameterRedefs);
+		return contexts;
 	}
 }
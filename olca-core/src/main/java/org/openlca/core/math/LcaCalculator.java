@@ -4,7 +4,11 @@ import org.openlca.core.matrix.CostVector;
 import org.openlca.core.matrix.MatrixData;
 import org.openlca.core.matrix.ProcessProduct;
 import org.openlca.core.matrix.TechIndex;
+import org.openlca.core.matrix.format.CSCMatrix;
+import org.openlca.core.matrix.format.HashPointMatrix;
 import org.openlca.core.matrix.format.IMatrix;
+import org.openlca.core.matrix.format.SparseKernels;
+import org.openlca.core.matrix.solvers.Factorization;
 import org.openlca.core.matrix.solvers.IMatrixSolver;
 import org.openlca.core.results.ContributionResult;
 import org.openlca.core.results.FullResult;
@@ -20,11 +24,29 @@ public class LcaCalculator {
 	private final IMatrixSolver solver;
 	private final MatrixData data;
 
+	/**
+	 * An optional factorization of the technology matrix of the data. If
+	 * present, it is used to calculate the scaling vector instead of solving
+	 * the system from scratch.
+	 */
+	private Factorization factorization;
+
 	public LcaCalculator(IMatrixSolver solver, MatrixData data) {
 		this.solver = solver;
 		this.data = data;
 	}
 
+	/**
+	 * Sets an existing factorization of the technology matrix that should be
+	 * used in the calculation. This is useful when the same system is solved
+	 * multiple times (e.g. for calculating upstream results of selected
+	 * products). The caller is responsible for disposing the factorization.
+	 */
+	public LcaCalculator withFactorization(Factorization factorization) {
+		this.factorization = factorization;
+		return this;
+	}
+
 	public SimpleResult calculateSimple() {
 
 		SimpleResult result = new SimpleResult();
@@ -34,7 +56,7 @@ public class LcaCalculator {
 		IMatrix techMatrix = data.techMatrix;
 		TechIndex productIndex = data.techIndex;
 		int idx = productIndex.getIndex(productIndex.getRefFlow());
-		double[] s = solver.solve(techMatrix, idx, productIndex.getDemand());
+		double[] s = solve(techMatrix, idx, productIndex.getDemand());
 		result.scalingVector = s;
 		result.totalRequirements = getTotalRequirements(techMatrix, s);
 		IMatrix enviMatrix = data.enviMatrix;
@@ -42,7 +64,7 @@ public class LcaCalculator {
 		result.totalFlowResults = solver.multiply(enviMatrix, s);
 
 		if (data.impactMatrix != null) {
-			addTotalImpacts(result);
+			addTotalImpacts(result, data.impactMatrix);
 		}
 
 		if (data.costVector != null) {
@@ -61,7 +83,7 @@ public class LcaCalculator {
 		IMatrix techMatrix = data.techMatrix;
 		TechIndex productIndex = data.techIndex;
 		int idx = productIndex.getIndex(productIndex.getRefFlow());
-		double[] s = solver.solve(techMatrix, idx, productIndex.getDemand());
+		double[] s = solve(techMatrix, idx, productIndex.getDemand());
 		result.scalingVector = s;
 		result.totalRequirements = getTotalRequirements(techMatrix, s);
 
@@ -69,11 +91,12 @@ public class LcaCalculator {
 		IMatrix singleResult = enviMatrix.copy();
 		solver.scaleColumns(singleResult, s);
 		result.directFlowResults = singleResult;
-		result.totalFlowResults = solver.multiply(enviMatrix, s);
+		result.totalFlowResults = solver.multiply(compress(enviMatrix), s);
 
 		if (data.impactMatrix != null) {
-			addTotalImpacts(result);
-			addDirectImpacts(result);
+			IMatrix factors = compress(data.impactMatrix);
+			addTotalImpacts(result, factors);
+			addDirectImpacts(result, factors);
 		}
 
 		if (data.costVector != null) {
@@ -83,6 +106,14 @@ public class LcaCalculator {
 		return result;
 	}
 
+	/**
+	 * Calculates a full result. The upstream results of this result are not
+	 * calculated via the dense inverse of the technology matrix but row by row
+	 * when they are requested (see `UpstreamMatrix`). Thus, the result can be
+	 * also calculated for large systems where the inverse would not fit into
+	 * memory. The factorizations that are needed for this are bound to the
+	 * result and released when the result is disposed.
+	 */
 	public FullResult calculateFull() {
 
 		FullResult result = new FullResult();
@@ -92,8 +123,12 @@ public class LcaCalculator {
 		TechIndex productIdx = data.techIndex;
 		IMatrix techMatrix = data.techMatrix;
 		IMatrix enviMatrix = data.enviMatrix;
-		IMatrix inverse = solver.invert(techMatrix);
-		double[] scalingVector = getScalingVector(inverse, productIdx);
+		CSCMatrix csc = SparseKernels.csc(techMatrix);
+		Factorization lu = factorization != null
+				? factorization
+				: solver.factorize(csc);
+		int refIdx = productIdx.getIndex(productIdx.getRefFlow());
+		double[] scalingVector = lu.solve(refIdx, productIdx.getDemand());
 		result.scalingVector = scalingVector;
 
 		// direct results
@@ -109,31 +144,34 @@ public class LcaCalculator {
 				techMatrix, scalingVector, productIdx);
 		double[] demands = getRealDemands(
 				result.totalRequirements, result.loopFactor);
-		IMatrix totalResult = solver.multiply(enviMatrix, inverse);
-		if (data.costVector == null) {
-			inverse = null; // allow GC
-		}
-		solver.scaleColumns(totalResult, demands);
-		result.upstreamFlowResults = totalResult;
-		int refIdx = productIdx.getIndex(productIdx.getRefFlow());
-		result.totalFlowResults = totalResult.getColumn(refIdx);
+		UpstreamMatrix.Context context = new UpstreamMatrix.Context(
+				solver, csc, lu, factorization == null, demands);
+		result.onDispose(context::dispose);
+		UpstreamMatrix upstreamFlows = new UpstreamMatrix(
+				context, enviMatrix);
+		result.upstreamFlowResults = upstreamFlows;
+		result.totalFlowResults = upstreamFlows.getColumn(refIdx);
 
 		if (data.impactMatrix != null) {
-			addDirectImpacts(result);
-			IMatrix factors = data.impactMatrix;
-			IMatrix totalImpactResult = solver.multiply(factors, totalResult);
-			result.upstreamImpactResults = totalImpactResult;
+			IMatrix factors = compress(data.impactMatrix);
+			addDirectImpacts(result, factors);
+			IMatrix cb = new HashPointMatrix(
+					factors.rows(), enviMatrix.columns());
+			SparseKernels.multiply(SparseKernels.csc(factors),
+					SparseKernels.csc(enviMatrix), cb);
+			UpstreamMatrix upstreamImpacts = new UpstreamMatrix(context, cb);
+			result.upstreamImpactResults = upstreamImpacts;
 			// total impacts = upstream result of reference product
 			result.impactIndex = data.impactIndex;
-			result.totalImpactResults = totalImpactResult.getColumn(refIdx);
+			result.totalImpactResults = upstreamImpacts.getColumn(refIdx);
 		}
 
 		if (data.costVector != null) {
 			addDirectCosts(result, scalingVector);
 			IMatrix costValues = CostVector.asMatrix(solver, data.costVector);
-			IMatrix upstreamCosts = solver.multiply(costValues, inverse);
-			solver.scaleColumns(upstreamCosts, demands);
-			result.totalCosts = upstreamCosts.get(0, refIdx);
+			UpstreamMatrix upstreamCosts = new UpstreamMatrix(
+					context, costValues);
+			result.totalCosts = upstreamCosts.getColumn(refIdx)[0];
 			result.upstreamCostResults = upstreamCosts;
 		}
 
@@ -204,20 +242,38 @@ public class LcaCalculator {
 		return rd;
 	}
 
-	private void addTotalImpacts(SimpleResult result) {
+	private double[] solve(IMatrix techMatrix, int idx, double demand) {
+		return factorization != null
+				? factorization.solve(idx, demand)
+				: solver.solve(techMatrix, idx, demand);
+	}
+
+	/**
+	 * Returns the given matrix in the CSC format when it is stored in another
+	 * sparse format. We do this for matrices that are used in multiple
+	 * products so that the solver can directly use the sparse kernels on them
+	 * without converting them again. Note that the returned matrix should only
+	 * be used in calculations but not be stored in results as CSC matrices are
+	 * not editable.
+	 */
+	private IMatrix compress(IMatrix m) {
+		if (m instanceof CSCMatrix || !SparseKernels.isSparse(m))
+			return m;
+		return CSCMatrix.of(m);
+	}
+
+	private void addTotalImpacts(SimpleResult result, IMatrix factors) {
 		result.impactIndex = data.impactIndex;
-		IMatrix factors = data.impactMatrix;
 		double[] totals = solver.multiply(factors, result.totalFlowResults);
 		result.totalImpactResults = totals;
 	}
 
-	private void addDirectImpacts(ContributionResult result) {
-		IMatrix factors = data.impactMatrix;
-		result.impactFactors = factors;
+	private void addDirectImpacts(ContributionResult result, IMatrix factors) {
+		result.impactFactors = data.impactMatrix;
 		IMatrix directResults = solver.multiply(factors,
 				result.directFlowResults);
 		result.directImpactResults = directResults;
-		IMatrix singleFlowImpacts = factors.copy();
+		IMatrix singleFlowImpacts = data.impactMatrix.copy();
 		solver.scaleColumns(singleFlowImpacts, result.totalFlowResults);
 		result.directFlowImpacts = singleFlowImpacts;
 	}
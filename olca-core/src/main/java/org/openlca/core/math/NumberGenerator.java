@@ -1,10 +1,45 @@
 package org.openlca.core.math;
 
-import java.util.Random;
-
+import java.util.SplittableRandom;
+
+import org.apache.commons.math3.special.Erf;
+
+/**
+ * Generates random numbers of an uncertainty distribution. The numbers are
+ * drawn from a `SplittableRandom` stream. When no stream is passed into the
+ * `next` method, a stream of the generator is used which is initialized with
+ * a random seed. For reproducible results, pass a seeded stream into
+ * `next(SplittableRandom)`. Note that a stream is not thread-safe; when
+ * numbers are generated in parallel, each thread should use its own stream
+ * that can be created via `SplittableRandom.split()`.
+ */
 public abstract class NumberGenerator {
 
-	public abstract double next();
+	private SplittableRandom random;
+
+	/**
+	 * Generates the next number using the internal random stream of this
+	 * generator.
+	 */
+	public double next() {
+		if (random == null) {
+			random = new SplittableRandom();
+		}
+		return next(random);
+	}
+
+	/**
+	 * Generates the next number using the given random stream.
+	 */
+	public abstract double next(SplittableRandom random);
+
+	/**
+	 * Returns the value of the inverse cumulative distribution function of the
+	 * underlying distribution for the given probability p, which should be in
+	 * the open interval (0, 1). With this, numbers can be generated from
+	 * uniform samples, e.g. from stratified or quasi-random samples.
+	 */
+	public abstract double quantile(double p);
 
 	public static NumberGenerator normal(double mean, double standardDeviation) {
 		return new Normal(mean, standardDeviation);
@@ -31,21 +66,47 @@ public abstract class NumberGenerator {
 		return new Discrete(val);
 	}
 
+	/**
+	 * Generates a standard normal distributed number from the given stream
+	 * using the polar method of Marsaglia. We do not cache the second value
+	 * of the method so that the generators stay stateless.
+	 */
+	static double nextGaussian(SplittableRandom random) {
+		double v1, v2, s;
+		do {
+			v1 = 2 * random.nextDouble() - 1;
+			v2 = 2 * random.nextDouble() - 1;
+			s = v1 * v1 + v2 * v2;
+		} while (s >= 1 || s == 0);
+		return v1 * StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+	}
+
+	/**
+	 * The inverse cumulative distribution function of the standard normal
+	 * distribution.
+	 */
+	static double normalQuantile(double p) {
+		return Math.sqrt(2) * Erf.erfInv(2 * p - 1);
+	}
+
 	private static class Normal extends NumberGenerator {
 
-		private final Random rand;
 		private final double mean;
 		private final double std;
 
 		Normal(double mean, double std) {
 			this.mean = mean;
 			this.std = std;
-			this.rand = new Random();
 		}
 
 		@Override
-		public double next() {
-			return rand.nextGaussian() * std + mean;
+		public double next(SplittableRandom random) {
+			return nextGaussian(random) * std + mean;
+		}
+
+		@Override
+		public double quantile(double p) {
+			return normalQuantile(p) * std + mean;
 		}
 	}
 
@@ -74,26 +135,34 @@ public abstract class NumberGenerator {
 		}
 
 		@Override
-		public double next() {
-			return Math.exp(normal.next()) * factor;
+		public double next(SplittableRandom random) {
+			return StrictMath.exp(normal.next(random)) * factor;
+		}
+
+		@Override
+		public double quantile(double p) {
+			return StrictMath.exp(normal.quantile(p)) * factor;
 		}
 	}
 
 	private static class Uniform extends NumberGenerator {
 
-		private final Random rand;
 		private final double min;
 		private final double range;
 
 		Uniform(double min, double max) {
 			this.min = min;
 			this.range = max - min;
-			this.rand = new Random();
 		}
 
 		@Override
-		public double next() {
-			return min + rand.nextDouble() * range;
+		public double next(SplittableRandom random) {
+			return min + random.nextDouble() * range;
+		}
+
+		@Override
+		public double quantile(double p) {
+			return min + p * range;
 		}
 	}
 
@@ -109,14 +178,18 @@ public abstract class NumberGenerator {
 			this.max = max;
 		}
 
+		@Override
+		public double next(SplittableRandom random) {
+			return quantile(random.nextDouble());
+		}
+
 		/**
 		 * see http://en.wikipedia.org/wiki/Triangular_distribution
 		 */
 		@Override
-		public double next() {
+		public double quantile(double u) {
 			if (max == min)
 				return mode;
-			double u = Math.random();
 			double fMode = (mode - min) / (max - min);
 			if (u <= fMode)
 				return min + Math.sqrt(u * (max - min) * (mode - min));
@@ -133,7 +206,12 @@ public abstract class NumberGenerator {
 		}
 
 		@Override
-		public double next() {
+		public double next(SplittableRandom random) {
+			return val;
+		}
+
+		@Override
+		public double quantile(double p) {
 			return val;
 		}
 
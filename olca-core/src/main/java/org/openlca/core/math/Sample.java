@@ -0,0 +1,29 @@
+package org.openlca.core.math;
+
+import java.util.SplittableRandom;
+
+/**
+ * A sample provides the values of the uncertainty distributions in a single
+ * simulation run. The distributions are visited in the same order in each run
+ * so that the n-th call of `next` in a run always belongs to the same
+ * distribution (the n-th dimension of the sample). A sample is not
+ * thread-safe.
+ */
+@FunctionalInterface
+public interface Sample {
+
+	/**
+	 * Returns the value of the given number generator in the next dimension of
+	 * this sample.
+	 */
+	double next(NumberGenerator gen);
+
+	/**
+	 * Creates a plain Monte-Carlo sample that draws the values from the given
+	 * random stream.
+	 */
+	static Sample of(SplittableRandom random) {
+		return gen -> gen.next(random);
+	}
+
+}
@@ -0,0 +1,29 @@
+package org.openlca.core.math;
+
+/**
+ * The method that is used to sample the uncertainty distributions in a
+ * Monte-Carlo simulation.
+ */
+public enum SamplingMethod {
+
+	/**
+	 * Plain Monte-Carlo sampling: the values of each run are drawn
+	 * independently from the random stream of the run.
+	 */
+	MONTE_CARLO,
+
+	/**
+	 * Latin hypercube sampling: the probability range of each distribution is
+	 * divided into n equally sized strata, where n is the number of runs, and
+	 * each stratum is sampled exactly once. This requires that the number of
+	 * runs is known in advance.
+	 */
+	LATIN_HYPERCUBE,
+
+	/**
+	 * Randomized quasi-Monte-Carlo sampling with a Sobol sequence. The Sobol
+	 * points are randomly shifted per dimension (Cranley-Patterson rotation).
+	 */
+	SOBOL
+
+}
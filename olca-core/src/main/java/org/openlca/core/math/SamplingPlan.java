@@ -0,0 +1,187 @@
+package org.openlca.core.math;
+
+import java.util.SplittableRandom;
+
+import org.apache.commons.math3.random.SobolSequenceGenerator;
+
+/**
+ * A sampling plan creates the samples of the single runs of a simulation for a
+ * given sampling method. A plan can be shared between threads: the sample of a
+ * run only depends on the run index and the random stream of that run but not
+ * on the order in which the samples are created.
+ */
+public abstract class SamplingPlan {
+
+	/**
+	 * The distance of the uniform values from 0 and 1. Values outside of this
+	 * interval are truncated as the quantile functions of unbounded
+	 * distributions are not finite at 0 and 1.
+	 */
+	private static final double EPSILON = 1e-12;
+
+	/**
+	 * Creates a sampling plan for the given method.
+	 *
+	 * @param method the sampling method
+	 * @param runs   the number of runs of the simulation; this is only
+	 *               required for Latin hypercube sampling
+	 * @param seed   the seed of the plan; e.g. the permutations of a Latin
+	 *               hypercube or the random shifts of a Sobol sequence are
+	 *               generated from this seed
+	 */
+	public static SamplingPlan of(SamplingMethod method, int runs, long seed) {
+		if (method == null)
+			return new MonteCarlo();
+		switch (method) {
+		case LATIN_HYPERCUBE:
+			return new LatinHypercube(runs, seed);
+		case SOBOL:
+			return new Sobol(seed);
+		default:
+			return new MonteCarlo();
+		}
+	}
+
+	/**
+	 * Creates the sample of the run with the given index (zero based). The
+	 * given random stream of the run is used for the random parts of the sample
+	 * (e.g. the position within a stratum of a Latin hypercube).
+	 */
+	public abstract Sample sample(int run, SplittableRandom random);
+
+	private static double truncate(double u) {
+		if (u < EPSILON)
+			return EPSILON;
+		if (u > 1 - EPSILON)
+			return 1 - EPSILON;
+		return u;
+	}
+
+	private static class MonteCarlo extends SamplingPlan {
+
+		@Override
+		public Sample sample(int run, SplittableRandom random) {
+			return Sample.of(random);
+		}
+	}
+
+	private static class LatinHypercube extends SamplingPlan {
+
+		private final int runs;
+		private final SplittableRandom random;
+
+		/**
+		 * The permutations of the strata for each dimension. They are created
+		 * on demand in the order of the dimensions from the stream of the plan,
+		 * thus, the permutation of a dimension is always the same.
+		 */
+		private volatile int[][] permutations = new int[0][];
+
+		LatinHypercube(int runs, long seed) {
+			if (runs <= 0)
+				throw new IllegalArgumentException(
+						"Latin hypercube sampling requires the number of runs");
+			this.runs = runs;
+			this.random = new SplittableRandom(seed);
+		}
+
+		@Override
+		public Sample sample(int run, SplittableRandom runRandom) {
+			if (run < 0 || run >= runs)
+				throw new IllegalArgumentException("invalid run index: " + run
+						+ "; the plan was created for " + runs + " runs");
+			return new Sample() {
+
+				private int dim = 0;
+
+				@Override
+				public double next(NumberGenerator gen) {
+					int stratum = permutation(dim++)[run];
+					double u = (stratum + runRandom.nextDouble()) / runs;
+					return gen.quantile(truncate(u));
+				}
+			};
+		}
+
+		private int[] permutation(int dim) {
+			int[][] perms = permutations;
+			if (dim < perms.length)
+				return perms[dim];
+			synchronized (this) {
+				perms = permutations;
+				if (dim < perms.length)
+					return perms[dim];
+				int n = Math.max(dim + 1, 2 * perms.length);
+				int[][] next = new int[n][];
+				System.arraycopy(perms, 0, next, 0, perms.length);
+				for (int d = perms.length; d < n; d++) {
+					next[d] = shuffle();
+				}
+				permutations = next;
+				return next[dim];
+			}
+		}
+
+		private int[] shuffle() {
+			int[] perm = new int[runs];
+			for (int i = 0; i < runs; i++) {
+				perm[i] = i;
+			}
+			for (int i = runs - 1; i > 0; i--) {
+				int j = random.nextInt(i + 1);
+				int t = perm[i];
+				perm[i] = perm[j];
+				perm[j] = t;
+			}
+			return perm;
+		}
+	}
+
+	private static class Sobol extends SamplingPlan {
+
+		/**
+		 * The maximum number of dimensions that are supported by the Sobol
+		 * generator of commons-math. Further dimensions are filled with plain
+		 * Monte-Carlo samples from the random stream of the run.
+		 */
+		private static final int MAX_DIM = 1000;
+
+		private final SobolSequenceGenerator generator;
+		private final double[] shifts;
+
+		Sobol(long seed) {
+			generator = new SobolSequenceGenerator(MAX_DIM);
+			shifts = new double[MAX_DIM];
+			SplittableRandom random = new SplittableRandom(seed);
+			for (int i = 0; i < MAX_DIM; i++) {
+				shifts[i] = random.nextDouble();
+			}
+		}
+
+		@Override
+		public Sample sample(int run, SplittableRandom runRandom) {
+			double[] point;
+			synchronized (generator) {
+				// we skip the first point of the sequence which
+				// is 0 in all dimensions
+				point = generator.skipTo(run + 1);
+			}
+			return new Sample() {
+
+				private int dim = 0;
+
+				@Override
+				public double next(NumberGenerator gen) {
+					int d = dim++;
+					if (d >= MAX_DIM)
+						return gen.next(runRandom);
+					double u = point[d] + shifts[d];
+					if (u >= 1) {
+						u -= 1;
+					}
+					return gen.quantile(truncate(u));
+				}
+			};
+		}
+	}
+}
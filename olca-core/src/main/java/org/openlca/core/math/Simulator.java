@@ -9,6 +9,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.openlca.core.database.IDatabase;
 import org.openlca.core.database.ImpactMethodDao;
@@ -22,6 +27,8 @@ import org.openlca.core.matrix.ParameterTable;
 import org.openlca.core.matrix.ProcessProduct;
 import org.openlca.core.matrix.TechIndex;
 import org.openlca.core.matrix.format.IMatrix;
+import org.openlca.core.matrix.solvers.BiCGStabSolver;
+import org.openlca.core.matrix.solvers.Factorization;
 import org.openlca.core.matrix.solvers.IMatrixSolver;
 import org.openlca.core.model.ModelType;
 import org.openlca.core.model.ProcessLink;
@@ -29,6 +36,7 @@ import org.openlca.core.model.ProductSystem;
 import org.openlca.core.model.descriptors.ImpactCategoryDescriptor;
 import org.openlca.core.results.SimpleResult;
 import org.openlca.core.results.SimulationResult;
+import org.openlca.core.results.simulation.SimulationStorage;
 import org.openlca.expressions.FormulaInterpreter;
 import org.openlca.util.TopoSort;
 import org.slf4j.Logger;
@@ -98,26 +106,92 @@ public class Simulator {
 
 	private SimulationResult result;
 
+	private IDatabase db;
+	private CalculationSetup setup;
+
+	/**
+	 * The random stream from which the streams of the single simulation runs
+	 * are split off. Each run gets its own stream so that the runs are
+	 * statistically independent and can be calculated in parallel.
+	 */
+	private SplittableRandom random = new SplittableRandom();
+
+	private SamplingMethod sampling = SamplingMethod.MONTE_CARLO;
+	private SamplingPlan plan;
+
+	private SimulationStorage storage = SimulationStorage.IN_MEMORY;
+
+	/** The index of the next run (for sampling plans). */
+	private int runIdx;
+
 	private Simulator(IMatrixSolver solver) {
 		this.solver = solver;
 	}
 
+	/**
+	 * Creates a new simulator for the given setup. When the given solver is a
+	 * `BiCGStabSolver`, the deterministic technology matrix of the product
+	 * system is set as its preconditioner; the simulation runs are then solved
+	 * iteratively, starting from the solution of the previous run. The
+	 * preconditioner is released when the simulator is disposed.
+	 */
 	public static Simulator create(
 			CalculationSetup setup,
 			IDatabase db,
 			IMatrixSolver solver) {
 		Simulator g = new Simulator(solver);
 		g.init(db, setup);
+		if (solver instanceof BiCGStabSolver) {
+			((BiCGStabSolver) solver).precondition(g.root.data.techMatrix);
+		}
 		return g;
 	}
 
+	/**
+	 * Sets the seed of the random numbers that are generated in the simulation.
+	 * With the same seed, the simulation produces the same results, also when
+	 * it is executed in parallel. This should be called before the first run
+	 * is executed.
+	 */
+	public Simulator withSeed(long seed) {
+		random = new SplittableRandom(seed);
+		return this;
+	}
+
+	/**
+	 * Sets the sampling method of the simulation. The default method is plain
+	 * Monte-Carlo sampling. Note that Latin hypercube sampling requires that
+	 * the number of runs is known in advance and is thus only supported in
+	 * `run(runs, threads)` but not in `nextRun()`. This should be called
+	 * before the first run is executed.
+	 */
+	public Simulator withSampling(SamplingMethod method) {
+		this.sampling = method != null
+				? method
+				: SamplingMethod.MONTE_CARLO;
+		this.plan = null;
+		return this;
+	}
+
+	/**
+	 * Sets how the results of the simulation runs are stored. By default, the
+	 * results are stored in memory. This needs to be called before the first
+	 * run is executed.
+	 */
+	public Simulator withStorage(SimulationStorage storage) {
+		this.storage = storage != null
+				? storage
+				: SimulationStorage.IN_MEMORY;
+		return this;
+	}
+
 	/**
 	 * Get the result of the simulation.
 	 */
 	public SimulationResult getResult() {
 		if (result != null)
 			return result;
-		result = new SimulationResult(root.data);
+		result = new SimulationResult(root.data, storage);
 		return result;
 	}
 
@@ -141,19 +215,172 @@ public class Simulator {
 	 * (which you get via `getResult()`, so it does not need to be cached.
 	 */
 	public SimpleResult nextRun() {
+		if (sampling == SamplingMethod.LATIN_HYPERCUBE)
+			throw new IllegalStateException("Latin hypercube sampling "
+					+ "requires the number of runs; use run(runs, threads)");
+		SamplingPlan plan = plan();
+		Sample sample = plan.sample(runIdx++, random.split());
+		Run run = calculateRun(sample);
+		if (run == null)
+			return null;
+		run.appendTo(getResult());
+		return run.result;
+	}
+
+	/**
+	 * Runs the given number of simulations on the given number of threads and
+	 * appends the results to the result of this simulator. Each additional
+	 * thread gets its own simulator instance with its own copies of the matrix
+	 * data, uncertainty distributions, and parameter tables which are loaded
+	 * from the database when this method is called. The results are appended
+	 * in the order of the run indices, thus, the order of the results does not
+	 * depend on the thread scheduling. Runs that failed (e.g. because of a
+	 * singular matrix) are skipped as in `nextRun()`.
+	 */
+	public SimulationResult run(int runs, int threads) {
+		if (runs <= 0)
+			return getResult();
+
+		// for Latin hypercube sampling, we create a new plan with
+		// the strata for exactly these runs
+		SamplingPlan runPlan;
+		int offset;
+		if (sampling == SamplingMethod.LATIN_HYPERCUBE) {
+			runPlan = SamplingPlan.of(sampling, runs, random.nextLong());
+			offset = 0;
+		} else {
+			runPlan = plan();
+			offset = runIdx;
+			runIdx += runs;
+		}
+
+		// we split the random streams for the runs in advance so that
+		// a run always gets the same stream, independent from the thread
+		// in which it is executed
+		SplittableRandom[] streams = new SplittableRandom[runs];
+		for (int i = 0; i < runs; i++) {
+			streams[i] = random.split();
+		}
+
+		int workers = Math.max(1, Math.min(threads, runs));
+		if (workers == 1) {
+			SimulationResult r = getResult();
+			for (int i = 0; i < runs; i++) {
+				Run run = calculateRun(runPlan.sample(offset + i, streams[i]));
+				if (run != null) {
+					run.appendTo(r);
+				}
+			}
+			return r;
+		}
+
+		Run[] results = new Run[runs];
+		AtomicInteger nextIdx = new AtomicInteger(0);
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int w = 0; w < workers; w++) {
+			boolean isFirst = w == 0;
+			futures.add(pool.submit(() -> {
+				Simulator worker = isFirst ? this : copy();
+				try {
+					int i;
+					while ((i = nextIdx.getAndIncrement()) < runs) {
+						Sample sample = runPlan.sample(offset + i, streams[i]);
+						results[i] = worker.calculateRun(sample);
+					}
+				} finally {
+					if (worker != this) {
+						worker.releasePreconditioner();
+					}
+				}
+			}));
+		}
+		pool.shutdown();
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (Exception e) {
+			pool.shutdownNow();
+			throw new RuntimeException("parallel simulation failed", e);
+		}
+
+		SimulationResult r = getResult();
+		for (Run run : results) {
+			if (run != null) {
+				run.appendTo(r);
+			}
+		}
+		return r;
+	}
+
+	private SamplingPlan plan() {
+		if (plan == null) {
+			plan = SamplingPlan.of(sampling, 0, random.nextLong());
+		}
+		return plan;
+	}
+
+	/**
+	 * Creates a new simulator with the same setup and pinned products as this
+	 * simulator but with its own data (matrices, parameters etc.) so that it
+	 * can run independently from this simulator in another thread.
+	 */
+	private Simulator copy() {
+		Simulator copy = new Simulator(solver);
+		copy.pinnedProducts.addAll(pinnedProducts);
+		copy.init(db, setup);
+		if (solver instanceof BiCGStabSolver) {
+			((BiCGStabSolver) solver).precondition(
+					copy.root.data.techMatrix, root.data.techMatrix);
+		}
+		return copy;
+	}
+
+	/**
+	 * Releases the resources of this simulator: the preconditioner of the
+	 * technology matrix when a `BiCGStabSolver` is used and the stores of the
+	 * simulation result (e.g. the temporary files of memory mapped stores).
+	 * Thus, the result cannot be used anymore after this method was called.
+	 */
+	public void dispose() {
+		releasePreconditioner();
+		if (result != null) {
+			result.dispose();
+		}
+	}
+
+	private void releasePreconditioner() {
+		if (solver instanceof BiCGStabSolver) {
+			((BiCGStabSolver) solver).release(root.data.techMatrix);
+		}
+	}
+
+	/**
+	 * Generates the numbers and calculates the results of a single simulation
+	 * run from the given sample. Returns `null` when the calculation failed.
+	 */
+	private Run calculateRun(Sample sample) {
+		Factorization lu = null;
 		try {
 
 			// generate the numbers and calculate the overall result
 			for (Node sub : subNodes) {
-				generateData(sub);
+				generateData(sub, sample);
 				LcaCalculator calc = new LcaCalculator(solver, sub.data);
 				sub.lastResult = calc.calculateSimple();
 			}
-			generateData(root);
-			LcaCalculator calc = new LcaCalculator(solver, root.data);
+			generateData(root, sample);
+
+			// when there are pinned products, we solve the root system
+			// multiple times in a run; thus, we factorize it only once
+			if (!pinnedProducts.isEmpty()) {
+				lu = solver.factorize(root.data.techMatrix);
+			}
+			LcaCalculator calc = new LcaCalculator(solver, root.data)
+					.withFactorization(lu);
 			SimpleResult sr = calc.calculateSimple();
-			SimulationResult r = getResult();
-			r.append(sr);
+			Run run = new Run(sr);
 
 			// calculate results of possible pinned products
 			for (ProcessProduct pinned : pinnedProducts) {
@@ -186,26 +413,30 @@ public class Simulator {
 				double loopFactor = LcaCalculator.getLoopFactor(
 						A, s, sr.techIndex);
 				fi *= loopFactor;
-				double[] su = solver.solve(A, idx, fi);
+				double[] su = lu.solve(idx, fi);
 				upstream.totalFlowResults = solver.multiply(B, su);
 				if (C != null) {
 					upstream.totalImpactResults = solver.multiply(
 							C, upstream.totalFlowResults);
 				}
 
-				r.append(pinned, direct, upstream);
+				run.pinned.put(pinned, new SimpleResult[] { direct, upstream });
 			}
-			return sr;
+			return run;
 		} catch (Throwable e) {
 			Logger log = LoggerFactory.getLogger(this.getClass());
 			log.trace("simulation run failed", e);
 			return null;
+		} finally {
+			if (lu != null) {
+				lu.dispose();
+			}
 		}
 	}
 
-	private void generateData(Node node) {
-		FormulaInterpreter fi = node.parameters.simulate();
-		node.data.simulate(fi);
+	private void generateData(Node node, Sample sample) {
+		FormulaInterpreter fi = node.parameters.simulate(sample);
+		node.data.simulate(fi, sample);
 
 		if (node.subSystems != null) {
 			for (ProcessProduct subLink : node.subSystems) {
@@ -231,6 +462,8 @@ public class Simulator {
 	}
 
 	private void init(IDatabase db, CalculationSetup setup) {
+		this.db = db;
+		this.setup = setup;
 		long rootID = setup.productSystem.id;
 
 		// check whether the root system has sub-system links;
@@ -368,6 +601,26 @@ public class Simulator {
 		}
 	}
 
+	/**
+	 * Contains the results of a single simulation run.
+	 */
+	private static class Run {
+		final SimpleResult result;
+
+		/** Maps the pinned products to their direct and upstream results. */
+		final Map<ProcessProduct, SimpleResult[]> pinned = new HashMap<>();
+
+		Run(SimpleResult result) {
+			this.result = result;
+		}
+
+		void appendTo(SimulationResult r) {
+			r.append(result);
+			pinned.forEach((product, results) -> r.append(
+					product, results[0], results[1]));
+		}
+	}
+
 	/**
 	 * A node contains the data for the simulation of a single product (sub-)
 	 * system.
@@ -0,0 +1,212 @@
+package org.openlca.core.math;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.openlca.core.database.DescriptorCache;
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.database.IDatabaseListener;
+import org.openlca.core.matrix.cache.ExchangeStore;
+import org.openlca.core.model.AllocationMethod;
+import org.openlca.core.model.ModelType;
+import org.openlca.core.model.ParameterRedef;
+import org.openlca.core.model.ProductSystem;
+import org.openlca.core.model.descriptors.Descriptor;
+import org.openlca.core.results.SimpleResult;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * A database scoped cache of the results of sub-systems. A sub-system result
+ * is identified by the ID, version, and last change of the product system and
+ * the settings that have an effect on its inventory: the effective parameter
+ * redefinitions, the allocation method, and the flags for costs,
+ * regionalization, and uncertainties. Thus, a sub-system that is shared by
+ * multiple host systems is only calculated once as long as the same settings
+ * are applied.
+ * <p>
+ * The cache is cleared when a model that can change an inventory result (e.g.
+ * a process, flow, or parameter) is modified via a DAO, or when the shared
+ * process descriptors or exchanges of the database changed. The results are
+ * held by soft references, so they can be collected when memory gets low.
+ */
+public final class SubSystemCache {
+
+	private static final Map<IDatabase, SubSystemCache> caches = new WeakHashMap<>();
+
+	/** The model types which modification clears the cache. */
+	private static final Set<ModelType> dependencies = EnumSet.of(
+			ModelType.PROCESS,
+			ModelType.PRODUCT_SYSTEM,
+			ModelType.FLOW,
+			ModelType.FLOW_PROPERTY,
+			ModelType.UNIT_GROUP,
+			ModelType.UNIT,
+			ModelType.PARAMETER,
+			ModelType.CURRENCY,
+			ModelType.LOCATION);
+
+	private final Cache<Key, SimpleResult> results = CacheBuilder
+			.newBuilder()
+			.softValues()
+			.build();
+
+	/**
+	 * The states of the shared database caches the results were calculated
+	 * with. We only keep weak references to them as they can be large.
+	 */
+	private WeakReference<Object> processes;
+	private WeakReference<Object> systems;
+	private WeakReference<Object> exchanges;
+
+	private SubSystemCache() {
+	}
+
+	/**
+	 * Returns the sub-system cache of the given database.
+	 */
+	public static SubSystemCache of(IDatabase db) {
+		synchronized (caches) {
+			SubSystemCache cache = caches.get(db);
+			if (cache != null)
+				return cache;
+			cache = new SubSystemCache();
+			db.addListener(cache.new Listener());
+			caches.put(db, cache);
+			return cache;
+		}
+	}
+
+	/**
+	 * Clears the cache if the processes, product systems, or exchanges of the
+	 * given database changed since the last call of this method.
+	 */
+	synchronized void validate(IDatabase db) {
+		var descriptors = DescriptorCache.of(db);
+		Object p = descriptors.processes();
+		Object s = descriptors.productSystems();
+		Object e = ExchangeStore.of(db).snapshot();
+		if (same(processes, p) && same(systems, s) && same(exchanges, e))
+			return;
+		results.invalidateAll();
+		processes = new WeakReference<>(p);
+		systems = new WeakReference<>(s);
+		exchanges = new WeakReference<>(e);
+	}
+
+	private static boolean same(WeakReference<Object> ref, Object state) {
+		return ref != null && ref.get() == state;
+	}
+
+	SimpleResult get(Key key) {
+		return results.getIfPresent(key);
+	}
+
+	void put(Key key, SimpleResult result) {
+		results.put(key, result);
+	}
+
+	/** Removes all results from the cache. */
+	public void clear() {
+		results.invalidateAll();
+	}
+
+	/** Returns the number of results in the cache. */
+	public long size() {
+		return results.size();
+	}
+
+	/**
+	 * Identifies a sub-system result.
+	 */
+	static final class Key {
+
+		private final long systemId;
+		private final long version;
+		private final long lastChange;
+		private final AllocationMethod allocation;
+		private final boolean withCosts;
+		private final boolean withRegionalization;
+		private final boolean withUncertainties;
+		private final List<String> redefs;
+
+		private Key(CalculationSetup setup) {
+			ProductSystem system = setup.productSystem;
+			systemId = system.id;
+			version = system.version;
+			lastChange = system.lastChange;
+			allocation = setup.allocationMethod;
+			withCosts = setup.withCosts;
+			withRegionalization = setup.withRegionalization;
+			withUncertainties = setup.withUncertainties;
+			var list = new ArrayList<String>(setup.parameterRedefs.size());
+			for (ParameterRedef redef : setup.parameterRedefs) {
+				if (redef == null || redef.name == null)
+					continue;
+				list.add(redef.contextType + "/" + redef.contextId + "/"
+						+ redef.name.trim().toLowerCase() + "=" + redef.value);
+			}
+			Collections.sort(list);
+			redefs = list;
+		}
+
+		static Key of(CalculationSetup setup) {
+			return new Key(setup);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return systemId == other.systemId
+					&& version == other.version
+					&& lastChange == other.lastChange
+					&& allocation == other.allocation
+					&& withCosts == other.withCosts
+					&& withRegionalization == other.withRegionalization
+					&& withUncertainties == other.withUncertainties
+					&& redefs.equals(other.redefs);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(systemId, version, lastChange, allocation,
+					withCosts, withRegionalization, withUncertainties, redefs);
+		}
+	}
+
+	private class Listener implements IDatabaseListener {
+
+		@Override
+		public void modelInserted(Descriptor d) {
+			dispatch(d);
+		}
+
+		@Override
+		public void modelUpdated(Descriptor d) {
+			dispatch(d);
+		}
+
+		@Override
+		public void modelDeleted(Descriptor d) {
+			dispatch(d);
+		}
+
+		private void dispatch(Descriptor d) {
+			if (d != null && dependencies.contains(d.type)) {
+				results.invalidateAll();
+			}
+		}
+	}
+}
@@ -1,9 +1,13 @@
 package org.openlca.core.math;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 
 import org.openlca.core.database.FlowDao;
 import org.openlca.core.database.IDatabase;
@@ -11,8 +15,10 @@ import org.openlca.core.database.ImpactMethodDao;
 import org.openlca.core.database.NwSetDao;
 import org.openlca.core.database.ProductSystemDao;
 import org.openlca.core.matrix.FastMatrixBuilder;
+import org.openlca.core.matrix.LongPair;
 import org.openlca.core.matrix.MatrixData;
 import org.openlca.core.matrix.ProcessProduct;
+import org.openlca.core.matrix.cache.MatrixSnapshots;
 import org.openlca.core.matrix.solvers.IMatrixSolver;
 import org.openlca.core.model.ProcessLink;
 import org.openlca.core.model.ProductSystem;
@@ -26,26 +32,40 @@ import org.openlca.core.results.ContributionResult;
 import org.openlca.core.results.FullResult;
 import org.openlca.core.results.ProjectResult;
 import org.openlca.core.results.SimpleResult;
+import org.openlca.util.TopoSort;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Calculates the results of a calculation setup or project. The same calculator
  * can be used for different setups. The product systems of the setups may
- * contain sub-systems. The calculator does not check if there are obvious
- * errors like sub-system cycles etc.
+ * contain sub-systems. The results of sub-systems are shared between
+ * calculations via the sub-system cache of the database (see
+ * {@link SubSystemCache}); an exception is thrown when there are sub-system
+ * cycles.
  */
 public class SystemCalculator {
 
 	private final Logger log = LoggerFactory.getLogger(getClass());
 	private final IDatabase db;
 	private final IMatrixSolver solver;
+	private MatrixSnapshots snapshots;
 
 	public SystemCalculator(IDatabase db, IMatrixSolver solver) {
 		this.db = db;
 		this.solver = solver;
 	}
 
+	/**
+	 * Optionally set a snapshot cache from which the matrices of product
+	 * systems without network (that are built with the fast matrix builder)
+	 * are loaded if possible.
+	 */
+	public SystemCalculator withSnapshots(MatrixSnapshots snapshots) {
+		this.snapshots = snapshots;
+		return this;
+	}
+
 	public SimpleResult calculateSimple(CalculationSetup setup) {
 		log.trace("calculate product system - simple result");
 		return calculator(setup).calculateSimple();
@@ -61,6 +81,13 @@ public class SystemCalculator {
 		return calculator(setup).calculateFull();
 	}
 
+	/**
+	 * Calculates the variants of the given project in parallel. Variants with
+	 * the same product system and allocation method share their indices,
+	 * matrices, and parameter table; for these variants only the matrix cells
+	 * that depend on formulas are re-evaluated with the respective parameter
+	 * redefinitions (see {@link VariantTemplate}).
+	 */
 	public ProjectResult calculate(Project project) {
 		ProjectResult result = new ProjectResult();
 		if (project == null)
@@ -78,7 +105,9 @@ public class SystemCalculator {
 			nwSet = dao.getDescriptor(project.nwSetId);
 		}
 
-		// calculate the project variants
+		// create the setups of the project variants
+		List<ProjectVariant> variants = new ArrayList<>();
+		List<CalculationSetup> setups = new ArrayList<>();
 		for (ProjectVariant v : project.variants) {
 			if (v.isDisabled)
 				continue;
@@ -92,66 +121,248 @@ public class SystemCalculator {
 			setup.parameterRedefs.addAll(v.parameterRedefs);
 			setup.withCosts = true;
 			// TODO: how to handle regionalization here?
-			ContributionResult cr = calculateContributions(setup);
-			result.addResult(v, cr);
+			variants.add(v);
+			setups.add(setup);
+		}
+
+		// variants with the same product system and allocation method share
+		// the matrix structures of a template
+		Map<String, List<CalculationSetup>> groups = new HashMap<>();
+		for (CalculationSetup setup : setups) {
+			if (!VariantTemplate.canUse(setup))
+				continue;
+			groups.computeIfAbsent(templateKey(setup), k -> new ArrayList<>())
+					.add(setup);
+		}
+		Map<String, VariantTemplate> templates = new ConcurrentHashMap<>();
+		groups.entrySet().parallelStream()
+				.filter(e -> e.getValue().size() > 1)
+				.forEach(e -> templates.put(e.getKey(), new VariantTemplate(
+						db, solver, e.getValue().get(0))));
+
+		// calculate the variants in parallel
+		ContributionResult[] results = new ContributionResult[setups.size()];
+		try {
+			IntStream.range(0, setups.size()).parallel().forEach(i -> {
+				var setup = setups.get(i);
+				var template = templates.get(templateKey(setup));
+				results[i] = template != null
+						? template.calculate(setup)
+						: calculateContributions(setup);
+			});
+		} finally {
+			templates.values().forEach(VariantTemplate::dispose);
+		}
+		for (int i = 0; i < results.length; i++) {
+			result.addResult(variants.get(i), results[i]);
 		}
 		return result;
 	}
 
+	private static String templateKey(CalculationSetup setup) {
+		return setup.productSystem.id + "/" + setup.allocationMethod;
+	}
+
 	private LcaCalculator calculator(CalculationSetup setup) {
+		if (setup.productSystem.withoutNetwork)
+			return calculator(setup, Collections.emptyMap());
+		return calculator(setup, calculateSubSystems(setup));
+	}
+
+	private LcaCalculator calculator(CalculationSetup setup,
+			Map<ProcessProduct, SimpleResult> subs) {
 		MatrixData data;
 		if (setup.productSystem.withoutNetwork) {
-			data = new FastMatrixBuilder(db, setup).build();
+			data = snapshots != null
+					? snapshots.get(setup)
+					: new FastMatrixBuilder(db, setup).build();
 		} else {
-			var subs = calculateSubSystems(setup);
 			data = DataStructures.matrixData(setup, db, subs);
 		}
 		return new LcaCalculator(solver, data);
 	}
 
 	/**
-	 * Calculates (recursively) the sub-systems of the product system of the
-	 * given setup. It returns an empty map when there are no subsystems.
+	 * Calculates the sub-systems of the product system of the given setup. It
+	 * returns an empty map when there are no subsystems. The results of the
+	 * sub-systems are taken from the sub-system cache of the database if
+	 * possible. The sub-systems that are not in the cache are calculated in
+	 * topological order where the sub-systems of the same level (which do not
+	 * depend on each other) are calculated in parallel.
 	 */
 	private Map<ProcessProduct, SimpleResult> calculateSubSystems(
 			CalculationSetup setup) {
 		if (setup == null || setup.productSystem == null)
 			return Collections.emptyMap();
 
-		// collect the sub-systems
-		HashSet<ProcessProduct> subSystems = new HashSet<>();
-		ProductSystemDao sysDao = new ProductSystemDao(db);
-		FlowDao flowDao = new FlowDao(db);
-		for (ProcessLink link : setup.productSystem.processLinks) {
-			if (!link.isSystemLink)
-				continue;
-			ProductSystemDescriptor sys = sysDao.getDescriptor(link.providerId);
-			FlowDescriptor flow = flowDao.getDescriptor(link.flowId);
-			if (sys == null || flow == null) {
-				log.error("could not load descriptors of system link {}", link);
-				continue;
-			}
-			subSystems.add(ProcessProduct.of(sys, flow));
-		}
-		if (subSystems.isEmpty())
+		// collect the sub-system graph and take the results from the cache;
+		// the cache is only validated when there are sub-systems
+		var graph = new SubGraph(setup);
+		if (graph.root.subs.isEmpty())
 			return Collections.emptyMap();
+		var cache = SubSystemCache.of(db);
+		cache.validate(db);
+		graph.resolve(graph.root, cache);
+
+		// calculate the missing results level by level
+		for (List<SubNode> level : graph.levels()) {
+			level.parallelStream().forEach(node -> {
+				if (node.result != null || !node.required)
+					return;
+				var subs = new HashMap<ProcessProduct, SimpleResult>();
+				for (var e : node.subs.entrySet()) {
+					subs.put(e.getKey(), e.getValue().result);
+				}
+				var r = calculator(node.setup, subs).calculateSimple();
+				cache.put(node.key, r);
+				node.result = r;
+			});
+		}
 
-		// calculate the LCI results of the sub-systems
 		HashMap<ProcessProduct, SimpleResult> map = new HashMap<>();
-		for (ProcessProduct pp : subSystems) {
-			ProductSystem subSys = sysDao.getForId(pp.id());
-			if (subSys == null)
-				continue;
-			var subSetup = new CalculationSetup(subSys);
-			subSetup.parameterRedefs.addAll(setup.parameterRedefs);
-			ParameterRedefs.addTo(subSetup, subSys);
-			subSetup.withCosts = setup.withCosts;
-			subSetup.withUncertainties = setup.withUncertainties;
-			subSetup.withRegionalization = setup.withRegionalization;
-			subSetup.allocationMethod = setup.allocationMethod;
-			SimpleResult r = calculateSimple(subSetup);
-			map.put(pp, r);
+		for (var e : graph.root.subs.entrySet()) {
+			map.put(e.getKey(), e.getValue().result);
 		}
 		return map;
 	}
+
+	/**
+	 * A node in the sub-system graph. A node is identified by its cache key;
+	 * thus, a sub-system that is used with the same settings in different
+	 * host systems is only contained once in the graph.
+	 */
+	private static class SubNode {
+
+		final int index;
+		final CalculationSetup setup;
+		final SubSystemCache.Key key;
+		final Map<ProcessProduct, SubNode> subs = new HashMap<>();
+
+		/**
+		 * The result of the node; we keep a strong reference here so that it
+		 * cannot be collected from the cache before the host systems are
+		 * calculated.
+		 */
+		SimpleResult result;
+
+		/** Indicates that the result of the node needs to be calculated. */
+		boolean required;
+
+		SubNode(int index, CalculationSetup setup) {
+			this.index = index;
+			this.setup = setup;
+			this.key = setup == null ? null : SubSystemCache.Key.of(setup);
+		}
+	}
+
+	private class SubGraph {
+
+		final SubNode root;
+		final List<SubNode> nodes = new ArrayList<>();
+		final Map<SubSystemCache.Key, SubNode> index = new HashMap<>();
+		final ProductSystemDao sysDao = new ProductSystemDao(db);
+		final FlowDao flowDao = new FlowDao(db);
+
+		SubGraph(CalculationSetup setup) {
+			root = new SubNode(-1, null);
+			collect(root, setup);
+		}
+
+		private void collect(SubNode host, CalculationSetup setup) {
+			HashSet<ProcessProduct> subSystems = new HashSet<>();
+			for (ProcessLink link : setup.productSystem.processLinks) {
+				if (!link.isSystemLink)
+					continue;
+				ProductSystemDescriptor sys = sysDao.getDescriptor(link.providerId);
+				FlowDescriptor flow = flowDao.getDescriptor(link.flowId);
+				if (sys == null || flow == null) {
+					log.error("could not load descriptors of system link {}", link);
+					continue;
+				}
+				subSystems.add(ProcessProduct.of(sys, flow));
+			}
+
+			for (ProcessProduct pp : subSystems) {
+				ProductSystem subSys = sysDao.getForId(pp.id());
+				if (subSys == null)
+					continue;
+				var subSetup = new CalculationSetup(subSys);
+				subSetup.parameterRedefs.addAll(setup.parameterRedefs);
+				ParameterRedefs.addTo(subSetup, subSys);
+				subSetup.withCosts = setup.withCosts;
+				subSetup.withUncertainties = setup.withUncertainties;
+				subSetup.withRegionalization = setup.withRegionalization;
+				subSetup.allocationMethod = setup.allocationMethod;
+				var key = SubSystemCache.Key.of(subSetup);
+				SubNode node = index.get(key);
+				if (node == null) {
+					node = new SubNode(nodes.size(), subSetup);
+					nodes.add(node);
+					index.put(key, node);
+					if (!subSys.withoutNetwork) {
+						collect(node, subSetup);
+					}
+				}
+				host.subs.put(pp, node);
+			}
+		}
+
+		/**
+		 * Takes the results of the sub-systems of the given host from the
+		 * cache. The sub-systems that are not cached are marked as required
+		 * and their sub-systems are resolved recursively; the sub-systems of
+		 * a cached node are not needed.
+		 */
+		void resolve(SubNode host, SubSystemCache cache) {
+			for (SubNode node : host.subs.values()) {
+				if (node.result != null || node.required)
+					continue;
+				node.result = cache.get(node.key);
+				if (node.result == null) {
+					node.required = true;
+					resolve(node, cache);
+				}
+			}
+		}
+
+		/**
+		 * Returns the nodes of the graph grouped by their levels in the
+		 * topological order: the nodes of the first level have no
+		 * sub-systems, the nodes of a following level only depend on nodes of
+		 * the levels before.
+		 */
+		List<List<SubNode>> levels() {
+			List<LongPair> rels = new ArrayList<>();
+			for (SubNode host : nodes) {
+				for (SubNode sub : host.subs.values()) {
+					rels.add(LongPair.of(sub.index, host.index));
+				}
+			}
+			for (SubNode sub : root.subs.values()) {
+				rels.add(LongPair.of(sub.index, root.index));
+			}
+			List<Long> order = TopoSort.of(rels);
+			if (order == null)
+				throw new IllegalStateException(
+						"there are sub-system cycles in the product system");
+
+			int[] depths = new int[nodes.size()];
+			List<List<SubNode>> levels = new ArrayList<>();
+			for (Long i : order) {
+				if (i == root.index)
+					continue;
+				SubNode node = nodes.get(i.intValue());
+				int depth = 0;
+				for (SubNode sub : node.subs.values()) {
+					depth = Math.max(depth, depths[sub.index] + 1);
+				}
+				depths[node.index] = depth;
+				while (levels.size() <= depth) {
+					levels.add(new ArrayList<>());
+				}
+				levels.get(depth).add(node);
+			}
+			return levels;
+		}
+	}
 }
@@ -0,0 +1,253 @@
+package org.openlca.core.math;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.openlca.core.matrix.format.CSCMatrix;
+import org.openlca.core.matrix.format.DenseMatrix;
+import org.openlca.core.matrix.format.EntryFunction;
+import org.openlca.core.matrix.format.IMatrix;
+import org.openlca.core.matrix.format.SparseKernels;
+import org.openlca.core.matrix.solvers.Factorization;
+import org.openlca.core.matrix.solvers.IMatrixSolver;
+
+/**
+ * A read-only matrix of upstream results $\mathbf{M} \ \mathbf{A}^{-1} \
+ * \text{diag}(\mathbf{d})$ that is calculated on demand instead of
+ * multiplying $\mathbf{M}$ with the dense inverse of the technology matrix
+ * $\mathbf{A}$. $\mathbf{M}$ is, for example, the intervention matrix
+ * $\mathbf{B}$ in case of the upstream flow results and $\mathbf{d}$ the vector
+ * with the real demands of the process-products.
+ *
+ * A row $i$ is calculated by solving $\mathbf{A}^T \mathbf{x} =
+ * \mathbf{M}[i,:]^T$ with a factorization of the transposed technology matrix.
+ * Calculated rows are cached so that each row is only calculated once. A
+ * column $j$ is calculated by solving $\mathbf{A} \mathbf{x} =
+ * \mathbf{e}_j$ which is used for the total results of the reference product
+ * without factorizing $\mathbf{A}^T$.
+ *
+ * The matrix cannot be modified: `set` throws an
+ * `UnsupportedOperationException` while `copy` returns a modifiable dense
+ * matrix. When the context of the matrix is disposed, only the rows that were
+ * already calculated can be accessed.
+ */
+public class UpstreamMatrix implements IMatrix {
+
+	private final Context context;
+
+	/** The transpose of M: row i of M is column i of this matrix. */
+	private final CSCMatrix mt;
+
+	private final ConcurrentHashMap<Integer, double[]> rows = new ConcurrentHashMap<>();
+
+	UpstreamMatrix(Context context, IMatrix m) {
+		this.context = context;
+		this.mt = SparseKernels.transpose(m);
+	}
+
+	/**
+	 * Returns the number of rows that were calculated so far. Only these rows
+	 * are held in memory (with `columns()` values each).
+	 */
+	public int calculatedRows() {
+		return rows.size();
+	}
+
+	@Override
+	public int rows() {
+		return mt.columns;
+	}
+
+	@Override
+	public int columns() {
+		return context.size();
+	}
+
+	/**
+	 * Upstream matrices cannot be modified.
+	 */
+	@Override
+	public void set(int row, int col, double val) {
+		throw new UnsupportedOperationException(
+				"an upstream matrix is read-only");
+	}
+
+	@Override
+	public double get(int row, int col) {
+		return row(row)[col];
+	}
+
+	@Override
+	public double[] getRow(int i) {
+		return row(i).clone();
+	}
+
+	@Override
+	public double[] getColumn(int j) {
+		double d = context.demands[j];
+		double[] column = new double[rows()];
+		if (d == 0)
+			return column;
+		double[] x = context.solve(j);
+		for (int i = 0; i < column.length; i++) {
+			double sum = 0;
+			int end = mt.columnPointers[i + 1];
+			for (int k = mt.columnPointers[i]; k < end; k++) {
+				sum += mt.values[k] * x[mt.rowIndices[k]];
+			}
+			column[i] = sum * d;
+		}
+		return column;
+	}
+
+	/**
+	 * Returns a dense copy of this matrix. Note that this calculates all rows
+	 * of the matrix.
+	 */
+	@Override
+	public DenseMatrix copy() {
+		int n = columns();
+		DenseMatrix copy = new DenseMatrix(rows(), n);
+		for (int row = 0; row < copy.rows; row++) {
+			double[] values = row(row);
+			for (int col = 0; col < n; col++) {
+				copy.data[col * copy.rows + row] = values[col];
+			}
+		}
+		return copy;
+	}
+
+	@Override
+	public void iterate(EntryFunction fn) {
+		if (fn == null)
+			return;
+		for (int row = 0; row < rows(); row++) {
+			double[] values = row(row);
+			for (int col = 0; col < values.length; col++) {
+				if (values[col] != 0) {
+					fn.value(row, col, values[col]);
+				}
+			}
+		}
+	}
+
+	private double[] row(int i) {
+		if (i < 0 || i >= rows())
+			throw new IndexOutOfBoundsException("row " + i);
+		return rows.computeIfAbsent(i, this::calculateRow);
+	}
+
+	private double[] calculateRow(int i) {
+		int n = context.size();
+		double[] b = new double[n];
+		int end = mt.columnPointers[i + 1];
+		for (int k = mt.columnPointers[i]; k < end; k++) {
+			b[mt.rowIndices[k]] = mt.values[k];
+		}
+		double[] x = context.solveTransposed(b);
+		for (int j = 0; j < n; j++) {
+			x[j] *= context.demands[j];
+		}
+		return x;
+	}
+
+	/**
+	 * Holds the factorizations of the technology matrix that are shared by
+	 * the upstream matrices of a result. The factorization of the transposed
+	 * technology matrix is only created when a row is requested for the first
+	 * time. The factorizations may hold native memory and are released in
+	 * `dispose`; a factorization that was passed into the context is only
+	 * released when the context owns it. The lock guarantees that a
+	 * factorization is not released while it is used in another thread.
+	 */
+	static class Context {
+
+		private final IMatrixSolver solver;
+		private final CSCMatrix techMatrix;
+		private final double[] demands;
+		private final Factorization lu;
+		private final boolean ownsLu;
+		private final ReadWriteLock lock = new ReentrantReadWriteLock();
+		private Factorization luTransposed;
+		private boolean disposed;
+
+		Context(IMatrixSolver solver, CSCMatrix techMatrix,
+				Factorization lu, boolean ownsLu, double[] demands) {
+			this.solver = solver;
+			this.techMatrix = techMatrix;
+			this.lu = lu;
+			this.ownsLu = ownsLu;
+			this.demands = demands;
+		}
+
+		int size() {
+			return demands.length;
+		}
+
+		/** Solves A * x = e_j. */
+		double[] solve(int j) {
+			Lock read = lock.readLock();
+			read.lock();
+			try {
+				checkDisposed();
+				return lu.solve(j, 1);
+			} finally {
+				read.unlock();
+			}
+		}
+
+		/** Solves A^T * x = b. */
+		double[] solveTransposed(double[] b) {
+			Lock read = lock.readLock();
+			read.lock();
+			try {
+				checkDisposed();
+				return luTransposed().solve(b);
+			} finally {
+				read.unlock();
+			}
+		}
+
+		private synchronized Factorization luTransposed() {
+			if (luTransposed == null) {
+				luTransposed = solver.factorize(
+						SparseKernels.transpose(techMatrix));
+			}
+			return luTransposed;
+		}
+
+		private void checkDisposed() {
+			if (disposed)
+				throw new IllegalStateException(
+						"the factorizations of the result were disposed");
+		}
+
+		/**
+		 * Releases the factorizations of this context. Further solves throw an
+		 * `IllegalStateException`. Calling this method multiple times has no
+		 * effect.
+		 */
+		void dispose() {
+			Lock write = lock.writeLock();
+			write.lock();
+			try {
+				if (disposed)
+					return;
+				disposed = true;
+				if (ownsLu) {
+					lu.dispose();
+				}
+				synchronized (this) {
+					if (luTransposed != null) {
+						luTransposed.dispose();
+						luTransposed = null;
+					}
+				}
+			} finally {
+				write.unlock();
+			}
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package org.openlca.core.math;
+
+import java.util.Collections;
+
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.matrix.MatrixData;
+import org.openlca.core.matrix.ParameterTable;
+import org.openlca.core.matrix.format.SparseKernels;
+import org.openlca.core.matrix.solvers.Factorization;
+import org.openlca.core.matrix.solvers.IMatrixSolver;
+import org.openlca.core.model.ProcessLink;
+import org.openlca.core.model.ProductSystem;
+import org.openlca.core.results.ContributionResult;
+
+/**
+ * Contains the matrix structures that are shared by the variants of a project
+ * with the same product system and allocation method. The indices, matrices,
+ * and the parameter table are built only once. For a variant, only the matrix
+ * cells that depend on formulas are re-evaluated with its parameter
+ * redefinitions. When the technology matrix of a variant is the same as in the
+ * template, a factorization of that matrix is shared between the variants.
+ * <p>
+ * The `calculate` method can be called from multiple threads.
+ */
+class VariantTemplate {
+
+	private final IMatrixSolver solver;
+	private final ParameterTable parameters;
+	private final MatrixData data;
+	private Factorization factorization;
+
+	VariantTemplate(IDatabase db, IMatrixSolver solver,
+			CalculationSetup setup) {
+		this.solver = solver;
+		var techIndex = DataStructures.createProductIndex(
+				setup.productSystem, db);
+		parameters = ParameterTable.forVariants(db,
+				DataStructures.parameterContexts(db, setup, techIndex));
+		var interpreter = parameters.interpreter(Collections.emptyList());
+		data = DataStructures.matrixData(
+				setup, db, techIndex, interpreter, null, true);
+	}
+
+	/**
+	 * Returns true when the given setup can be calculated with a template. This
+	 * is not the case for product systems with sub-systems (as the sub-system
+	 * results depend on the parameter redefinitions), for systems without a
+	 * network, and for calculations with uncertainties.
+	 */
+	static boolean canUse(CalculationSetup setup) {
+		ProductSystem system = setup.productSystem;
+		if (system == null
+				|| system.withoutNetwork
+				|| setup.withUncertainties)
+			return false;
+		for (ProcessLink link : system.processLinks) {
+			if (link.isSystemLink)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Calculates the result of the given setup which must have the same
+	 * product system, allocation method, LCIA method, and calculation flags as
+	 * the setup of this template.
+	 */
+	ContributionResult calculate(CalculationSetup setup) {
+		var interpreter = parameters.interpreter(setup.parameterRedefs);
+		var variant = data.eval(interpreter);
+		variant.techIndex = data.techIndex.copy();
+		variant.techIndex.setDemand(setup.getDemandValue());
+		var calculator = new LcaCalculator(solver, variant);
+		if (variant.techMatrix == data.techMatrix) {
+			calculator.withFactorization(factorization());
+		}
+		return calculator.calculateContributions();
+	}
+
+	private synchronized Factorization factorization() {
+		if (factorization == null) {
+			factorization = solver.factorize(
+					SparseKernels.csc(data.techMatrix));
+		}
+		return factorization;
+	}
+
+	/**
+	 * Releases the shared factorization of the technology matrix.
+	 */
+	synchronized void dispose() {
+		if (factorization != null) {
+			factorization.dispose();
+			factorization = null;
+		}
+	}
+}
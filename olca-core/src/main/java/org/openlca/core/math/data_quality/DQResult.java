@@ -1,11 +1,13 @@
 package org.openlca.core.math.data_quality;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.openlca.core.database.IDatabase;
 import org.openlca.core.database.NativeSql;
 import org.openlca.core.matrix.IndexFlow;
 import org.openlca.core.matrix.ProcessProduct;
+import org.openlca.core.matrix.cache.ExchangeStore;
 import org.openlca.core.model.descriptors.CategorizedDescriptor;
 import org.openlca.core.model.descriptors.ImpactCategoryDescriptor;
 import org.openlca.core.results.ContributionResult;
@@ -272,23 +274,23 @@ public class DQResult {
 			return true;
 		});
 
-		// now, scan the exchanges table and collect all
-		// matching data quality entries
-		sql = "select f_owner, f_flow, f_location, dq_entry from tbl_exchanges";
-		NativeSql.on(db).query(sql, r -> {
+		// now, collect all matching data quality entries from the
+		// exchanges of these processes
+		var processIds = new ArrayList<Long>(providers.size());
+		for (long id : providers.keys()) {
+			processIds.add(id);
+		}
+		var exchanges = ExchangeStore.of(db).snapshot();
+		exchanges.each(processIds, e -> {
 
 			// check that we have a valid entry
-			var products = providers.get(r.getLong(1));
-			if (products == null)
-				return true;
-			long flowID = r.getLong(2);
-			long locationID = r.getLong(3);
-			var dqEntry = r.getString(4);
+			var products = providers.get(e.processId());
+			var dqEntry = e.dqEntry();
 			if (dqEntry == null)
-				return true;
-			int row = flowIndex.of(flowID, locationID);
+				return;
+			int row = flowIndex.of(e.flowId(), e.locationId());
 			if (row < 0)
-				return true;
+				return;
 
 			// store the values
 			int[] values = system.toValues(dqEntry);
@@ -301,7 +303,6 @@ public class DQResult {
 					data.set(row, col, value);
 				}
 			}
-			return true;
 		});
 	}
 
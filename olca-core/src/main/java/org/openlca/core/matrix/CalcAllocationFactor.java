@@ -66,4 +66,27 @@ public class CalcAllocationFactor {
 		evaluated = false;
 		return get(interpreter);
 	}
+
+	public boolean hasFormula() {
+		return formula != null;
+	}
+
+	/**
+	 * Evaluates the formula of the allocation factor with the given interpreter
+	 * but, in contrast to the `force` method, does not change the cached value.
+	 * Thus, this method can be called from multiple threads with different
+	 * interpreters. If the evaluation fails, the cached value is returned.
+	 */
+	public double eval(FormulaInterpreter interpreter) {
+		if (formula == null || interpreter == null)
+			return amount;
+		try {
+			return interpreter.eval(formula);
+		} catch (Exception e) {
+			var log = LoggerFactory.getLogger(getClass());
+			log.error("failed to evaluate formula of allocation factor: "
+					+ formula);
+			return amount;
+		}
+	}
 }
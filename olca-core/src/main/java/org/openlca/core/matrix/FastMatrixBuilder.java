@@ -2,13 +2,12 @@ package org.openlca.core.matrix;
 
 import java.util.List;
 
+import org.openlca.core.database.DescriptorCache;
 import org.openlca.core.database.IDatabase;
 import org.openlca.core.database.ImpactMethodDao;
-import org.openlca.core.database.LocationDao;
-import org.openlca.core.database.NativeSql;
-import org.openlca.core.database.ProcessDao;
 import org.openlca.core.math.CalculationSetup;
 import org.openlca.core.math.DataStructures;
+import org.openlca.core.matrix.cache.ExchangeStore;
 import org.openlca.core.matrix.cache.ExchangeTable;
 import org.openlca.core.matrix.cache.FlowTable;
 import org.openlca.core.matrix.format.MatrixBuilder;
@@ -39,7 +38,7 @@ public class FastMatrixBuilder {
 	private double[] costs;
 
 	// only used when a regionalized inventory is build
-	private final TLongObjectHashMap<LocationDescriptor> locations;
+	private final DescriptorCache.Table<LocationDescriptor> locations;
 
 	/**
 	 * A map that assigns the IDs of products and waste flows to their
@@ -53,11 +52,15 @@ public class FastMatrixBuilder {
 	public FastMatrixBuilder(IDatabase db, CalculationSetup setup) {
 		this.db = db;
 		this.setup = setup;
-		this.flows = FlowTable.create(db);
+		// check once per build whether the database was modified outside
+		// of the DAOs before the cached descriptors are used
+		var descriptors = DescriptorCache.of(db);
+		descriptors.checkExternalChanges();
+		this.flows = FlowTable.cached(db);
 		if (!setup.withRegionalization) {
 			locations = null;
 		} else {
-			locations = new LocationDao(db).descriptorMap();
+			locations = descriptors.locations();
 		}
 	}
 
@@ -164,6 +167,7 @@ public class FastMatrixBuilder {
 		}
 		if (provider == null)
 			return;
+		techIndex.putLink(LongPair.of(e.processId, e.exchangeId), provider);
 		int row = techIndex.getIndex(provider);
 		add(row, product, techBuilder, e);
 	}
@@ -199,35 +203,28 @@ public class FastMatrixBuilder {
 		TechIndex idx = new TechIndex(qref);
 		idx.setDemand(setup.getDemandValue());
 
-		var processes = new ProcessDao(db).descriptorMap();
-
-		String sql = "select f_owner, f_flow, is_input from tbl_exchanges";
-		try {
-			NativeSql.on(db).query(sql, r -> {
-				long flowID = r.getLong(2);
-				FlowType type = flows.type(flowID);
-				if (type == FlowType.ELEMENTARY_FLOW)
-					return true;
-				boolean isInput = r.getBoolean(3);
-				if (isInput && type == FlowType.PRODUCT_FLOW)
-					return true;
-				if (!isInput && type == FlowType.WASTE_FLOW)
-					return true;
-				long procID = r.getLong(1);
-				var process = processes.get(procID);
-				var flow = flows.get(flowID);
-				if (process == null || flow == null) {
-					// note that product system results could be
-					// stored in the exchanges table; in this
-					// case the process would be null.
-					return true;
-				}
-				idx.put(ProcessProduct.of(process, flow));
-				return true;
-			});
-		} catch (Exception e) {
-			throw new RuntimeException("failed to build tech-index", e);
-		}
+		var processes = DescriptorCache.of(db).processes();
+
+		ExchangeStore.of(db).snapshot().eachRow(row -> {
+			long flowID = row.flowId();
+			FlowType type = flows.type(flowID);
+			if (type == FlowType.ELEMENTARY_FLOW)
+				return;
+			boolean isInput = row.isInput();
+			if (isInput && type == FlowType.PRODUCT_FLOW)
+				return;
+			if (!isInput && type == FlowType.WASTE_FLOW)
+				return;
+			var process = processes.get(row.processId());
+			var flow = flows.get(flowID);
+			if (process == null || flow == null) {
+				// note that product system results could be
+				// stored in the exchanges table; in this
+				// case the process would be null.
+				return;
+			}
+			idx.put(ProcessProduct.of(process, flow));
+		});
 		return idx;
 	}
 }
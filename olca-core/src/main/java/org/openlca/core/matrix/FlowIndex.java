@@ -5,6 +5,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
 
+import org.openlca.core.database.DescriptorCache;
 import org.openlca.core.matrix.cache.FlowTable;
 import org.openlca.core.model.descriptors.FlowDescriptor;
 import org.openlca.core.model.descriptors.LocationDescriptor;
@@ -12,7 +13,6 @@ import org.openlca.core.model.descriptors.ProcessDescriptor;
 
 import gnu.trove.impl.Constants;
 import gnu.trove.map.hash.TLongIntHashMap;
-import gnu.trove.map.hash.TLongObjectHashMap;
 
 /**
  * The row index $\mathit{Idx}_B$ of the intervention matrix $\mathbf{B}$. It
@@ -155,7 +155,7 @@ public final class FlowIndex {
 			ProcessProduct product,
 			CalcExchange e,
 			FlowTable flows,
-			TLongObjectHashMap<LocationDescriptor> locations) {
+			DescriptorCache.Table<LocationDescriptor> locations) {
 
 		int i = isRegionalized
 				? of(e.flowId, e.locationId)
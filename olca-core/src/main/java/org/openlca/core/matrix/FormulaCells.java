@@ -0,0 +1,148 @@
+package org.openlca.core.matrix;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+import org.openlca.core.matrix.format.CSCMatrix;
+import org.openlca.core.matrix.format.IMatrix;
+import org.openlca.core.matrix.format.MatrixConverter;
+import org.openlca.expressions.FormulaInterpreter;
+
+import gnu.trove.impl.Constants;
+import gnu.trove.map.hash.TIntObjectHashMap;
+
+/**
+ * Contains the cells of a matrix (or vector) which values depend on formulas.
+ * For each entry that was added to a cell, it stores the value of the entry in
+ * the original matrix and a function that evaluates the entry with a given
+ * formula interpreter. This makes it possible to re-evaluate only these cells
+ * for other parameter values (e.g. the parameter redefinitions of project
+ * variants) without building the matrix again.
+ * <p>
+ * Like in the UMatrix, multiple entries can be mapped to the same cell. The new
+ * value of a cell is calculated by replacing the original values of its
+ * entries with their re-evaluated values.
+ */
+public class FormulaCells {
+
+	private final TIntObjectHashMap<TIntObjectHashMap<List<Entry>>> data;
+
+	public FormulaCells() {
+		data = new TIntObjectHashMap<>(
+				Constants.DEFAULT_CAPACITY,
+				Constants.DEFAULT_LOAD_FACTOR,
+				-1);
+	}
+
+	/**
+	 * Adds an entry to the given cell.
+	 *
+	 * @param row   the row of the cell; 0 for vectors
+	 * @param col   the column of the cell; the index in vectors
+	 * @param value the value of the entry in the original matrix
+	 * @param fn    evaluates the entry with a given interpreter; this function
+	 *              must not modify shared state as it can be called from
+	 *              multiple threads
+	 */
+	public void add(int row, int col, double value,
+			ToDoubleFunction<FormulaInterpreter> fn) {
+		if (fn == null)
+			return;
+		var rowm = data.get(row);
+		if (rowm == null) {
+			rowm = new TIntObjectHashMap<>(
+					Constants.DEFAULT_CAPACITY,
+					Constants.DEFAULT_LOAD_FACTOR,
+					-1);
+			data.put(row, rowm);
+		}
+		var entries = rowm.get(col);
+		if (entries == null) {
+			entries = new ArrayList<>(1);
+			rowm.put(col, entries);
+		}
+		entries.add(new Entry(value, fn));
+	}
+
+	public boolean isEmpty() {
+		return data.isEmpty();
+	}
+
+	/**
+	 * Re-evaluates the cells with the given interpreter. If no value of the
+	 * given matrix changes, the matrix itself is returned. Otherwise, a copy
+	 * of the matrix with the new values is returned; the given matrix is never
+	 * modified.
+	 */
+	public IMatrix eval(IMatrix m, FormulaInterpreter interpreter) {
+		if (m == null)
+			return null;
+		IMatrix[] copy = new IMatrix[1];
+		each(interpreter, (row, col, delta) -> {
+			if (copy[0] == null) {
+				copy[0] = m instanceof CSCMatrix
+						? MatrixConverter.hashSparse(m)
+						: m.copy();
+			}
+			copy[0].set(row, col, copy[0].get(row, col) + delta);
+		});
+		return copy[0] != null ? copy[0] : m;
+	}
+
+	/**
+	 * Same as `eval(IMatrix, FormulaInterpreter)` but for vectors (where the
+	 * column of a cell is the index in the vector).
+	 */
+	public double[] eval(double[] v, FormulaInterpreter interpreter) {
+		if (v == null)
+			return null;
+		double[][] copy = new double[1][];
+		each(interpreter, (row, col, delta) -> {
+			if (copy[0] == null) {
+				copy[0] = v.clone();
+			}
+			copy[0][col] += delta;
+		});
+		return copy[0] != null ? copy[0] : v;
+	}
+
+	/**
+	 * Calls the given function for each cell that changes with the difference
+	 * of the new and original values of the cell.
+	 */
+	private void each(FormulaInterpreter interpreter, CellFn fn) {
+		var rows = data.iterator();
+		while (rows.hasNext()) {
+			rows.advance();
+			int row = rows.key();
+			var cols = rows.value().iterator();
+			while (cols.hasNext()) {
+				cols.advance();
+				double delta = 0;
+				for (Entry e : cols.value()) {
+					delta += e.fn.applyAsDouble(interpreter) - e.value;
+				}
+				if (delta != 0) {
+					fn.accept(row, cols.key(), delta);
+				}
+			}
+		}
+	}
+
+	@FunctionalInterface
+	private interface CellFn {
+		void accept(int row, int col, double delta);
+	}
+
+	private static class Entry {
+
+		final double value;
+		final ToDoubleFunction<FormulaInterpreter> fn;
+
+		Entry(double value, ToDoubleFunction<FormulaInterpreter> fn) {
+			this.value = value;
+			this.fn = fn;
+		}
+	}
+}
@@ -13,6 +13,7 @@ import org.openlca.core.matrix.uncertainties.UMatrix;
 import org.openlca.core.model.UncertaintyType;
 import org.openlca.core.model.descriptors.ImpactCategoryDescriptor;
 import org.openlca.expressions.FormulaInterpreter;
+import org.openlca.util.Strings;
 
 /**
  * Builds the matrices with characterization factors for a given set of flows
@@ -24,6 +25,7 @@ public final class ImpactBuilder {
 	private final ConversionTable conversions;
 
 	private boolean withUncertainties = false;
+	private boolean withFormulaCells = false;
 
 	// shared variables of the build methods
 	private FlowIndex flowIndex;
@@ -31,6 +33,7 @@ public final class ImpactBuilder {
 	private FormulaInterpreter interpreter;
 	private MatrixBuilder matrix;
 	private UMatrix uncertainties;
+	private FormulaCells formulas;
 
 	public ImpactBuilder(IDatabase db) {
 		this.db = db;
@@ -42,6 +45,15 @@ public final class ImpactBuilder {
 		return this;
 	}
 
+	/**
+	 * If set to true, the cells with characterization factors that depend on
+	 * formulas are recorded in the returned data.
+	 */
+	public ImpactBuilder withFormulaCells(boolean b) {
+		this.withFormulaCells = b;
+		return this;
+	}
+
 	public ImpactData build(
 			FlowIndex flowIndex,
 			DIndex<ImpactCategoryDescriptor> impactIndex,
@@ -55,6 +67,7 @@ public final class ImpactBuilder {
 		matrix = new MatrixBuilder();
 		matrix.minSize(impactIndex.size(), flowIndex.size());
 		uncertainties = withUncertainties ? new UMatrix() : null;
+		formulas = withFormulaCells ? new FormulaCells() : null;
 		if (flowIndex.isRegionalized) {
 			fillRegionalized();
 		} else {
@@ -66,6 +79,7 @@ public final class ImpactBuilder {
 		data.impactIndex = impactIndex;
 		data.impactMatrix = matrix.finish();
 		data.impactUncertainties = uncertainties;
+		data.impactFormulas = formulas;
 		return data;
 	}
 
@@ -102,7 +116,7 @@ public final class ImpactBuilder {
 				// set the matrix value
 				int row = impactIndex.of(impactID);
 				int col = flowIndex.of(flowID);
-				matrix.set(row, col, f.matrixValue(interpreter));
+				set(row, col, f);
 
 				// set possible uncertainties
 				if (uncertainties != null) {
@@ -178,7 +192,7 @@ public final class ImpactBuilder {
 				}
 				if (addIt) {
 					int col = flowIndex.of(flowID, locationID);
-					matrix.set(row, col, f.matrixValue(interpreter));
+					set(row, col, f);
 					if (uncertainties != null) {
 						uncertainties.add(row, col, f);
 					}
@@ -206,7 +220,7 @@ public final class ImpactBuilder {
 				if (factor == null)
 					continue;
 				factor.isInput = f.isInput;
-				matrix.set(row, col, factor.matrixValue(interpreter));
+				set(row, col, factor);
 				if (uncertainties != null) {
 					uncertainties.add(row, col, factor);
 				}
@@ -214,6 +228,24 @@ public final class ImpactBuilder {
 		});
 	}
 
+	private void set(int row, int col, CalcImpactFactor f) {
+		double value = f.matrixValue(interpreter);
+		matrix.set(row, col, value);
+		if (formulas == null || Strings.nullOrEmpty(f.formula))
+			return;
+		// the default factors are shared between columns where the
+		// `isInput` field is changed; thus, we evaluate a copy of the
+		// factor later
+		var copy = new CalcImpactFactor();
+		copy.imactCategoryId = f.imactCategoryId;
+		copy.flowId = f.flowId;
+		copy.amount = f.amount;
+		copy.formula = f.formula;
+		copy.conversionFactor = f.conversionFactor;
+		copy.isInput = f.isInput;
+		formulas.add(row, col, value, copy::matrixValue);
+	}
+
 	private String query() {
 		return "SELECT"
 				+ /* 1 */ " f_impact_category,"
@@ -251,5 +283,6 @@ public final class ImpactBuilder {
 		public DIndex<ImpactCategoryDescriptor> impactIndex;
 		public IMatrix impactMatrix;
 		public UMatrix impactUncertainties;
+		public FormulaCells impactFormulas;
 	}
 }
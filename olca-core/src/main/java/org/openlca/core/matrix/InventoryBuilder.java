@@ -3,7 +3,7 @@ package org.openlca.core.matrix;
 import java.util.HashSet;
 import java.util.List;
 
-import org.openlca.core.database.LocationDao;
+import org.openlca.core.database.DescriptorCache;
 import org.openlca.core.matrix.cache.ExchangeTable;
 import org.openlca.core.matrix.cache.FlowTable;
 import org.openlca.core.matrix.format.MatrixBuilder;
@@ -13,11 +13,11 @@ import org.openlca.core.model.FlowType;
 import org.openlca.core.model.ModelType;
 import org.openlca.core.model.descriptors.LocationDescriptor;
 import org.openlca.core.results.SimpleResult;
+import org.openlca.expressions.FormulaInterpreter;
+import org.openlca.util.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import gnu.trove.map.hash.TLongObjectHashMap;
-
 public class InventoryBuilder {
 
 	private final InventoryConfig conf;
@@ -25,7 +25,7 @@ public class InventoryBuilder {
 	private final FlowTable flows;
 
 	// only used when a regionalized inventory is build
-	private final TLongObjectHashMap<LocationDescriptor> locations;
+	private final DescriptorCache.Table<LocationDescriptor> locations;
 
 	private FlowIndex flowIndex;
 	private AllocationIndex allocationIndex;
@@ -36,14 +36,23 @@ public class InventoryBuilder {
 	private UMatrix enviUncerts;
 	private double[] costs;
 
+	// only used when the formula cells should be recorded
+	private FormulaCells techFormulas;
+	private FormulaCells enviFormulas;
+	private FormulaCells costFormulas;
+
 	public InventoryBuilder(InventoryConfig conf) {
 		this.conf = conf;
 		this.techIndex = conf.techIndex;
-		this.flows = FlowTable.create(conf.db);
+		// check once per build whether the database was modified outside
+		// of the DAOs before the cached descriptors are used
+		var descriptors = DescriptorCache.of(conf.db);
+		descriptors.checkExternalChanges();
+		this.flows = FlowTable.cached(conf.db);
 		if (!conf.withRegionalization) {
 			locations = null;
 		} else {
-			locations = new LocationDao(conf.db).descriptorMap();
+			locations = descriptors.locations();
 		}
 
 		techBuilder = new MatrixBuilder();
@@ -55,6 +64,13 @@ public class InventoryBuilder {
 		if (conf.withCosts) {
 			costs = new double[conf.techIndex.size()];
 		}
+		if (conf.withFormulaCells) {
+			techFormulas = new FormulaCells();
+			enviFormulas = new FormulaCells();
+			if (conf.withCosts) {
+				costFormulas = new FormulaCells();
+			}
+		}
 	}
 
 	public MatrixData build() {
@@ -92,6 +108,9 @@ public class InventoryBuilder {
 		data.techUncertainties = techUncerts;
 		data.enviUncertainties = enviUncerts;
 		data.costVector = costs;
+		data.techFormulas = techFormulas;
+		data.enviFormulas = enviFormulas;
+		data.costFormulas = costFormulas;
 		return data;
 	}
 
@@ -220,7 +239,20 @@ public class InventoryBuilder {
 		matrix.add(row, col, value);
 
 		if (conf.withCosts) {
-			costs[col] += exchange.costValue(conf.interpreter, af);
+			double cost = exchange.costValue(conf.interpreter, af);
+			costs[col] += cost;
+			if (costFormulas != null && (Strings.notEmpty(exchange.costFormula)
+					|| hasFormula(allocationFactor))) {
+				costFormulas.add(0, col, cost, interpreter -> exchange
+						.costValue(interpreter, eval(allocationFactor, interpreter)));
+			}
+		}
+
+		if (conf.withFormulaCells && (Strings.notEmpty(exchange.formula)
+				|| hasFormula(allocationFactor))) {
+			var formulas = matrix == techBuilder ? techFormulas : enviFormulas;
+			formulas.add(row, col, value, interpreter -> exchange
+					.matrixValue(interpreter, eval(allocationFactor, interpreter)));
 		}
 
 		if (conf.withUncertainties) {
@@ -232,4 +264,13 @@ public class InventoryBuilder {
 			}
 		}
 	}
+
+	private static boolean hasFormula(CalcAllocationFactor factor) {
+		return factor != null && factor.hasFormula();
+	}
+
+	private static double eval(CalcAllocationFactor factor,
+			FormulaInterpreter interpreter) {
+		return factor != null ? factor.eval(interpreter) : 1;
+	}
 }
@@ -20,6 +20,13 @@ public class InventoryConfig {
 	public boolean withRegionalization;
 	public AllocationMethod allocationMethod;
 
+	/**
+	 * If true, the matrix cells that depend on formulas are recorded in the
+	 * matrix data so that they can be re-evaluated with other parameter
+	 * values.
+	 */
+	public boolean withFormulaCells;
+
 	/** Optional sub-system results of the product system. */
 	public Map<ProcessProduct, SimpleResult> subResults;
 	public FormulaInterpreter interpreter;
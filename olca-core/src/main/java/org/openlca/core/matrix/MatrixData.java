@@ -1,5 +1,6 @@
 package org.openlca.core.matrix;
 
+import org.openlca.core.math.Sample;
 import org.openlca.core.matrix.format.IMatrix;
 import org.openlca.core.matrix.uncertainties.UMatrix;
 import org.openlca.core.model.descriptors.ImpactCategoryDescriptor;
@@ -73,15 +74,80 @@ public class MatrixData {
 	 */
 	public UMatrix impactUncertainties;
 
+	/**
+	 * Contains the cells of the technology matrix that depend on formulas. This
+	 * field is only used (not null) when the formula cells were recorded when
+	 * building the matrices.
+	 */
+	public FormulaCells techFormulas;
+
+	/**
+	 * Contains the cells of the intervention matrix that depend on formulas.
+	 * This field is only used (not null) when the formula cells were recorded
+	 * when building the matrices.
+	 */
+	public FormulaCells enviFormulas;
+
+	/**
+	 * Contains the cells of the matrix with LCIA characterization factors that
+	 * depend on formulas. This field is only used (not null) when the formula
+	 * cells were recorded when building the matrices.
+	 */
+	public FormulaCells impactFormulas;
+
+	/**
+	 * Contains the entries of the cost vector that depend on formulas. This
+	 * field is only used (not null) when the formula cells were recorded when
+	 * building the matrices.
+	 */
+	public FormulaCells costFormulas;
+
 	public void simulate(FormulaInterpreter interpreter) {
+		simulate(interpreter, null);
+	}
+
+	/**
+	 * Generates new values for the matrix entries with uncertainty
+	 * distributions from the given sample. If the sample is `null`, the
+	 * internal streams of the number generators are used.
+	 */
+	public void simulate(FormulaInterpreter interpreter, Sample sample) {
 		if (techMatrix != null && techUncertainties != null) {
-			techUncertainties.generate(techMatrix, interpreter);
+			techUncertainties.generate(techMatrix, interpreter, sample);
 		}
 		if (enviMatrix != null && enviUncertainties != null) {
-			enviUncertainties.generate(enviMatrix, interpreter);
+			enviUncertainties.generate(enviMatrix, interpreter, sample);
 		}
 		if (impactMatrix != null && impactUncertainties != null) {
-			impactUncertainties.generate(impactMatrix, interpreter);
+			impactUncertainties.generate(impactMatrix, interpreter, sample);
 		}
 	}
+
+	/**
+	 * Creates a copy of this data where the cells that depend on formulas are
+	 * evaluated with the given interpreter. Matrices in which no value changes
+	 * are shared with this data, all other matrices are copied. Also the
+	 * indices are shared; thus, the demand value of the tech. index should not
+	 * be modified in the copy but a new tech. index should be set if required.
+	 * This data is not modified by this method.
+	 */
+	public MatrixData eval(FormulaInterpreter interpreter) {
+		MatrixData data = new MatrixData();
+		data.techIndex = techIndex;
+		data.flowIndex = flowIndex;
+		data.impactIndex = impactIndex;
+		data.techMatrix = techFormulas != null
+				? techFormulas.eval(techMatrix, interpreter)
+				: techMatrix;
+		data.enviMatrix = enviFormulas != null
+				? enviFormulas.eval(enviMatrix, interpreter)
+				: enviMatrix;
+		data.impactMatrix = impactFormulas != null
+				? impactFormulas.eval(impactMatrix, interpreter)
+				: impactMatrix;
+		data.costVector = costFormulas != null
+				? costFormulas.eval(costVector, interpreter)
+				: costVector;
+		return data;
+	}
 }
@@ -1,14 +1,17 @@
 package org.openlca.core.matrix;
 
 import java.sql.ResultSet;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.openlca.core.database.IDatabase;
 import org.openlca.core.database.NativeSql;
 import org.openlca.core.math.NumberGenerator;
+import org.openlca.core.math.Sample;
 import org.openlca.core.model.ParameterRedef;
 import org.openlca.core.model.ParameterScope;
 import org.openlca.core.model.UncertaintyType;
@@ -33,6 +36,12 @@ public class ParameterTable {
 
 	private final FormulaInterpreter interpreter = new FormulaInterpreter();
 
+	/**
+	 * The scanned parameters in case the parameter table is build for creating
+	 * multiple interpreters.
+	 */
+	private List<Binding> bindings;
+
 	private ParameterTable() {
 	}
 
@@ -50,7 +59,7 @@ public class ParameterTable {
 			var log = LoggerFactory.getLogger(ParameterTable.class);
 			log.error("Failed to scan parameter table", e);
 		}
-		table.bindRedefs(redefs);
+		table.bindRedefs(table.interpreter, redefs);
 		return table.interpreter;
 	}
 
@@ -71,16 +80,67 @@ public class ParameterTable {
 			var log = LoggerFactory.getLogger(ParameterTable.class);
 			log.error("Failed to scan parameter table", e);
 		}
-		table.bindRedefs(redefs);
+		table.bindRedefs(table.interpreter, redefs);
+		return table;
+	}
+
+	/**
+	 * Builds a parameter table from which multiple formula interpreters with
+	 * different parameter redefinitions can be created without scanning the
+	 * database again (e.g. for the variants of a project).
+	 */
+	public static ParameterTable forVariants(IDatabase db, Set<Long> contexts) {
+		var table = new ParameterTable();
+		table.bindings = new ArrayList<>();
+		try {
+			table.scan(db, contexts);
+		} catch (Exception e) {
+			var log = LoggerFactory.getLogger(ParameterTable.class);
+			log.error("Failed to scan parameter table", e);
+		}
 		return table;
 	}
 
+	/**
+	 * Creates a new formula interpreter with the parameters of this table and
+	 * the given redefinitions. This only works when the table was created with
+	 * `forVariants`; the returned interpreters are independent from each other
+	 * and can be used in different threads.
+	 */
+	public FormulaInterpreter interpreter(Collection<ParameterRedef> redefs) {
+		if (bindings == null)
+			throw new IllegalStateException(
+					"the parameter table was not created for variants");
+		var interpreter = new FormulaInterpreter();
+		for (var b : bindings) {
+			var scope = b.owner == 0
+					? interpreter.getGlobalScope()
+					: interpreter.getOrCreate(b.owner);
+			if (b.formula == null) {
+				scope.bind(b.name, b.value);
+			} else {
+				scope.bind(b.name, b.formula);
+			}
+		}
+		bindRedefs(interpreter, redefs);
+		return interpreter;
+	}
+
 	/**
 	 * Calculates new random values for the parameters in this table that have an
 	 * uncertainty distribution assigned. It re-binds the values of theses
 	 * parameters in the underlying interpreter with the generated values.
 	 */
 	public FormulaInterpreter simulate() {
+		return simulate(null);
+	}
+
+	/**
+	 * Same as `simulate()` but the random values are taken from the given
+	 * sample. If the sample is `null`, the internal streams of the number
+	 * generators are used.
+	 */
+	public FormulaInterpreter simulate(Sample sample) {
 		if (numberGens == null)
 			return interpreter;
 		var it = numberGens.iterator();
@@ -95,14 +155,18 @@ public class ParameterTable {
 				continue;
 			generators.forEach((name, gen) -> {
 				if (gen != null) {
-					scope.bind(name, gen.next());
+					double val = sample != null
+							? sample.next(gen)
+							: gen.next();
+					scope.bind(name, val);
 				}
 			});
 		}
 		return interpreter;
 	}
 
-	private void bindRedefs(Collection<ParameterRedef> redefs) {
+	private void bindRedefs(FormulaInterpreter interpreter,
+			Collection<ParameterRedef> redefs) {
 		if (redefs == null)
 			return;
 		for (var redef : redefs) {
@@ -161,9 +225,17 @@ public class ParameterTable {
 			var name = r.getString(3);
 			boolean isInput = r.getBoolean(4);
 			if (isInput) {
-				scope.bind(name, r.getDouble(5));
+				double value = r.getDouble(5);
+				scope.bind(name, value);
+				if (bindings != null) {
+					bindings.add(new Binding(owner, name, value, null));
+				}
 			} else {
-				scope.bind(name, r.getString(6));
+				String formula = r.getString(6);
+				scope.bind(name, formula);
+				if (bindings != null) {
+					bindings.add(new Binding(owner, name, 0, formula));
+				}
 			}
 
 			// bind a possible number generator
@@ -213,4 +285,19 @@ public class ParameterTable {
 			throw new RuntimeException(e);
 		}
 	}
+
+	private static class Binding {
+
+		final long owner;
+		final String name;
+		final double value;
+		final String formula;
+
+		Binding(long owner, String name, double value, String formula) {
+			this.owner = owner;
+			this.name = name;
+			this.value = value;
+			this.formula = formula;
+		}
+	}
 }
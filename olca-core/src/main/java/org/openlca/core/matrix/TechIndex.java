@@ -64,6 +64,21 @@ public class TechIndex {
 		put(refFlow);
 	}
 
+	/**
+	 * Creates a copy of this index with the same providers, links, and demand
+	 * value. This is useful when the same index is used in calculations with
+	 * different demand values (e.g. project variants).
+	 */
+	public TechIndex copy() {
+		var copy = new TechIndex(getRefFlow());
+		for (ProcessProduct provider : providers) {
+			copy.put(provider);
+		}
+		copy.links.putAll(links);
+		copy.demand = demand;
+		return copy;
+	}
+
 	/**
 	 * The demand value. This is the amount of the reference flow given in the
 	 * reference unit and flow property. The default value is 1.0.
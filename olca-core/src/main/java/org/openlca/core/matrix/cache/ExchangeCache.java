@@ -5,13 +5,9 @@ import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import org.openlca.core.database.IDatabase;
 import org.openlca.core.matrix.CalcExchange;
-import org.openlca.core.model.UncertaintyType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.sql.Connection;
-import java.sql.ResultSet;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -47,91 +43,28 @@ class ExchangeCache {
 			if (key == null)
 				return Collections.emptyList();
 			log.trace("fetch exchanges for key {}", key);
-			String query = "select * from tbl_exchanges where f_owner = " + key;
-			try (Connection con = database.createConnection()) {
-				Statement statement = con.createStatement();
-				ResultSet result = statement.executeQuery(query);
-				ArrayList<CalcExchange> exchanges = new ArrayList<>();
-				while (result.next()) {
-					CalcExchange exchange = nextExchange(result);
-					exchanges.add(exchange);
-				}
-				result.close();
-				statement.close();
-				log.trace("fetched {} exchanges", exchanges.size());
-				return exchanges;
-			} catch (Exception e) {
-				log.error("failed to fetch exchange vector", e);
-				return Collections.emptyList();
-			}
+			var exchanges = new ArrayList<CalcExchange>();
+			ExchangeStore.of(database).snapshot().each(
+					Collections.singleton(key),
+					row -> exchanges.add(row.toCalcExchange(
+							conversionTable, flowTypes)));
+			log.trace("fetched {} exchanges", exchanges.size());
+			return exchanges;
 		}
 
 		@Override
 		public Map<Long, List<CalcExchange>> loadAll(
 				Iterable<? extends Long> keys) throws Exception {
 			log.trace("fetch exchanges for multiple keys");
-			try (Connection con = database.createConnection()) {
-				String query = "select * from tbl_exchanges where f_owner in "
-						+ CacheUtil.asSql(keys);
-				Statement statement = con.createStatement();
-				HashMap<Long, List<CalcExchange>> map = new HashMap<>();
-				ResultSet result = statement.executeQuery(query);
-				while (result.next()) {
-					CalcExchange e = nextExchange(result);
-					CacheUtil.addListEntry(map, e, e.processId);
-				}
-				result.close();
-				statement.close();
-				log.trace("{} lists loaded", map.size());
-				return map;
-			} catch (Exception e) {
-				log.error("failed to fetch exchange vectors", e);
-				return Collections.emptyMap();
-			}
-		}
-
-		private CalcExchange nextExchange(ResultSet r) throws Exception {
-			CalcExchange e = new CalcExchange();
-			e.processId = r.getLong("f_owner");
-			e.amount = r.getDouble("resulting_amount_value");
-			e.formula = r.getString("resulting_amount_formula");
-			double factor = getConversionFactor(r);
-			e.conversionFactor = factor;
-			e.exchangeId = r.getLong("id");
-			e.flowId = r.getLong("f_flow");
-			e.flowType = flowTypes.type(e.flowId);
-			e.isInput = r.getBoolean("is_input");
-			e.defaultProviderId = r.getLong("f_default_provider");
-			e.isAvoided = r.getBoolean("avoided_product");
-
-			// costs
-			long currency = r.getLong("f_currency");
-			if (!r.wasNull()) {
-				e.costValue = r.getDouble("cost_value");
-				e.costFormula = r.getString("cost_formula");
-				e.currencyFactor = conversionTable.getCurrencyFactor(currency);
-			}
-
-			// uncertainties
-			int uncertaintyType = r.getInt("distribution_type");
-			if (!r.wasNull()) {
-				e.uncertaintyType = UncertaintyType.values()[uncertaintyType];
-				e.parameter1 = r.getDouble("parameter1_value");
-				e.parameter2 = r.getDouble("parameter2_value");
-				e.parameter3 = r.getDouble("parameter3_value");
-			}
-			return e;
-		}
-
-		private double getConversionFactor(ResultSet record) throws Exception {
-			long propertyFactorId = record.getLong("f_flow_property_factor");
-			double propertyFactor = conversionTable
-					.getPropertyFactor(propertyFactorId);
-			long unitId = record.getLong("f_unit");
-			double unitFactor = conversionTable.getUnitFactor(unitId);
-			if (propertyFactor == 0)
-				return 0;
-			return unitFactor / propertyFactor;
+			var ids = new ArrayList<Long>();
+			keys.forEach(ids::add);
+			var map = new HashMap<Long, List<CalcExchange>>();
+			ExchangeStore.of(database).snapshot().each(ids, row -> {
+				var e = row.toCalcExchange(conversionTable, flowTypes);
+				CacheUtil.addListEntry(map, e, e.processId);
+			});
+			log.trace("{} lists loaded", map.size());
+			return map;
 		}
 
 	}
@@ -0,0 +1,649 @@
+package org.openlca.core.matrix.cache;
+
+import java.lang.ref.WeakReference;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.database.IDatabaseListener;
+import org.openlca.core.database.NativeSql;
+import org.openlca.core.matrix.CalcExchange;
+import org.openlca.core.model.ModelType;
+import org.openlca.core.model.UncertaintyType;
+import org.openlca.core.model.descriptors.Descriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gnu.trove.list.array.TByteArrayList;
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+/**
+ * An in-memory, column oriented copy of the exchange table of a database. The
+ * store is loaded once per database (use `ExchangeStore.of(db)`) and then
+ * shared by the matrix builders, the exchange cache, and the data quality
+ * calculation so that repeated calculations do not need to scan the exchange
+ * table again.
+ * <p>
+ * The exchanges are stored in primitive arrays, grouped by their owner
+ * processes; formulas and data quality entries are interned. Unit, flow
+ * property, and currency references are stored as IDs so that the conversion
+ * factors are always taken from the current conversion table.
+ * <p>
+ * The store is kept in sync with the database incrementally and without
+ * queries on access: the exchanges of a process are reloaded when the process
+ * was changed via a DAO (the store is registered as database listener) or
+ * when it was evicted from a matrix cache. Changes that bypass the DAOs (e.g.
+ * native SQL imports) are not detected; after such changes `evict` must be
+ * called for the changed processes or the store must be invalidated (which
+ * `IDatabase.clearCache()` does via the listener). When too many processes
+ * were reloaded, the store is loaded again completely.
+ * <p>
+ * Memory: a stored exchange takes about 110 bytes (7 long, 5 double, and 2
+ * byte columns plus 3 references to interned strings); e.g. a database with 5
+ * million exchanges needs about 550 MB, and about twice as much while the
+ * store is loaded. The store is held until it is invalidated or the database
+ * is garbage collected; `invalidate(db)` can be used to release it after
+ * large calculations.
+ */
+public final class ExchangeStore {
+
+	private static final Map<IDatabase, ExchangeStore> stores = new WeakHashMap<>();
+
+	private final WeakReference<IDatabase> db;
+	private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+	private Snapshot snapshot;
+
+	private ExchangeStore(IDatabase db) {
+		this.db = new WeakReference<>(db);
+	}
+
+	/**
+	 * Returns the exchange store of the given database.
+	 */
+	public static ExchangeStore of(IDatabase db) {
+		synchronized (stores) {
+			ExchangeStore store = stores.get(db);
+			if (store != null)
+				return store;
+			store = new ExchangeStore(db);
+			db.addListener(store.new Listener());
+			stores.put(db, store);
+			return store;
+		}
+	}
+
+	/**
+	 * Drops the exchanges of the store of the given database (if there is
+	 * one) so that they are loaded again on the next access. This releases
+	 * the memory of the store until then.
+	 */
+	public static void invalidate(IDatabase db) {
+		ExchangeStore store;
+		synchronized (stores) {
+			store = stores.get(db);
+		}
+		if (store != null) {
+			store.clear();
+		}
+	}
+
+	private synchronized void clear() {
+		snapshot = null;
+		dirty.clear();
+	}
+
+	/**
+	 * Marks the exchanges of the given process as changed so that they are
+	 * reloaded on the next access.
+	 */
+	public void evict(long processId) {
+		dirty.add(processId);
+	}
+
+	/**
+	 * Returns the current state of the store. The returned snapshot is
+	 * immutable and is not affected by later updates of the store. This only
+	 * queries the database for the processes that were changed or evicted
+	 * since the last call.
+	 */
+	public synchronized Snapshot snapshot() {
+		if (snapshot != null && dirty.isEmpty())
+			return snapshot;
+		IDatabase db = this.db.get();
+		if (db == null)
+			throw new IllegalStateException("database was already released");
+		if (snapshot == null) {
+			load(db);
+			return snapshot;
+		}
+		Set<Long> changed = new HashSet<>(dirty);
+		dirty.removeAll(changed);
+		Snapshot next = snapshot.update(db, changed);
+		if (next.overrideSize > next.base.size / 4) {
+			// too many overrides; reload everything
+			load(db);
+			return snapshot;
+		}
+		snapshot = next;
+		return snapshot;
+	}
+
+	private void load(IDatabase db) {
+		Logger log = LoggerFactory.getLogger(getClass());
+		log.trace("load exchange store of {}", db.getName());
+		dirty.clear();
+		Block base = Block.load(db, null);
+		snapshot = new Snapshot(base, new TLongObjectHashMap<>());
+		log.trace("loaded {} exchanges", base.size);
+	}
+
+	/**
+	 * An immutable state of the exchange store. It consists of a base block
+	 * that is loaded once and blocks that override the exchanges of single
+	 * processes that were changed after the base block was loaded.
+	 */
+	public static final class Snapshot {
+
+		private final Block base;
+		private final TLongObjectHashMap<Block> overrides;
+		private final int size;
+		private final int overrideSize;
+
+		private Snapshot(Block base, TLongObjectHashMap<Block> overrides) {
+			this.base = base;
+			this.overrides = overrides;
+			int size = base.size;
+			int overrideSize = 0;
+			for (long id : overrides.keys()) {
+				size -= base.count(id);
+				overrideSize += overrides.get(id).count(id);
+			}
+			this.size = size + overrideSize;
+			this.overrideSize = overrideSize;
+		}
+
+		/** Returns the number of exchanges in this snapshot. */
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * Calls the given function for each exchange of the given processes.
+		 * The row that is passed into the function is a cursor that is reused
+		 * for each exchange; thus, references to it should not be kept.
+		 */
+		public void each(Iterable<Long> processIds, Consumer<Row> fn) {
+			Row row = new Row();
+			for (Long id : processIds) {
+				if (id == null)
+					continue;
+				Block block = overrides.get(id);
+				if (block == null) {
+					block = base;
+				}
+				block.each(id, row, fn);
+			}
+		}
+
+		/**
+		 * Calls the given function for each exchange of this snapshot. As in
+		 * `each(processIds, fn)`, the row is a reused cursor.
+		 */
+		public void eachRow(Consumer<Row> fn) {
+			Row row = new Row();
+			base.eachOwner(id -> {
+				if (!overrides.containsKey(id)) {
+					base.each(id, row, fn);
+				}
+			});
+			overrides.forEachEntry((id, block) -> {
+				block.each(id, row, fn);
+				return true;
+			});
+		}
+
+		private Snapshot update(IDatabase db, Set<Long> processIds) {
+			var nextOverrides = new TLongObjectHashMap<>(overrides);
+			Block block = Block.load(db, processIds);
+			for (Long id : processIds) {
+				nextOverrides.put(id, block);
+			}
+			return new Snapshot(base, nextOverrides);
+		}
+	}
+
+	/**
+	 * A cursor on an exchange of a snapshot.
+	 */
+	public static final class Row {
+
+		private Block block;
+		private int i;
+		private long owner;
+
+		private Row() {
+		}
+
+		public long exchangeId() {
+			return block.ids[i];
+		}
+
+		public long processId() {
+			return owner;
+		}
+
+		public long flowId() {
+			return block.flows[i];
+		}
+
+		public boolean isInput() {
+			return (block.flags[i] & Block.INPUT) != 0;
+		}
+
+		public boolean isAvoided() {
+			return (block.flags[i] & Block.AVOIDED) != 0;
+		}
+
+		/** Returns 0 if the exchange has no default provider. */
+		public long defaultProviderId() {
+			return block.providers[i];
+		}
+
+		/** Returns 0 if the exchange has no location. */
+		public long locationId() {
+			return block.locations[i];
+		}
+
+		public double amount() {
+			return block.amounts[i];
+		}
+
+		public String formula() {
+			return block.formulas[i];
+		}
+
+		public String dqEntry() {
+			return block.dqEntries[i];
+		}
+
+		/**
+		 * Creates a calculation exchange from this row. The conversion
+		 * factors and flow types are taken from the given tables.
+		 */
+		CalcExchange toCalcExchange(ConversionTable conversions,
+				FlowTable flows) {
+			CalcExchange e = new CalcExchange();
+			e.exchangeId = block.ids[i];
+			e.processId = owner;
+			e.flowId = block.flows[i];
+			e.flowType = flows.type(e.flowId);
+			double propertyFactor = conversions.getPropertyFactor(
+					block.propertyFactors[i]);
+			e.conversionFactor = propertyFactor == 0
+					? 0
+					: conversions.getUnitFactor(block.units[i]) / propertyFactor;
+			e.amount = block.amounts[i];
+			e.formula = block.formulas[i];
+			e.isInput = isInput();
+			e.isAvoided = isAvoided();
+			e.defaultProviderId = block.providers[i];
+			e.locationId = block.locations[i];
+
+			// costs
+			if ((block.flags[i] & Block.CURRENCY) != 0) {
+				e.costValue = block.costs[i];
+				e.costFormula = block.costFormulas[i];
+				e.currencyFactor = conversions.getCurrencyFactor(
+						block.currencies[i]);
+			}
+
+			// uncertainties
+			byte uncertainty = block.uncertainties[i];
+			if (uncertainty >= 0) {
+				e.uncertaintyType = UncertaintyType.values()[uncertainty];
+				e.parameter1 = block.params1[i];
+				e.parameter2 = block.params2[i];
+				e.parameter3 = block.params3[i];
+			}
+			return e;
+		}
+	}
+
+	/**
+	 * Exchanges in column arrays, grouped by their owners.
+	 */
+	private static class Block {
+
+		static final byte INPUT = 1;
+		static final byte AVOIDED = 2;
+		static final byte CURRENCY = 4;
+
+		int size;
+		long[] ids;
+		long[] flows;
+		long[] propertyFactors;
+		long[] units;
+		long[] providers;
+		long[] locations;
+		long[] currencies;
+		double[] amounts;
+		double[] costs;
+		double[] params1;
+		double[] params2;
+		double[] params3;
+		byte[] flags;
+		byte[] uncertainties;
+		String[] formulas;
+		String[] costFormulas;
+		String[] dqEntries;
+
+		/** The distinct owners and their row offsets. */
+		long[] owners;
+		int[] offsets;
+		TLongIntHashMap ownerIndex;
+
+		void each(long owner, Row row, Consumer<Row> fn) {
+			if (!ownerIndex.containsKey(owner))
+				return;
+			int k = ownerIndex.get(owner);
+			row.block = this;
+			row.owner = owner;
+			for (int i = offsets[k]; i < offsets[k + 1]; i++) {
+				row.i = i;
+				fn.accept(row);
+			}
+		}
+
+		void eachOwner(LongConsumer fn) {
+			for (long owner : owners) {
+				fn.accept(owner);
+			}
+		}
+
+		int count(long owner) {
+			if (!ownerIndex.containsKey(owner))
+				return 0;
+			int k = ownerIndex.get(owner);
+			return offsets[k + 1] - offsets[k];
+		}
+
+		/**
+		 * Loads the exchanges of the given processes or all exchanges if the
+		 * given set is null.
+		 */
+		static Block load(IDatabase db, Set<Long> processIds) {
+			Loader loader = new Loader();
+			if (processIds == null) {
+				loader.query(db, null);
+			} else if (!processIds.isEmpty()) {
+				List<Long> ids = new ArrayList<>(processIds);
+				for (int i = 0; i < ids.size(); i += 1000) {
+					var chunk = ids.subList(i, Math.min(i + 1000, ids.size()));
+					loader.query(db, CacheUtil.asSql(chunk));
+				}
+			}
+			return loader.build();
+		}
+	}
+
+	/**
+	 * Collects the rows of the exchange table in growable columns and
+	 * creates the block from them.
+	 */
+	private static class Loader {
+
+		final TLongArrayList owners = new TLongArrayList();
+		final TLongArrayList ids = new TLongArrayList();
+		final TLongArrayList flows = new TLongArrayList();
+		final TLongArrayList propertyFactors = new TLongArrayList();
+		final TLongArrayList units = new TLongArrayList();
+		final TLongArrayList providers = new TLongArrayList();
+		final TLongArrayList locations = new TLongArrayList();
+		final TLongArrayList currencies = new TLongArrayList();
+		final TDoubleArrayList amounts = new TDoubleArrayList();
+		final TDoubleArrayList costs = new TDoubleArrayList();
+		final TDoubleArrayList params1 = new TDoubleArrayList();
+		final TDoubleArrayList params2 = new TDoubleArrayList();
+		final TDoubleArrayList params3 = new TDoubleArrayList();
+		final TByteArrayList flags = new TByteArrayList();
+		final TByteArrayList uncertainties = new TByteArrayList();
+		final List<String> formulas = new ArrayList<>();
+		final List<String> costFormulas = new ArrayList<>();
+		final List<String> dqEntries = new ArrayList<>();
+		final HashMap<String, String> strings = new HashMap<>();
+
+		void query(IDatabase db, String ownerIds) {
+			String sql = "SELECT"
+					+ /* 1 */ " id,"
+					+ /* 2 */ " f_owner,"
+					+ /* 3 */ " f_flow,"
+					+ /* 4 */ " f_flow_property_factor,"
+					+ /* 5 */ " f_unit,"
+					+ /* 6 */ " resulting_amount_value,"
+					+ /* 7 */ " resulting_amount_formula,"
+					+ /* 8 */ " is_input,"
+					+ /* 9 */ " avoided_product,"
+					+ /* 10 */ " f_default_provider,"
+					+ /* 11 */ " cost_value,"
+					+ /* 12 */ " cost_formula,"
+					+ /* 13 */ " f_currency,"
+					+ /* 14 */ " distribution_type,"
+					+ /* 15 */ " parameter1_value,"
+					+ /* 16 */ " parameter2_value,"
+					+ /* 17 */ " parameter3_value,"
+					+ /* 18 */ " f_location,"
+					+ /* 19 */ " dq_entry"
+					+ " FROM tbl_exchanges";
+			if (ownerIds != null) {
+				sql += " WHERE f_owner IN " + ownerIds;
+			}
+			try {
+				NativeSql.on(db).query(sql, r -> {
+					try {
+						add(r);
+					} catch (Exception e) {
+						throw new RuntimeException(
+								"failed to read exchange row", e);
+					}
+					return true;
+				});
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new RuntimeException(
+						"failed to query exchange table", e);
+			}
+		}
+
+		private void add(ResultSet r) throws Exception {
+			ids.add(r.getLong(1));
+			owners.add(r.getLong(2));
+			flows.add(r.getLong(3));
+			propertyFactors.add(r.getLong(4));
+			units.add(r.getLong(5));
+			amounts.add(r.getDouble(6));
+			formulas.add(intern(r.getString(7)));
+			byte flag = 0;
+			if (r.getBoolean(8)) {
+				flag |= Block.INPUT;
+			}
+			if (r.getBoolean(9)) {
+				flag |= Block.AVOIDED;
+			}
+			providers.add(r.getLong(10));
+
+			// costs
+			long currency = r.getLong(13);
+			if (!r.wasNull()) {
+				flag |= Block.CURRENCY;
+				currencies.add(currency);
+				costs.add(r.getDouble(11));
+				costFormulas.add(intern(r.getString(12)));
+			} else {
+				currencies.add(0);
+				costs.add(0);
+				costFormulas.add(null);
+			}
+			flags.add(flag);
+
+			// uncertainties
+			int uncertainty = r.getInt(14);
+			if (!r.wasNull()) {
+				uncertainties.add((byte) uncertainty);
+				params1.add(r.getDouble(15));
+				params2.add(r.getDouble(16));
+				params3.add(r.getDouble(17));
+			} else {
+				uncertainties.add((byte) -1);
+				params1.add(0);
+				params2.add(0);
+				params3.add(0);
+			}
+
+			locations.add(r.getLong(18));
+			dqEntries.add(intern(r.getString(19)));
+		}
+
+		private String intern(String s) {
+			if (s == null || s.isEmpty())
+				return null;
+			String interned = strings.putIfAbsent(s, s);
+			return interned != null ? interned : s;
+		}
+
+		/**
+		 * Sorts the collected rows by their owners (keeping the order of the
+		 * rows of an owner) and creates the block.
+		 */
+		Block build() {
+			int n = ids.size();
+
+			// count the rows per owner and calculate the offsets
+			var ownerIndex = new TLongIntHashMap();
+			var distinct = new TLongArrayList();
+			var counts = new TIntArrayList();
+			for (int i = 0; i < n; i++) {
+				long owner = owners.getQuick(i);
+				if (!ownerIndex.containsKey(owner)) {
+					ownerIndex.put(owner, distinct.size());
+					distinct.add(owner);
+					counts.add(0);
+				}
+				int k = ownerIndex.get(owner);
+				counts.setQuick(k, counts.getQuick(k) + 1);
+			}
+			int m = distinct.size();
+			int[] offsets = new int[m + 1];
+			for (int k = 0; k < m; k++) {
+				offsets[k + 1] = offsets[k] + counts.getQuick(k);
+			}
+
+			// the target position of each row
+			int[] next = Arrays.copyOf(offsets, m);
+			int[] pos = new int[n];
+			for (int i = 0; i < n; i++) {
+				int k = ownerIndex.get(owners.getQuick(i));
+				pos[i] = next[k]++;
+			}
+
+			Block b = new Block();
+			b.size = n;
+			b.owners = distinct.toArray();
+			b.offsets = offsets;
+			b.ownerIndex = ownerIndex;
+			b.ids = sort(ids, pos);
+			b.flows = sort(flows, pos);
+			b.propertyFactors = sort(propertyFactors, pos);
+			b.units = sort(units, pos);
+			b.providers = sort(providers, pos);
+			b.locations = sort(locations, pos);
+			b.currencies = sort(currencies, pos);
+			b.amounts = sort(amounts, pos);
+			b.costs = sort(costs, pos);
+			b.params1 = sort(params1, pos);
+			b.params2 = sort(params2, pos);
+			b.params3 = sort(params3, pos);
+			b.flags = sort(flags, pos);
+			b.uncertainties = sort(uncertainties, pos);
+			b.formulas = sort(formulas, pos);
+			b.costFormulas = sort(costFormulas, pos);
+			b.dqEntries = sort(dqEntries, pos);
+			return b;
+		}
+
+		private static long[] sort(TLongArrayList list, int[] pos) {
+			long[] a = new long[pos.length];
+			for (int i = 0; i < pos.length; i++) {
+				a[pos[i]] = list.getQuick(i);
+			}
+			return a;
+		}
+
+		private static double[] sort(TDoubleArrayList list, int[] pos) {
+			double[] a = new double[pos.length];
+			for (int i = 0; i < pos.length; i++) {
+				a[pos[i]] = list.getQuick(i);
+			}
+			return a;
+		}
+
+		private static byte[] sort(TByteArrayList list, int[] pos) {
+			byte[] a = new byte[pos.length];
+			for (int i = 0; i < pos.length; i++) {
+				a[pos[i]] = list.getQuick(i);
+			}
+			return a;
+		}
+
+		private static String[] sort(List<String> list, int[] pos) {
+			String[] a = new String[pos.length];
+			for (int i = 0; i < pos.length; i++) {
+				a[pos[i]] = list.get(i);
+			}
+			return a;
+		}
+	}
+
+	private class Listener implements IDatabaseListener {
+
+		@Override
+		public void modelInserted(Descriptor d) {
+			dispatch(d);
+		}
+
+		@Override
+		public void modelUpdated(Descriptor d) {
+			dispatch(d);
+		}
+
+		@Override
+		public void modelDeleted(Descriptor d) {
+			dispatch(d);
+		}
+
+		@Override
+		public void cacheCleared() {
+			clear();
+		}
+
+		private void dispatch(Descriptor d) {
+			if (d != null && d.type == ModelType.PROCESS) {
+				evict(d.id);
+			}
+		}
+	}
+}
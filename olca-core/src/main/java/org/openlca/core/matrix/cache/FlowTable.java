@@ -2,6 +2,7 @@ package org.openlca.core.matrix.cache;
 
 import java.util.List;
 
+import org.openlca.core.database.DescriptorCache;
 import org.openlca.core.database.FlowDao;
 import org.openlca.core.database.IDatabase;
 import org.openlca.core.database.NativeSql;
@@ -25,6 +26,21 @@ public class FlowTable {
 		return new FlowTable(database);
 	}
 
+	/**
+	 * Creates the flow table from the shared descriptor cache of the given
+	 * database, which avoids loading all flow descriptors from the database
+	 * for each calculation.
+	 */
+	public static FlowTable cached(IDatabase database) {
+		FlowTable table = new FlowTable();
+		DescriptorCache.of(database).flows()
+				.forEach(d -> table.map.put(d.id, d));
+		return table;
+	}
+
+	private FlowTable() {
+	}
+
 	private FlowTable(IDatabase database) {
 		init(database);
 	}
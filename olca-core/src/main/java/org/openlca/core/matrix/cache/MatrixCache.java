@@ -79,6 +79,7 @@ public final class MatrixCache {
 	}
 
 	public synchronized void evictAll() {
+		ExchangeStore.invalidate(database);
 		if (flowTypeTable != null)
 			flowTypeTable.reload(database);
 		if (conversionTable != null)
@@ -141,6 +142,7 @@ public final class MatrixCache {
 
 	private void evictProcess(long id) {
 		processTable = null;
+		ExchangeStore.of(database).evict(id);
 		if (exchangeCache != null)
 			exchangeCache.invalidate(id);
 	}
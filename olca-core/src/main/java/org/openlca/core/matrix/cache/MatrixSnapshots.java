@@ -0,0 +1,424 @@
+package org.openlca.core.matrix.cache;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.openlca.core.database.FlowDao;
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.database.IDatabaseListener;
+import org.openlca.core.database.ImpactCategoryDao;
+import org.openlca.core.database.LocationDao;
+import org.openlca.core.database.NativeSql;
+import org.openlca.core.database.ProcessDao;
+import org.openlca.core.math.CalculationSetup;
+import org.openlca.core.matrix.DIndex;
+import org.openlca.core.matrix.FastMatrixBuilder;
+import org.openlca.core.matrix.FlowIndex;
+import org.openlca.core.matrix.LongPair;
+import org.openlca.core.matrix.MatrixData;
+import org.openlca.core.matrix.ProcessProduct;
+import org.openlca.core.matrix.TechIndex;
+import org.openlca.core.matrix.format.CSCMatrix;
+import org.openlca.core.matrix.format.HashPointMatrix;
+import org.openlca.core.matrix.format.IMatrix;
+import org.openlca.core.matrix.io.npy.Npy;
+import org.openlca.core.matrix.io.npy.Npz;
+import org.openlca.core.model.ModelType;
+import org.openlca.core.model.descriptors.Descriptor;
+import org.openlca.core.model.descriptors.ImpactCategoryDescriptor;
+import org.openlca.util.Dirs;
+import org.openlca.util.KeyGen;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A persistent cache of the matrices that are created by the
+ * {@link FastMatrixBuilder}. The indices and matrices of a build are stored
+ * as NPY/NPZ files in a snapshot folder next to the database. The name of
+ * this folder is derived from a content version of the database and the
+ * setup options that change the matrices: the reference product, the
+ * allocation method, regionalization, costs, the LCIA method, and the
+ * parameter redefinitions. Thus, a calculation with the same options can
+ * load the matrices from the snapshot instead of building them again.
+ *
+ * The snapshots are deleted when a model that is relevant for the matrices
+ * is changed via the DAOs of the database or when the caches of the database
+ * are cleared via `IDatabase.clearCache()`, which must be called after
+ * modifications via native SQL (the cache is registered once as a database
+ * listener for this). The content version of the database, which contains the
+ * sizes and the last changes of the relevant tables, is part of the snapshot
+ * names; it is queried once and then again after such a change. Thus,
+ * snapshots that were stored for an older state of the database (e.g. in an
+ * earlier session) are not loaded.
+ * <p>
+ * The matrices of a snapshot are returned in the compressed column format in
+ * which they are stored; they are not copied into another format.
+ */
+public final class MatrixSnapshots implements IDatabaseListener {
+
+	private static final Map<IDatabase, Map<File, MatrixSnapshots>> caches = new WeakHashMap<>();
+
+	private final Logger log = LoggerFactory.getLogger(getClass());
+
+	/**
+	 * We only keep a weak reference to the database as the cache is a value
+	 * in the weak map of caches.
+	 */
+	private final WeakReference<IDatabase> db;
+	private final File folder;
+
+	/** The content version of the database; null when it is not known. */
+	private String dbVersion;
+
+	private MatrixSnapshots(IDatabase db, File folder) {
+		this.db = new WeakReference<>(db);
+		this.folder = folder;
+	}
+
+	/**
+	 * Creates a snapshot cache that stores the snapshots in the folder
+	 * `matrix_snapshots` of the file storage location of the database.
+	 */
+	public static MatrixSnapshots of(IDatabase db) {
+		var folder = new File(db.getFileStorageLocation(), "matrix_snapshots");
+		return of(db, folder);
+	}
+
+	/**
+	 * Returns the snapshot cache of the given database that stores the
+	 * snapshots in the given folder. There is one cache per database and
+	 * folder which is registered once as listener of the database.
+	 */
+	public static MatrixSnapshots of(IDatabase db, File folder) {
+		var dir = folder.getAbsoluteFile();
+		synchronized (caches) {
+			var dbCaches = caches.computeIfAbsent(db, k -> new HashMap<>());
+			var snapshots = dbCaches.get(dir);
+			if (snapshots != null)
+				return snapshots;
+			snapshots = new MatrixSnapshots(db, dir);
+			db.addListener(snapshots);
+			dbCaches.put(dir, snapshots);
+			return snapshots;
+		}
+	}
+
+	/**
+	 * Returns the matrix data for the given setup. They are loaded from a
+	 * snapshot if one exists for the setup. Otherwise, they are built with the
+	 * {@link FastMatrixBuilder} and stored as snapshot. Note that snapshots
+	 * do not contain uncertainty distributions.
+	 */
+	public MatrixData get(CalculationSetup setup) {
+		var db = database();
+		var dir = new File(folder, key(db, setup));
+		if (dir.exists()) {
+			try {
+				var data = load(db, dir, setup);
+				log.trace("loaded matrix snapshot {}", dir);
+				return data;
+			} catch (Exception e) {
+				log.warn("failed to load matrix snapshot " + dir, e);
+				Dirs.delete(dir);
+			}
+		}
+		var data = new FastMatrixBuilder(db, setup).build();
+		try {
+			save(data, dir);
+		} catch (Exception e) {
+			log.warn("failed to store matrix snapshot " + dir, e);
+		}
+		return data;
+	}
+
+	/**
+	 * Deletes all snapshots of this cache.
+	 */
+	public synchronized void clear() {
+		dbVersion = null;
+		if (folder.exists()) {
+			Dirs.delete(folder);
+		}
+	}
+
+	@Override
+	public void modelInserted(Descriptor d) {
+		onChange(d);
+	}
+
+	@Override
+	public void modelUpdated(Descriptor d) {
+		onChange(d);
+	}
+
+	@Override
+	public void modelDeleted(Descriptor d) {
+		onChange(d);
+	}
+
+	@Override
+	public void cacheCleared() {
+		clear();
+	}
+
+	private void onChange(Descriptor d) {
+		if (d == null || d.type == null)
+			return;
+		switch (d.type) {
+		case CURRENCY:
+		case FLOW:
+		case FLOW_PROPERTY:
+		case IMPACT_CATEGORY:
+		case IMPACT_METHOD:
+		case LOCATION:
+		case PARAMETER:
+		case PROCESS:
+		case UNIT:
+		case UNIT_GROUP:
+			clear();
+			break;
+		default:
+			break;
+		}
+	}
+
+	private IDatabase database() {
+		var database = db.get();
+		if (database == null)
+			throw new IllegalStateException("database was already released");
+		return database;
+	}
+
+	private String key(IDatabase db, CalculationSetup setup) {
+		var parts = new ArrayList<String>();
+		parts.add(dbVersion(db));
+		var system = setup.productSystem;
+		parts.add(Long.toString(system.referenceProcess.id));
+		parts.add(Long.toString(system.referenceExchange.flow.id));
+		parts.add(setup.allocationMethod != null
+				? setup.allocationMethod.name()
+				: "");
+		parts.add(Boolean.toString(setup.withRegionalization));
+		parts.add(Boolean.toString(setup.withCosts));
+		parts.add(setup.impactMethod != null
+				? Long.toString(setup.impactMethod.id)
+				: "");
+		var redefs = new ArrayList<String>();
+		for (var redef : setup.parameterRedefs) {
+			redefs.add(redef.contextId + ":" + redef.name
+					+ "=" + redef.value);
+		}
+		redefs.sort(String::compareTo);
+		parts.addAll(redefs);
+		return KeyGen.get(parts.toArray(new String[0]));
+	}
+
+	/**
+	 * The content version of the database is derived from the sizes, maximum
+	 * IDs, and last changes of the tables that are used to build the
+	 * matrices. It is queried on first use and again after the cache was
+	 * cleared because of a change of the database.
+	 */
+	private synchronized String dbVersion(IDatabase db) {
+		if (dbVersion != null)
+			return dbVersion;
+		var tables = List.of(
+				"tbl_processes", "tbl_exchanges", "tbl_allocation_factors",
+				"tbl_flows", "tbl_flow_property_factors", "tbl_units",
+				"tbl_parameters", "tbl_impact_categories",
+				"tbl_impact_factors", "tbl_locations");
+		var b = new StringBuilder();
+		b.append(db.getVersion());
+		for (var table : tables) {
+			var sql = "select count(*), max(id) from " + table;
+			NativeSql.on(db).query(sql, r -> {
+				b.append('/').append(r.getLong(1))
+						.append('-').append(r.getLong(2));
+				return false;
+			});
+		}
+		for (var table : List.of("tbl_processes", "tbl_flows",
+				"tbl_parameters", "tbl_impact_categories")) {
+			var sql = "select max(last_change) from " + table;
+			NativeSql.on(db).query(sql, r -> {
+				b.append('/').append(r.getLong(1));
+				return false;
+			});
+		}
+		dbVersion = b.toString();
+		return dbVersion;
+	}
+
+	private void save(MatrixData data, File dir) throws Exception {
+		var tmp = new File(folder, dir.getName() + "_"
+				+ Thread.currentThread().getId() + ".tmp");
+		Files.createDirectories(tmp.toPath());
+
+		// tech. index: pairs of process and flow IDs
+		var techIdx = new long[data.techIndex.size() * 2];
+		data.techIndex.each((i, p) -> {
+			techIdx[2 * i] = p.process.id;
+			techIdx[2 * i + 1] = p.flow.id;
+		});
+		Npy.save(new File(tmp, "index_A.npy"), techIdx);
+		writeMatrix(tmp, "A", data.techMatrix);
+
+		// process links: quadruples of process and exchange ID of the linked
+		// exchange and process and flow ID of the provider
+		var linked = data.techIndex.getLinkedExchanges();
+		if (!linked.isEmpty()) {
+			var links = new long[linked.size() * 4];
+			int i = 0;
+			for (var exchange : linked) {
+				var provider = data.techIndex.getLinkedProvider(exchange);
+				links[i++] = exchange.first;
+				links[i++] = exchange.second;
+				links[i++] = provider.process.id;
+				links[i++] = provider.flow.id;
+			}
+			Npy.save(new File(tmp, "links_A.npy"), links);
+		}
+
+		// flow index: triples of flow ID, location ID, and input flag
+		if (data.flowIndex != null) {
+			var flowIdx = new long[data.flowIndex.size() * 3];
+			data.flowIndex.each((i, f) -> {
+				flowIdx[3 * i] = f.flow.id;
+				flowIdx[3 * i + 1] = f.location != null ? f.location.id : 0;
+				flowIdx[3 * i + 2] = f.isInput ? 1 : 0;
+			});
+			Npy.save(new File(tmp, "index_B.npy"), flowIdx);
+			writeMatrix(tmp, "B", data.enviMatrix);
+		}
+
+		// impact index: impact category IDs
+		if (data.impactIndex != null) {
+			var impactIdx = new long[data.impactIndex.size()];
+			data.impactIndex.each((i, d) -> impactIdx[i] = d.id);
+			Npy.save(new File(tmp, "index_C.npy"), impactIdx);
+			writeMatrix(tmp, "C", data.impactMatrix);
+		}
+
+		if (data.costVector != null) {
+			Npy.save(new File(tmp, "costs.npy"), data.costVector);
+		}
+
+		// move the snapshot into place; another worker could have
+		// stored the same snapshot in the meantime
+		try {
+			Files.move(tmp.toPath(), dir.toPath(),
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (Exception e) {
+			Dirs.delete(tmp);
+			if (!dir.exists())
+				throw e;
+		}
+	}
+
+	private void writeMatrix(File dir, String name, IMatrix matrix) {
+		if (matrix == null)
+			return;
+		var m = matrix;
+		if (m instanceof HashPointMatrix) {
+			m = CSCMatrix.of(m);
+		}
+		if (m instanceof CSCMatrix) {
+			Npz.save(new File(dir, name + ".npz"), (CSCMatrix) m);
+		} else {
+			Npy.save(new File(dir, name + ".npy"), m);
+		}
+	}
+
+	private MatrixData load(IDatabase db, File dir, CalculationSetup setup) {
+		var data = new MatrixData();
+		var processes = new ProcessDao(db).descriptorMap();
+		var flows = new FlowDao(db).descriptorMap();
+
+		// tech. index
+		var techIdx = Npy.loadLongVector(new File(dir, "index_A.npy"));
+		var refFlow = ProcessProduct.of(
+				processes.get(techIdx[0]), flows.get(techIdx[1]));
+		data.techIndex = new TechIndex(refFlow);
+		data.techIndex.setDemand(setup.getDemandValue());
+		for (int i = 2; i < techIdx.length; i += 2) {
+			data.techIndex.put(ProcessProduct.of(
+					processes.get(techIdx[i]), flows.get(techIdx[i + 1])));
+		}
+		data.techMatrix = readMatrix(dir, "A");
+
+		// process links
+		var linkFile = new File(dir, "links_A.npy");
+		if (linkFile.exists()) {
+			var links = Npy.loadLongVector(linkFile);
+			for (int i = 0; i < links.length; i += 4) {
+				var provider = data.techIndex.getProvider(
+						links[i + 2], links[i + 3]);
+				if (provider == null)
+					throw new IllegalStateException(
+							"provider of link not in index");
+				data.techIndex.putLink(
+						LongPair.of(links[i], links[i + 1]), provider);
+			}
+		}
+
+		// flow index
+		var flowFile = new File(dir, "index_B.npy");
+		if (flowFile.exists()) {
+			var locations = setup.withRegionalization
+					? new LocationDao(db).descriptorMap()
+					: null;
+			data.flowIndex = setup.withRegionalization
+					? FlowIndex.createRegionalized()
+					: FlowIndex.create();
+			var flowIdx = Npy.loadLongVector(flowFile);
+			for (int i = 0; i < flowIdx.length; i += 3) {
+				var flow = flows.get(flowIdx[i]);
+				var loc = locations != null
+						? locations.get(flowIdx[i + 1])
+						: null;
+				if (flowIdx[i + 2] == 1) {
+					data.flowIndex.putInput(flow, loc);
+				} else {
+					data.flowIndex.putOutput(flow, loc);
+				}
+			}
+			data.enviMatrix = readMatrix(dir, "B");
+		}
+
+		// impact index
+		var impactFile = new File(dir, "index_C.npy");
+		if (impactFile.exists()) {
+			var impacts = new ImpactCategoryDao(db).descriptorMap();
+			data.impactIndex = new DIndex<ImpactCategoryDescriptor>();
+			for (long id : Npy.loadLongVector(impactFile)) {
+				data.impactIndex.put(impacts.get(id));
+			}
+			data.impactMatrix = readMatrix(dir, "C");
+		}
+
+		var costFile = new File(dir, "costs.npy");
+		if (costFile.exists()) {
+			data.costVector = Npy.loadVector(costFile);
+		}
+		return data;
+	}
+
+	private IMatrix readMatrix(File dir, String name) {
+		var npy = new File(dir, name + ".npy");
+		if (npy.exists())
+			return Npy.load(npy);
+		var npz = new File(dir, name + ".npz");
+		if (!npz.exists())
+			return null;
+		// the calculators only modify copies of the matrices; thus, we can
+		// return the compressed matrix as it is stored
+		return Npz.load(npz);
+	}
+}
@@ -2,9 +2,6 @@ package org.openlca.core.matrix.format;
 
 import java.util.Arrays;
 
-import gnu.trove.list.array.TDoubleArrayList;
-import gnu.trove.list.array.TIntArrayList;
-
 /**
  * Implements a compressed-column representation of a sparse matrix (CSC =
  * compressed sparse column). Note that this format is not editable. Calling
@@ -67,33 +64,50 @@ public class CSCMatrix implements IMatrix {
 					values, columnPointers, rowIndices);
 		}
 
-		// compress another matrix format
-		int[] columnPointers = new int[m.columns() + 1];
-		var values = new TDoubleArrayList(m.rows());
-		var rowIndices = new TIntArrayList(m.rows());
-		int i = 0;
-		for (int col = 0; col < m.columns(); col++) {
-			boolean foundEntry = false;
-			for (int row = 0; row < m.rows(); row++) {
-				double val = m.get(row, col);
-				if (val == 0)
-					continue;
-				values.add(val);
-				rowIndices.add(row);
-				if (!foundEntry) {
-					columnPointers[col] = i;
-					foundEntry = true;
-				}
-				i++;
-			}
-			if (!foundEntry) {
-				columnPointers[col] = i;
+		// compress another matrix format; we first collect the entries
+		// row-wise and then sort them into the columns so that the row
+		// indices are sorted within each column
+		int rows = m.rows();
+		int cols = m.columns();
+		int[] rowPointers = new int[rows + 1];
+		m.iterate((row, col, val) -> {
+			if (val != 0) {
+				rowPointers[row + 1]++;
 			}
+		});
+		for (int row = 0; row < rows; row++) {
+			rowPointers[row + 1] += rowPointers[row];
 		}
-		columnPointers[m.columns()] = values.size();
+		int nnz = rowPointers[rows];
+		int[] next = Arrays.copyOf(rowPointers, rows);
+		int[] columnIndices = new int[nnz];
+		double[] rowValues = new double[nnz];
+		m.iterate((row, col, val) -> {
+			if (val != 0) {
+				int pos = next[row]++;
+				columnIndices[pos] = col;
+				rowValues[pos] = val;
+			}
+		});
 
-		return new CSCMatrix(m.rows(), m.columns(),
-				values.toArray(), columnPointers, rowIndices.toArray());
+		int[] columnPointers = new int[cols + 1];
+		for (int k = 0; k < nnz; k++) {
+			columnPointers[columnIndices[k] + 1]++;
+		}
+		for (int col = 0; col < cols; col++) {
+			columnPointers[col + 1] += columnPointers[col];
+		}
+		int[] nextInCol = Arrays.copyOf(columnPointers, cols);
+		int[] rowIndices = new int[nnz];
+		double[] values = new double[nnz];
+		for (int row = 0; row < rows; row++) {
+			for (int k = rowPointers[row]; k < rowPointers[row + 1]; k++) {
+				int pos = nextInCol[columnIndices[k]]++;
+				rowIndices[pos] = row;
+				values[pos] = rowValues[k];
+			}
+		}
+		return new CSCMatrix(rows, cols, values, columnPointers, rowIndices);
 	}
 
 	@Override
@@ -148,6 +162,15 @@ public class CSCMatrix implements IMatrix {
 		return rows;
 	}
 
+	@Override
+	public void iterate(EntryFunction fn) {
+		for (int col = 0; col < columns; col++) {
+			for (int k = columnPointers[col]; k < columnPointers[col + 1]; k++) {
+				fn.value(rowIndices[k], col, values[k]);
+			}
+		}
+	}
+
 	@Override
 	public void set(int row, int col, double val) {
 		throw new RuntimeException(
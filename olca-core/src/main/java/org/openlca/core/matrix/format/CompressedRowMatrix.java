@@ -77,6 +77,16 @@ public class CompressedRowMatrix implements IMatrix {
 		return rows;
 	}
 
+	@Override
+	public void iterate(EntryFunction fn) {
+		for (int row = 0; row < rows; row++) {
+			int end = SparseKernels.rowEnd(this, row);
+			for (int k = rowPointers[row]; k < end; k++) {
+				fn.value(row, columnIndices[k], values[k]);
+			}
+		}
+	}
+
 	@Override
 	public void set(int row, int col, double val) {
 		int idxStart = rowPointers[row];
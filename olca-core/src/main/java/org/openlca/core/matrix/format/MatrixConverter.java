@@ -13,9 +13,8 @@ public final class MatrixConverter {
 		int cols = m.columns();
 		DenseMatrix d = new DenseMatrix(rows, cols);
 
-		if (m instanceof HashPointMatrix) {
-			HashPointMatrix s = (HashPointMatrix) m;
-			s.iterate((row, col, val) -> d.set(row, col, val));
+		if (SparseKernels.isSparse(m)) {
+			m.iterate((row, col, val) -> d.set(row, col, val));
 			return d;
 		}
 
@@ -0,0 +1,270 @@
+package org.openlca.core.matrix.format;
+
+import java.util.Arrays;
+
+/**
+ * Matrix operations that work directly on the storage of the sparse matrix
+ * formats (`CSCMatrix`, `CompressedRowMatrix`, `HashPointMatrix`) instead of
+ * iterating over all cells via `get` and `set`. For other matrix formats, the
+ * operations fall back to the respective cell-wise implementations, so that
+ * they can be used for any matrix.
+ */
+public final class SparseKernels {
+
+	private SparseKernels() {
+	}
+
+	/**
+	 * Returns true when the given matrix is stored in a sparse format that is
+	 * supported by these kernels.
+	 */
+	public static boolean isSparse(IMatrix m) {
+		return m instanceof CSCMatrix
+				|| m instanceof CompressedRowMatrix
+				|| m instanceof HashPointMatrix;
+	}
+
+	/**
+	 * Returns the given matrix in the compressed sparse column format. If the
+	 * matrix is already a CSC matrix, it is directly returned (no copy).
+	 */
+	public static CSCMatrix csc(IMatrix m) {
+		if (m instanceof CSCMatrix)
+			return (CSCMatrix) m;
+		return CSCMatrix.of(m);
+	}
+
+	/**
+	 * Calculates the matrix-vector product y = M * v.
+	 */
+	public static double[] multiply(IMatrix m, double[] v) {
+		if (m == null || v == null)
+			return null;
+		int rows = m.rows();
+		int cols = Math.min(m.columns(), v.length);
+		double[] y = new double[rows];
+
+		if (m instanceof CSCMatrix) {
+			CSCMatrix csc = (CSCMatrix) m;
+			for (int col = 0; col < cols; col++) {
+				double vj = v[col];
+				if (vj == 0)
+					continue;
+				int end = csc.columnPointers[col + 1];
+				for (int k = csc.columnPointers[col]; k < end; k++) {
+					y[csc.rowIndices[k]] += csc.values[k] * vj;
+				}
+			}
+			return y;
+		}
+
+		if (m instanceof CompressedRowMatrix) {
+			CompressedRowMatrix csr = (CompressedRowMatrix) m;
+			for (int row = 0; row < rows; row++) {
+				double sum = 0;
+				int end = rowEnd(csr, row);
+				for (int k = csr.rowPointers[row]; k < end; k++) {
+					int col = csr.columnIndices[k];
+					if (col < cols) {
+						sum += csr.values[k] * v[col];
+					}
+				}
+				y[row] = sum;
+			}
+			return y;
+		}
+
+		if (m instanceof HashPointMatrix) {
+			m.iterate((row, col, val) -> {
+				if (col < cols) {
+					y[row] += val * v[col];
+				}
+			});
+			return y;
+		}
+
+		if (m instanceof DenseMatrix) {
+			double[] data = ((DenseMatrix) m).data;
+			for (int col = 0; col < cols; col++) {
+				double vj = v[col];
+				if (vj == 0)
+					continue;
+				int offset = col * rows;
+				for (int row = 0; row < rows; row++) {
+					y[row] += data[offset + row] * vj;
+				}
+			}
+			return y;
+		}
+
+		for (int row = 0; row < rows; row++) {
+			for (int col = 0; col < cols; col++) {
+				y[row] += m.get(row, col) * v[col];
+			}
+		}
+		return y;
+	}
+
+	/**
+	 * Calculates the matrix-matrix product A * B and writes it into the given
+	 * result matrix R which must have the dimensions `A.rows * B.columns` and
+	 * must be empty (all zeros). When A is sparse, the product is calculated
+	 * column by column from the non-zero entries of A (in CSC format) and B
+	 * (in CSC format when B is sparse too).
+	 */
+	public static void multiply(IMatrix a, IMatrix b, IMatrix r) {
+		if (a.columns() != b.rows())
+			throw new IllegalArgumentException("a.columns != b.rows");
+		int rows = a.rows();
+		int cols = b.columns();
+
+		if (!isSparse(a)) {
+			int k = a.columns();
+			for (int row = 0; row < rows; row++) {
+				for (int col = 0; col < cols; col++) {
+					double val = 0;
+					for (int i = 0; i < k; i++) {
+						val += a.get(row, i) * b.get(i, col);
+					}
+					r.set(row, col, val);
+				}
+			}
+			return;
+		}
+
+		CSCMatrix csa = csc(a);
+		CSCMatrix csb = isSparse(b) ? csc(b) : null;
+		double[] y = new double[rows];
+		for (int col = 0; col < cols; col++) {
+
+			// y := A * B[:, col] = sum_i A[:, i] * B[i, col]
+			if (csb != null) {
+				int end = csb.columnPointers[col + 1];
+				for (int k = csb.columnPointers[col]; k < end; k++) {
+					axpy(csa, csb.rowIndices[k], csb.values[k], y);
+				}
+			} else {
+				double[] bj = b.getColumn(col);
+				for (int i = 0; i < bj.length; i++) {
+					axpy(csa, i, bj[i], y);
+				}
+			}
+
+			// write and clear y
+			if (r instanceof DenseMatrix) {
+				DenseMatrix dr = (DenseMatrix) r;
+				System.arraycopy(y, 0, dr.data, col * rows, rows);
+				Arrays.fill(y, 0);
+			} else {
+				for (int row = 0; row < rows; row++) {
+					if (y[row] != 0) {
+						r.set(row, col, y[row]);
+						y[row] = 0;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * y := y + f * A[:, col]
+	 */
+	private static void axpy(CSCMatrix a, int col, double f, double[] y) {
+		if (f == 0)
+			return;
+		int end = a.columnPointers[col + 1];
+		for (int k = a.columnPointers[col]; k < end; k++) {
+			y[a.rowIndices[k]] += a.values[k] * f;
+		}
+	}
+
+	/**
+	 * Scales the columns of the given matrix in-place with the given factors:
+	 * M := M * diag(v).
+	 */
+	public static void scaleColumns(IMatrix m, double[] v) {
+		if (m instanceof CSCMatrix) {
+			CSCMatrix csc = (CSCMatrix) m;
+			for (int col = 0; col < csc.columns; col++) {
+				double f = v[col];
+				int end = csc.columnPointers[col + 1];
+				for (int k = csc.columnPointers[col]; k < end; k++) {
+					csc.values[k] *= f;
+				}
+			}
+			return;
+		}
+
+		if (m instanceof CompressedRowMatrix) {
+			CompressedRowMatrix csr = (CompressedRowMatrix) m;
+			for (int k = 0; k < csr.values.length; k++) {
+				csr.values[k] *= v[csr.columnIndices[k]];
+			}
+			return;
+		}
+
+		if (m instanceof HashPointMatrix) {
+			((HashPointMatrix) m).scaleColumns(v);
+			return;
+		}
+
+		if (m instanceof DenseMatrix) {
+			DenseMatrix d = (DenseMatrix) m;
+			for (int col = 0; col < d.columns; col++) {
+				double f = v[col];
+				int offset = col * d.rows;
+				for (int row = 0; row < d.rows; row++) {
+					d.data[offset + row] *= f;
+				}
+			}
+			return;
+		}
+
+		for (int row = 0; row < m.rows(); row++) {
+			for (int col = 0; col < m.columns(); col++) {
+				m.set(row, col, v[col] * m.get(row, col));
+			}
+		}
+	}
+
+	/**
+	 * Returns the transpose of the given matrix in CSC format. The row
+	 * indices in the columns of the returned matrix are sorted.
+	 */
+	public static CSCMatrix transpose(IMatrix m) {
+		CSCMatrix a = csc(m);
+		int nnz = a.columnPointers[a.columns];
+
+		// the columns of A^T are the rows of A
+		int[] pointers = new int[a.rows + 1];
+		for (int k = 0; k < nnz; k++) {
+			pointers[a.rowIndices[k] + 1]++;
+		}
+		for (int row = 0; row < a.rows; row++) {
+			pointers[row + 1] += pointers[row];
+		}
+		int[] next = new int[a.rows];
+		System.arraycopy(pointers, 0, next, 0, a.rows);
+		int[] indices = new int[nnz];
+		double[] values = new double[nnz];
+		for (int col = 0; col < a.columns; col++) {
+			int end = a.columnPointers[col + 1];
+			for (int k = a.columnPointers[col]; k < end; k++) {
+				int pos = next[a.rowIndices[k]]++;
+				indices[pos] = col;
+				values[pos] = a.values[k];
+			}
+		}
+		return new CSCMatrix(a.columns, a.rows, values, pointers, indices);
+	}
+
+	/**
+	 * Returns the end (exclusive) of the given row in the arrays of a
+	 * compressed row matrix.
+	 */
+	static int rowEnd(CompressedRowMatrix m, int row) {
+		return row == (m.rows - 1)
+				? m.columnIndices.length
+				: m.rowPointers[row + 1];
+	}
+}
@@ -27,6 +27,7 @@ import org.openlca.core.results.BaseResult;
 import org.openlca.core.results.ContributionResult;
 import org.openlca.core.results.FullResult;
 import org.openlca.core.results.SimpleResult;
+import org.openlca.core.results.UpstreamTree;
 import org.openlca.util.CategoryPathBuilder;
 
 /**
@@ -259,6 +260,41 @@ public final class CsvOut {
 		});
 	}
 
+	/**
+	 * Writes the calculated nodes of the given upstream tree in depth-first
+	 * order into the given file. Use `UpstreamTree.expand` to calculate the
+	 * tree down to a cutoff before writing it.
+	 */
+	public static void write(UpstreamTree tree, File file) {
+		if (tree == null || file == null)
+			return;
+		String[] header = {
+				"depth",
+				"process ID",
+				"process name",
+				"flow ID",
+				"flow name",
+				"result",
+				"share" };
+		double total = tree.root.result;
+		writer(file, w -> {
+			writeln(w, line(header));
+			String[] mask = new String[header.length];
+			tree.each((node, depth) -> {
+				mask[0] = Integer.toString(depth);
+				mask[1] = node.provider.process.refId;
+				mask[2] = node.provider.process.name;
+				mask[3] = node.provider.flow.refId;
+				mask[4] = node.provider.flow.name;
+				mask[5] = Double.toString(node.result);
+				mask[6] = total == 0
+						? "0"
+						: Double.toString(node.result / total);
+				writeln(w, line(mask));
+			});
+		});
+	}
+
 	private static String line(String[] entries) {
 		if (entries == null)
 			return "";
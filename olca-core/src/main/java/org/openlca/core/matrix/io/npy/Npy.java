@@ -3,12 +3,16 @@ package org.openlca.core.matrix.io.npy;
 import org.openlca.core.matrix.format.DenseMatrix;
 import org.openlca.core.matrix.format.IMatrix;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 
 /**
  * Supports reading and writing dense matrices and vectors from NPY files. NPY
@@ -49,9 +53,58 @@ public final class Npy {
 		new DenseWriter(file, matrix).run();
 	}
 
+	/**
+	 * Loads a vector of 64 bit floating point numbers from the given file. The
+	 * data are read from a memory mapped buffer of the file.
+	 */
 	public static double[] loadVector(File file) {
-		// TODO not yet implemented
-		return null;
+		try (RandomAccessFile f = new RandomAccessFile(file, "r");
+			 FileChannel channel = f.getChannel()) {
+			Header h = HeaderReader.read(channel);
+			if (h.getDType() != DType.Float64)
+				throw new IllegalArgumentException(
+						"not a supported floating point type " + h.getDType());
+			int len = vectorLength(h);
+			double[] v = new double[len];
+			map(channel, h, len).asDoubleBuffer().get(v);
+			return v;
+		} catch (IOException e) {
+			throw new RuntimeException("failed to read from " + file, e);
+		}
+	}
+
+	/**
+	 * Loads a vector of 64 bit integers from the given file. The data are read
+	 * from a memory mapped buffer of the file.
+	 */
+	public static long[] loadLongVector(File file) {
+		try (RandomAccessFile f = new RandomAccessFile(file, "r");
+			 FileChannel channel = f.getChannel()) {
+			Header h = HeaderReader.read(channel);
+			if (h.getDType() != DType.Int64)
+				throw new IllegalArgumentException(
+						"not a supported integer type " + h.getDType());
+			int len = vectorLength(h);
+			long[] v = new long[len];
+			map(channel, h, len).asLongBuffer().get(v);
+			return v;
+		} catch (IOException e) {
+			throw new RuntimeException("failed to read from " + file, e);
+		}
+	}
+
+	private static int vectorLength(Header h) {
+		if (h.shape == null || h.shape.length == 0)
+			return 0;
+		return Math.max(h.shape[0], 0);
+	}
+
+	private static ByteBuffer map(FileChannel channel, Header h, int len)
+			throws IOException {
+		ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+				h.dataOffset, (long) len * h.getDType().size());
+		buffer.order(h.getByteOrder());
+		return buffer;
 	}
 
 	/**
@@ -75,25 +128,41 @@ public final class Npy {
 			throw new IllegalArgumentException(
 					"not a supported floating point type " + dtype);
 
-		// allocate resources
-		int dsize = dtype.size();
-		byte[] bytes = new byte[dsize];
+		// read the vector in one block
+		byte[] bytes = stream.readNBytes(len * dtype.size());
 		ByteBuffer buf = ByteBuffer.wrap(bytes);
 		buf.order(h.getByteOrder());
 		double[] v = new double[len];
-
-		// read the vector
-		for (int i = 0; i < len; i++) {
-			if (stream.read(bytes) != dsize)
-				break;
-			v[i] = buf.getDouble();
-			buf.position(0);
-		}
+		buf.asDoubleBuffer().get(v, 0, bytes.length / dtype.size());
 		return v;
 	}
 
+	/**
+	 * Saves the given vector of floating point numbers to the given file.
+	 */
 	public static void save(File file, double[] vector) {
-		// TODO not yet implemented
+		if (file == null || vector == null)
+			return;
+		try (FileOutputStream out = new FileOutputStream(file);
+			 BufferedOutputStream buffer = new BufferedOutputStream(out)) {
+			write(buffer, vector);
+		} catch (IOException e) {
+			throw new RuntimeException("failed to write to " + file, e);
+		}
+	}
+
+	/**
+	 * Saves the given vector of 64 bit integers to the given file.
+	 */
+	public static void save(File file, long[] vector) {
+		if (file == null || vector == null)
+			return;
+		try (FileOutputStream out = new FileOutputStream(file);
+			 BufferedOutputStream buffer = new BufferedOutputStream(out)) {
+			write(buffer, vector);
+		} catch (IOException e) {
+			throw new RuntimeException("failed to write to " + file, e);
+		}
 	}
 
 	/**
@@ -117,19 +186,19 @@ public final class Npy {
 			throw new IllegalArgumentException(
 					"not a supported integer type " + dtype);
 
-		// allocate resources
+		// read the vector in one block
 		int dsize = dtype.size();
-		byte[] bytes = new byte[dsize];
+		byte[] bytes = stream.readNBytes(len * dsize);
 		ByteBuffer buf = ByteBuffer.wrap(bytes);
 		buf.order(h.getByteOrder());
 		int[] v = new int[len];
-
-		// read the vector
-		for (int i = 0; i < len; i++) {
-			if (stream.read(bytes) != dsize)
-				break;
-			v[i] = buf.getInt();
-			buf.position(0);
+		int n = bytes.length / dsize;
+		if (dtype == DType.Int32) {
+			buf.asIntBuffer().get(v, 0, n);
+		} else {
+			for (int i = 0; i < n; i++) {
+				v[i] = (int) buf.getLong();
+			}
 		}
 		return v;
 	}
@@ -149,6 +218,21 @@ public final class Npy {
 		out.write(buff.array());
 	}
 
+	/**
+	 * Writes the given vector including its header to the given output stream.
+	 */
+	static void write(OutputStream out, long[] v) throws IOException {
+		Header h = new Header();
+		h.shape = new int[]{v.length};
+		h.dtype = "<i8";
+		h.fortranOrder = false;
+		h.write(out);
+		ByteBuffer buff = ByteBuffer.allocate(v.length * 8);
+		buff.order(ByteOrder.LITTLE_ENDIAN);
+		buff.asLongBuffer().put(v);
+		out.write(buff.array());
+	}
+
 	/**
 	 * Writes the given vector including its header to the given output stream.
 	 */
@@ -6,6 +6,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.openlca.core.matrix.CalcExchange;
 import org.openlca.core.matrix.LinkingConfig;
@@ -18,17 +20,32 @@ import org.openlca.core.model.ProductSystem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Builds the tech. index of a product system by following the product inputs
+ * and waste outputs of the processes breadth-first, block by block, starting
+ * from the reference product. The providers of a block are searched in
+ * parallel but the resulting index is always the same as with a sequential
+ * search.
+ */
 public class TechIndexBuilder implements ITechIndexBuilder {
 
+	/**
+	 * The minimum number of processes in a block for which the providers are
+	 * searched in parallel.
+	 */
+	private static final int PARALLEL_THRESHOLD = 64;
+
 	private final Logger log = LoggerFactory.getLogger(getClass());
 	private final ProviderSearch providers;
 	private final MatrixCache cache;
 	private final ProductSystem system;
+	private final LinkingConfig config;
 
 	public TechIndexBuilder(MatrixCache cache, ProductSystem system,
 			LinkingConfig config) {
 		this.cache = cache;
 		this.system = system;
+		this.config = config;
 		this.providers = new ProviderSearch(cache.getProcessTable(), config);
 	}
 
@@ -46,25 +63,21 @@ public class TechIndexBuilder implements ITechIndexBuilder {
 		List<ProcessProduct> block = new ArrayList<>();
 		block.add(refFlow);
 		HashSet<ProcessProduct> handled = new HashSet<>();
+		handled.add(refFlow);
 		while (!block.isEmpty()) {
-			List<ProcessProduct> nextBlock = new ArrayList<>();
 			log.trace("fetch next block with {} entries", block.size());
 			Map<Long, List<CalcExchange>> exchanges = fetchExchanges(block);
-			for (ProcessProduct recipient : block) {
-				handled.add(recipient);
-				List<CalcExchange> all = exchanges.get(recipient.id());
-				List<CalcExchange> candidates = providers
-						.getLinkCandidates(all);
-				for (CalcExchange linkExchange : candidates) {
-					ProcessProduct provider = providers.find(linkExchange);
-					if (provider == null)
-						continue;
-					LongPair exchange = new LongPair(recipient.id(),
-							linkExchange.exchangeId);
-					index.putLink(exchange, provider);
-					if (!handled.contains(provider)
-							&& !nextBlock.contains(provider))
-						nextBlock.add(provider);
+			List<List<ResolvedLink>> links = resolve(block, exchanges);
+
+			// the links are added in the order of the block, so that the
+			// index is the same as when the links are resolved sequentially
+			List<ProcessProduct> nextBlock = new ArrayList<>();
+			for (List<ResolvedLink> recipientLinks : links) {
+				for (ResolvedLink link : recipientLinks) {
+					index.putLink(link.exchange, link.provider);
+					if (handled.add(link.provider)) {
+						nextBlock.add(link.provider);
+					}
 				}
 			}
 			block = nextBlock;
@@ -72,6 +85,43 @@ public class TechIndexBuilder implements ITechIndexBuilder {
 		return index;
 	}
 
+	/**
+	 * Searches the providers of the product inputs and waste outputs of the
+	 * processes in the given block. The searches are independent from each
+	 * other and are executed in parallel for larger blocks. This is not done
+	 * when a linking callback is set as such callbacks are often interactive.
+	 * The returned list contains the links of each recipient in the order of
+	 * the block.
+	 */
+	private List<List<ResolvedLink>> resolve(List<ProcessProduct> block,
+			Map<Long, List<CalcExchange>> exchanges) {
+		Stream<ProcessProduct> stream = block.size() >= PARALLEL_THRESHOLD
+				&& config.callback == null
+						? block.parallelStream()
+						: block.stream();
+		return stream
+				.map(recipient -> resolve(recipient,
+						exchanges.get(recipient.id())))
+				.collect(Collectors.toList());
+	}
+
+	private List<ResolvedLink> resolve(ProcessProduct recipient,
+			List<CalcExchange> exchanges) {
+		List<CalcExchange> candidates = providers.getLinkCandidates(exchanges);
+		if (candidates.isEmpty())
+			return Collections.emptyList();
+		List<ResolvedLink> links = new ArrayList<>(candidates.size());
+		for (CalcExchange linkExchange : candidates) {
+			ProcessProduct provider = providers.find(linkExchange);
+			if (provider == null)
+				continue;
+			LongPair exchange = new LongPair(recipient.id(),
+					linkExchange.exchangeId);
+			links.add(new ResolvedLink(exchange, provider));
+		}
+		return links;
+	}
+
 	private void addSystemLinks(TechIndex index) {
 		if (system == null)
 			return;
@@ -101,4 +151,14 @@ public class TechIndexBuilder implements ITechIndexBuilder {
 		}
 	}
 
+	private static class ResolvedLink {
+
+		final LongPair exchange;
+		final ProcessProduct provider;
+
+		ResolvedLink(LongPair exchange, ProcessProduct provider) {
+			this.exchange = exchange;
+			this.provider = provider;
+		}
+	}
 }
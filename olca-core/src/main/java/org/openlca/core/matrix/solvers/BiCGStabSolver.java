@@ -0,0 +1,536 @@
+package org.openlca.core.matrix.solvers;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.openlca.core.matrix.format.IMatrix;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+
+/**
+ * An iterative solver that solves A * x = b with the right-preconditioned
+ * BiCGSTAB method. It is intended for Monte-Carlo simulations where the
+ * technology matrix is only slightly perturbed in each run:
+ *
+ * <ul>
+ * <li>the factorization of the deterministic technology matrix A0 is used as
+ * preconditioner: M^-1 = A0^-1, see `precondition`; it is registered for the
+ * matrix instance that is then perturbed in the runs</li>
+ * <li>the solution of the previous solve of the same matrix instance is used
+ * as initial guess (warm start), also in the factorizations that are returned
+ * from `factorize`; this state is kept per thread, so the solver can be shared
+ * between the workers of a parallel simulation</li>
+ * <li>the compressed row structure of a matrix instance is built only once;
+ * in later solves only its values are updated</li>
+ * </ul>
+ *
+ * When no preconditioner is registered for a matrix instance or when the
+ * method does not converge, the system is solved with the base solver. All
+ * other operations are delegated to the base solver. The preconditioners hold
+ * resources of the base solver (e.g. native memory), thus, they should be
+ * released with `release` or `dispose` when they are not used anymore.
+ */
+public class BiCGStabSolver implements IMatrixSolver {
+
+	private final IMatrixSolver base;
+	private double tolerance = 1e-10;
+	private int maxIterations = 100;
+
+	/**
+	 * The registered preconditioners per matrix instance. Our matrix formats
+	 * do not overwrite `equals`, thus, this is an identity map. Access is
+	 * synchronized on this solver.
+	 */
+	private final Map<IMatrix, Preconditioner> preconditioners = new WeakHashMap<>();
+
+	/**
+	 * The row structures and last solutions per matrix instance; the entries
+	 * are removed when a matrix is garbage collected.
+	 */
+	private final ThreadLocal<Map<IMatrix, State>> states = ThreadLocal
+			.withInitial(WeakHashMap::new);
+
+	public BiCGStabSolver(IMatrixSolver base) {
+		this.base = base;
+	}
+
+	/**
+	 * Sets the maximum relative residual |b - A * x| / |b| of a solution.
+	 */
+	public BiCGStabSolver withTolerance(double tolerance) {
+		this.tolerance = tolerance;
+		return this;
+	}
+
+	/**
+	 * Sets the maximum number of iterations before the solver falls back to
+	 * the base solver.
+	 */
+	public BiCGStabSolver withMaxIterations(int maxIterations) {
+		this.maxIterations = maxIterations;
+		return this;
+	}
+
+	/**
+	 * Factorizes the given matrix with the base solver and registers it as
+	 * preconditioner for this matrix instance. This should be the
+	 * deterministic technology matrix of a simulation which values are then
+	 * perturbed in the simulation runs. An existing preconditioner of that
+	 * matrix is released.
+	 */
+	public void precondition(IMatrix a) {
+		Factorization lu = base.factorize(a);
+		register(a, new Preconditioner(lu));
+	}
+
+	/**
+	 * Registers the preconditioner of the matrix `template` also for the
+	 * matrix `a`. This can be used when the same product system is simulated
+	 * with different matrix instances (e.g. in parallel simulations) so that
+	 * the deterministic matrix is factorized only once. Returns false when no
+	 * preconditioner is registered for the template or when the dimensions of
+	 * the matrices do not match.
+	 */
+	public boolean precondition(IMatrix a, IMatrix template) {
+		synchronized (this) {
+			Preconditioner p = preconditioners.get(template);
+			if (p == null || p.lu.size() != a.rows())
+				return false;
+			p.users++;
+			register(a, p);
+			return true;
+		}
+	}
+
+	private synchronized void register(IMatrix a, Preconditioner p) {
+		Preconditioner old = preconditioners.put(a, p);
+		if (old != null && old != p) {
+			old.release();
+		}
+	}
+
+	/**
+	 * Removes the registered preconditioner of the given matrix. The resources
+	 * of the preconditioner are released when it is not registered for
+	 * another matrix.
+	 */
+	public synchronized void release(IMatrix a) {
+		Preconditioner p = preconditioners.remove(a);
+		if (p != null) {
+			p.release();
+		}
+	}
+
+	/**
+	 * Releases the resources of all registered preconditioners.
+	 */
+	public synchronized void dispose() {
+		Set<Preconditioner> all = Collections.newSetFromMap(
+				new IdentityHashMap<>());
+		all.addAll(preconditioners.values());
+		preconditioners.clear();
+		for (Preconditioner p : all) {
+			p.lu.dispose();
+		}
+	}
+
+	private synchronized Factorization preconditionerOf(IMatrix a) {
+		Preconditioner p = preconditioners.get(a);
+		if (p == null || p.lu.size() != a.rows() || a.rows() != a.columns())
+			return null;
+		return p.lu;
+	}
+
+	@Override
+	public IMatrix matrix(int rows, int columns) {
+		return base.matrix(rows, columns);
+	}
+
+	@Override
+	public IMatrix matrix(int rows, int columns, double density) {
+		return base.matrix(rows, columns, density);
+	}
+
+	@Override
+	public double[] solve(IMatrix a, int idx, double d) {
+		Factorization m = preconditionerOf(a);
+		if (m == null)
+			return base.solve(a, idx, d);
+		State state = state(a);
+		double[] x = state.solve(m, idx, d);
+		return x != null
+				? x
+				: base.solve(a, idx, d);
+	}
+
+	/**
+	 * When a preconditioner is registered for the given matrix, a
+	 * factorization is returned that solves the systems with the BiCGSTAB
+	 * iterations, starting from the previous solutions of that matrix. It uses
+	 * the values of the matrix at the time when this method was called.
+	 * Otherwise, the matrix is factorized with the base solver.
+	 */
+	@Override
+	public Factorization factorize(IMatrix a) {
+		Factorization m = preconditionerOf(a);
+		if (m == null)
+			return base.factorize(a);
+		return new WarmStart(a, m, state(a));
+	}
+
+	/**
+	 * Returns the state of the given matrix with its current values.
+	 */
+	private State state(IMatrix a) {
+		Map<IMatrix, State> map = states.get();
+		State state = map.get(a);
+		if (state == null) {
+			state = new State(Operator.of(a));
+			map.put(a, state);
+		} else if (!state.op.update(a)) {
+			state.op = Operator.of(a);
+		}
+		return state;
+	}
+
+	@Override
+	public IMatrix invert(IMatrix a) {
+		return base.invert(a);
+	}
+
+	@Override
+	public IMatrix multiply(IMatrix a, IMatrix b) {
+		return base.multiply(a, b);
+	}
+
+	@Override
+	public double[] multiply(IMatrix m, double[] v) {
+		return base.multiply(m, v);
+	}
+
+	@Override
+	public void scaleColumns(IMatrix m, double[] v) {
+		base.scaleColumns(m, v);
+	}
+
+	/**
+	 * Runs the preconditioned BiCGSTAB iterations. Returns `null` when the
+	 * method did not converge.
+	 */
+	private double[] bicgstab(Operator a, Factorization m,
+			double[] b, double[] x0) {
+		int n = b.length;
+		double normB = norm(b);
+		if (normB == 0)
+			return new double[n];
+		double eps = tolerance * normB;
+
+		double[] x = x0.clone();
+		double[] r = a.residual(b, x);
+		if (norm(r) <= eps)
+			return x;
+		double[] rHat = r.clone();
+		double[] p = new double[n];
+		double[] v = new double[n];
+		double rho = 1, alpha = 1, omega = 1;
+
+		for (int k = 0; k < maxIterations; k++) {
+			double rhoNext = dot(rHat, r);
+			if (rhoNext == 0 || omega == 0)
+				return null;
+			double beta = (rhoNext / rho) * (alpha / omega);
+			rho = rhoNext;
+			for (int i = 0; i < n; i++) {
+				p[i] = r[i] + beta * (p[i] - omega * v[i]);
+			}
+
+			double[] y = m.solve(p);
+			a.multiply(y, v);
+			double rHatV = dot(rHat, v);
+			if (rHatV == 0)
+				return null;
+			alpha = rho / rHatV;
+			double[] s = r;
+			for (int i = 0; i < n; i++) {
+				x[i] += alpha * y[i];
+				s[i] -= alpha * v[i];
+			}
+			if (norm(s) <= eps)
+				return x;
+
+			double[] z = m.solve(s);
+			double[] t = new double[n];
+			a.multiply(z, t);
+			double tt = dot(t, t);
+			if (tt == 0)
+				return null;
+			omega = dot(t, s) / tt;
+			for (int i = 0; i < n; i++) {
+				x[i] += omega * z[i];
+				r[i] = s[i] - omega * t[i];
+			}
+			if (norm(r) <= eps)
+				return x;
+		}
+		return null;
+	}
+
+	private static double[] scale(double[] v, double f) {
+		double[] s = new double[v.length];
+		for (int i = 0; i < v.length; i++) {
+			s[i] = f * v[i];
+		}
+		return s;
+	}
+
+	private static double dot(double[] a, double[] b) {
+		double sum = 0;
+		for (int i = 0; i < a.length; i++) {
+			sum += a[i] * b[i];
+		}
+		return sum;
+	}
+
+	private static double norm(double[] v) {
+		return Math.sqrt(dot(v, v));
+	}
+
+	/**
+	 * A registered preconditioner with the number of matrices for which it is
+	 * registered.
+	 */
+	private static class Preconditioner {
+		final Factorization lu;
+		int users = 1;
+
+		Preconditioner(Factorization lu) {
+			this.lu = lu;
+		}
+
+		void release() {
+			users--;
+			if (users <= 0) {
+				lu.dispose();
+			}
+		}
+	}
+
+	/**
+	 * The row structure and the last solutions of a matrix instance.
+	 */
+	private class State {
+
+		Operator op;
+
+		/** The last solutions per index of the demand value. */
+		final TIntObjectHashMap<Guess> guesses = new TIntObjectHashMap<>();
+
+		State(Operator op) {
+			this.op = op;
+		}
+
+		/**
+		 * Solves the system for a demand d at the given index. Returns `null`
+		 * when the method did not converge.
+		 */
+		double[] solve(Factorization m, int idx, double d) {
+			double[] b = new double[op.n];
+			b[idx] = d;
+			Guess guess = guesses.get(idx);
+			double[] x0 = guess != null && guess.d != 0
+					? scale(guess.x, d / guess.d)
+					: m.solve(b);
+			double[] x = bicgstab(op, m, b, x0);
+			if (x != null) {
+				remember(idx, d, x);
+			}
+			return x;
+		}
+
+		void remember(int idx, double d, double[] x) {
+			guesses.put(idx, new Guess(d, x.clone()));
+		}
+	}
+
+	/**
+	 * The factorization that is returned for a preconditioned matrix. It
+	 * shares the state of the matrix, thus, it is only valid until the matrix
+	 * is modified and solved or factorized again. When the iterations do not
+	 * converge, the matrix is factorized with the base solver.
+	 */
+	private class WarmStart implements Factorization {
+
+		final IMatrix a;
+		final Factorization m;
+		final State state;
+		Factorization fallback;
+
+		WarmStart(IMatrix a, Factorization m, State state) {
+			this.a = a;
+			this.m = m;
+			this.state = state;
+		}
+
+		@Override
+		public int size() {
+			return m.size();
+		}
+
+		@Override
+		public double[] solve(int idx, double d) {
+			double[] x = state.solve(m, idx, d);
+			if (x != null)
+				return x;
+			x = fallback().solve(idx, d);
+			state.remember(idx, d, x);
+			return x;
+		}
+
+		@Override
+		public double[] solve(double[] b) {
+			double[] x = bicgstab(state.op, m, b, m.solve(b));
+			return x != null
+					? x
+					: fallback().solve(b);
+		}
+
+		private Factorization fallback() {
+			if (fallback == null) {
+				fallback = base.factorize(a);
+			}
+			return fallback;
+		}
+
+		@Override
+		public void dispose() {
+			if (fallback != null) {
+				fallback.dispose();
+				fallback = null;
+			}
+		}
+	}
+
+	/**
+	 * The last solution of a system with a demand d.
+	 */
+	private static class Guess {
+		final double d;
+		final double[] x;
+
+		Guess(double d, double[] x) {
+			this.d = d;
+			this.x = x;
+		}
+	}
+
+	/**
+	 * A compressed row representation of a matrix for fast matrix-vector
+	 * products in the iterations. The column indices are sorted within a row
+	 * so that the values can be updated in place when the matrix values
+	 * change but its structure stays the same.
+	 */
+	private static class Operator {
+		final int n;
+		final int[] rowPointers;
+		final int[] columns;
+		final double[] values;
+
+		private Operator(int n, int[] rowPointers, int[] columns,
+				double[] values) {
+			this.n = n;
+			this.rowPointers = rowPointers;
+			this.columns = columns;
+			this.values = values;
+		}
+
+		static Operator of(IMatrix a) {
+			int n = a.rows();
+			int[] rowPointers = new int[n + 1];
+			a.iterate((row, col, val) -> rowPointers[row + 1]++);
+			for (int row = 0; row < n; row++) {
+				rowPointers[row + 1] += rowPointers[row];
+			}
+			int[] next = rowPointers.clone();
+			int nnz = rowPointers[n];
+			int[] columns = new int[nnz];
+			double[] values = new double[nnz];
+			a.iterate((row, col, val) -> {
+				int pos = next[row]++;
+				columns[pos] = col;
+				values[pos] = val;
+			});
+			Operator op = new Operator(n, rowPointers, columns, values);
+			op.sortRows();
+			return op;
+		}
+
+		/** Sorts the entries of each row by their column indices. */
+		private void sortRows() {
+			for (int row = 0; row < n; row++) {
+				int start = rowPointers[row];
+				int end = rowPointers[row + 1];
+				for (int i = start + 1; i < end; i++) {
+					int col = columns[i];
+					double val = values[i];
+					int j = i - 1;
+					while (j >= start && columns[j] > col) {
+						columns[j + 1] = columns[j];
+						values[j + 1] = values[j];
+						j--;
+					}
+					columns[j + 1] = col;
+					values[j + 1] = val;
+				}
+			}
+		}
+
+		/**
+		 * Updates the values of this operator with the values of the given
+		 * matrix. Returns false when the matrix has non-zero entries outside of
+		 * the structure of this operator, it then needs to be rebuilt.
+		 */
+		boolean update(IMatrix a) {
+			if (a.rows() != n)
+				return false;
+			Arrays.fill(values, 0);
+			boolean[] fits = { true };
+			a.iterate((row, col, val) -> {
+				if (!fits[0])
+					return;
+				int pos = Arrays.binarySearch(columns,
+						rowPointers[row], rowPointers[row + 1], col);
+				if (pos >= 0) {
+					values[pos] = val;
+				} else if (val != 0) {
+					fits[0] = false;
+				}
+			});
+			return fits[0];
+		}
+
+		/** y := A * x */
+		void multiply(double[] x, double[] y) {
+			for (int row = 0; row < n; row++) {
+				double sum = 0;
+				for (int k = rowPointers[row]; k < rowPointers[row + 1]; k++) {
+					sum += values[k] * x[columns[k]];
+				}
+				y[row] = sum;
+			}
+		}
+
+		/** r := b - A * x */
+		double[] residual(double[] b, double[] x) {
+			double[] r = new double[n];
+			multiply(x, r);
+			for (int i = 0; i < n; i++) {
+				r[i] = b[i] - r[i];
+			}
+			return r;
+		}
+	}
+}
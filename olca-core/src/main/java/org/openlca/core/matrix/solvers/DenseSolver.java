@@ -1,8 +1,11 @@
 package org.openlca.core.matrix.solvers;
 
+import java.util.Arrays;
+
 import org.openlca.core.matrix.format.DenseMatrix;
 import org.openlca.core.matrix.format.IMatrix;
 import org.openlca.core.matrix.format.MatrixConverter;
+import org.openlca.core.matrix.format.SparseKernels;
 import org.openlca.eigen.Blas;
 import org.openlca.eigen.Lapack;
 
@@ -26,6 +29,32 @@ public class DenseSolver implements IMatrixSolver {
 		return b;
 	}
 
+	@Override
+	public Factorization factorize(IMatrix a) {
+		DenseMatrix A = MatrixConverter.dense(a);
+		DenseMatrix lu = A == a ? A.copy() : A;
+		int n = A.columns();
+		int[] pivots = new int[n];
+		int info = Lapack.dLu(n, lu.data, pivots);
+		if (info != 0)
+			throw new IllegalArgumentException(
+					"LU factorization failed; info = " + info);
+		return new Factorization() {
+
+			@Override
+			public int size() {
+				return n;
+			}
+
+			@Override
+			public double[] solve(double[] b) {
+				double[] x = Arrays.copyOf(b, n);
+				Lapack.dSolveLu(n, 1, lu.data, pivots, x);
+				return x;
+			}
+		};
+	}
+
 	@Override
 	public double[] multiply(IMatrix m, double[] x) {
 		DenseMatrix a = MatrixConverter.dense(m);
@@ -60,11 +89,7 @@ public class DenseSolver implements IMatrixSolver {
 
 	@Override
 	public void scaleColumns(IMatrix m, double[] v) {
-		for (int row = 0; row < m.rows(); row++) {
-			for (int col = 0; col < m.columns(); col++) {
-				m.set(row, col, v[col] * m.get(row, col));
-			}
-		}
+		SparseKernels.scaleColumns(m, v);
 	}
 
 }
@@ -0,0 +1,40 @@
+package org.openlca.core.matrix.solvers;
+
+/**
+ * A factorization of a square matrix A (e.g. an LU decomposition) that can be
+ * used to solve A * x = b for multiple right-hand sides b without factorizing A
+ * again. A factorization may hold native memory, thus, it should be disposed
+ * when it is not used anymore.
+ */
+public interface Factorization {
+
+	/**
+	 * Returns the dimension n of the factorized n*n matrix.
+	 */
+	int size();
+
+	/**
+	 * Solves the system A * x = b where b is a vector with a single non-zero
+	 * entry d at the given index. In openLCA this is the standard case for
+	 * calculating a scaling vector for a demand value of a product.
+	 */
+	default double[] solve(int idx, double d) {
+		double[] b = new double[size()];
+		b[idx] = d;
+		return solve(b);
+	}
+
+	/**
+	 * Solves the system A * x = b for the given right-hand side b. The vector b
+	 * is not modified.
+	 */
+	double[] solve(double[] b);
+
+	/**
+	 * Releases the resources of this factorization. The factorization cannot be
+	 * used anymore after this method was called.
+	 */
+	default void dispose() {
+	}
+
+}
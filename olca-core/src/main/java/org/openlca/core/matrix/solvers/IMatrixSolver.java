@@ -1,6 +1,7 @@
 package org.openlca.core.matrix.solvers;
 
 import org.openlca.core.matrix.format.IMatrix;
+import org.openlca.core.matrix.format.SparseKernels;
 
 /**
  * Interface for linear algebra and matrix problems that we need to solve in
@@ -44,13 +45,57 @@ public interface IMatrixSolver {
 	 */
 	double[] solve(IMatrix a, int idx, double d);
 
+	/**
+	 * Creates a factorization of the given matrix A that can be used to solve
+	 * A * x = b for multiple right-hand sides b. Solvers that support this
+	 * should overwrite this method; the default implementation just solves the
+	 * system from scratch for each call to the returned factorization.
+	 *
+	 * @param a
+	 *            the matrix that should be factorized, typically the technology
+	 *            matrix A. The matrix should not be modified while the returned
+	 *            factorization is used.
+	 */
+	default Factorization factorize(IMatrix a) {
+		IMatrixSolver solver = this;
+		return new Factorization() {
+
+			@Override
+			public int size() {
+				return a.rows();
+			}
+
+			@Override
+			public double[] solve(int idx, double d) {
+				return solver.solve(a, idx, d);
+			}
+
+			@Override
+			public double[] solve(double[] b) {
+				// A^-1 * b = sum_i A^-1 * (b_i * e_i)
+				double[] x = new double[a.rows()];
+				for (int i = 0; i < b.length; i++) {
+					if (b[i] == 0)
+						continue;
+					double[] xi = solver.solve(a, i, b[i]);
+					for (int k = 0; k < x.length; k++) {
+						x[k] += xi[k];
+					}
+				}
+				return x;
+			}
+		};
+	}
+
 	/**
 	 * Calculates the inverse of the given matrix.
 	 */
 	IMatrix invert(IMatrix a);
 
 	/**
-	 * Returns the matrix product of the given matrices.
+	 * Returns the matrix product of the given matrices. By default, the
+	 * product is calculated with the sparse kernels when the matrix a is
+	 * stored in a sparse format.
 	 */
 	default IMatrix multiply(IMatrix a, IMatrix b) {
 		if (a == null || b == null)
@@ -58,15 +103,7 @@ public interface IMatrixSolver {
 		if (a.columns() != b.rows())
 			throw new IllegalArgumentException("a.columns != b.rows");
 		IMatrix r = matrix(a.rows(), b.columns());
-		for (int row = 0; row < a.rows(); row++) {
-			for (int col = 0; col < b.columns(); col++) {
-				double val = 0;
-				for (int k = 0; k < a.columns(); k++) {
-					val += a.get(row, k) * b.get(k, col);
-				}
-				r.set(row, col, val);
-			}
-		}
+		SparseKernels.multiply(a, b, r);
 		return r;
 	}
 
@@ -75,17 +112,7 @@ public interface IMatrixSolver {
 	 * when we calculate the inventory result: g = B * s
 	 */
 	default double[] multiply(IMatrix m, double[] v) {
-		if (m == null || v == null)
-			return null;
-		int cols = Math.min(m.columns(), v.length);
-		int rows = m.rows();
-		double[] r = new double[rows];
-		for (int row = 0; row < rows; row++) {
-			for (int col = 0; col < cols; col++) {
-				r[row] += (m.get(row, col) * v[col]);
-			}
-		}
-		return r;
+		return SparseKernels.multiply(m, v);
 	}
 
 	/**
@@ -93,11 +120,7 @@ public interface IMatrixSolver {
 	 * to m * diag(v) but can be implemented in a more efficient way.
 	 */
 	default void scaleColumns(IMatrix m, double[] v) {
-		for (int row = 0; row < m.rows(); row++) {
-			for (int col = 0; col < m.columns(); col++) {
-				m.set(row, col, v[col] * m.get(row, col));
-			}
-		}
+		SparseKernels.scaleColumns(m, v);
 	}
 
 }
@@ -2,11 +2,13 @@ package org.openlca.core.matrix.solvers;
 
 import org.apache.commons.math3.linear.Array2DRowRealMatrix;
 import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.DecompositionSolver;
 import org.apache.commons.math3.linear.LUDecomposition;
 import org.apache.commons.math3.linear.RealMatrix;
 import org.apache.commons.math3.linear.RealVector;
 import org.openlca.core.matrix.format.IMatrix;
 import org.openlca.core.matrix.format.JavaMatrix;
+import org.openlca.core.matrix.format.SparseKernels;
 
 public class JavaSolver implements IMatrixSolver {
 
@@ -24,8 +26,29 @@ public class JavaSolver implements IMatrixSolver {
 		return x.toArray();
 	}
 
+	@Override
+	public Factorization factorize(IMatrix a) {
+		DecompositionSolver lu = new LUDecomposition(unwrap(a)).getSolver();
+		int n = a.rows();
+		return new Factorization() {
+
+			@Override
+			public int size() {
+				return n;
+			}
+
+			@Override
+			public double[] solve(double[] b) {
+				RealVector x = lu.solve(new ArrayRealVector(b));
+				return x.toArray();
+			}
+		};
+	}
+
 	@Override
 	public double[] multiply(IMatrix m, double[] v) {
+		if (SparseKernels.isSparse(m))
+			return SparseKernels.multiply(m, v);
 		RealMatrix A = unwrap(m);
 		RealMatrix b = new Array2DRowRealMatrix(v.length, 1);
 		b.setColumn(0, v);
@@ -41,6 +64,13 @@ public class JavaSolver implements IMatrixSolver {
 
 	@Override
 	public IMatrix multiply(IMatrix a, IMatrix b) {
+		if (SparseKernels.isSparse(a)) {
+			if (a.columns() != b.rows())
+				throw new IllegalArgumentException("a.columns != b.rows");
+			JavaMatrix r = new JavaMatrix(a.rows(), b.columns());
+			SparseKernels.multiply(a, b, r);
+			return r;
+		}
 		RealMatrix _a = unwrap(a);
 		RealMatrix _b = unwrap(b);
 		RealMatrix c = _a.multiply(_b);
@@ -0,0 +1,539 @@
+package org.openlca.core.matrix.solvers;
+
+import java.util.Arrays;
+
+import org.openlca.core.matrix.format.CSCMatrix;
+
+import gnu.trove.iterator.TIntIterator;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.set.hash.TIntHashSet;
+
+/**
+ * A sparse LU factorization P * A * Q = L * U of a square matrix A in CSC
+ * format, calculated in plain Java:
+ *
+ * <ul>
+ * <li>the column permutation Q is a fill-reducing approximate minimum degree
+ * ordering of the pattern of A + A^T</li>
+ * <li>L and U are calculated column by column with the left-looking method of
+ * Gilbert and Peierls where each column is calculated by a sparse triangular
+ * solve with the already calculated columns of L</li>
+ * <li>the row permutation P comes from threshold partial pivoting: the
+ * diagonal entry is selected as pivot when its absolute value is at least
+ * `tolerance` times the largest absolute value in the column, as for the
+ * typical technology matrices this keeps the ordering (and thus the fill) of
+ * the minimum degree ordering</li>
+ * </ul>
+ */
+public final class SparseLU implements Factorization {
+
+	private final int n;
+
+	/** The row permutation: pinv[i] = k when row i is the k-th pivot. */
+	private final int[] pinv;
+
+	/** The column permutation: q[k] is the k-th column of A. */
+	private final int[] q;
+
+	// L is a unit lower triangular matrix in CSC format; the diagonal
+	// entry is the first entry of each column
+	private final int[] lp;
+	private final int[] li;
+	private final double[] lx;
+
+	// U is an upper triangular matrix in CSC format; the diagonal entry
+	// is the last entry of each column
+	private final int[] up;
+	private final int[] ui;
+	private final double[] ux;
+
+	private SparseLU(int n, int[] pinv, int[] q,
+			int[] lp, int[] li, double[] lx,
+			int[] up, int[] ui, double[] ux) {
+		this.n = n;
+		this.pinv = pinv;
+		this.q = q;
+		this.lp = lp;
+		this.li = li;
+		this.lx = lx;
+		this.up = up;
+		this.ui = ui;
+		this.ux = ux;
+	}
+
+	/**
+	 * Factorizes the given matrix with a pivot tolerance of 0.1.
+	 *
+	 * @throws IllegalArgumentException if the matrix is not square
+	 * @throws ArithmeticException if the matrix is singular
+	 */
+	public static SparseLU of(CSCMatrix a) {
+		return of(a, 0.1);
+	}
+
+	/**
+	 * Factorizes the given matrix with the given pivot tolerance (0..1]; with
+	 * a tolerance of 1, standard partial pivoting is done.
+	 *
+	 * @throws IllegalArgumentException if the matrix is not square
+	 * @throws ArithmeticException if the matrix is singular
+	 */
+	public static SparseLU of(CSCMatrix a, double tolerance) {
+		if (a.rows != a.columns)
+			throw new IllegalArgumentException("the matrix is not square");
+		return new Factorizer(a, minimumDegree(a), tolerance).run();
+	}
+
+	@Override
+	public int size() {
+		return n;
+	}
+
+	/**
+	 * Returns the number of non-zero entries in the factors L and U. This
+	 * gives an indication of the fill-in of the factorization.
+	 */
+	public int nonZeros() {
+		return lp[n] + up[n];
+	}
+
+	@Override
+	public double[] solve(double[] b) {
+		double[] x = new double[n];
+		for (int i = 0; i < n; i++) {
+			x[pinv[i]] = b[i];
+		}
+
+		// L * y = P * b
+		for (int j = 0; j < n; j++) {
+			double xj = x[j];
+			if (xj == 0)
+				continue;
+			for (int p = lp[j] + 1; p < lp[j + 1]; p++) {
+				x[li[p]] -= lx[p] * xj;
+			}
+		}
+
+		// U * z = y
+		for (int j = n - 1; j >= 0; j--) {
+			int diag = up[j + 1] - 1;
+			x[j] /= ux[diag];
+			double xj = x[j];
+			if (xj == 0)
+				continue;
+			for (int p = up[j]; p < diag; p++) {
+				x[ui[p]] -= ux[p] * xj;
+			}
+		}
+
+		// x = Q * z
+		double[] r = new double[n];
+		for (int k = 0; k < n; k++) {
+			r[q[k]] = x[k];
+		}
+		return r;
+	}
+
+	/**
+	 * Calculates an approximate minimum degree ordering on the pattern of A +
+	 * A^T. In each step, the node with the smallest (approximate) number of
+	 * neighbors in the elimination graph is eliminated. The elimination graph
+	 * is stored as a quotient graph: instead of connecting the neighbors of an
+	 * eliminated node p with each other, they are connected to a new element p
+	 * that contains these neighbors. Elements that are adjacent to p are
+	 * absorbed by the new element. With this, the memory stays in the order of
+	 * the non-zero entries of A. The degrees are updated with the approximate
+	 * degree bounds of Amestoy, Davis, and Duff (AMD, 1996).
+	 */
+	static int[] minimumDegree(CSCMatrix a) {
+		int n = a.columns;
+
+		// the adjacent variables of each variable
+		TIntHashSet[] sets = new TIntHashSet[n];
+		for (int i = 0; i < n; i++) {
+			sets[i] = new TIntHashSet();
+		}
+		for (int col = 0; col < n; col++) {
+			for (int p = a.columnPointers[col]; p < a.columnPointers[col + 1]; p++) {
+				int row = a.rowIndices[p];
+				if (row == col)
+					continue;
+				sets[row].add(col);
+				sets[col].add(row);
+			}
+		}
+		int[][] vars = new int[n][];
+		for (int i = 0; i < n; i++) {
+			vars[i] = sets[i].toArray();
+			sets[i] = null;
+		}
+
+		// the adjacent elements of each variable and the variables of each
+		// element; an element has the ID of the eliminated pivot
+		TIntArrayList[] elems = new TIntArrayList[n];
+		int[][] elemVars = new int[n][];
+		boolean[] isElement = new boolean[n];
+		boolean[] eliminated = new boolean[n];
+
+		int[] degree = new int[n];
+		DegreeLists lists = new DegreeLists(n);
+		for (int i = 0; i < n; i++) {
+			degree[i] = vars[i].length;
+			elems[i] = new TIntArrayList(4);
+			lists.add(i, degree[i]);
+		}
+
+		// flags for marking variables and elements in an elimination step
+		int[] flags = new int[n];
+		int[] wflags = new int[n];
+		int[] w = new int[n];
+		int tag = 0;
+
+		int[] order = new int[n];
+		int k = 0;
+		while (k < n) {
+			int p = lists.pollMin();
+			order[k++] = p;
+			eliminated[p] = true;
+			tag++;
+
+			// collect the variables of the new element p and absorb
+			// the elements that are adjacent to p
+			TIntArrayList lp = new TIntArrayList();
+			for (int v : vars[p]) {
+				if (!eliminated[v] && flags[v] != tag) {
+					flags[v] = tag;
+					lp.add(v);
+				}
+			}
+			TIntIterator it = elems[p].iterator();
+			while (it.hasNext()) {
+				int e = it.next();
+				if (!isElement[e])
+					continue;
+				for (int v : elemVars[e]) {
+					if (!eliminated[v] && flags[v] != tag) {
+						flags[v] = tag;
+						lp.add(v);
+					}
+				}
+				isElement[e] = false;
+				elemVars[e] = null;
+			}
+			vars[p] = null;
+			elems[p] = null;
+			int[] lpVars = lp.toArray();
+			elemVars[p] = lpVars;
+			isElement[p] = true;
+
+			// w[e] = |Le \ Lp| for the elements adjacent to Lp; elements
+			// with w[e] = 0 are covered by p and are absorbed
+			for (int i : lpVars) {
+				it = elems[i].iterator();
+				while (it.hasNext()) {
+					int e = it.next();
+					if (!isElement[e])
+						continue;
+					if (wflags[e] != tag) {
+						wflags[e] = tag;
+						w[e] = elemVars[e].length;
+					}
+					w[e]--;
+				}
+			}
+
+			// update the adjacency lists and degrees of the variables in Lp
+			int remaining = n - k;
+			for (int i : lpVars) {
+				TIntArrayList ei = new TIntArrayList(elems[i].size() + 1);
+				int deg = lpVars.length - 1;
+				it = elems[i].iterator();
+				while (it.hasNext()) {
+					int e = it.next();
+					if (!isElement[e] || w[e] == 0) {
+						if (isElement[e]) {
+							isElement[e] = false;
+							elemVars[e] = null;
+						}
+						continue;
+					}
+					ei.add(e);
+					deg += w[e];
+				}
+				ei.add(p);
+				elems[i] = ei;
+
+				int[] ai = vars[i];
+				int count = 0;
+				for (int v : ai) {
+					if (!eliminated[v] && flags[v] != tag) {
+						ai[count++] = v;
+					}
+				}
+				vars[i] = count == ai.length ? ai : Arrays.copyOf(ai, count);
+				deg += count;
+
+				deg = Math.min(deg, remaining - 1);
+				deg = Math.min(deg, degree[i] + lpVars.length - 1);
+				if (deg != degree[i]) {
+					lists.remove(i, degree[i]);
+					degree[i] = deg;
+					lists.add(i, deg);
+				}
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * Doubly linked lists of the variables with the same degree, so that
+	 * the variable with the minimum degree can be found and the degree of a
+	 * variable can be updated in constant time.
+	 */
+	private static class DegreeLists {
+
+		final int[] heads;
+		final int[] next;
+		final int[] prev;
+		int min;
+
+		DegreeLists(int n) {
+			heads = new int[n + 1];
+			next = new int[n];
+			prev = new int[n];
+			Arrays.fill(heads, -1);
+		}
+
+		void add(int i, int degree) {
+			int head = heads[degree];
+			next[i] = head;
+			prev[i] = -1;
+			if (head >= 0) {
+				prev[head] = i;
+			}
+			heads[degree] = i;
+			if (degree < min) {
+				min = degree;
+			}
+		}
+
+		void remove(int i, int degree) {
+			if (prev[i] >= 0) {
+				next[prev[i]] = next[i];
+			} else {
+				heads[degree] = next[i];
+			}
+			if (next[i] >= 0) {
+				prev[next[i]] = prev[i];
+			}
+		}
+
+		int pollMin() {
+			while (heads[min] < 0) {
+				min++;
+			}
+			int i = heads[min];
+			remove(i, min);
+			return i;
+		}
+	}
+
+	/**
+	 * Calculates the factorization column by column.
+	 */
+	private static class Factorizer {
+
+		final CSCMatrix a;
+		final int[] q;
+		final double tolerance;
+		final int n;
+
+		final int[] pinv;
+		final int[] lp;
+		final int[] up;
+		int[] li;
+		double[] lx;
+		int[] ui;
+		double[] ux;
+
+		// work arrays of the sparse triangular solve
+		final double[] x;
+		final int[] xi;
+		final int[] stack;
+		final int[] pstack;
+		final boolean[] marked;
+
+		Factorizer(CSCMatrix a, int[] q, double tolerance) {
+			this.a = a;
+			this.q = q;
+			this.tolerance = tolerance;
+			this.n = a.columns;
+			pinv = new int[n];
+			Arrays.fill(pinv, -1);
+			lp = new int[n + 1];
+			up = new int[n + 1];
+			int cap = 4 * a.columnPointers[n] + n;
+			li = new int[cap];
+			lx = new double[cap];
+			ui = new int[cap];
+			ux = new double[cap];
+			x = new double[n];
+			xi = new int[n];
+			stack = new int[n];
+			pstack = new int[n];
+			marked = new boolean[n];
+		}
+
+		SparseLU run() {
+			int lnz = 0;
+			int unz = 0;
+			for (int k = 0; k < n; k++) {
+				lp[k] = lnz;
+				up[k] = unz;
+				if (lnz + n > li.length) {
+					int cap = 2 * li.length + n;
+					li = Arrays.copyOf(li, cap);
+					lx = Arrays.copyOf(lx, cap);
+				}
+				if (unz + n > ui.length) {
+					int cap = 2 * ui.length + n;
+					ui = Arrays.copyOf(ui, cap);
+					ux = Arrays.copyOf(ux, cap);
+				}
+
+				// x = L \ A[:, col]
+				int col = q[k];
+				int top = solveColumn(col);
+
+				// select the pivot and write the entries of U
+				int ipiv = -1;
+				double max = -1;
+				for (int p = top; p < n; p++) {
+					int i = xi[p];
+					if (pinv[i] < 0) {
+						double t = Math.abs(x[i]);
+						if (t > max) {
+							max = t;
+							ipiv = i;
+						}
+					} else {
+						ui[unz] = pinv[i];
+						ux[unz] = x[i];
+						unz++;
+					}
+				}
+				if (ipiv == -1 || max <= 0)
+					throw new ArithmeticException("the matrix is singular");
+				if (pinv[col] < 0 && Math.abs(x[col]) >= max * tolerance) {
+					ipiv = col;
+				}
+				double pivot = x[ipiv];
+				ui[unz] = k;
+				ux[unz] = pivot;
+				unz++;
+				pinv[ipiv] = k;
+
+				// write the entries of L and clear x
+				li[lnz] = ipiv;
+				lx[lnz] = 1;
+				lnz++;
+				for (int p = top; p < n; p++) {
+					int i = xi[p];
+					if (pinv[i] < 0) {
+						li[lnz] = i;
+						lx[lnz] = x[i] / pivot;
+						lnz++;
+					}
+					x[i] = 0;
+				}
+			}
+			lp[n] = lnz;
+			up[n] = unz;
+
+			// map the row indices of L to the pivot order
+			for (int p = 0; p < lnz; p++) {
+				li[p] = pinv[li[p]];
+			}
+			return new SparseLU(n, pinv, q,
+					lp, Arrays.copyOf(li, lnz), Arrays.copyOf(lx, lnz),
+					up, Arrays.copyOf(ui, unz), Arrays.copyOf(ux, unz));
+		}
+
+		/**
+		 * Solves L * x = A[:, col] with the already calculated columns of L.
+		 * The non-zero pattern of x is written to xi[top..n-1] in topological
+		 * order; top is returned.
+		 */
+		private int solveColumn(int col) {
+			int top = reach(col);
+			int start = a.columnPointers[col];
+			int end = a.columnPointers[col + 1];
+			for (int p = start; p < end; p++) {
+				x[a.rowIndices[p]] = a.values[p];
+			}
+			for (int px = top; px < n; px++) {
+				int j = xi[px];
+				int jcol = pinv[j];
+				if (jcol < 0)
+					continue;
+				double xj = x[j];
+				if (xj == 0)
+					continue;
+				for (int p = lp[jcol] + 1; p < lp[jcol + 1]; p++) {
+					x[li[p]] -= lx[p] * xj;
+				}
+			}
+			return top;
+		}
+
+		/**
+		 * Calculates the non-zero pattern of L \ A[:, col] with a depth-first
+		 * search in the graph of L, starting from the non-zero entries of
+		 * A[:, col].
+		 */
+		private int reach(int col) {
+			int top = n;
+			int start = a.columnPointers[col];
+			int end = a.columnPointers[col + 1];
+			for (int p = start; p < end; p++) {
+				int i = a.rowIndices[p];
+				if (!marked[i]) {
+					top = dfs(i, top);
+				}
+			}
+			for (int p = top; p < n; p++) {
+				marked[xi[p]] = false;
+			}
+			return top;
+		}
+
+		private int dfs(int root, int top) {
+			int head = 0;
+			stack[0] = root;
+			while (head >= 0) {
+				int j = stack[head];
+				int jcol = pinv[j];
+				if (!marked[j]) {
+					marked[j] = true;
+					pstack[head] = jcol < 0 ? 0 : lp[jcol];
+				}
+				boolean done = true;
+				int end = jcol < 0 ? 0 : lp[jcol + 1];
+				for (int p = pstack[head]; p < end; p++) {
+					int i = li[p];
+					if (marked[i])
+						continue;
+					pstack[head] = p;
+					stack[++head] = i;
+					done = false;
+					break;
+				}
+				if (done) {
+					head--;
+					xi[--top] = j;
+				}
+			}
+			return top;
+		}
+	}
+}
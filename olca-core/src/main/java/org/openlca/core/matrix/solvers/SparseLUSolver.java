@@ -0,0 +1,62 @@
+package org.openlca.core.matrix.solvers;
+
+import org.openlca.core.matrix.format.DenseMatrix;
+import org.openlca.core.matrix.format.HashPointMatrix;
+import org.openlca.core.matrix.format.IMatrix;
+import org.openlca.core.matrix.format.SparseKernels;
+
+/**
+ * A solver that is implemented in plain Java and uses a sparse LU
+ * factorization (see `SparseLU`) for solving systems of linear equations. It
+ * does not require native libraries and can be used as an alternative to the
+ * dense `JavaSolver` for large product systems. Note that the inverse of a
+ * matrix is still a dense matrix.
+ */
+public class SparseLUSolver implements IMatrixSolver {
+
+	@Override
+	public IMatrix matrix(int rows, int columns) {
+		return new HashPointMatrix(rows, columns);
+	}
+
+	@Override
+	public IMatrix matrix(int rows, int columns, double density) {
+		if (density < 0.4)
+			return new HashPointMatrix(rows, columns);
+		return new DenseMatrix(rows, columns);
+	}
+
+	@Override
+	public double[] solve(IMatrix a, int idx, double d) {
+		return factorize(a).solve(idx, d);
+	}
+
+	@Override
+	public SparseLU factorize(IMatrix a) {
+		return SparseLU.of(SparseKernels.csc(a));
+	}
+
+	@Override
+	public DenseMatrix invert(IMatrix a) {
+		SparseLU lu = factorize(a);
+		int n = lu.size();
+		DenseMatrix inverse = new DenseMatrix(n, n);
+		for (int col = 0; col < n; col++) {
+			double[] x = lu.solve(col, 1);
+			System.arraycopy(x, 0, inverse.data, col * n, n);
+		}
+		return inverse;
+	}
+
+	@Override
+	public IMatrix multiply(IMatrix a, IMatrix b) {
+		if (a.columns() != b.rows())
+			throw new IllegalArgumentException("a.columns != b.rows");
+		// the products in openLCA are typically dense, e.g. B * A^-1
+		IMatrix r = SparseKernels.isSparse(a) && SparseKernels.isSparse(b)
+				? new HashPointMatrix(a.rows(), b.columns())
+				: new DenseMatrix(a.rows(), b.columns());
+		SparseKernels.multiply(a, b, r);
+		return r;
+	}
+}
@@ -1,5 +1,6 @@
 package org.openlca.core.matrix.uncertainties;
 
+import org.openlca.core.math.Sample;
 import org.openlca.expressions.FormulaInterpreter;
 
 /**
@@ -12,8 +13,10 @@ interface UCell {
 	 * Generates the next value of the underlying distribution of this matrix cell.
 	 * If formulas are linked to this cell the injected interpreter should be used
 	 * to evaluate them as possibly values of dependent parameters with uncertainty
-	 * distributions may changed.
+	 * distributions may changed. The random numbers are taken from the given
+	 * sample; if it is `null`, the internal streams of the number generators
+	 * are used.
 	 */
-	double next(FormulaInterpreter interpreter);
+	double next(FormulaInterpreter interpreter, Sample sample);
 
 }
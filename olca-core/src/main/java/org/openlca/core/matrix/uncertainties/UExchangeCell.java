@@ -3,6 +3,7 @@ package org.openlca.core.matrix.uncertainties;
 import java.util.List;
 
 import org.openlca.core.math.NumberGenerator;
+import org.openlca.core.math.Sample;
 import org.openlca.core.matrix.CalcAllocationFactor;
 import org.openlca.core.matrix.CalcExchange;
 import org.openlca.core.model.UncertaintyType;
@@ -17,11 +18,6 @@ class UExchangeCell implements UCell {
 	// cell.
 	List<UCell> overlay;
 
-	/*
-	 * TODO: we have to think about stateless functions here; also with a shared
-	 * instance of Random; see also this issue:
-	 * https://github.com/GreenDelta/olca-app/issues/62
-	 */
 	private final NumberGenerator gen;
 
 	UExchangeCell(CalcExchange e) {
@@ -37,9 +33,12 @@ class UExchangeCell implements UCell {
 	}
 
 	@Override
-	public double next(FormulaInterpreter interpreter) {
+	public double next(FormulaInterpreter interpreter,
+			Sample sample) {
 		if (gen != null) {
-			exchange.amount = gen.next();
+			exchange.amount = sample != null
+					? sample.next(gen)
+					: gen.next();
 		}
 		double af = allocationFactor != null
 				? allocationFactor.force(interpreter)
@@ -47,7 +46,7 @@ class UExchangeCell implements UCell {
 		double amount = exchange.matrixValue(interpreter, af);
 		if (overlay != null) {
 			for (UCell u : overlay) {
-				amount += u.next(interpreter);
+				amount += u.next(interpreter, sample);
 			}
 		}
 		return amount;
@@ -1,6 +1,7 @@
 package org.openlca.core.matrix.uncertainties;
 
 import org.openlca.core.math.NumberGenerator;
+import org.openlca.core.math.Sample;
 import org.openlca.core.matrix.CalcImpactFactor;
 import org.openlca.core.model.UncertaintyType;
 import org.openlca.expressions.FormulaInterpreter;
@@ -18,9 +19,12 @@ class UImpactCell implements UCell {
 	}
 
 	@Override
-	public double next(FormulaInterpreter interpreter) {
+	public double next(FormulaInterpreter interpreter,
+			Sample sample) {
 		if (gen != null) {
-			factor.amount = gen.next();
+			factor.amount = sample != null
+					? sample.next(gen)
+					: gen.next();
 		}
 		return factor.matrixValue(interpreter);
 	}
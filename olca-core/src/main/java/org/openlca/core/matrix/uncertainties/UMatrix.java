@@ -2,6 +2,7 @@ package org.openlca.core.matrix.uncertainties;
 
 import java.util.ArrayList;
 
+import org.openlca.core.math.Sample;
 import org.openlca.core.matrix.CalcAllocationFactor;
 import org.openlca.core.matrix.CalcExchange;
 import org.openlca.core.matrix.CalcImpactFactor;
@@ -99,6 +100,17 @@ public class UMatrix {
 	 * Generates new values and sets them to the given matrix.
 	 */
 	public void generate(IMatrix m, FormulaInterpreter interpreter) {
+		generate(m, interpreter, null);
+	}
+
+	/**
+	 * Generates new values from the given sample and sets them to the given
+	 * matrix. The cells are always visited in the same order, thus, passing a
+	 * sample that is based on a stream with the same seed into this method
+	 * generates the same values.
+	 */
+	public void generate(IMatrix m, FormulaInterpreter interpreter,
+			Sample sample) {
 		var rows = data.iterator();
 		while (rows.hasNext()) {
 			rows.advance();
@@ -108,7 +120,7 @@ public class UMatrix {
 				cols.advance();
 				int col = cols.key();
 				var cell = cols.value();
-				m.set(row, col, cell.next(interpreter));
+				m.set(row, col, cell.next(interpreter, sample));
 			}
 		}
 	}
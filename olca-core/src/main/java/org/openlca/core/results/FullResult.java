@@ -5,6 +5,7 @@ import java.util.List;
 
 import org.openlca.core.matrix.IndexFlow;
 import org.openlca.core.matrix.ProcessProduct;
+import org.openlca.core.matrix.format.CSCMatrix;
 import org.openlca.core.matrix.format.IMatrix;
 import org.openlca.core.model.ProcessLink;
 import org.openlca.core.model.descriptors.CategorizedDescriptor;
@@ -13,6 +14,12 @@ import org.openlca.core.model.descriptors.ImpactCategoryDescriptor;
 /**
  * The `FullResult` extends the `ContributionResult`. It contains additionally
  * the upstream contributions to LCI, LCIA, and LCC results where applicable.
+ * <p>
+ * The upstream matrices of a result can be calculated on demand. In this case
+ * they are read-only: `set` throws an `UnsupportedOperationException` and
+ * `copy` returns a modifiable matrix with all values. Also, the result may
+ * hold factorizations of the technology matrix for this (which can hold native
+ * memory), thus, a result should be disposed when it is not used anymore.
  */
 public class FullResult extends ContributionResult {
 
@@ -38,6 +45,16 @@ public class FullResult extends ContributionResult {
 	 */
 	public double loopFactor;
 
+	/**
+	 * A compressed-column copy of the technology matrix and its diagonal that
+	 * are created on demand for the calculation of upstream trees.
+	 */
+	private CSCMatrix techColumns;
+	private double[] techDiagonal;
+	private IMatrix techColumnsSource;
+
+	private final List<Runnable> disposers = new ArrayList<>();
+
 	//@formatter:off
 	/**
 	 * An elementary flow * process-product matrix that contains the upstream
@@ -254,4 +271,58 @@ public class FullResult extends ContributionResult {
 		return new UpstreamTree(this, u);
 	}
 
+	/**
+	 * Registers a function that releases resources of this result (e.g.
+	 * factorizations of the technology matrix) when the result is disposed.
+	 */
+	public synchronized void onDispose(Runnable fn) {
+		if (fn != null) {
+			disposers.add(fn);
+		}
+	}
+
+	/**
+	 * Releases the resources that are bound to this result. Upstream results
+	 * that were not calculated before cannot be requested after this method
+	 * was called. Calling this method multiple times has no effect.
+	 */
+	public synchronized void dispose() {
+		for (Runnable fn : disposers) {
+			fn.run();
+		}
+		disposers.clear();
+	}
+
+	/**
+	 * Returns the technology matrix in compressed-column format, so that the
+	 * non-zero entries of a column can be iterated directly.
+	 */
+	synchronized CSCMatrix techColumns() {
+		if (techColumns != null && techColumnsSource == techMatrix)
+			return techColumns;
+		techColumnsSource = techMatrix;
+		techColumns = techMatrix instanceof CSCMatrix
+				? (CSCMatrix) techMatrix
+				: CSCMatrix.of(techMatrix);
+		techDiagonal = new double[techColumns.columns];
+		for (int col = 0; col < techColumns.columns; col++) {
+			int end = techColumns.columnPointers[col + 1];
+			for (int k = techColumns.columnPointers[col]; k < end; k++) {
+				if (techColumns.rowIndices[k] == col) {
+					techDiagonal[col] = techColumns.values[k];
+					break;
+				}
+			}
+		}
+		return techColumns;
+	}
+
+	/**
+	 * Returns the diagonal of the technology matrix.
+	 */
+	synchronized double[] techDiagonal() {
+		techColumns();
+		return techDiagonal;
+	}
+
 }
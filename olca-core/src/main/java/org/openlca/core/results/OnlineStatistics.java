@@ -0,0 +1,199 @@
+package org.openlca.core.results;
+
+import java.util.Arrays;
+
+/**
+ * Calculates statistic parameters of a stream of numbers without storing the
+ * numbers. The count, minimum, maximum, mean, and standard deviation are
+ * calculated exactly (the mean and variance with Welford's method). The
+ * percentiles are estimated from a sketch of the distribution: the values are
+ * merged into at most `2 * size` clusters (centroids) of adjacent values with
+ * a weight of at most `count / size` each, so that the error of an estimated
+ * percentile is in the order of `100 / size`. As long as the number of values
+ * is not larger than the size of the sketch, the percentiles are exact.
+ *
+ * An instance of this class is not thread-safe.
+ */
+public class OnlineStatistics {
+
+	private final int size;
+
+	private long count;
+	private double min;
+	private double max;
+	private double mean;
+	private double m2;
+
+	/** The means of the centroids in ascending order. */
+	private double[] means = new double[0];
+
+	/** The number of values of the respective centroids. */
+	private long[] weights = new long[0];
+
+	/** Values that are not yet merged into the centroids. */
+	private double[] buffer;
+	private int buffered;
+
+	public OnlineStatistics() {
+		this(100);
+	}
+
+	/**
+	 * Creates a new instance with the given size of the quantile sketch.
+	 */
+	public OnlineStatistics(int size) {
+		this.size = Math.max(size, 10);
+	}
+
+	public void add(double value) {
+		if (count == 0) {
+			min = value;
+			max = value;
+		} else {
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+		count++;
+		double delta = value - mean;
+		mean += delta / count;
+		m2 += delta * (value - mean);
+
+		if (buffer == null) {
+			buffer = new double[2 * size];
+		}
+		buffer[buffered++] = value;
+		if (buffered == buffer.length) {
+			compress();
+		}
+	}
+
+	public long count() {
+		return count;
+	}
+
+	public double min() {
+		return min;
+	}
+
+	public double max() {
+		return max;
+	}
+
+	public double mean() {
+		return mean;
+	}
+
+	/**
+	 * Returns the sample standard deviation of the values.
+	 */
+	public double standardDeviation() {
+		if (count < 2)
+			return 0;
+		return Math.sqrt(m2 / (count - 1));
+	}
+
+	/**
+	 * Returns an estimate of the value at the given quantile (0..1). The
+	 * estimate is linearly interpolated between the centers of the centroids
+	 * and the minimum and maximum of the values.
+	 */
+	public double quantile(double p) {
+		if (count == 0)
+			return 0;
+		if (p <= 0)
+			return min;
+		if (p >= 1)
+			return max;
+		compress();
+		double target = p * count;
+		double prevPos = 0;
+		double prevVal = min;
+		double cumulated = 0;
+		for (int i = 0; i < means.length; i++) {
+			double pos = cumulated + weights[i] / 2.0;
+			if (target <= pos) {
+				if (pos == prevPos)
+					return means[i];
+				double f = (target - prevPos) / (pos - prevPos);
+				return prevVal + f * (means[i] - prevVal);
+			}
+			cumulated += weights[i];
+			prevPos = pos;
+			prevVal = means[i];
+		}
+		if (count == prevPos)
+			return max;
+		double f = (target - prevPos) / (count - prevPos);
+		return prevVal + f * (max - prevVal);
+	}
+
+	/**
+	 * Returns the means of the centroids of the sketch in ascending order.
+	 */
+	double[] centroidMeans() {
+		compress();
+		return means;
+	}
+
+	/**
+	 * Returns the number of values of the respective centroids.
+	 */
+	long[] centroidWeights() {
+		compress();
+		return weights;
+	}
+
+	/**
+	 * Merges the buffered values into the centroids.
+	 */
+	private void compress() {
+		if (buffered == 0)
+			return;
+		Arrays.sort(buffer, 0, buffered);
+
+		// merge the sorted buffer and centroids
+		int n = means.length + buffered;
+		double[] mergedMeans = new double[n];
+		long[] mergedWeights = new long[n];
+		int i = 0, j = 0;
+		for (int k = 0; k < n; k++) {
+			if (j >= buffered
+					|| (i < means.length && means[i] <= buffer[j])) {
+				mergedMeans[k] = means[i];
+				mergedWeights[k] = weights[i];
+				i++;
+			} else {
+				mergedMeans[k] = buffer[j];
+				mergedWeights[k] = 1;
+				j++;
+			}
+		}
+		buffered = 0;
+
+		if (n <= size) {
+			means = mergedMeans;
+			weights = mergedWeights;
+			return;
+		}
+
+		// join adjacent centroids up to the maximum weight
+		long limit = Math.max(1, count / size);
+		int groups = 0;
+		for (int k = 0; k < n; k++) {
+			long w = mergedWeights[k];
+			if (groups > 0 && mergedWeights[groups - 1] + w <= limit) {
+				int g = groups - 1;
+				long joined = mergedWeights[g] + w;
+				mergedMeans[g] += (mergedMeans[k] - mergedMeans[g]) * w
+						/ joined;
+				mergedWeights[g] = joined;
+			} else {
+				mergedMeans[groups] = mergedMeans[k];
+				mergedWeights[groups] = w;
+				groups++;
+			}
+		}
+		means = Arrays.copyOf(mergedMeans, groups);
+		weights = Arrays.copyOf(mergedWeights, groups);
+	}
+}
@@ -1,32 +1,48 @@
 package org.openlca.core.results;
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Set;
 
 import org.openlca.core.matrix.IndexFlow;
 import org.openlca.core.matrix.MatrixData;
 import org.openlca.core.matrix.ProcessProduct;
 import org.openlca.core.model.descriptors.ImpactCategoryDescriptor;
+import org.openlca.core.results.simulation.SimulationStorage;
+import org.openlca.core.results.simulation.SimulationStore;
 
 /**
- * The results of a Monte-Carlo-Simulation. The single result values of the
- * simulation runs are stored in an array of lists where the flow- and LCIA
- * category indices are mapped to the respective array rows and the result
- * values to the respective list entries.
+ * The results of a Monte-Carlo-Simulation. The result vectors of the single
+ * simulation runs are appended to simulation stores where the flow- and LCIA
+ * category indices are mapped to the respective positions in these vectors.
+ * How the results are stored is defined by the `SimulationStorage` of this
+ * result; with online statistics, only the statistics of the results are
+ * available but not the values of the single runs. The values of input flows
+ * are stored with switched signs.
  */
 public class SimulationResult extends BaseResult {
 
-	private final List<double[]> flowResults = new ArrayList<>();
-	private final List<double[]> impactResults = new ArrayList<>();
+	private final SimulationStorage storage;
+	private SimulationStore flowResults;
+	private SimulationStore impactResults;
 
 	private HashMap<ProcessProduct, PinnedContributions> pinned = new HashMap<>();
 
+	/**
+	 * Flags the positions of the input flows in the LCI result vectors.
+	 */
+	private boolean[] inputs;
+
 	public SimulationResult(MatrixData data) {
+		this(data, SimulationStorage.IN_MEMORY);
+	}
+
+	public SimulationResult(MatrixData data, SimulationStorage storage) {
 		this.techIndex = data.techIndex;
 		this.flowIndex = data.flowIndex;
 		this.impactIndex = data.impactIndex;
+		this.storage = storage != null
+				? storage
+				: SimulationStorage.IN_MEMORY;
 	}
 
 	/**
@@ -37,10 +53,16 @@ public class SimulationResult extends BaseResult {
 		if (r == null)
 			return;
 		if (r.totalFlowResults != null) {
-			flowResults.add(r.totalFlowResults);
+			if (flowResults == null) {
+				flowResults = SimulationStore.create(storage);
+			}
+			flowResults.append(signed(r.totalFlowResults));
 		}
 		if (r.totalImpactResults != null) {
-			impactResults.add(r.totalImpactResults);
+			if (impactResults == null) {
+				impactResults = SimulationStore.create(storage);
+			}
+			impactResults.append(r.totalImpactResults);
 		}
 	}
 
@@ -55,21 +77,43 @@ public class SimulationResult extends BaseResult {
 			return;
 		PinnedContributions pc = pinned.get(product);
 		if (pc == null) {
-			pc = new PinnedContributions();
+			pc = new PinnedContributions(storage);
 			pinned.put(product, pc);
 		}
 		if (direct.totalFlowResults != null) {
-			pc.directLCI.add(direct.totalFlowResults);
+			pc.directLCI.append(signed(direct.totalFlowResults));
 		}
 		if (direct.totalImpactResults != null) {
-			pc.directLCIA.add(direct.totalImpactResults);
+			pc.directLCIA.append(direct.totalImpactResults);
 		}
 		if (upstream.totalFlowResults != null) {
-			pc.upstreamLCI.add(upstream.totalFlowResults);
+			pc.upstreamLCI.append(signed(upstream.totalFlowResults));
 		}
 		if (upstream.totalImpactResults != null) {
-			pc.upstreamLCIA.add(upstream.totalImpactResults);
+			pc.upstreamLCIA.append(upstream.totalImpactResults);
+		}
+	}
+
+	/**
+	 * Returns a copy of the given LCI result vector with switched signs for
+	 * the input flows.
+	 */
+	private double[] signed(double[] values) {
+		if (flowIndex == null)
+			return values;
+		if (inputs == null) {
+			inputs = new boolean[flowIndex.size()];
+			flowIndex.each((i, f) -> inputs[i] = f.isInput);
+		}
+		double[] signed = values.clone();
+		int n = Math.min(signed.length, inputs.length);
+		for (int i = 0; i < n; i++) {
+			// avoid -0 in the results
+			if (inputs[i] && signed[i] != 0) {
+				signed[i] = -signed[i];
+			}
 		}
+		return signed;
 	}
 
 	public Set<ProcessProduct> getPinnedProducts() {
@@ -83,7 +127,7 @@ public class SimulationResult extends BaseResult {
 		if (flowIndex == null)
 			return 0;
 		int arrayIdx = flowIndex.of(flow);
-		return adopt(flow, val(flowResults, i, arrayIdx));
+		return val(flowResults, i, arrayIdx);
 	}
 
 	/**
@@ -96,7 +140,7 @@ public class SimulationResult extends BaseResult {
 		if (pc == null || flowIndex == null)
 			return 0;
 		int arrayIdx = flowIndex.of(flow);
-		return adopt(flow, val(pc.directLCI, i, arrayIdx));
+		return val(pc.directLCI, i, arrayIdx);
 	}
 
 	/**
@@ -122,7 +166,7 @@ public class SimulationResult extends BaseResult {
 		if (pc == null || flowIndex == null)
 			return 0;
 		int arrayIdx = flowIndex.of(flow);
-		return adopt(flow, val(pc.upstreamLCI, i, arrayIdx));
+		return val(pc.upstreamLCI, i, arrayIdx);
 	}
 
 	/**
@@ -143,11 +187,42 @@ public class SimulationResult extends BaseResult {
 	 * Get all simulation results of the given flow.
 	 */
 	public double[] getAll(IndexFlow flow) {
-		double[] vals = new double[flowResults.size()];
-		for (int i = 0; i < flowResults.size(); i++) {
-			vals[i] = get(flow, i);
-		}
-		return vals;
+		if (flowResults == null)
+			return new double[0];
+		int arrayIdx = flowIndex == null ? -1 : flowIndex.of(flow);
+		return flowResults.getAll(arrayIdx);
+	}
+
+	/**
+	 * Get the statistics of the simulation results of the given flow.
+	 */
+	public Statistics getStatistics(IndexFlow flow) {
+		int arrayIdx = flowIndex == null ? -1 : flowIndex.of(flow);
+		return stats(flowResults, arrayIdx);
+	}
+
+	/**
+	 * Get the statistics of the direct contributions of the given product to
+	 * the given flow.
+	 */
+	public Statistics getDirectStatistics(ProcessProduct product,
+			IndexFlow flow) {
+		PinnedContributions pc = pinned.get(product);
+		if (pc == null || flowIndex == null)
+			return Statistics.empty();
+		return stats(pc.directLCI, flowIndex.of(flow));
+	}
+
+	/**
+	 * Get the statistics of the upstream contributions of the given product to
+	 * the given flow.
+	 */
+	public Statistics getUpstreamStatistics(ProcessProduct product,
+			IndexFlow flow) {
+		PinnedContributions pc = pinned.get(product);
+		if (pc == null || flowIndex == null)
+			return Statistics.empty();
+		return stats(pc.upstreamLCI, flowIndex.of(flow));
 	}
 
 	/**
@@ -219,27 +294,93 @@ public class SimulationResult extends BaseResult {
 	 * Get all simulation results of the given LCIA category.
 	 */
 	public double[] getAll(ImpactCategoryDescriptor impact) {
-		double[] vals = new double[impactResults.size()];
-		for (int i = 0; i < impactResults.size(); i++) {
-			vals[i] = get(impact, i);
-		}
-		return vals;
+		if (impactResults == null)
+			return new double[0];
+		int arrayIdx = impactIndex == null ? -1 : impactIndex.of(impact);
+		return impactResults.getAll(arrayIdx);
+	}
+
+	/**
+	 * Get the statistics of the simulation results of the given LCIA category.
+	 */
+	public Statistics getStatistics(ImpactCategoryDescriptor impact) {
+		int arrayIdx = impactIndex == null ? -1 : impactIndex.of(impact);
+		return stats(impactResults, arrayIdx);
+	}
+
+	/**
+	 * Get the statistics of the direct contributions of the given product to
+	 * the given LCIA category.
+	 */
+	public Statistics getDirectStatistics(ProcessProduct product,
+			ImpactCategoryDescriptor impact) {
+		PinnedContributions pc = pinned.get(product);
+		if (pc == null || impactIndex == null)
+			return Statistics.empty();
+		return stats(pc.directLCIA, impactIndex.of(impact));
+	}
+
+	/**
+	 * Get the statistics of the upstream contributions of the given product to
+	 * the given LCIA category.
+	 */
+	public Statistics getUpstreamStatistics(ProcessProduct product,
+			ImpactCategoryDescriptor impact) {
+		PinnedContributions pc = pinned.get(product);
+		if (pc == null || impactIndex == null)
+			return Statistics.empty();
+		return stats(pc.upstreamLCIA, impactIndex.of(impact));
 	}
 
 	public int getNumberOfRuns() {
-		return flowResults.size();
+		return flowResults == null ? 0 : flowResults.runs();
 	}
 
-	private static double val(List<double[]> list, int listIdx, int arrayIdx) {
-		if (list == null
-				|| listIdx < 0
+	public SimulationStorage getStorage() {
+		return storage;
+	}
+
+	/**
+	 * Returns true when the values of the single runs are available via the
+	 * `get*` methods. This is not the case when only online statistics are
+	 * stored; only the `get*Statistics` methods can be used then.
+	 */
+	public boolean hasRunValues() {
+		return storage != SimulationStorage.ONLINE_STATISTICS;
+	}
+
+	/**
+	 * Releases the resources of the simulation stores (e.g. the files of
+	 * memory mapped stores). The result cannot be used anymore after this.
+	 */
+	public void dispose() {
+		if (flowResults != null) {
+			flowResults.dispose();
+		}
+		if (impactResults != null) {
+			impactResults.dispose();
+		}
+		for (PinnedContributions pc : pinned.values()) {
+			pc.directLCI.dispose();
+			pc.upstreamLCI.dispose();
+			pc.directLCIA.dispose();
+			pc.upstreamLCIA.dispose();
+		}
+	}
+
+	private static double val(SimulationStore store, int run, int arrayIdx) {
+		if (store == null
+				|| run < 0
 				|| arrayIdx < 0
-				|| list.size() <= listIdx)
-			return 0;
-		double[] vec = list.get(listIdx);
-		if (vec == null || vec.length <= arrayIdx)
+				|| store.runs() <= run)
 			return 0;
-		return vec[arrayIdx];
+		return store.get(run, arrayIdx);
+	}
+
+	private static Statistics stats(SimulationStore store, int arrayIdx) {
+		if (store == null || arrayIdx < 0)
+			return Statistics.empty();
+		return store.statistics(arrayIdx);
 	}
 
 	// TODO: no LCC for Monte Carlo simulations ?
@@ -249,9 +390,16 @@ public class SimulationResult extends BaseResult {
 	}
 
 	public static class PinnedContributions {
-		private List<double[]> directLCI = new ArrayList<>();
-		private List<double[]> upstreamLCI = new ArrayList<>();
-		private List<double[]> directLCIA = new ArrayList<>();
-		private List<double[]> upstreamLCIA = new ArrayList<>();
+		private final SimulationStore directLCI;
+		private final SimulationStore upstreamLCI;
+		private final SimulationStore directLCIA;
+		private final SimulationStore upstreamLCIA;
+
+		private PinnedContributions(SimulationStorage storage) {
+			directLCI = SimulationStore.create(storage);
+			upstreamLCI = SimulationStore.create(storage);
+			directLCIA = SimulationStore.create(storage);
+			upstreamLCIA = SimulationStore.create(storage);
+		}
 	}
 }
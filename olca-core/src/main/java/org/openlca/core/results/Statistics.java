@@ -10,6 +10,13 @@ public class Statistics {
 
 	private final double[] values;
 
+	/**
+	 * When the statistics are created from a stream of numbers, the values
+	 * are not stored and the percentiles and histograms are estimated from
+	 * the sketch of the online statistics.
+	 */
+	private final OnlineStatistics online;
+
 	public final double min;
 	public final double max;
 	public final int count;
@@ -29,6 +36,15 @@ public class Statistics {
 			this.statistics = stats;
 			this.intervalCount = intervalCount < 1 ? 1 : intervalCount;
 			frequencies = new int[intervalCount];
+			if (stats.online != null) {
+				double[] means = stats.online.centroidMeans();
+				long[] weights = stats.online.centroidWeights();
+				for (int i = 0; i < means.length; i++) {
+					int idx = getInterval(means[i]);
+					frequencies[idx] += (int) weights[i];
+				}
+				return;
+			}
 			for (double val : stats.values) {
 				int idx = getInterval(val);
 				frequencies[idx] += 1;
@@ -73,7 +89,20 @@ public class Statistics {
 		return hist;
 	}
 
+	private Statistics(OnlineStatistics online) {
+		this.values = new double[0];
+		this.online = online;
+		this.count = (int) online.count();
+		this.min = online.min();
+		this.max = online.max();
+		this.range = this.max - this.min;
+		this.mean = online.mean();
+		this.standardDeviation = online.standardDeviation();
+		this.median = online.quantile(0.5);
+	}
+
 	private Statistics(double[] values) {
+		this.online = null;
 		if (values == null || values.length == 0) {
 			// empty statistics with no values
 			this.values = new double[0];
@@ -129,8 +158,27 @@ public class Statistics {
 		return new Statistics(vals);
 	}
 
+	/**
+	 * Creates the statistics from the given online statistics. The median and
+	 * percentiles are then estimates.
+	 */
+	public static Statistics of(OnlineStatistics online) {
+		if (online == null || online.count() == 0)
+			return empty();
+		return new Statistics(online);
+	}
+
 	public static Statistics empty() {
-		return new Statistics(null);
+		return new Statistics((double[]) null);
+	}
+
+	/**
+	 * Creates a histogram of these statistics with the given number of
+	 * intervals. For statistics that were created from online statistics, the
+	 * frequencies are estimated from the quantile sketch.
+	 */
+	public Histogram hist(int intervalCount) {
+		return new Histogram(this, intervalCount);
 	}
 
 	/**
@@ -140,6 +188,8 @@ public class Statistics {
 	 *            the percentage value (0..100)
 	 */
 	public double getPercentileValue(int percentile) {
+		if (online != null)
+			return online.quantile(percentile / 100d);
 		if (values.length == 0)
 			return 0;
 		int index = percentile * values.length / 100;
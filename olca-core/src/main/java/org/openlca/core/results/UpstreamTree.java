@@ -1,10 +1,14 @@
 package org.openlca.core.results;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import org.openlca.core.matrix.IndexFlow;
+import org.openlca.core.matrix.format.CSCMatrix;
 
 /**
  * Maps the upstream results of the product system graph to a tree where the
@@ -48,21 +52,31 @@ public class UpstreamTree {
 		}
 	}
 
+	/**
+	 * Returns the child nodes of the given node. The child nodes are
+	 * calculated from the non-zero entries of the respective column of the
+	 * technology matrix when this method is called the first time for a node.
+	 */
 	public List<UpstreamNode> childs(UpstreamNode parent) {
 		if (parent.childs != null)
 			return parent.childs;
 		parent.childs = new ArrayList<>();
 		if (parent.scaling == 0)
 			return parent.childs;
-		for (int row = 0; row < r.techMatrix.rows(); row++) {
+		CSCMatrix techColumns = r.techColumns();
+		double[] diagonal = r.techDiagonal();
+		int start = techColumns.columnPointers[parent.index];
+		int end = techColumns.columnPointers[parent.index + 1];
+		for (int k = start; k < end; k++) {
+			int row = techColumns.rowIndices[k];
 			if (row == parent.index)
 				continue;
-			double val = r.techMatrix.get(row, parent.index);
+			double val = techColumns.values[k];
 			if (val == 0)
 				continue;
 			val *= parent.scaling;
 			UpstreamNode child = new UpstreamNode();
-			double refVal = r.techMatrix.get(row, row);
+			double refVal = diagonal[row];
 			child.scaling = -val / refVal;
 			child.index = row;
 			child.provider = r.techIndex.getProviderAt(row);
@@ -74,6 +88,98 @@ public class UpstreamTree {
 		return parent.childs;
 	}
 
+	/**
+	 * Calculates the tree in parallel down to the given cutoff and maximum
+	 * depth. A node is expanded when the absolute value of its result is at
+	 * least the given cutoff (a share between 0 and 1) of the absolute root
+	 * result and when its depth is lower than the given maximum depth (the
+	 * root has the depth 0). A maximum depth <= 0 means that the depth is not
+	 * limited; in this case the cutoff must be greater than 0 as the tree is
+	 * infinite when the system contains loops. The expanded nodes can be
+	 * visited via the `each` method afterwards.
+	 */
+	public void expand(double cutoff, int maxDepth) {
+		if (cutoff <= 0 && maxDepth <= 0)
+			throw new IllegalArgumentException(
+					"a cutoff > 0 or a maximum depth > 0 is required");
+		double threshold = cutoff <= 0
+				? 0
+				: cutoff * Math.abs(root.result);
+		int depthLimit = maxDepth <= 0 ? Integer.MAX_VALUE : maxDepth;
+		ForkJoinPool.commonPool().invoke(
+				new Expansion(root, 0, threshold, depthLimit));
+	}
+
+	/**
+	 * Visits the nodes of the tree that are already calculated in depth-first
+	 * order, starting with the root node. Nodes that were not expanded yet
+	 * (via `childs` or `expand`) are visited but not their child nodes.
+	 */
+	public void each(NodeVisitor visitor) {
+		ArrayDeque<UpstreamNode> nodes = new ArrayDeque<>();
+		ArrayDeque<Integer> depths = new ArrayDeque<>();
+		nodes.push(root);
+		depths.push(0);
+		while (!nodes.isEmpty()) {
+			UpstreamNode node = nodes.pop();
+			int depth = depths.pop();
+			visitor.visit(node, depth);
+			List<UpstreamNode> childs = node.childs;
+			if (childs == null)
+				continue;
+			for (int i = childs.size() - 1; i >= 0; i--) {
+				nodes.push(childs.get(i));
+				depths.push(depth + 1);
+			}
+		}
+	}
+
+	@FunctionalInterface
+	public interface NodeVisitor {
+		void visit(UpstreamNode node, int depth);
+	}
+
+	/**
+	 * Expands a node and forks the expansion of its child nodes. Each node is
+	 * expanded by exactly one task so that no synchronization of the child
+	 * lists is required.
+	 */
+	private class Expansion extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final UpstreamNode node;
+		private final int depth;
+		private final double threshold;
+		private final int maxDepth;
+
+		Expansion(UpstreamNode node, int depth, double threshold,
+				int maxDepth) {
+			this.node = node;
+			this.depth = depth;
+			this.threshold = threshold;
+			this.maxDepth = maxDepth;
+		}
+
+		@Override
+		protected void compute() {
+			if (depth >= maxDepth || Math.abs(node.result) < threshold)
+				return;
+			List<UpstreamNode> childs = childs(node);
+			List<Expansion> tasks = new ArrayList<>();
+			for (UpstreamNode child : childs) {
+				if (depth + 1 >= maxDepth
+						|| Math.abs(child.result) < threshold)
+					continue;
+				tasks.add(new Expansion(
+						child, depth + 1, threshold, maxDepth));
+			}
+			if (!tasks.isEmpty()) {
+				invokeAll(tasks);
+			}
+		}
+	}
+
 	/**
 	 * When the reference of this upstream tree is an input tree we have to
 	 * switch the sign of it.
@@ -0,0 +1,62 @@
+package org.openlca.core.results.simulation;
+
+import java.util.Arrays;
+
+import org.openlca.core.results.Statistics;
+
+/**
+ * Stores the results in memory with a primitive array (column) per result
+ * index.
+ */
+class ColumnarStore implements SimulationStore {
+
+	private double[][] columns;
+	private int capacity;
+	private int runs;
+
+	@Override
+	public void append(double[] values) {
+		if (values == null)
+			return;
+		if (columns == null) {
+			capacity = 64;
+			columns = new double[values.length][capacity];
+		} else if (runs == capacity) {
+			capacity *= 2;
+			for (int i = 0; i < columns.length; i++) {
+				columns[i] = Arrays.copyOf(columns[i], capacity);
+			}
+		}
+		int n = Math.min(columns.length, values.length);
+		for (int i = 0; i < n; i++) {
+			columns[i][runs] = values[i];
+		}
+		runs++;
+	}
+
+	@Override
+	public int runs() {
+		return runs;
+	}
+
+	@Override
+	public double get(int run, int idx) {
+		if (columns == null
+				|| run < 0 || run >= runs
+				|| idx < 0 || idx >= columns.length)
+			return 0;
+		return columns[idx][run];
+	}
+
+	@Override
+	public double[] getAll(int idx) {
+		if (columns == null || idx < 0 || idx >= columns.length)
+			return new double[runs];
+		return Arrays.copyOf(columns[idx], runs);
+	}
+
+	@Override
+	public Statistics statistics(int idx) {
+		return Statistics.of(getAll(idx));
+	}
+}
@@ -0,0 +1,138 @@
+package org.openlca.core.results.simulation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openlca.core.results.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores the results in a temporary file that is mapped into memory. The
+ * result vectors are written row by row; the file is mapped in segments of a
+ * fixed number of runs so that the store can grow beyond the 2 GB limit of a
+ * single mapped buffer. The file is deleted when the store is disposed; as a
+ * fallback for stores that are not disposed, it is also registered for
+ * deletion when the virtual machine terminates.
+ */
+class MappedFileStore implements SimulationStore {
+
+	/** The maximum size of a mapped segment in bytes. */
+	private static final long SEGMENT_SIZE = 64L * 1024 * 1024;
+
+	private final List<DoubleBuffer> segments = new ArrayList<>();
+
+	private File file;
+	private RandomAccessFile raf;
+	private FileChannel channel;
+
+	/** The length of the result vectors; -1 when nothing was appended yet. */
+	private int width = -1;
+
+	private int runsPerSegment;
+	private int runs;
+
+	@Override
+	public void append(double[] values) {
+		if (values == null)
+			return;
+		if (width < 0) {
+			width = values.length;
+			runsPerSegment = width == 0
+					? Integer.MAX_VALUE
+					: (int) Math.max(1, SEGMENT_SIZE / (8L * width));
+		}
+		if (width == 0) {
+			runs++;
+			return;
+		}
+		int segment = runs / runsPerSegment;
+		if (segment == segments.size()) {
+			segments.add(map(segment));
+		}
+		DoubleBuffer buffer = segments.get(segment);
+		int offset = (runs % runsPerSegment) * width;
+		int n = Math.min(width, values.length);
+		for (int i = 0; i < n; i++) {
+			buffer.put(offset + i, values[i]);
+		}
+		runs++;
+	}
+
+	private DoubleBuffer map(int segment) {
+		try {
+			if (channel == null) {
+				file = Files.createTempFile("olca_simulation_", ".bin")
+						.toFile();
+				file.deleteOnExit();
+				raf = new RandomAccessFile(file, "rw");
+				channel = raf.getChannel();
+			}
+			long size = 8L * width * runsPerSegment;
+			return channel.map(FileChannel.MapMode.READ_WRITE,
+					segment * size, size).asDoubleBuffer();
+		} catch (IOException e) {
+			throw new RuntimeException(
+					"failed to map simulation results to a file", e);
+		}
+	}
+
+	@Override
+	public int runs() {
+		return runs;
+	}
+
+	@Override
+	public double get(int run, int idx) {
+		if (run < 0 || run >= runs
+				|| idx < 0 || idx >= width)
+			return 0;
+		DoubleBuffer buffer = segments.get(run / runsPerSegment);
+		return buffer.get((run % runsPerSegment) * width + idx);
+	}
+
+	@Override
+	public double[] getAll(int idx) {
+		double[] values = new double[runs];
+		if (idx < 0 || idx >= width)
+			return values;
+		for (int run = 0; run < runs; run++) {
+			values[run] = get(run, idx);
+		}
+		return values;
+	}
+
+	@Override
+	public Statistics statistics(int idx) {
+		return Statistics.of(getAll(idx));
+	}
+
+	@Override
+	public void dispose() {
+		segments.clear();
+		if (channel == null)
+			return;
+		try {
+			channel.close();
+			raf.close();
+		} catch (IOException e) {
+			Logger log = LoggerFactory.getLogger(getClass());
+			log.warn("failed to close simulation file " + file, e);
+		}
+		channel = null;
+		raf = null;
+		// the mapped buffers are released by the garbage collector; on some
+		// platforms the file cannot be deleted before this happened, it is
+		// then deleted on exit
+		file.delete();
+		file = null;
+		runs = 0;
+		width = -1;
+	}
+}
@@ -0,0 +1,55 @@
+package org.openlca.core.results.simulation;
+
+import org.openlca.core.results.OnlineStatistics;
+import org.openlca.core.results.Statistics;
+
+/**
+ * Only keeps the online statistics of the result values but not the values of
+ * the single runs.
+ */
+class OnlineStore implements SimulationStore {
+
+	private OnlineStatistics[] columns;
+	private int runs;
+
+	@Override
+	public void append(double[] values) {
+		if (values == null)
+			return;
+		if (columns == null) {
+			columns = new OnlineStatistics[values.length];
+			for (int i = 0; i < columns.length; i++) {
+				columns[i] = new OnlineStatistics();
+			}
+		}
+		for (int i = 0; i < columns.length; i++) {
+			double val = i < values.length ? values[i] : 0;
+			columns[i].add(val);
+		}
+		runs++;
+	}
+
+	@Override
+	public int runs() {
+		return runs;
+	}
+
+	@Override
+	public double get(int run, int idx) {
+		throw new UnsupportedOperationException(
+				"the values of single runs are not stored");
+	}
+
+	@Override
+	public double[] getAll(int idx) {
+		throw new UnsupportedOperationException(
+				"the values of single runs are not stored");
+	}
+
+	@Override
+	public Statistics statistics(int idx) {
+		if (columns == null || idx < 0 || idx >= columns.length)
+			return Statistics.empty();
+		return Statistics.of(columns[idx]);
+	}
+}
@@ -0,0 +1,28 @@
+package org.openlca.core.results.simulation;
+
+/**
+ * Defines how the result vectors of the single runs of a Monte-Carlo
+ * simulation are stored.
+ */
+public enum SimulationStorage {
+
+	/**
+	 * Stores the results in memory with a primitive array per result index
+	 * (e.g. per flow or LCIA category).
+	 */
+	IN_MEMORY,
+
+	/**
+	 * Stores the results in a temporary file that is mapped into memory. The
+	 * results are then not stored on the Java heap which is useful for very
+	 * long simulations with many flows.
+	 */
+	MEMORY_MAPPED,
+
+	/**
+	 * Only keeps the statistics (moments and quantile sketches) of the
+	 * results but not the values of the single runs.
+	 */
+	ONLINE_STATISTICS
+
+}
@@ -0,0 +1,65 @@
+package org.openlca.core.results.simulation;
+
+import org.openlca.core.results.Statistics;
+
+/**
+ * Stores the result vectors of the runs of a Monte-Carlo simulation. All
+ * vectors that are appended to a store should have the same length (e.g. the
+ * number of flows of the flow index); missing values are stored as zeros and
+ * additional values are ignored.
+ */
+public interface SimulationStore {
+
+	/**
+	 * Appends the result vector of the next run to this store. The store does
+	 * not keep a reference to the given vector.
+	 */
+	void append(double[] values);
+
+	/**
+	 * Returns the number of runs in this store.
+	 */
+	int runs();
+
+	/**
+	 * Returns the value with the given index in the given run (both zero
+	 * based). Returns 0 when the store does not contain such a value.
+	 *
+	 * @throws UnsupportedOperationException when the store does not keep the
+	 *                                       values of the single runs
+	 */
+	double get(int run, int idx);
+
+	/**
+	 * Returns the values with the given index of all runs.
+	 *
+	 * @throws UnsupportedOperationException when the store does not keep the
+	 *                                       values of the single runs
+	 */
+	double[] getAll(int idx);
+
+	/**
+	 * Returns the statistics of the values with the given index. This is
+	 * supported by all stores.
+	 */
+	Statistics statistics(int idx);
+
+	/**
+	 * Releases the resources (e.g. files) of this store.
+	 */
+	default void dispose() {
+	}
+
+	static SimulationStore create(SimulationStorage storage) {
+		if (storage == null)
+			return new ColumnarStore();
+		switch (storage) {
+		case MEMORY_MAPPED:
+			return new MappedFileStore();
+		case ONLINE_STATISTICS:
+			return new OnlineStore();
+		default:
+			return new ColumnarStore();
+		}
+	}
+}
@@ -1,14 +1,23 @@
 package org.openlca.geo.calc;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.database.NativeSql;
 import org.openlca.geo.geojson.Feature;
 import org.openlca.geo.geojson.FeatureCollection;
 import org.openlca.geo.geojson.Geometry;
+import org.openlca.geo.geojson.ProtoPack;
 import org.openlca.util.Pair;
 
 /**
@@ -30,6 +39,13 @@ public class IntersectionCalculator {
 	 */
 	private final org.locationtech.jts.geom.Geometry[] geometries;
 
+	/**
+	 * A spatial index of the bounding boxes of the geometries. The items in
+	 * this index are the positions of the respective features and geometries
+	 * in the arrays above.
+	 */
+	private final STRtree index;
+
 	private final Projection projection;
 
 	private IntersectionCalculator(
@@ -39,6 +55,12 @@ public class IntersectionCalculator {
 		this.features = features;
 		this.geometries = geometries;
 		this.projection = projection;
+		this.index = new STRtree();
+		for (int i = 0; i < geometries.length; i++) {
+			index.insert(geometries[i].getEnvelopeInternal(), i);
+		}
+		// build the tree now; querying a built tree is thread-safe
+		index.build();
 	}
 
 	public static IntersectionCalculator on(FeatureCollection coll) {
@@ -84,7 +106,7 @@ public class IntersectionCalculator {
 	 * with the given geometry.
 	 */
 	public List<Pair<Feature, Geometry>> calculate(Geometry g) {
-		return jts(g).map(p -> Pair.of(p.first, JTS.toGeoJSON(p.second)))
+		return jts(g, true).map(p -> Pair.of(p.first, JTS.toGeoJSON(p.second)))
 				.filter(p -> p.second != null)
 				.collect(Collectors.toList());
 	}
@@ -101,8 +123,50 @@ public class IntersectionCalculator {
 	 * </ol>
 	 */
 	public List<Pair<Feature, Double>> shares(Geometry g) {
-		List<Pair<Feature, org.locationtech.jts.geom.Geometry>> s = jts(g)
-				.collect(Collectors.toList());
+		return shares(jts(g, true).collect(Collectors.toList()));
+	}
+
+	/**
+	 * Calculates the intersection shares for a set of geometries in one pass,
+	 * see {@link #shares(Geometry)}. The geometries are given in a map with
+	 * arbitrary keys (e.g. location IDs) and the shares are returned in a map
+	 * with the same keys. The geometries are processed in parallel.
+	 */
+	public <K> Map<K, List<Pair<Feature, Double>>> shares(
+			Map<K, Geometry> geometries) {
+		if (geometries == null || geometries.isEmpty())
+			return Collections.emptyMap();
+		return geometries.entrySet()
+				.parallelStream()
+				.collect(Collectors.toConcurrentMap(
+						Map.Entry::getKey,
+						e -> shares(jts(e.getValue(), false)
+								.collect(Collectors.toList()))));
+	}
+
+	/**
+	 * Calculates the intersection shares for all locations with geometries in
+	 * the given database, see {@link #shares(Geometry)}. It returns a map:
+	 * location ID -> shares.
+	 */
+	public Map<Long, List<Pair<Feature, Double>>> shares(IDatabase db) {
+		Map<Long, Geometry> geometries = new HashMap<>();
+		String sql = "select id, geodata from tbl_locations";
+		NativeSql.on(db).query(sql, r -> {
+			FeatureCollection coll = ProtoPack.unpackgz(r.getBytes(2));
+			if (coll == null)
+				return true;
+			Feature f = coll.first();
+			if (f != null && f.geometry != null) {
+				geometries.put(r.getLong(1), f.geometry);
+			}
+			return true;
+		});
+		return shares(geometries);
+	}
+
+	private List<Pair<Feature, Double>> shares(
+			List<Pair<Feature, org.locationtech.jts.geom.Geometry>> s) {
 
 		// get the maximum dimension
 		int maxDim = s.stream().reduce(0,
@@ -112,7 +176,7 @@ public class IntersectionCalculator {
 
 		// calculate the shares
 		List<Pair<Feature, Double>> shares = s
-				.parallelStream()
+				.stream()
 				.map(p -> {
 					double a = 0;
 					switch (maxDim) {
@@ -148,10 +212,14 @@ public class IntersectionCalculator {
 
 	/**
 	 * Calculates the intersection geometries based on JTS geometries and
-	 * returns the non-empty intersections.
+	 * returns the non-empty intersections. Only the features of which the
+	 * bounding boxes intersect with the bounding box of the given geometry
+	 * are selected from the spatial index. These candidates are then checked
+	 * with a prepared geometry before the exact intersection is calculated.
+	 * The intersections are returned in the order of the features.
 	 */
 	private Stream<Pair<Feature, org.locationtech.jts.geom.Geometry>> jts(
-			Geometry g) {
+			Geometry g, boolean parallel) {
 		if (g == null)
 			return Stream.empty();
 		org.locationtech.jts.geom.Geometry jts;
@@ -164,8 +232,21 @@ public class IntersectionCalculator {
 		}
 		if (jts == null)
 			return Stream.empty();
-		return IntStream.range(0, features.length)
-				.parallel()
+
+		int[] candidates = ((List<?>) index.query(jts.getEnvelopeInternal()))
+				.stream()
+				.mapToInt(i -> (Integer) i)
+				.sorted()
+				.toArray();
+		if (candidates.length == 0)
+			return Stream.empty();
+		PreparedGeometry prepared = PreparedGeometryFactory.prepare(jts);
+		IntStream stream = IntStream.of(candidates);
+		if (parallel) {
+			stream = stream.parallel();
+		}
+		return stream
+				.filter(i -> prepared.intersects(geometries[i]))
 				.mapToObj(i -> Pair.of(
 						features[i], geometries[i].intersection(jts)))
 				.filter(p -> p.second != null && !p.second.isEmpty());
@@ -5,7 +5,10 @@ import org.openlca.core.matrix.format.DenseMatrix;
 import org.openlca.core.matrix.format.HashPointMatrix;
 import org.openlca.core.matrix.format.IMatrix;
 import org.openlca.core.matrix.format.MatrixConverter;
+import org.openlca.core.matrix.format.SparseKernels;
+import org.openlca.core.matrix.solvers.Factorization;
 import org.openlca.core.matrix.solvers.IMatrixSolver;
+import org.openlca.core.matrix.solvers.SparseLU;
 
 public class JuliaSolver implements IMatrixSolver {
 
@@ -24,8 +27,8 @@ public class JuliaSolver implements IMatrixSolver {
 
 	@Override
 	public double[] solve(IMatrix a, int idx, double d) {
-		if (a instanceof HashPointMatrix && Julia.isWithUmfpack()) {
-			CSCMatrix ccr = CSCMatrix.of(a);
+		if (SparseKernels.isSparse(a) && Julia.isWithUmfpack()) {
+			CSCMatrix ccr = SparseKernels.csc(a);
 			double[] f = new double[ccr.rows];
 			f[idx] = d;
 			double[] b = new double[ccr.rows];
@@ -38,6 +41,11 @@ public class JuliaSolver implements IMatrixSolver {
 				b);
 			return b;
 		}
+		if (SparseKernels.isSparse(a)) {
+			// without UMFPACK, we use the sparse LU solver in Java
+			// instead of converting the matrix into a dense matrix
+			return SparseLU.of(SparseKernels.csc(a)).solve(idx, d);
+		}
 		DenseMatrix A = MatrixConverter.dense(a);
 		DenseMatrix lu = A == a ? A.copy() : A;
 		double[] b = new double[A.rows()];
@@ -46,12 +54,23 @@ public class JuliaSolver implements IMatrixSolver {
 		return b;
 	}
 
+	@Override
+	public Factorization factorize(IMatrix a) {
+		if ((a instanceof HashPointMatrix || a instanceof CSCMatrix)
+				&& Julia.isWithUmfpack())
+			return Umfpack.factorize(CSCMatrix.of(a));
+		if (SparseKernels.isSparse(a))
+			return SparseLU.of(SparseKernels.csc(a));
+		// we do not have a dense LU factorization in the
+		// Julia bindings so we solve the system from
+		// scratch in this case
+		return IMatrixSolver.super.factorize(a);
+	}
+
 	@Override
 	public double[] multiply(IMatrix m, double[] x) {
-		if (m instanceof HashPointMatrix) {
-			HashPointMatrix s = (HashPointMatrix) m;
-			return s.multiply(x);
-		}
+		if (SparseKernels.isSparse(m))
+			return SparseKernels.multiply(m, x);
 		DenseMatrix a = MatrixConverter.dense(m);
 		double[] y = new double[m.rows()];
 		Julia.mvmult(m.rows(), m.columns(), a.data, x, y);
@@ -68,6 +87,13 @@ public class JuliaSolver implements IMatrixSolver {
 
 	@Override
 	public DenseMatrix multiply(IMatrix a, IMatrix b) {
+		if (SparseKernels.isSparse(a)) {
+			if (a.columns() != b.rows())
+				throw new IllegalArgumentException("a.columns != b.rows");
+			DenseMatrix c = new DenseMatrix(a.rows(), b.columns());
+			SparseKernels.multiply(a, b, c);
+			return c;
+		}
 		DenseMatrix _a = MatrixConverter.dense(a);
 		DenseMatrix _b = MatrixConverter.dense(b);
 		int rowsA = _a.rows();
@@ -84,16 +110,7 @@ public class JuliaSolver implements IMatrixSolver {
 
 	@Override
 	public void scaleColumns(IMatrix m, double[] v) {
-		if (m instanceof HashPointMatrix) {
-			HashPointMatrix s = (HashPointMatrix) m;
-			s.scaleColumns(v);
-			return;
-		}
-		for (int row = 0; row < m.rows(); row++) {
-			for (int col = 0; col < m.columns(); col++) {
-				m.set(row, col, v[col] * m.get(row, col));
-			}
-		}
+		SparseKernels.scaleColumns(m, v);
 	}
 
 }
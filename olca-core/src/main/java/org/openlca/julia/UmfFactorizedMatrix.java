@@ -1,14 +1,36 @@
 package org.openlca.julia;
 
-public class UmfFactorizedMatrix {
-    final long pointer;
+import org.openlca.core.matrix.solvers.Factorization;
 
-    UmfFactorizedMatrix(long pointer) {
-        this.pointer = pointer;
-    }
+/**
+ * A sparse LU factorization of a matrix that is held in native memory by
+ * UMFPACK. Note that it is important to call `dispose` when the
+ * factorization is not needed anymore as this memory is not managed by the
+ * Java garbage collector.
+ */
+public class UmfFactorizedMatrix implements Factorization {
 
-    public void dispose() {
-        Julia.umfDispose(pointer);
-    }
+	final long pointer;
+	private final int size;
+
+	UmfFactorizedMatrix(long pointer, int size) {
+		this.pointer = pointer;
+		this.size = size;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public double[] solve(double[] b) {
+		return Umfpack.solve(this, b);
+	}
+
+	@Override
+	public void dispose() {
+		Julia.umfDispose(pointer);
+	}
 
 }
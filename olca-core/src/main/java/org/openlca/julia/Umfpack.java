@@ -21,7 +21,7 @@ public class Umfpack {
 				m.columnPointers,
 				m.rowIndices,
 				m.values);
-		return new UmfFactorizedMatrix(pointer);
+		return new UmfFactorizedMatrix(pointer, m.rows);
 	}
 
 	public static double[] solve(UmfFactorizedMatrix m, double[] demand) {
@@ -4,6 +4,7 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.eclipse.persistence.jpa.JpaHelper;
 import org.openlca.core.database.BaseDao;
 import org.openlca.core.database.Daos;
 import org.openlca.core.database.IDatabase;
@@ -89,6 +90,11 @@ public class Tests {
 				NativeSql.on(db).runUpdate("DELETE FROM " + table);
 			}
 			NativeSql.on(db).runUpdate("UPDATE SEQUENCE SET SEQ_COUNT = 0");
+			// the entity manager may still hold a pre-allocated block of IDs
+			// which would then collide with the IDs of a new block
+			JpaHelper.getServerSession(db.getEntityFactory())
+					.getSequencingControl()
+					.resetSequencing();
 			db.clearCache();
 		} catch (Exception e) {
 			throw new RuntimeException("failed to clear database", e);
@@ -0,0 +1,68 @@
+package org.openlca.core.database;
+
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openlca.core.Tests;
+import org.openlca.core.model.Location;
+
+public class DescriptorCacheTest {
+
+	private final IDatabase db = Tests.getDb();
+
+	@Test
+	public void testDaoChanges() {
+		var cache = DescriptorCache.of(db);
+		Assert.assertSame(cache, DescriptorCache.of(db));
+		var dao = new LocationDao(db);
+		var loc = new Location();
+		loc.refId = UUID.randomUUID().toString();
+		loc.name = "location A";
+		loc.code = "A";
+		dao.insert(loc);
+
+		var d = cache.locations().get(loc.id);
+		Assert.assertEquals("location A", d.name);
+		Assert.assertSame(d, cache.locations().getForRefId(loc.refId));
+
+		loc.name = "location B";
+		dao.update(loc);
+		Assert.assertEquals("location B", cache.locations().get(loc.id).name);
+
+		dao.delete(loc);
+		Assert.assertNull(cache.locations().get(loc.id));
+		Assert.assertNull(cache.locations().getForRefId(loc.refId));
+	}
+
+	@Test
+	public void testNativeChanges() {
+		var cache = DescriptorCache.of(db);
+		var loc = new Location();
+		loc.refId = UUID.randomUUID().toString();
+		loc.name = "location A";
+		new LocationDao(db).insert(loc);
+		var before = cache.locations();
+		Assert.assertEquals("location A", before.get(loc.id).name);
+
+		// native changes are only detected after an explicit check; then,
+		// changes of the version field are detected when the stamp of the
+		// table changes
+		NativeSql.on(db).runUpdate("update tbl_locations set name = "
+				+ "'location B', version = version + 1, last_change = "
+				+ (System.currentTimeMillis() + 1000) + " where id = " + loc.id);
+		Assert.assertSame(before, cache.locations());
+		cache.checkExternalChanges();
+		var after = cache.locations();
+		Assert.assertSame(after, cache.locations());
+		Assert.assertEquals("location B", after.get(loc.id).name);
+
+		// the old snapshot is not modified
+		Assert.assertEquals("location A", before.get(loc.id).name);
+
+		NativeSql.on(db).runUpdate(
+				"delete from tbl_locations where id = " + loc.id);
+		cache.checkExternalChanges();
+		Assert.assertNull(cache.locations().get(loc.id));
+	}
+}
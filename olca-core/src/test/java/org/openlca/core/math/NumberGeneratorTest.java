@@ -3,6 +3,8 @@ package org.openlca.core.math;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.SplittableRandom;
+
 import org.junit.Test;
 
 public class NumberGeneratorTest {
@@ -48,6 +50,33 @@ public class NumberGeneratorTest {
 			assertEquals(5.0, genDiscrete.next(), 1e-16);
 	}
 
+	@Test
+	public void testSeededStreams() {
+		NumberGenerator[] gens = {
+				NumberGenerator.normal(5, 1),
+				NumberGenerator.logNormal(5, 1.1),
+				NumberGenerator.uniform(1, 5),
+				NumberGenerator.triangular(1, 4, 5) };
+		for (NumberGenerator gen : gens) {
+			SplittableRandom r1 = new SplittableRandom(42);
+			SplittableRandom r2 = new SplittableRandom(42);
+			for (int i = 0; i < 100; i++) {
+				assertEquals(gen.next(r1), gen.next(r2), 0);
+			}
+		}
+	}
+
+	@Test
+	public void testQuantiles() {
+		assertEquals(5, NumberGenerator.normal(5, 1).quantile(0.5), 1e-10);
+		assertEquals(6.959963985,
+				NumberGenerator.normal(5, 1).quantile(0.975), 1e-8);
+		assertEquals(5, NumberGenerator.logNormal(5, 1.1).quantile(0.5), 1e-10);
+		assertEquals(2, NumberGenerator.uniform(1, 5).quantile(0.25), 1e-10);
+		assertEquals(4, NumberGenerator.triangular(1, 4, 5).quantile(0.75),
+				1e-10);
+	}
+
 	private void assertInInterval(double val, double lower, double upper) {
 		assertTrue(val >= lower);
 		assertTrue(val <= upper);
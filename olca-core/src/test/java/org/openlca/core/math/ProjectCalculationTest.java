@@ -11,9 +11,13 @@ import org.openlca.core.TestSystem;
 import org.openlca.core.Tests;
 import org.openlca.core.matrix.IndexFlow;
 import org.openlca.core.matrix.solvers.JavaSolver;
+import org.openlca.core.model.ModelType;
+import org.openlca.core.model.ParameterRedef;
 import org.openlca.core.model.Process;
+import org.openlca.core.model.ProductSystem;
 import org.openlca.core.model.Project;
 import org.openlca.core.model.ProjectVariant;
+import org.openlca.core.results.ContributionResult;
 import org.openlca.core.results.ProjectResult;
 
 public class ProjectCalculationTest {
@@ -63,4 +67,69 @@ public class ProjectCalculationTest {
 		}
 		assertEquals(4, icount.get());
 	}
+
+	@Test
+	public void testParameterizedVariants() {
+		Process q = TestProcess
+				.refProduct("q", 1, "kg")
+				.elemOut("e3", 1, "kg")
+				.get();
+		Process p = TestProcess
+				.refProduct("p", 1, "kg")
+				.param("f", 2)
+				.prodIn("q", 2, "kg")
+				.elemOut("e1", 4, "kg")
+				.with(proc -> {
+					TestProcess.findExchange(proc, "q").formula = "f";
+					TestProcess.findExchange(proc, "e1").formula = "2 * f";
+				})
+				.get();
+		ProductSystem system = TestSystem.of(p).link(q).get();
+
+		// the same system with different parameter values and amounts
+		Project project = new Project();
+		ProjectVariant v1 = variant(system, 1.0, null);
+		ProjectVariant v2 = variant(system, 2.0, redef(p, 3.0));
+		ProjectVariant v3 = variant(system, 3.0, null);
+		project.variants.addAll(List.of(v1, v2, v3));
+
+		SystemCalculator calc = new SystemCalculator(
+				Tests.getDb(), new JavaSolver());
+		ProjectResult r = calc.calculate(project);
+		assertEquals(4.0, total(r, v1, "e1"), 1e-10);
+		assertEquals(2.0, total(r, v1, "e3"), 1e-10);
+		assertEquals(12.0, total(r, v2, "e1"), 1e-10);
+		assertEquals(6.0, total(r, v2, "e3"), 1e-10);
+		assertEquals(12.0, total(r, v3, "e1"), 1e-10);
+		assertEquals(6.0, total(r, v3, "e3"), 1e-10);
+	}
+
+	private ProjectVariant variant(ProductSystem system, double amount,
+			ParameterRedef redef) {
+		ProjectVariant v = new ProjectVariant();
+		v.productSystem = system;
+		v.amount = amount;
+		if (redef != null) {
+			v.parameterRedefs.add(redef);
+		}
+		return v;
+	}
+
+	private ParameterRedef redef(Process process, double value) {
+		ParameterRedef redef = new ParameterRedef();
+		redef.name = "f";
+		redef.value = value;
+		redef.contextId = process.id;
+		redef.contextType = ModelType.PROCESS;
+		return redef;
+	}
+
+	private double total(ProjectResult r, ProjectVariant v, String flow) {
+		ContributionResult cr = r.getResult(v);
+		for (IndexFlow f : cr.getFlows()) {
+			if (flow.equals(f.flow.name))
+				return cr.getTotalFlowResult(f);
+		}
+		return 0;
+	}
 }
@@ -0,0 +1,64 @@
+package org.openlca.core.math;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+public class SamplingPlanTest {
+
+	@Test
+	public void testLatinHypercubeStrata() {
+		int runs = 100;
+		SamplingPlan plan = SamplingPlan.of(
+				SamplingMethod.LATIN_HYPERCUBE, runs, 42);
+		NumberGenerator gen = NumberGenerator.uniform(0, 1);
+		SplittableRandom random = new SplittableRandom(42);
+
+		// each stratum of each dimension should be hit exactly once
+		boolean[][] hits = new boolean[3][runs];
+		for (int run = 0; run < runs; run++) {
+			Sample sample = plan.sample(run, random.split());
+			for (int dim = 0; dim < 3; dim++) {
+				double val = sample.next(gen);
+				int stratum = (int) (val * runs);
+				assertTrue(!hits[dim][stratum]);
+				hits[dim][stratum] = true;
+			}
+		}
+	}
+
+	@Test
+	public void testReproducibleSamples() {
+		for (SamplingMethod method : SamplingMethod.values()) {
+			SamplingPlan plan1 = SamplingPlan.of(method, 10, 42);
+			SamplingPlan plan2 = SamplingPlan.of(method, 10, 42);
+			NumberGenerator gen = NumberGenerator.normal(5, 1);
+			// create the samples of the second plan in reverse order
+			for (int run = 9; run >= 0; run--) {
+				Sample s1 = plan1.sample(run, new SplittableRandom(run));
+				Sample s2 = plan2.sample(run, new SplittableRandom(run));
+				for (int dim = 0; dim < 5; dim++) {
+					assertEquals(s1.next(gen), s2.next(gen), 0);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSobolMean() {
+		int runs = 1000;
+		SamplingPlan plan = SamplingPlan.of(SamplingMethod.SOBOL, runs, 42);
+		NumberGenerator gen = NumberGenerator.normal(5, 1);
+		SplittableRandom random = new SplittableRandom(42);
+		double sum = 0;
+		for (int run = 0; run < runs; run++) {
+			Sample sample = plan.sample(run, random.split());
+			sum += sample.next(gen);
+		}
+		assertEquals(5, sum / runs, 0.01);
+	}
+
+}
@@ -8,6 +8,7 @@ import org.openlca.core.TestData;
 import org.openlca.core.TestProcess;
 import org.openlca.core.TestSystem;
 import org.openlca.core.Tests;
+import org.openlca.core.matrix.IndexFlow;
 import org.openlca.core.matrix.solvers.JavaSolver;
 import org.openlca.core.model.ImpactMethod;
 import org.openlca.core.model.Process;
@@ -15,6 +16,7 @@ import org.openlca.core.model.ProductSystem;
 import org.openlca.core.model.Uncertainty;
 import org.openlca.core.model.descriptors.Descriptor;
 import org.openlca.core.results.SimpleResult;
+import org.openlca.core.results.SimulationResult;
 
 public class SimulatorTest {
 
@@ -52,4 +54,60 @@ public class SimulatorTest {
 		Arrays.asList(s, m, p).forEach(Tests::delete);
 	}
 
+	@Test
+	public void testParallelRuns() {
+
+		// create a simple model with an uncertain elementary flow
+		Process p = TestProcess.refProduct("p", 1.0, "kg")
+				.elemOut("CO2", 1.0, "kg")
+				.with(process -> TestProcess.findExchange(process, "CO2")
+						.uncertainty = Uncertainty.uniform(2, 4))
+				.get();
+		ProductSystem s = TestSystem.of(p).get();
+		CalculationSetup setup = new CalculationSetup(s);
+		setup.withUncertainties = true;
+		Simulator simulator = Simulator.create(
+				setup, Tests.getDb(), new JavaSolver());
+
+		SimulationResult r = simulator.run(100, 4);
+		Assert.assertEquals(100, r.getNumberOfRuns());
+		IndexFlow co2 = r.flowIndex.at(0);
+		for (double val : r.getAll(co2)) {
+			Assert.assertTrue(val >= 2 && val <= 4);
+		}
+
+		Arrays.asList(s, p).forEach(Tests::delete);
+	}
+
+	@Test
+	public void testSeededRuns() {
+		Process p = TestProcess.refProduct("p", 1.0, "kg")
+				.elemOut("CO2", 1.0, "kg")
+				.with(process -> TestProcess.findExchange(process, "CO2")
+						.uncertainty = Uncertainty.logNormal(3, 1.5))
+				.get();
+		ProductSystem s = TestSystem.of(p).get();
+		CalculationSetup setup = new CalculationSetup(s);
+		setup.withUncertainties = true;
+
+		// sequential runs
+		Simulator seq = Simulator.create(
+				setup, Tests.getDb(), new JavaSolver()).withSeed(42);
+		for (int i = 0; i < 50; i++) {
+			seq.nextRun();
+		}
+		SimulationResult r1 = seq.getResult();
+
+		// parallel runs with the same seed
+		SimulationResult r2 = Simulator.create(
+				setup, Tests.getDb(), new JavaSolver())
+				.withSeed(42)
+				.run(50, 4);
+
+		IndexFlow co2 = r1.flowIndex.at(0);
+		Assert.assertArrayEquals(r1.getAll(co2), r2.getAll(co2), 0);
+
+		Arrays.asList(s, p).forEach(Tests::delete);
+	}
+
 }
@@ -0,0 +1,92 @@
+package org.openlca.core.math;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openlca.core.TestProcess;
+import org.openlca.core.TestSystem;
+import org.openlca.core.Tests;
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.database.ProductSystemDao;
+import org.openlca.core.matrix.solvers.JavaSolver;
+import org.openlca.core.model.AllocationMethod;
+import org.openlca.core.model.Exchange;
+import org.openlca.core.model.Process;
+import org.openlca.core.model.ProcessLink;
+import org.openlca.core.model.ProductSystem;
+import org.openlca.core.results.SimpleResult;
+
+public class SubSystemCacheTest {
+
+	private final IDatabase db = Tests.getDb();
+
+	@Test
+	public void testKeys() {
+		var system = new ProductSystem();
+		system.id = 42;
+		var s1 = new CalculationSetup(system);
+		var s2 = new CalculationSetup(system);
+		Assert.assertEquals(SubSystemCache.Key.of(s1),
+				SubSystemCache.Key.of(s2));
+
+		s2.allocationMethod = AllocationMethod.ECONOMIC;
+		Assert.assertNotEquals(SubSystemCache.Key.of(s1),
+				SubSystemCache.Key.of(s2));
+	}
+
+	@Test
+	public void testSharedSubSystem() {
+		Process sub = TestProcess
+				.refProduct("sub product", 1, "kg")
+				.elemOut("sub emission", 2, "kg")
+				.get();
+		ProductSystem subSystem = TestSystem.of(sub).get();
+
+		ProductSystem host1 = host(subSystem, 3);
+		ProductSystem host2 = host(subSystem, 5);
+
+		var cache = SubSystemCache.of(db);
+		Assert.assertSame(cache, SubSystemCache.of(db));
+		cache.clear();
+
+		var calc = new SystemCalculator(db, new JavaSolver());
+		var r1 = calc.calculateSimple(new CalculationSetup(host1));
+		Assert.assertEquals(1, cache.size());
+		var r2 = calc.calculateSimple(new CalculationSetup(host2));
+		Assert.assertEquals(1, cache.size());
+		Assert.assertEquals(6, total(r1), 1e-10);
+		Assert.assertEquals(10, total(r2), 1e-10);
+
+		// a modification of a product system clears the cache
+		var dao = new ProductSystemDao(db);
+		dao.update(dao.getForId(host2.id));
+		Assert.assertEquals(0, cache.size());
+	}
+
+	private ProductSystem host(ProductSystem subSystem, double amount) {
+		Process host = TestProcess
+				.refProduct("host product", 1, "kg")
+				.prodIn("sub product", amount, "kg")
+				.get();
+		Exchange input = TestProcess.findExchange(host, "sub product");
+		ProductSystem system = TestSystem.of(host).get();
+		var link = new ProcessLink();
+		link.providerId = subSystem.id;
+		link.flowId = input.flow.id;
+		link.processId = host.id;
+		link.exchangeId = input.id;
+		link.isSystemLink = true;
+		system.processLinks.add(link);
+		system.processes.add(subSystem.id);
+		return new ProductSystemDao(db).update(system);
+	}
+
+	private double total(SimpleResult r) {
+		double sum = 0;
+		for (var f : r.getFlows()) {
+			if ("sub emission".equals(f.flow.name)) {
+				sum += r.getTotalFlowResult(f);
+			}
+		}
+		return sum;
+	}
+}
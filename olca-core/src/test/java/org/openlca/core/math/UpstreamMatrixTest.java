@@ -0,0 +1,139 @@
+package org.openlca.core.math;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openlca.core.matrix.format.CSCMatrix;
+import org.openlca.core.matrix.format.DenseMatrix;
+import org.openlca.core.matrix.format.HashPointMatrix;
+import org.openlca.core.matrix.format.IMatrix;
+import org.openlca.core.matrix.solvers.Factorization;
+import org.openlca.core.matrix.solvers.JavaSolver;
+
+public class UpstreamMatrixTest {
+
+	@Test
+	public void testRowsAndColumns() {
+		Random rand = new Random(42);
+		int n = 30;
+		HashPointMatrix a = new HashPointMatrix(n, n);
+		for (int j = 0; j < n; j++) {
+			a.set(j, j, 1 + rand.nextDouble());
+			for (int k = 0; k < 3; k++) {
+				int i = rand.nextInt(n);
+				if (i != j) {
+					a.set(i, j, -0.1 * rand.nextDouble());
+				}
+			}
+		}
+		HashPointMatrix m = new HashPointMatrix(5, n);
+		for (int k = 0; k < 40; k++) {
+			m.set(rand.nextInt(5), rand.nextInt(n), rand.nextDouble());
+		}
+		double[] d = new double[n];
+		for (int j = 0; j < n; j++) {
+			d[j] = rand.nextDouble();
+		}
+
+		JavaSolver solver = new JavaSolver();
+		CSCMatrix csc = CSCMatrix.of(a);
+		UpstreamMatrix.Context context = new UpstreamMatrix.Context(
+				solver, csc, solver.factorize(csc), true, d);
+		UpstreamMatrix u = new UpstreamMatrix(context, m);
+		Assert.assertEquals(5, u.rows());
+		Assert.assertEquals(n, u.columns());
+
+		// M * A^-1 * diag(d)
+		IMatrix expected = solver.multiply(m, solver.invert(a));
+		solver.scaleColumns(expected, d);
+
+		for (int i = 0; i < 5; i++) {
+			double[] row = u.getRow(i);
+			for (int j = 0; j < n; j++) {
+				Assert.assertEquals(expected.get(i, j), row[j], 1e-12);
+				Assert.assertEquals(expected.get(i, j), u.get(i, j), 1e-12);
+			}
+		}
+		for (int j = 0; j < n; j++) {
+			double[] column = u.getColumn(j);
+			for (int i = 0; i < 5; i++) {
+				Assert.assertEquals(expected.get(i, j), column[i], 1e-12);
+			}
+		}
+
+		// rows are cached; modifying a returned row must not change it
+		double[] row = u.getRow(0);
+		row[0] = 42;
+		Assert.assertEquals(expected.get(0, 0), u.get(0, 0), 1e-12);
+
+		DenseMatrix copy = u.copy();
+		Assert.assertEquals(expected.get(4, n - 1), copy.get(4, n - 1), 1e-12);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testReadOnly() {
+		JavaSolver solver = new JavaSolver();
+		CSCMatrix a = CSCMatrix.of(new HashPointMatrix(new double[][] {
+				{ 1, 0 },
+				{ -0.5, 1 } }));
+		UpstreamMatrix.Context context = new UpstreamMatrix.Context(
+				solver, a, solver.factorize(a), true, new double[] { 1, 1 });
+		UpstreamMatrix u = new UpstreamMatrix(context,
+				new HashPointMatrix(new double[][] { { 1, 2 } }));
+		u.set(0, 0, 1);
+	}
+
+	@Test
+	public void testDispose() {
+		List<String> disposed = new ArrayList<>();
+		JavaSolver solver = new JavaSolver() {
+			@Override
+			public Factorization factorize(IMatrix matrix) {
+				Factorization f = super.factorize(matrix);
+				return new Factorization() {
+					@Override
+					public int size() {
+						return f.size();
+					}
+
+					@Override
+					public double[] solve(double[] b) {
+						return f.solve(b);
+					}
+
+					@Override
+					public void dispose() {
+						disposed.add("transposed");
+					}
+				};
+			}
+		};
+		CSCMatrix a = CSCMatrix.of(new HashPointMatrix(new double[][] {
+				{ 1, 0 },
+				{ -0.5, 1 } }));
+		Factorization lu = new JavaSolver().factorize(a);
+		UpstreamMatrix.Context context = new UpstreamMatrix.Context(
+				solver, a, lu, false, new double[] { 1, 1 });
+		UpstreamMatrix u = new UpstreamMatrix(context,
+				new HashPointMatrix(new double[][] { { 1, 2 } }));
+		double[] row = u.getRow(0);
+
+		// the transposed factorization is released; the passed one is not
+		// owned by the context
+		context.dispose();
+		context.dispose();
+		Assert.assertEquals(List.of("transposed"), disposed);
+
+		// calculated rows are still available
+		Assert.assertArrayEquals(row, u.getRow(0), 1e-16);
+		try {
+			u.getColumn(0);
+			Assert.fail("the context was disposed");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package org.openlca.core.matrix;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.openlca.core.matrix.format.HashPointMatrix;
+import org.openlca.core.matrix.format.IMatrix;
+import org.openlca.expressions.FormulaInterpreter;
+
+public class FormulaCellsTest {
+
+	@Test
+	public void testEvalMatrix() {
+		IMatrix m = new HashPointMatrix(new double[][] {
+				{ 1, 2 },
+				{ 3, 4 } });
+
+		// two entries are mapped to cell (0, 1); only one has a formula
+		var cells = new FormulaCells();
+		cells.add(0, 1, 1, i -> eval(i, "a"));
+		cells.add(1, 0, 3, i -> eval(i, "3 * a"));
+
+		// the same parameter value -> the same matrix
+		assertSame(m, cells.eval(m, interpreter(1)));
+
+		IMatrix copy = cells.eval(m, interpreter(2));
+		assertNotSame(m, copy);
+		assertEquals(3, copy.get(0, 1), 1e-16);
+		assertEquals(6, copy.get(1, 0), 1e-16);
+		assertEquals(1, copy.get(0, 0), 1e-16);
+		assertEquals(4, copy.get(1, 1), 1e-16);
+
+		// the original matrix is not modified
+		assertEquals(2, m.get(0, 1), 1e-16);
+		assertEquals(3, m.get(1, 0), 1e-16);
+	}
+
+	@Test
+	public void testEvalVector() {
+		double[] v = { 1, 2, 3 };
+		var cells = new FormulaCells();
+		cells.add(0, 2, 3, i -> eval(i, "3 * a"));
+		assertSame(v, cells.eval(v, interpreter(1)));
+		double[] copy = cells.eval(v, interpreter(2));
+		assertArrayEquals(new double[] { 1, 2, 6 }, copy, 1e-16);
+		assertArrayEquals(new double[] { 1, 2, 3 }, v, 1e-16);
+	}
+
+	private FormulaInterpreter interpreter(double a) {
+		var interpreter = new FormulaInterpreter();
+		interpreter.bind("a", a);
+		return interpreter;
+	}
+
+	private double eval(FormulaInterpreter interpreter, String formula) {
+		try {
+			return interpreter.eval(formula);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
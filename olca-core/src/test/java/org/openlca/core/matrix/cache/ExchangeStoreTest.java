@@ -0,0 +1,122 @@
+package org.openlca.core.matrix.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openlca.core.Tests;
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.database.NativeSql;
+import org.openlca.core.database.ProcessDao;
+import org.openlca.core.model.Exchange;
+import org.openlca.core.model.Process;
+
+public class ExchangeStoreTest {
+
+	private final IDatabase db = Tests.getDb();
+
+	@Test
+	public void testProcessChanges() {
+		var store = ExchangeStore.of(db);
+		Assert.assertSame(store, ExchangeStore.of(db));
+
+		var dao = new ProcessDao(db);
+		var process = new Process();
+		process.exchanges.add(exchange(1, "2 * 21"));
+		process.exchanges.add(exchange(2, null));
+		dao.insert(process);
+		Assert.assertEquals(List.of(1.0, 2.0), amounts(store, process));
+
+		var formulas = new ArrayList<String>();
+		store.snapshot().each(Collections.singleton(process.id),
+				row -> formulas.add(row.formula()));
+		Assert.assertTrue(formulas.contains("2 * 21"));
+		Assert.assertTrue(formulas.contains(null));
+
+		// changes via the DAO are tracked by the listener
+		process = dao.getForId(process.id);
+		process.exchanges.stream()
+				.filter(e -> e.amount == 1)
+				.forEach(e -> e.amount = 3);
+		process = dao.update(process);
+		var snapshot = store.snapshot();
+		Assert.assertEquals(List.of(2.0, 3.0), amounts(store, process));
+
+		// native updates are visible after an eviction
+		NativeSql.on(db).runUpdate("update tbl_exchanges set "
+				+ "resulting_amount_value = 4 where f_owner = " + process.id);
+		store.evict(process.id);
+		Assert.assertEquals(List.of(4.0, 4.0), amounts(store, process));
+
+		// older snapshots are not modified
+		var old = new ArrayList<Double>();
+		snapshot.each(Collections.singleton(process.id),
+				row -> old.add(row.amount()));
+		Collections.sort(old);
+		Assert.assertEquals(List.of(2.0, 3.0), old);
+
+		dao.delete(process);
+		Assert.assertTrue(amounts(store, process).isEmpty());
+	}
+
+	@Test
+	public void testListenerDrivenSync() {
+		var store = ExchangeStore.of(db);
+		var dao = new ProcessDao(db);
+		var process = new Process();
+		process.exchanges.add(exchange(1, null));
+		dao.insert(process);
+
+		// without changes, the same snapshot is returned
+		var snapshot = store.snapshot();
+		Assert.assertSame(snapshot, store.snapshot());
+
+		// native changes are only visible after an eviction
+		NativeSql.on(db).runUpdate("update tbl_exchanges set "
+				+ "resulting_amount_value = 2 where f_owner = " + process.id);
+		Assert.assertSame(snapshot, store.snapshot());
+		Assert.assertEquals(List.of(1.0), amounts(store, process));
+		store.evict(process.id);
+		Assert.assertEquals(List.of(2.0), amounts(store, process));
+
+		// clearing the database caches drops the store
+		NativeSql.on(db).runUpdate("update tbl_exchanges set "
+				+ "resulting_amount_value = 3 where f_owner = " + process.id);
+		db.clearCache();
+		Assert.assertEquals(List.of(3.0), amounts(store, process));
+		dao.delete(process);
+	}
+
+	@Test
+	public void testSize() {
+		var store = ExchangeStore.of(db);
+		long[] count = new long[1];
+		NativeSql.on(db).query("select count(*) from tbl_exchanges", r -> {
+			count[0] = r.getLong(1);
+			return false;
+		});
+		var snapshot = store.snapshot();
+		Assert.assertEquals(count[0], snapshot.size());
+		int[] rows = new int[1];
+		snapshot.eachRow(row -> rows[0]++);
+		Assert.assertEquals(count[0], rows[0]);
+	}
+
+	private Exchange exchange(double amount, String formula) {
+		var e = new Exchange();
+		e.amount = amount;
+		e.formula = formula;
+		e.isInput = true;
+		return e;
+	}
+
+	private List<Double> amounts(ExchangeStore store, Process process) {
+		var amounts = new ArrayList<Double>();
+		store.snapshot().each(Collections.singleton(process.id),
+				row -> amounts.add(row.amount()));
+		Collections.sort(amounts);
+		return amounts;
+	}
+}
@@ -0,0 +1,162 @@
+package org.openlca.core.matrix.cache;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlca.core.Tests;
+import org.openlca.core.database.NativeSql;
+import org.openlca.core.math.CalculationSetup;
+import org.openlca.core.matrix.MatrixData;
+import org.openlca.core.matrix.format.IMatrix;
+import org.openlca.core.model.Flow;
+import org.openlca.core.model.FlowProperty;
+import org.openlca.core.model.Process;
+import org.openlca.core.model.ProductSystem;
+import org.openlca.core.model.Unit;
+import org.openlca.core.model.UnitGroup;
+import org.openlca.util.Dirs;
+
+public class MatrixSnapshotsTest {
+
+	private File dir;
+	private MatrixSnapshots snapshots;
+	private UnitGroup units;
+	private FlowProperty mass;
+	private Flow product, input, co2;
+	private Process p1, p2;
+
+	@Before
+	public void setup() throws Exception {
+		dir = Files.createTempDirectory("_olca_snapshots").toFile();
+		snapshots = MatrixSnapshots.of(Tests.getDb(), dir);
+		units = Tests.insert(UnitGroup.of("Units of mass", Unit.of("kg")));
+		mass = Tests.insert(FlowProperty.of("Mass", units));
+		product = Tests.insert(Flow.product("product", mass));
+		input = Tests.insert(Flow.product("input", mass));
+		co2 = Tests.insert(Flow.elementary("CO2", mass));
+		p1 = Process.of("p1", product);
+		p1.input(input, 0.5);
+		p1.output(co2, 2);
+		p1 = Tests.insert(p1);
+		p2 = Process.of("p2", input);
+		p2.output(co2, 1);
+		p2 = Tests.insert(p2);
+	}
+
+	@After
+	public void tearDown() {
+		Tests.getDb().removeListener(snapshots);
+		Tests.delete(p2);
+		Tests.delete(p1);
+		Tests.delete(co2);
+		Tests.delete(input);
+		Tests.delete(product);
+		Tests.delete(mass);
+		Tests.delete(units);
+		Dirs.delete(dir);
+	}
+
+	@Test
+	public void testLoadSnapshot() {
+		var setup = calcSetup();
+		var built = snapshots.get(setup);
+		Assert.assertEquals(1, dir.listFiles().length);
+		var loaded = snapshots.get(setup);
+		assertEqual(built, loaded);
+
+		// another setup creates another snapshot
+		setup.withCosts = true;
+		snapshots.get(setup);
+		Assert.assertEquals(2, dir.listFiles().length);
+	}
+
+	@Test
+	public void testExternalChange() {
+		var setup = calcSetup();
+		snapshots.get(setup);
+		Assert.assertEquals(1, dir.listFiles().length);
+
+		// a native change needs to be reported by clearing the caches of
+		// the database; this deletes the snapshots so that the matrices
+		// are built again (an in-place update does not change the content
+		// version of the database)
+		NativeSql.on(Tests.getDb()).runUpdate(
+				"update tbl_exchanges set resulting_amount_value = 5"
+						+ " where f_owner = " + p2.id
+						+ " and f_flow = " + co2.id);
+		Tests.getDb().clearCache();
+		Assert.assertFalse(dir.exists());
+		var data = snapshots.get(setup);
+		Assert.assertEquals(1, dir.listFiles().length);
+		int row = data.flowIndex.of(co2.id);
+		int col = data.techIndex.getIndex(data.techIndex.getProvider(
+				p2.id, input.id));
+		Assert.assertEquals(5, data.enviMatrix.get(row, col), 1e-16);
+	}
+
+	@Test
+	public void testRegisterOnce() {
+		Assert.assertSame(snapshots,
+				MatrixSnapshots.of(Tests.getDb(), dir));
+	}
+
+	@Test
+	public void testEvictOnChange() {
+		var setup = calcSetup();
+		snapshots.get(setup);
+		Assert.assertTrue(dir.exists());
+		p2.exchanges.get(1).amount = 3;
+		p2 = Tests.update(p2);
+		Assert.assertFalse(dir.exists());
+		var data = snapshots.get(setup);
+		int row = data.flowIndex.of(co2.id);
+		int col = data.techIndex.getIndex(data.techIndex.getProvider(
+				p2.id, input.id));
+		Assert.assertEquals(3, data.enviMatrix.get(row, col), 1e-16);
+	}
+
+	private CalculationSetup calcSetup() {
+		var system = ProductSystem.of(p1);
+		system.withoutNetwork = true;
+		return new CalculationSetup(system);
+	}
+
+	private void assertEqual(MatrixData expected, MatrixData actual) {
+		Assert.assertEquals(expected.techIndex.size(), actual.techIndex.size());
+		for (int i = 0; i < expected.techIndex.size(); i++) {
+			Assert.assertEquals(expected.techIndex.getProviderAt(i),
+					actual.techIndex.getProviderAt(i));
+		}
+		Assert.assertEquals(expected.techIndex.getDemand(),
+				actual.techIndex.getDemand(), 1e-16);
+		var links = expected.techIndex.getLinkedExchanges();
+		Assert.assertFalse(links.isEmpty());
+		Assert.assertEquals(links, actual.techIndex.getLinkedExchanges());
+		for (var link : links) {
+			Assert.assertEquals(expected.techIndex.getLinkedProvider(link),
+					actual.techIndex.getLinkedProvider(link));
+		}
+		Assert.assertEquals(expected.flowIndex.size(), actual.flowIndex.size());
+		for (int i = 0; i < expected.flowIndex.size(); i++) {
+			Assert.assertEquals(expected.flowIndex.at(i).flow,
+					actual.flowIndex.at(i).flow);
+			Assert.assertEquals(expected.flowIndex.at(i).isInput,
+					actual.flowIndex.at(i).isInput);
+		}
+		assertEqual(expected.techMatrix, actual.techMatrix);
+		assertEqual(expected.enviMatrix, actual.enviMatrix);
+	}
+
+	private void assertEqual(IMatrix expected, IMatrix actual) {
+		Assert.assertEquals(expected.rows(), actual.rows());
+		Assert.assertEquals(expected.columns(), actual.columns());
+		for (int j = 0; j < expected.columns(); j++) {
+			Assert.assertArrayEquals(expected.getColumn(j),
+					actual.getColumn(j), 1e-16);
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package org.openlca.core.matrix.format;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class SparseKernelsTest {
+
+	private final double[][] a = {
+			{ 1.0, 0.0, 2.0, 0.0 },
+			{ 0.0, 0.0, 3.0, 0.0 },
+			{ 4.0, 0.0, 0.0, 5.0 } };
+
+	private final double[][] b = {
+			{ 1.0, 0.0 },
+			{ 2.0, 1.0 },
+			{ 0.0, 3.0 },
+			{ 4.0, 0.0 } };
+
+	/** a * b */
+	private final double[][] ab = {
+			{ 1.0, 6.0 },
+			{ 0.0, 9.0 },
+			{ 24.0, 0.0 } };
+
+	@Test
+	public void testMatrixVector() {
+		double[] v = { 1.0, 2.0, 3.0, 4.0 };
+		double[] expected = { 7.0, 9.0, 24.0 };
+		for (IMatrix m : formats(a)) {
+			assertArrayEquals(expected, SparseKernels.multiply(m, v), 1e-16);
+		}
+	}
+
+	@Test
+	public void testMatrixMatrix() {
+		for (IMatrix ma : formats(a)) {
+			for (IMatrix mb : formats(b)) {
+				DenseMatrix r = new DenseMatrix(3, 2);
+				SparseKernels.multiply(ma, mb, r);
+				check(ab, r);
+				HashPointMatrix h = new HashPointMatrix(3, 2);
+				SparseKernels.multiply(ma, mb, h);
+				check(ab, h);
+			}
+		}
+	}
+
+	@Test
+	public void testScaleColumns() {
+		double[] v = { 2.0, 3.0, 4.0, 5.0 };
+		double[][] expected = {
+				{ 2.0, 0.0, 8.0, 0.0 },
+				{ 0.0, 0.0, 12.0, 0.0 },
+				{ 8.0, 0.0, 0.0, 25.0 } };
+		for (IMatrix m : formats(a)) {
+			SparseKernels.scaleColumns(m, v);
+			check(expected, m);
+		}
+	}
+
+	@Test
+	public void testTranspose() {
+		for (IMatrix m : formats(a)) {
+			CSCMatrix t = SparseKernels.transpose(m);
+			assertEquals(4, t.rows);
+			assertEquals(3, t.columns);
+			for (int row = 0; row < 3; row++) {
+				for (int col = 0; col < 4; col++) {
+					assertEquals(a[row][col], t.get(col, row), 1e-16);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSortedCSC() {
+		// the rows must be sorted in the columns for UMFPACK
+		HashPointMatrix m = new HashPointMatrix(50, 50);
+		for (int i = 49; i >= 0; i--) {
+			m.set(i, 0, i + 1);
+			m.set(i, i, 1);
+		}
+		CSCMatrix csc = CSCMatrix.of(m);
+		for (int col = 0; col < 50; col++) {
+			int start = csc.columnPointers[col];
+			int end = csc.columnPointers[col + 1];
+			for (int k = start + 1; k < end; k++) {
+				assertEquals(true, csc.rowIndices[k - 1] < csc.rowIndices[k]);
+			}
+		}
+		assertEquals(99, csc.columnPointers[50]);
+	}
+
+	private IMatrix[] formats(double[][] values) {
+		HashPointMatrix h = new HashPointMatrix(values);
+		DenseMatrix d = new DenseMatrix(values.length, values[0].length);
+		d.setValues(values);
+		JavaMatrix j = new JavaMatrix(values.length, values[0].length);
+		j.setValues(values);
+		return new IMatrix[] {
+				h,
+				CSCMatrix.of(h),
+				h.compress(),
+				d,
+				j };
+	}
+
+	private void check(double[][] expected, IMatrix m) {
+		assertEquals(expected.length, m.rows());
+		assertEquals(expected[0].length, m.columns());
+		for (int row = 0; row < expected.length; row++) {
+			assertArrayEquals(expected[row], m.getRow(row), 1e-16);
+		}
+	}
+}
@@ -51,4 +51,16 @@ public class NpyTest {
 					matrix.getColumn(j), Npy.loadColumn(npy, j), 1e-10);
 		}
 	}
+
+	@Test
+	public void testVectors() throws Exception {
+		var file = Files.createTempFile("__olca_npy_test_", ".npy").toFile();
+		double[] doubles = {1.5, -2.0, 1e-300, 42};
+		Npy.save(file, doubles);
+		Assert.assertArrayEquals(doubles, Npy.loadVector(file), 1e-16);
+		long[] longs = {1L, -2L, Long.MAX_VALUE, 42L};
+		Npy.save(file, longs);
+		Assert.assertArrayEquals(longs, Npy.loadLongVector(file));
+		Assert.assertTrue(file.delete());
+	}
 }
@@ -0,0 +1,115 @@
+package org.openlca.core.matrix.product.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openlca.core.Tests;
+import org.openlca.core.matrix.CalcExchange;
+import org.openlca.core.matrix.LinkingCallback;
+import org.openlca.core.matrix.LinkingConfig;
+import org.openlca.core.matrix.LongPair;
+import org.openlca.core.matrix.ProcessProduct;
+import org.openlca.core.matrix.TechIndex;
+import org.openlca.core.matrix.cache.MatrixCache;
+import org.openlca.core.model.CategorizedEntity;
+import org.openlca.core.model.Flow;
+import org.openlca.core.model.FlowProperty;
+import org.openlca.core.model.Process;
+import org.openlca.core.model.Unit;
+import org.openlca.core.model.UnitGroup;
+
+public class TechIndexBuilderTest {
+
+	/** More processes than the threshold for a parallel search. */
+	private static final int WIDTH = 200;
+
+	private static final List<CategorizedEntity> entities = new ArrayList<>();
+	private static Process root;
+
+	/**
+	 * Creates a supply chain where the root process has inputs from WIDTH
+	 * processes which all have an input from the same shared process.
+	 */
+	@BeforeClass
+	public static void setup() {
+		var units = add(UnitGroup.of("Units of mass", Unit.of("kg")));
+		var mass = add(FlowProperty.of("Mass", units));
+		var sharedProduct = add(Flow.product("shared", mass));
+		add(Process.of("shared", sharedProduct));
+		var rootProduct = add(Flow.product("root", mass));
+		root = Process.of("root", rootProduct);
+		for (int i = 0; i < WIDTH; i++) {
+			var product = add(Flow.product("p" + i, mass));
+			var process = Process.of("p" + i, product);
+			process.input(sharedProduct, 1);
+			add(process);
+			root.input(product, 1);
+		}
+		root = add(root);
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		for (int i = entities.size() - 1; i >= 0; i--) {
+			Tests.delete(entities.get(i));
+		}
+	}
+
+	private static <T extends CategorizedEntity> T add(T e) {
+		var inserted = Tests.insert(e);
+		entities.add(inserted);
+		return inserted;
+	}
+
+	@Test
+	public void testParallelSearch() {
+		var index = build(new LinkingConfig());
+		Assert.assertEquals(WIDTH + 2, index.size());
+		Assert.assertEquals(2 * WIDTH, index.getLinkedExchanges().size());
+	}
+
+	@Test
+	public void testSameAsSequential() {
+		var parallel = build(new LinkingConfig());
+
+		// a callback forces a sequential search
+		var config = new LinkingConfig();
+		config.callback = new LinkingCallback() {
+			@Override
+			public boolean cancel() {
+				return false;
+			}
+
+			@Override
+			public List<ProcessProduct> select(CalcExchange e,
+					List<ProcessProduct> candidates) {
+				return candidates;
+			}
+		};
+		var sequential = build(config);
+
+		Assert.assertEquals(sequential.size(), parallel.size());
+		for (int i = 0; i < sequential.size(); i++) {
+			Assert.assertEquals(sequential.getProviderAt(i),
+					parallel.getProviderAt(i));
+		}
+		var exchanges = new ArrayList<>(sequential.getLinkedExchanges());
+		Assert.assertEquals(exchanges,
+				new ArrayList<>(parallel.getLinkedExchanges()));
+		for (LongPair exchange : exchanges) {
+			Assert.assertEquals(sequential.getLinkedProvider(exchange),
+					parallel.getLinkedProvider(exchange));
+		}
+	}
+
+	private TechIndex build(LinkingConfig config) {
+		var cache = MatrixCache.createLazy(Tests.getDb());
+		var builder = new TechIndexBuilder(cache, null, config);
+		return builder.build(ProcessProduct.of(
+				root, root.quantitativeReference.flow));
+	}
+}
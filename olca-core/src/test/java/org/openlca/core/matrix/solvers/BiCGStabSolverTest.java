@@ -0,0 +1,120 @@
+package org.openlca.core.matrix.solvers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.openlca.core.matrix.format.HashPointMatrix;
+import org.openlca.core.matrix.format.IMatrix;
+
+public class BiCGStabSolverTest {
+
+	private final double[][] values = {
+			{ 1.0, -0.5, 0.0, 0.0, -0.2 },
+			{ -0.1, 1.0, -0.3, 0.0, 0.0 },
+			{ 0.0, -0.2, 1.0, -0.4, 0.0 },
+			{ -0.3, 0.0, 0.0, 1.0, -0.1 },
+			{ 0.0, 0.0, -0.6, 0.0, 1.0 } };
+
+	@Test
+	public void testWithoutPreconditioner() {
+		JavaSolver java = new JavaSolver();
+		BiCGStabSolver solver = new BiCGStabSolver(java);
+		IMatrix a = new HashPointMatrix(values);
+		assertArrayEquals(java.solve(a, 0, 1.0),
+				solver.solve(a, 0, 1.0), 1e-10);
+	}
+
+	@Test
+	public void testPerturbedRuns() {
+		JavaSolver java = new JavaSolver();
+		BiCGStabSolver solver = new BiCGStabSolver(java);
+		IMatrix a = new HashPointMatrix(values);
+		solver.precondition(a);
+
+		// solve the same matrix instance with perturbed values; from the
+		// second run on, the previous solution is used as initial guess
+		Random random = new Random(42);
+		for (int run = 0; run < 20; run++) {
+			perturb(a, random);
+			double d = 1 + random.nextDouble();
+			assertArrayEquals(java.solve(a, 2, d),
+					solver.solve(a, 2, d), 1e-8);
+		}
+		solver.dispose();
+	}
+
+	@Test
+	public void testFactorizedRuns() {
+		JavaSolver java = new JavaSolver();
+		BiCGStabSolver solver = new BiCGStabSolver(java);
+		IMatrix a = new HashPointMatrix(values);
+		solver.precondition(a);
+		Random random = new Random(42);
+		for (int run = 0; run < 10; run++) {
+			perturb(a, random);
+			Factorization lu = solver.factorize(a);
+			for (int idx = 0; idx < 5; idx++) {
+				assertArrayEquals(java.solve(a, idx, 1.0),
+						lu.solve(idx, 1.0), 1e-8);
+			}
+			double[] b = { 1, 0, 2, 0, 1 };
+			assertArrayEquals(java.factorize(a).solve(b),
+					lu.solve(b), 1e-8);
+			lu.dispose();
+		}
+		solver.dispose();
+	}
+
+	@Test
+	public void testSharedPreconditioner() {
+		JavaSolver java = new JavaSolver();
+		BiCGStabSolver solver = new BiCGStabSolver(java);
+		IMatrix a = new HashPointMatrix(values);
+		solver.precondition(a);
+
+		IMatrix b = new HashPointMatrix(values);
+		assertTrue(solver.precondition(b, a));
+		perturb(b, new Random(42));
+		assertArrayEquals(java.solve(b, 3, 1.0),
+				solver.solve(b, 3, 1.0), 1e-8);
+
+		// the preconditioner is still registered for `b`
+		solver.release(a);
+		assertArrayEquals(java.solve(b, 1, 2.0),
+				solver.solve(b, 1, 2.0), 1e-8);
+
+		IMatrix c = new HashPointMatrix(new double[][] {
+				{ 1.0, -0.5 },
+				{ -0.2, 1.0 } });
+		assertFalse(solver.precondition(c, b));
+		solver.dispose();
+	}
+
+	private void perturb(IMatrix a, Random random) {
+		for (int row = 0; row < 5; row++) {
+			for (int col = 0; col < 5; col++) {
+				double val = values[row][col];
+				if (val == 0)
+					continue;
+				a.set(row, col, val * (0.9 + 0.2 * random.nextDouble()));
+			}
+		}
+	}
+
+	@Test
+	public void testOtherSize() {
+		JavaSolver java = new JavaSolver();
+		BiCGStabSolver solver = new BiCGStabSolver(java);
+		solver.precondition(new HashPointMatrix(values));
+		IMatrix a = new HashPointMatrix(new double[][] {
+				{ 1.0, -0.5 },
+				{ -0.2, 1.0 } });
+		assertArrayEquals(java.solve(a, 1, 1.0),
+				solver.solve(a, 1, 1.0), 1e-10);
+		solver.dispose();
+	}
+}
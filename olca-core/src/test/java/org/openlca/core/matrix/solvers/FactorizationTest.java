@@ -0,0 +1,67 @@
+package org.openlca.core.matrix.solvers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.openlca.core.matrix.format.HashPointMatrix;
+import org.openlca.core.matrix.format.IMatrix;
+
+public class FactorizationTest {
+
+	private final double[][] values = {
+			{ 2.0, 3.0, 0.0, 0.0, 0.0 },
+			{ 3.0, 0.0, 4.0, 0.0, 6.0 },
+			{ 0.0, -1.0, -3.0, 2.0, 0.0 },
+			{ 0.0, 0.0, 1.0, 0.0, 0.0 },
+			{ 0.0, 4.0, 2.0, 0.0, 1.0 } };
+
+	@Test
+	public void testJavaSolver() {
+		IMatrixSolver solver = new JavaSolver();
+		IMatrix a = solver.matrix(5, 5);
+		a.setValues(values);
+		check(solver, a);
+	}
+
+	@Test
+	public void testDefaultFactorization() {
+		// a solver that does not overwrite the `factorize` method
+		IMatrixSolver java = new JavaSolver();
+		IMatrixSolver solver = new IMatrixSolver() {
+
+			@Override
+			public IMatrix matrix(int rows, int columns) {
+				return new HashPointMatrix(rows, columns);
+			}
+
+			@Override
+			public double[] solve(IMatrix a, int idx, double d) {
+				return java.solve(a, idx, d);
+			}
+
+			@Override
+			public IMatrix invert(IMatrix a) {
+				return java.invert(a);
+			}
+		};
+		IMatrix a = new HashPointMatrix(values);
+		check(solver, a);
+	}
+
+	private void check(IMatrixSolver solver, IMatrix a) {
+		Factorization lu = solver.factorize(a);
+		assertEquals(5, lu.size());
+
+		// solve for multiple right-hand sides
+		double[] b = { 8., 45., -3., 3., 19. };
+		double[] x = lu.solve(b);
+		assertArrayEquals(new double[] { 1d, 2d, 3d, 4d, 5d }, x, 1e-8);
+		assertArrayEquals(new double[] { 8., 45., -3., 3., 19. }, b, 0);
+		for (int i = 0; i < 5; i++) {
+			double[] expected = solver.solve(a, i, 2.0);
+			assertArrayEquals(expected, lu.solve(i, 2.0), 1e-10);
+		}
+		lu.dispose();
+	}
+}
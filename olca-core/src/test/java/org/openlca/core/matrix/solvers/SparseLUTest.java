@@ -0,0 +1,80 @@
+package org.openlca.core.matrix.solvers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.openlca.core.matrix.format.CSCMatrix;
+import org.openlca.core.matrix.format.HashPointMatrix;
+import org.openlca.core.matrix.format.IMatrix;
+
+public class SparseLUTest {
+
+	@Test
+	public void testTechMatrix() {
+		// a random technology matrix with positive outputs on the diagonal
+		// and some inputs of other products
+		int n = 300;
+		Random random = new Random(42);
+		HashPointMatrix a = new HashPointMatrix(n, n);
+		for (int col = 0; col < n; col++) {
+			a.set(col, col, 1 + random.nextDouble());
+			for (int k = 0; k < 4; k++) {
+				int row = random.nextInt(n);
+				if (row != col) {
+					a.set(row, col, -0.1 * random.nextDouble());
+				}
+			}
+		}
+		check(a);
+	}
+
+	@Test
+	public void testPivoting() {
+		// a matrix with zeros on the diagonal
+		HashPointMatrix a = new HashPointMatrix(new double[][] {
+				{ 0.0, 2.0, 0.0, 1.0 },
+				{ 3.0, 0.0, 0.0, 0.0 },
+				{ 0.0, 1.0, 0.0, 4.0 },
+				{ 1.0, 0.0, 5.0, 0.0 } });
+		check(a);
+	}
+
+	@Test(expected = ArithmeticException.class)
+	public void testSingular() {
+		HashPointMatrix a = new HashPointMatrix(new double[][] {
+				{ 1.0, 2.0, 0.0 },
+				{ 2.0, 4.0, 0.0 },
+				{ 0.0, 0.0, 1.0 } });
+		SparseLU.of(CSCMatrix.of(a));
+	}
+
+	@Test
+	public void testSolver() {
+		IMatrixSolver solver = new SparseLUSolver();
+		IMatrix a = solver.matrix(3, 3);
+		a.setValues(new double[][] {
+				{ 1.0, -0.5, 0.0 },
+				{ 0.0, 1.0, -0.2 },
+				{ -0.1, 0.0, 1.0 } });
+		IMatrix inverse = solver.invert(a);
+		IMatrix id = solver.multiply(a, inverse);
+		for (int row = 0; row < 3; row++) {
+			for (int col = 0; col < 3; col++) {
+				assertEquals(row == col ? 1 : 0, id.get(row, col), 1e-12);
+			}
+		}
+	}
+
+	private void check(IMatrix a) {
+		JavaSolver java = new JavaSolver();
+		SparseLU lu = SparseLU.of(CSCMatrix.of(a));
+		int n = a.rows();
+		assertEquals(n, lu.size());
+		for (int i = 0; i < n; i += Math.max(1, n / 10)) {
+			assertArrayEquals(java.solve(a, i, 2.0), lu.solve(i, 2.0), 1e-10);
+		}
+	}
+}
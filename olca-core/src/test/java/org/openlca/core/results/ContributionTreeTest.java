@@ -52,6 +52,79 @@ public class ContributionTreeTest {
 		Assert.assertEquals(0.5, tree.childs(tree.root).get(1).result, 1e-16);
 	}
 
+	@Test
+	public void testExpandLoop() {
+		MatrixData data = new MatrixData();
+		TechIndex techIndex = new TechIndex(provider(1, 1));
+		techIndex.put(provider(2, 2));
+		techIndex.putLink(LongPair.of(1, 2), provider(2, 2));
+		techIndex.putLink(LongPair.of(2, 1), provider(1, 1));
+		data.techIndex = techIndex;
+
+		FlowIndex enviIndex = FlowIndex.create();
+		FlowDescriptor outFlow = new FlowDescriptor();
+		outFlow.id = 3;
+		enviIndex.putOutput(outFlow);
+		data.flowIndex = enviIndex;
+
+		data.techMatrix = Tests.getDefaultSolver().matrix(2, 2);
+		data.techMatrix.setValues(new double[][] {
+				{ 1, -0.5 },
+				{ -0.5, 1 } });
+		data.enviMatrix = Tests.getDefaultSolver().matrix(1, 2);
+		data.enviMatrix.setValues(new double[][] { { 1, 1 } });
+		FullResult r = new LcaCalculator(
+				Tests.getDefaultSolver(), data).calculateFull();
+
+		// the tree of a loop is infinite; thus, the expansion must stop at
+		// the maximum depth
+		UpstreamTree tree = r.getTree(enviIndex.at(0));
+		tree.expand(0, 5);
+		int[] maxDepth = { 0 };
+		int[] count = { 0 };
+		tree.each((node, depth) -> {
+			count[0]++;
+			maxDepth[0] = Math.max(maxDepth[0], depth);
+			Assert.assertEquals(depth % 2 == 0 ? 0 : 1, node.index);
+		});
+		Assert.assertEquals(5, maxDepth[0]);
+		Assert.assertEquals(6, count[0]);
+
+		// and at the cutoff
+		tree = r.getTree(enviIndex.at(0));
+		tree.expand(0.1, 0);
+		double threshold = 0.1 * Math.abs(tree.root.result);
+		count[0] = 0;
+		tree.each((node, depth) -> {
+			count[0]++;
+			if (node.childs != null && !node.childs.isEmpty()) {
+				Assert.assertTrue(Math.abs(node.result) >= threshold);
+			}
+		});
+		Assert.assertTrue(count[0] > 2);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnboundedExpand() {
+		singleProcessTree().expand(0, 0);
+	}
+
+	private UpstreamTree singleProcessTree() {
+		MatrixData data = new MatrixData();
+		data.techIndex = new TechIndex(provider(1, 1));
+		data.flowIndex = FlowIndex.create();
+		FlowDescriptor outFlow = new FlowDescriptor();
+		outFlow.id = 3;
+		data.flowIndex.putOutput(outFlow);
+		data.techMatrix = Tests.getDefaultSolver().matrix(1, 1);
+		data.techMatrix.set(0, 0, 1);
+		data.enviMatrix = Tests.getDefaultSolver().matrix(1, 1);
+		data.enviMatrix.set(0, 0, 1);
+		FullResult r = new LcaCalculator(
+				Tests.getDefaultSolver(), data).calculateFull();
+		return r.getTree(data.flowIndex.at(0));
+	}
+
 	private ProcessProduct provider(long id, long flowId) {
 		ProcessDescriptor process = new ProcessDescriptor();
 		process.name = "Process " + id;
@@ -2,6 +2,8 @@ package org.openlca.core.results;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.Random;
+
 import org.junit.Test;
 import org.openlca.core.results.Statistics.Histogram;
 
@@ -60,4 +62,54 @@ public class StatisticsTest {
 		assertEquals(0d, stats.max, 1e-16);
 		assertEquals(0d, stats.standardDeviation, 1e-16);
 	}
+
+	@Test
+	public void testOnlineStatistics() {
+		Random random = new Random(42);
+		double[] values = new double[10_000];
+		OnlineStatistics online = new OnlineStatistics();
+		for (int i = 0; i < values.length; i++) {
+			values[i] = random.nextGaussian();
+			online.add(values[i]);
+		}
+		Statistics exact = Statistics.of(values);
+		Statistics stats = Statistics.of(online);
+		assertEquals(exact.count, stats.count);
+		assertEquals(exact.min, stats.min, 1e-16);
+		assertEquals(exact.max, stats.max, 1e-16);
+		assertEquals(exact.mean, stats.mean, 1e-12);
+		assertEquals(exact.standardDeviation, stats.standardDeviation, 1e-12);
+		assertEquals(exact.median, stats.median, 0.05);
+		assertEquals(exact.getPercentileValue(5),
+				stats.getPercentileValue(5), 0.05);
+		assertEquals(exact.getPercentileValue(95),
+				stats.getPercentileValue(95), 0.05);
+
+		Histogram hist = stats.hist(10);
+		int sum = 0;
+		for (int i = 0; i < 10; i++) {
+			sum += hist.getAbsoluteFrequency(i);
+		}
+		assertEquals(10_000, sum);
+	}
+
+	@Test
+	public void testSmallOnlineStatistics() {
+		OnlineStatistics online = new OnlineStatistics();
+		for (double v : new double[] { 3d, 1d, 2d }) {
+			online.add(v);
+		}
+		Statistics stats = Statistics.of(online);
+		assertEquals(3, stats.count);
+		assertEquals(2, stats.mean, 1e-16);
+		assertEquals(2, stats.median, 1e-16);
+		assertEquals(1, stats.standardDeviation, 1e-16);
+
+		Histogram hist = stats.hist(3);
+		assertEquals(1, hist.getAbsoluteFrequency(0));
+		assertEquals(1, hist.getAbsoluteFrequency(1));
+		assertEquals(1, hist.getAbsoluteFrequency(2));
+
+		assertEquals(0, Statistics.of(new OnlineStatistics()).count);
+	}
 }
@@ -0,0 +1,69 @@
+package org.openlca.core.results.simulation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.openlca.core.results.Statistics;
+
+public class SimulationStoreTest {
+
+	@Test
+	public void testInMemory() {
+		check(SimulationStore.create(SimulationStorage.IN_MEMORY));
+	}
+
+	@Test
+	public void testMemoryMapped() {
+		check(SimulationStore.create(SimulationStorage.MEMORY_MAPPED));
+	}
+
+	@Test
+	public void testOnlineStatistics() {
+		SimulationStore store = SimulationStore.create(
+				SimulationStorage.ONLINE_STATISTICS);
+		fill(store);
+		assertEquals(100, store.runs());
+		checkStatistics(store);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testNoRunValues() {
+		SimulationStore store = SimulationStore.create(
+				SimulationStorage.ONLINE_STATISTICS);
+		fill(store);
+		store.getAll(0);
+	}
+
+	private void check(SimulationStore store) {
+		fill(store);
+		assertEquals(100, store.runs());
+		for (int run = 0; run < 100; run++) {
+			assertEquals(run, store.get(run, 0), 0);
+			assertEquals(2 * run, store.get(run, 1), 0);
+		}
+		assertEquals(0, store.get(100, 0), 0);
+		assertEquals(0, store.get(0, 3), 0);
+		double[] column = store.getAll(1);
+		assertEquals(100, column.length);
+		assertEquals(198, column[99], 0);
+		assertArrayEquals(new double[100], store.getAll(3), 0);
+		checkStatistics(store);
+		store.dispose();
+	}
+
+	private void fill(SimulationStore store) {
+		for (int run = 0; run < 100; run++) {
+			store.append(new double[] { run, 2 * run, 42 });
+		}
+	}
+
+	private void checkStatistics(SimulationStore store) {
+		Statistics stats = store.statistics(0);
+		assertEquals(100, stats.count);
+		assertEquals(0, stats.min, 0);
+		assertEquals(99, stats.max, 0);
+		assertEquals(49.5, stats.mean, 1e-10);
+		assertEquals(42, store.statistics(2).mean, 1e-10);
+	}
+}
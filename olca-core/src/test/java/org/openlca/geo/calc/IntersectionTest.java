@@ -1,6 +1,8 @@
 package org.openlca.geo.calc;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -9,6 +11,7 @@ import org.openlca.geo.geojson.FeatureCollection;
 import org.openlca.geo.geojson.Geometry;
 import org.openlca.geo.geojson.LineString;
 import org.openlca.geo.geojson.Point;
+import org.openlca.geo.geojson.Polygon;
 import org.openlca.util.Pair;
 
 public class IntersectionTest {
@@ -59,6 +62,61 @@ public class IntersectionTest {
 		b.points.add(new Point(85, 40));
 	}
 
+	@Test
+	public void testGridShares() {
+		// a 10x10 grid of unit squares
+		FeatureCollection grid = new FeatureCollection();
+		for (int x = 0; x < 10; x++) {
+			for (int y = 0; y < 10; y++) {
+				Feature f = new Feature();
+				f.geometry = square(x, y, 1);
+				grid.features.add(f);
+			}
+		}
+		IntersectionCalculator calc = IntersectionCalculator.on(grid);
+
+		// a square that covers a quarter of 4 cells
+		List<Pair<Feature, Double>> shares = calc.shares(
+				square(2.5, 2.5, 1));
+		Assert.assertEquals(4, shares.size());
+		for (Pair<Feature, Double> share : shares) {
+			Assert.assertEquals(1.0, share.second, 1e-10);
+		}
 
+		// outside of the grid
+		Assert.assertTrue(calc.shares(square(20, 20, 1)).isEmpty());
 
+		// the batch calculation gives the same results
+		Map<String, Geometry> geometries = new HashMap<>();
+		geometries.put("inside", square(2.5, 2.5, 1));
+		geometries.put("corner", square(9.5, 9.5, 1));
+		geometries.put("outside", square(20, 20, 1));
+		Map<String, List<Pair<Feature, Double>>> batch = calc.shares(
+				geometries);
+		Assert.assertEquals(3, batch.size());
+		for (String key : geometries.keySet()) {
+			List<Pair<Feature, Double>> expected = calc.shares(
+					geometries.get(key));
+			List<Pair<Feature, Double>> actual = batch.get(key);
+			Assert.assertEquals(expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++) {
+				Assert.assertSame(expected.get(i).first, actual.get(i).first);
+				Assert.assertEquals(expected.get(i).second,
+						actual.get(i).second, 1e-10);
+			}
+		}
+		Assert.assertEquals(1, batch.get("corner").size());
+	}
+
+	private Polygon square(double x, double y, double size) {
+		LineString ring = new LineString();
+		ring.points.add(new Point(x, y));
+		ring.points.add(new Point(x + size, y));
+		ring.points.add(new Point(x + size, y + size));
+		ring.points.add(new Point(x, y + size));
+		ring.points.add(new Point(x, y));
+		Polygon polygon = new Polygon();
+		polygon.rings.add(ring);
+		return polygon;
+	}
 }
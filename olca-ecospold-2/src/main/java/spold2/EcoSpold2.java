@@ -1,6 +1,5 @@
 package spold2;
 
-import javax.xml.bind.JAXB;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 import java.io.File;
@@ -37,7 +36,7 @@ public class EcoSpold2 {
 
 	public static EcoSpold2 read(InputStream is) {
 		try {
-			return JAXB.unmarshal(is, EcoSpold2.class);
+			return IO.read(is, EcoSpold2.class);
 		} catch (Exception e) {
 			String m = "failed to read EcoSpold 2 document";
 			throw new RuntimeException(m, e);
@@ -60,7 +59,7 @@ public class EcoSpold2 {
 		try {
 			EcoSpold2 spold2 = new EcoSpold2();
 			spold2.dataSet = dataSet;
-			JAXB.marshal(spold2, out);
+			IO.write(spold2, out);
 		} catch (Exception e) {
 			String m = "failed to write data set";
 			throw new RuntimeException(m, e);
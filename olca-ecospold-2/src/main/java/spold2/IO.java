@@ -5,11 +5,34 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
 
-import javax.xml.bind.JAXB;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+import javax.xml.transform.stream.StreamSource;
 
+/**
+ * Reads and writes EcoSpold 2 documents. Creating a JAXB context is expensive,
+ * thus the contexts are created once per type and shared. A context is
+ * thread-safe, so the methods of this class can be called from multiple
+ * threads in parallel; the (cheap) marshallers and unmarshallers are created
+ * for each call as they are not thread-safe.
+ */
 public class IO {
 
+	private static final ConcurrentHashMap<Class<?>, JAXBContext> contexts = new ConcurrentHashMap<>();
+
+	private static JAXBContext context(Class<?> type) {
+		return contexts.computeIfAbsent(type, t -> {
+			try {
+				return JAXBContext.newInstance(t);
+			} catch (Exception e) {
+				throw new RuntimeException(
+						"failed to create JAXB context for " + t, e);
+			}
+		});
+	}
+
 	public static <T> T read(File file, Class<T> type) {
 		try (FileInputStream stream = new FileInputStream(file)) {
 			return read(stream, type);
@@ -21,7 +44,9 @@ public class IO {
 
 	public static <T> T read(InputStream is, Class<T> type) {
 		try {
-			return JAXB.unmarshal(is, type);
+			var unmarshaller = context(type).createUnmarshaller();
+			return unmarshaller.unmarshal(new StreamSource(is), type)
+					.getValue();
 		} catch (Exception e) {
 			String m = "failed to read stream";
 			throw new RuntimeException(m, e);
@@ -39,7 +64,9 @@ public class IO {
 
 	public static void write(Object obj, OutputStream out) {
 		try {
-			JAXB.marshal(obj, out);
+			var marshaller = context(obj.getClass()).createMarshaller();
+			marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+			marshaller.marshal(obj, out);
 		} catch (Exception e) {
 			String m = "failed to write data";
 			throw new RuntimeException(m, e);
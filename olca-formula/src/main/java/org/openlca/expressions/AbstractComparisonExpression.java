@@ -31,4 +31,40 @@ abstract class AbstractComparisonExpression extends AbstractExpression {
 	public Class<?> getResultType() {
 		return Boolean.class;
 	}
+
+	@Override
+	public Object evaluate(Scope context) throws ExpressionException {
+		return evaluateBoolean(context);
+	}
+
+	@Override
+	public boolean evaluateBoolean(Scope context) throws ExpressionException {
+		Expression a = arguments.get(0);
+		Expression b = arguments.get(1);
+		if (a.getResultType() == Double.class
+				&& b.getResultType() == Double.class) {
+			return test(Double.compare(
+					a.evaluateDouble(context),
+					b.evaluateDouble(context)));
+		}
+		Object value1 = a.evaluate(context);
+		Object value2 = b.evaluate(context);
+		if (value1 instanceof Double && value2 instanceof Double)
+			return test(Double.compare((Double) value1, (Double) value2));
+		return compare(value1, value2);
+	}
+
+	/**
+	 * Tests the result of the comparison of two values, e.g. `c < 0` for the
+	 * less-than operator.
+	 */
+	protected abstract boolean test(int c);
+
+	/**
+	 * Compares values that are not both numbers.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	protected boolean compare(Object value1, Object value2) {
+		return test(((Comparable) value1).compareTo(value2));
+	}
 }
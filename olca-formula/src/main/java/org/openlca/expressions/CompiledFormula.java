@@ -0,0 +1,94 @@
+package org.openlca.expressions;
+
+import java.io.StringReader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A formula that was parsed and checked once and can be then evaluated
+ * multiple times in different scopes. A compiled formula is immutable and thus
+ * can be shared between threads (note that this is not the case for the
+ * scopes in which it is evaluated).
+ *
+ * Compiled formulas are cached by their expression text, so that the same
+ * expression is only parsed once, also when it is evaluated via
+ * `Scope.eval(String)`.
+ */
+public final class CompiledFormula {
+
+	/**
+	 * The maximum number of formulas in the cache. The cache is cleared when
+	 * it is full; as formulas are cheap to compile again, we do not need a
+	 * smarter eviction strategy here.
+	 */
+	private static final int MAX_CACHE_SIZE = 100_000;
+
+	private static final ConcurrentHashMap<String, CompiledFormula> cache = new ConcurrentHashMap<>();
+
+	private final String expression;
+	private final Expression root;
+
+	private CompiledFormula(String expression, Expression root) {
+		this.expression = expression;
+		this.root = root;
+	}
+
+	/**
+	 * Returns the compiled formula of the given expression from the cache or
+	 * parses the expression if it is not cached yet.
+	 */
+	static CompiledFormula of(String expression) throws Exception {
+		var formula = cache.get(expression);
+		if (formula != null)
+			return formula;
+		var reader = new StringReader(expression.toLowerCase());
+		var parser = new FormulaParser(reader);
+		parser.parse();
+		var root = parser.getExpression();
+		root.check();
+		formula = new CompiledFormula(expression, root);
+		if (cache.size() >= MAX_CACHE_SIZE) {
+			cache.clear();
+		}
+		cache.put(expression, formula);
+		return formula;
+	}
+
+	/**
+	 * Removes all compiled formulas from the cache.
+	 */
+	public static void clearCache() {
+		cache.clear();
+	}
+
+	/**
+	 * Returns the expression text of this formula.
+	 */
+	public String expression() {
+		return expression;
+	}
+
+	/**
+	 * Evaluates this formula in the given scope. This is the same as calling
+	 * `scope.eval(formula)`.
+	 */
+	public double eval(Scope scope) throws InterpreterException {
+		return scope.eval(this);
+	}
+
+	/**
+	 * Evaluates the formula without resetting the variable values of the
+	 * scope; this is used for nested evaluations of variables.
+	 */
+	double evaluate(Scope scope) throws Exception {
+		if (root.getResultType() != null
+				&& root.getResultType() != Double.class)
+			throw new InterpreterException("The expression " + expression
+					+ " does not evaluate to a number.");
+		return root.evaluateDouble(scope);
+	}
+
+	@Override
+	public String toString() {
+		return expression;
+	}
+}
@@ -4,6 +4,7 @@ package org.openlca.expressions;
 class DecimalConstantFunction implements Expression {
 
 	protected Double value;
+	private final double primitive;
 
 	protected String position;
 
@@ -11,6 +12,7 @@ class DecimalConstantFunction implements Expression {
 
 	public DecimalConstantFunction(Double value) {
 		this.value = value;
+		this.primitive = value;
 	}
 
 	@Override
@@ -28,6 +30,11 @@ class DecimalConstantFunction implements Expression {
 		return value;
 	}
 
+	@Override
+	public double evaluateDouble(Scope context) {
+		return primitive;
+	}
+
 	@Override
 	public void check() throws ExpressionException {
 	}
@@ -8,6 +8,32 @@ public interface Expression {
 
 	public Object evaluate(Scope context) throws ExpressionException;
 
+	/**
+	 * Evaluates the expression to a primitive double value. Numeric
+	 * expressions override this method so that no intermediate results need
+	 * to be boxed.
+	 */
+	default double evaluateDouble(Scope context) throws ExpressionException {
+		Object value = evaluate(context);
+		if (value instanceof Double)
+			return (Double) value;
+		throw new ExpressionException(getName()
+				+ " does not evaluate to a number", getLine(), getColumn());
+	}
+
+	/**
+	 * Evaluates the expression to a primitive boolean value. Boolean
+	 * expressions override this method so that no intermediate results need
+	 * to be boxed.
+	 */
+	default boolean evaluateBoolean(Scope context) throws ExpressionException {
+		Object value = evaluate(context);
+		if (value instanceof Boolean)
+			return (Boolean) value;
+		throw new ExpressionException(getName()
+				+ " does not evaluate to a boolean", getLine(), getColumn());
+	}
+
 	public void check() throws ExpressionException;
 
 	public Class<?> getResultType();
@@ -28,6 +28,23 @@ public class FormulaInterpreter {
 		return globalScope.eval(expression);
 	}
 
+	/**
+	 * Parses and checks the given expression and returns a compiled formula
+	 * that can be evaluated multiple times in different scopes of this (or
+	 * another) interpreter without parsing it again.
+	 */
+	public CompiledFormula compile(String expression)
+			throws InterpreterException {
+		if (expression == null)
+			throw new InterpreterException("The expression is null");
+		try {
+			return CompiledFormula.of(expression);
+		} catch (Throwable e) {
+			throw new InterpreterException("Compilation of expression "
+					+ expression + " failed: " + e.getMessage(), e);
+		}
+	}
+
 	/**
 	 * Binds the given variable to the given expression in the global scope of the
 	 * interpreter.
@@ -4,10 +4,14 @@ class OpDivision extends AbstractNumericOperator {
 
 	@Override
 	public Object evaluate(Scope context) throws ExpressionException {
-		Double result = (Double) arguments.get(0).evaluate(context);
+		return evaluateDouble(context);
+	}
+
+	@Override
+	public double evaluateDouble(Scope context) throws ExpressionException {
+		double result = arguments.get(0).evaluateDouble(context);
 		for (int i = 1; i < arguments.size(); i++) {
-			Expression function = arguments.get(i);
-			Double denom = (Double) function.evaluate(context);
+			double denom = arguments.get(i).evaluateDouble(context);
 			if (denom == 0)
 				throw new ExpressionException("Cannot divide by 0");
 			result = result / denom;
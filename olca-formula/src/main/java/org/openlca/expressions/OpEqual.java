@@ -4,12 +4,13 @@ package org.openlca.expressions;
 class OpEqual extends AbstractComparisonExpression {
 
 	@Override
-	public Object evaluate(Scope context) throws ExpressionException {
-		Object value1 = arguments.get(0).evaluate(context);
-		Object value2 = arguments.get(1).evaluate(context);
-		if (value1.equals(value2))
-			return Boolean.TRUE;
-		return Boolean.FALSE;
+	protected boolean test(int c) {
+		return c == 0;
+	}
+
+	@Override
+	protected boolean compare(Object value1, Object value2) {
+		return value1.equals(value2);
 	}
 
 	@Override
@@ -4,9 +4,14 @@ public class OpExponentiation extends AbstractExpression {
 
 	@Override
 	public Object evaluate(Scope context) throws ExpressionException {
-		Double result1 = (Double) arguments.get(0).evaluate(context);
-		Double result2 = (Double) arguments.get(1).evaluate(context);
-		return Math.pow(result1, result2);
+		return evaluateDouble(context);
+	}
+
+	@Override
+	public double evaluateDouble(Scope context) throws ExpressionException {
+		return Math.pow(
+				arguments.get(0).evaluateDouble(context),
+				arguments.get(1).evaluateDouble(context));
 	}
 
 	@Override
@@ -4,13 +4,8 @@ package org.openlca.expressions;
 class OpLessThan extends AbstractComparisonExpression {
 
 	@Override
-	@SuppressWarnings({ "rawtypes", "unchecked" })
-	public Object evaluate(Scope context) throws ExpressionException {
-		Comparable value1 = (Comparable) arguments.get(0).evaluate(context);
-		Comparable value2 = (Comparable) arguments.get(1).evaluate(context);
-		if (value1.compareTo(value2) < 0)
-			return Boolean.TRUE;
-		return Boolean.FALSE;
+	protected boolean test(int c) {
+		return c < 0;
 	}
 
 	@Override
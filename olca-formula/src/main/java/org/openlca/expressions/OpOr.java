@@ -1,23 +1,19 @@
 // ported from the xReporter project
 package org.openlca.expressions;
 
-import java.util.Iterator;
-
 class OpOr extends AbstractExpression {
 	@Override
 	public Object evaluate(Scope context) throws ExpressionException {
-		boolean result = false;
-		Iterator<?> argIt = arguments.iterator();
-		while (argIt.hasNext()) {
-			result = result
-					|| ((Boolean) ((Expression) argIt.next()).evaluate(context))
-							.booleanValue();
-			if (result)
-				return Boolean.TRUE;
+		return evaluateBoolean(context);
+	}
+
+	@Override
+	public boolean evaluateBoolean(Scope context) throws ExpressionException {
+		for (Expression arg : arguments) {
+			if (arg.evaluateBoolean(context))
+				return true;
 		}
-		if (result)
-			return Boolean.TRUE;
-		return Boolean.FALSE;
+		return false;
 	}
 
 	@Override
@@ -4,7 +4,12 @@ class OpUnaryMinus extends AbstractExpression {
 
 	@Override
 	public Object evaluate(Scope context) throws ExpressionException {
-		return -((Double) arguments.get(0).evaluate(context));
+		return evaluateDouble(context);
+	}
+
+	@Override
+	public double evaluateDouble(Scope context) throws ExpressionException {
+		return -arguments.get(0).evaluateDouble(context);
 	}
 
 	@Override
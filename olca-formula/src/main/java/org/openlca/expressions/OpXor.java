@@ -4,9 +4,13 @@ class OpXor extends AbstractExpression {
 
 	@Override
 	public Object evaluate(Scope context) throws ExpressionException {
-		Boolean b1 = (Boolean) arguments.get(0).evaluate(context);
-		Boolean b2 = (Boolean) arguments.get(1).evaluate(context);
-		return b1.booleanValue() != b2.booleanValue();
+		return evaluateBoolean(context);
+	}
+
+	@Override
+	public boolean evaluateBoolean(Scope context) throws ExpressionException {
+		return arguments.get(0).evaluateBoolean(context)
+				!= arguments.get(1).evaluateBoolean(context);
 	}
 
 	@Override
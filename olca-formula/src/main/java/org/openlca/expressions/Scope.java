@@ -1,19 +1,40 @@
 package org.openlca.expressions;
 
-import java.io.StringReader;
+import java.util.ArrayDeque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * A scope contains bindings of variable names to expressions. Each scope has a
  * reference to a parent scope except of the global scope. An expression can be
  * evaluated in a scope.
  *
+ * The values of variables that are bound to expressions are cached between
+ * evaluations. While a variable is evaluated, the variables it depends on are
+ * recorded (also across scopes) so that the variables form a dependency graph.
+ * When a variable is re-bound, only the variables that depend directly or
+ * indirectly on it are invalidated and re-calculated on their next use. A
+ * scope is not thread-safe.
  */
 public final class Scope {
 
 	private final Scope parent;
+	private final Scope root;
 	private final HashMap<String, Variable> variables = new HashMap<>();
-	private final HashMap<String, Integer> evaluationCalls = new HashMap<>();
+
+	/**
+	 * The stack of variables that are currently evaluated. This is only used
+	 * in the root (global) scope and shared by all scopes of an interpreter.
+	 */
+	private final ArrayDeque<Variable> stack;
+
+	/**
+	 * The variables that were resolved to constants, by constant name. Like
+	 * the stack, this is only used in the root scope. These variables need to
+	 * be invalidated when a variable with the name of the constant is bound.
+	 */
+	private final HashMap<String, Set<Variable>> constantDependents;
 
 	Scope() {
 		this(null);
@@ -21,6 +42,15 @@ public final class Scope {
 
 	Scope(Scope parent) {
 		this.parent = parent;
+		if (parent == null) {
+			root = this;
+			stack = new ArrayDeque<>();
+			constantDependents = new HashMap<>();
+		} else {
+			root = parent.root;
+			stack = null;
+			constantDependents = null;
+		}
 	}
 
 	/**
@@ -30,8 +60,19 @@ public final class Scope {
 		if (variable == null)
 			return;
 		var symbol = variable.toLowerCase().trim();
-		var v = new Variable(symbol, value);
-		variables.put(symbol, v);
+		var v = variables.get(symbol);
+		if (v == null) {
+			onNewVariable(symbol);
+			variables.put(symbol, new Variable(symbol, value));
+			return;
+		}
+		if (v.formula == null && v.value instanceof Double
+				&& (Double) v.value == value)
+			return;
+		v.formula = null;
+		v.expression = null;
+		v.value = value;
+		v.invalidateDependents();
 	}
 
 	/**
@@ -41,48 +82,56 @@ public final class Scope {
 		if (variable == null || expression == null)
 			return;
 		var symbol = variable.toLowerCase().trim();
-		var v = new Variable(symbol, expression);
-		variables.put(symbol, v);
+		var v = variables.get(symbol);
+		if (v == null) {
+			onNewVariable(symbol);
+			variables.put(symbol, new Variable(symbol, expression));
+			return;
+		}
+		if (expression.equals(v.expression))
+			return;
+		v.formula = null;
+		v.expression = expression;
+		v.value = null;
+		v.invalidateDependents();
 	}
 
 	/**
 	 * Removes all variable bindings from the scope.
 	 */
 	public void clear() {
+		for (Variable v : variables.values()) {
+			v.invalidateDependents();
+		}
 		variables.clear();
-		evaluationCalls.clear();
+		if (this == root) {
+			stack.clear();
+			constantDependents.clear();
+		}
 	}
 
 	/**
 	 * Evaluates the given expression in this scope.
 	 */
 	public double eval(String expression) throws InterpreterException {
-		// reset the evaluation calls and values for variables
-		evaluationCalls.clear();
-		for (Variable variable : variables.values()) {
-			if (variable.expression != null) {
-				variable.value = null;
-			}
-		}
 		try {
-			return tryEval(expression);
+			return CompiledFormula.of(expression).evaluate(this);
 		} catch (Throwable e) {
 			throw new InterpreterException("Evaluation of expression "
 					+ expression + " failed: " + e.getMessage(), e);
 		}
 	}
 
-	private double tryEval(String expression) throws Exception {
-		var reader = new StringReader(expression.toLowerCase());
-		var parser = new FormulaParser(reader);
-		parser.parse();
-		var e = parser.getExpression();
-		e.check();
-		var result = e.evaluate(this);
-		if (result instanceof Double)
-			return (Double) result;
-		throw new InterpreterException("The expression " + expression
-				+ " does not evaluate to a number.");
+	/**
+	 * Evaluates the given compiled formula in this scope.
+	 */
+	public double eval(CompiledFormula formula) throws InterpreterException {
+		try {
+			return formula.evaluate(this);
+		} catch (Throwable e) {
+			throw new InterpreterException("Evaluation of expression "
+					+ formula.expression() + " failed: " + e.getMessage(), e);
+		}
 	}
 
 	public Object resolveVariable(String name) throws InterpreterException {
@@ -91,39 +140,86 @@ public final class Scope {
 		var symbol = name.trim().toLowerCase();
 		var v = variables.get(symbol);
 		if (v != null) {
-			// variable is bound in this scope
+			// variable is bound in this scope; the variable that is currently
+			// evaluated (if any) depends on it
+			var current = root.stack.peek();
+			if (current != null) {
+				v.dependents.add(current);
+			}
 			return v.isEvaluated()
 					? v.value
 					: eval(v);
 		}
-		// search in parent scope or constants
-		return parent != null
-				? parent.resolveVariable(symbol)
-				: Constants.get(name);
+		if (parent != null)
+			return parent.resolveVariable(symbol);
+		var constant = Constants.get(symbol);
+		var current = stack.peek();
+		if (constant != null && current != null) {
+			constantDependents
+					.computeIfAbsent(symbol, k -> new HashSet<>())
+					.add(current);
+		}
+		return constant;
 	}
 
 	private Object eval(Variable var) throws InterpreterException {
-		Integer call = evaluationCalls.get(var.name);
-		if (call != null && call > 0)
+		if (var.evaluating)
 			throw new InterpreterException(
 					"Second evaluation call on variable "
 							+ var.name + ". Cyclic dependencies?");
-		evaluationCalls.put(var.name, 1);
+		var.evaluating = true;
+		root.stack.push(var);
 		try {
-			var.value = tryEval(var.expression);
+			if (var.formula == null) {
+				var.formula = CompiledFormula.of(var.expression);
+			}
+			var.value = var.formula.evaluate(this);
 			return var.value;
 		} catch (Throwable e) {
 			throw new InterpreterException("Evaluation of variable "
 					+ var.name + " failed: " + e.getMessage(), e);
+		} finally {
+			root.stack.pop();
+			var.evaluating = false;
+		}
+	}
+
+	/**
+	 * A new variable with the given name shadows a variable with the same name
+	 * in a parent scope or a constant. Thus, the variables that were resolved
+	 * to these need to be invalidated.
+	 */
+	private void onNewVariable(String symbol) {
+		var s = parent;
+		while (s != null) {
+			var shadowed = s.variables.get(symbol);
+			if (shadowed != null) {
+				shadowed.invalidateDependents();
+				return;
+			}
+			s = s.parent;
+		}
+		var dependents = root.constantDependents.remove(symbol);
+		if (dependents == null)
+			return;
+		for (var d : dependents) {
+			d.invalidate();
 		}
 	}
 
-	private class Variable {
+	private static class Variable {
 
 		final String name;
-		final String expression;
+		String expression;
+		CompiledFormula formula;
+		Object value;
+		boolean evaluating;
 
-		private Double value;
+		/**
+		 * The variables with expressions that directly depend on this
+		 * variable.
+		 */
+		final Set<Variable> dependents = new HashSet<>();
 
 		Variable(String name, String expression) {
 			this.name = name;
@@ -133,11 +229,42 @@ public final class Scope {
 		Variable(String name, double value) {
 			this.name = name;
 			this.value = value;
-			this.expression = null;
 		}
 
-		public boolean isEvaluated() {
+		boolean isEvaluated() {
 			return value != null;
 		}
+
+		/**
+		 * Resets the value of this variable if it is bound to an expression
+		 * and invalidates its dependents.
+		 */
+		void invalidate() {
+			if (expression == null || value == null)
+				return;
+			value = null;
+			invalidateDependents();
+		}
+
+		/**
+		 * Invalidates the variables that depend on this variable. A variable
+		 * that is already invalid is skipped, because its dependents were
+		 * invalidated together with it. Thus, only the sub-graph that is
+		 * affected by a change is visited.
+		 */
+		void invalidateDependents() {
+			if (dependents.isEmpty())
+				return;
+			var queue = new ArrayDeque<>(dependents);
+			dependents.clear();
+			while (!queue.isEmpty()) {
+				var next = queue.poll();
+				if (next.expression == null || next.value == null)
+					continue;
+				next.value = null;
+				queue.addAll(next.dependents);
+				next.dependents.clear();
+			}
+		}
 	}
 }
@@ -40,6 +40,24 @@ public class VariableFunction implements Expression {
 		return obj;
 	}
 
+	@Override
+	public double evaluateDouble(Scope context) throws ExpressionException {
+		Object obj = evaluate(context);
+		if (obj instanceof Double)
+			return (Double) obj;
+		throw new ExpressionException("Variable " + variableName
+				+ " is not a number", getLine(), getColumn());
+	}
+
+	@Override
+	public boolean evaluateBoolean(Scope context) throws ExpressionException {
+		Object obj = evaluate(context);
+		if (obj instanceof Boolean)
+			return (Boolean) obj;
+		throw new ExpressionException("Variable " + variableName
+				+ " is not a boolean", getLine(), getColumn());
+	}
+
 	@Override
 	public void check() throws ExpressionException {
 	}
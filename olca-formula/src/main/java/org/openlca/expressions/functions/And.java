@@ -1,9 +1,6 @@
 package org.openlca.expressions.functions;
 
-import java.util.Iterator;
-
 import org.openlca.expressions.AbstractExpression;
-import org.openlca.expressions.Expression;
 import org.openlca.expressions.ExpressionException;
 import org.openlca.expressions.Scope;
 
@@ -11,11 +8,14 @@ public class And extends AbstractExpression {
 
 	@Override
 	public Object evaluate(Scope context) throws ExpressionException {
+		return evaluateBoolean(context);
+	}
+
+	@Override
+	public boolean evaluateBoolean(Scope context) throws ExpressionException {
 		boolean result = true;
-		Iterator<Expression> it = arguments.iterator();
-		while (result && it.hasNext()) {
-			Boolean next = (Boolean) it.next().evaluate(context);
-			result = result & next;
+		for (int i = 0; result && i < arguments.size(); i++) {
+			result = result & arguments.get(i).evaluateBoolean(context);
 		}
 		return result;
 	}
@@ -11,6 +11,11 @@ class E extends AbstractExpression {
 		return Math.E;
 	}
 
+	@Override
+	public double evaluateDouble(Scope context) {
+		return Math.E;
+	}
+
 	@Override
 	public Class<?> getResultType() {
 		return Double.class;
@@ -10,8 +10,12 @@ abstract class Function1 extends AbstractExpression {
 
 	@Override
 	public Object evaluate(Scope context) throws ExpressionException {
-		double arg = (Double) arguments.get(0).evaluate(context);
-		return eval(arg);
+		return evaluateDouble(context);
+	}
+
+	@Override
+	public double evaluateDouble(Scope context) throws ExpressionException {
+		return eval(arguments.get(0).evaluateDouble(context));
 	}
 
 	@Override
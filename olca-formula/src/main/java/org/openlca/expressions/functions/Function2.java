@@ -10,9 +10,14 @@ abstract class Function2 extends AbstractExpression {
 
 	@Override
 	public Object evaluate(Scope context) throws ExpressionException {
-		double arg1 = (Double) arguments.get(0).evaluate(context);
-		double arg2 = (Double) arguments.get(1).evaluate(context);
-		return eval(arg1, arg2);
+		return evaluateDouble(context);
+	}
+
+	@Override
+	public double evaluateDouble(Scope context) throws ExpressionException {
+		return eval(
+				arguments.get(0).evaluateDouble(context),
+				arguments.get(1).evaluateDouble(context));
 	}
 
 	@Override
@@ -8,13 +8,19 @@ public class If extends AbstractExpression {
 
 	@Override
 	public Object evaluate(Scope context) throws ExpressionException {
-		boolean result = ((Boolean) arguments.get(0).evaluate(context))
-				.booleanValue();
+		boolean result = arguments.get(0).evaluateBoolean(context);
 		if (result)
 			return arguments.get(1).evaluate(context);
 		return arguments.get(2).evaluate(context);
 	}
 
+	@Override
+	public double evaluateDouble(Scope context) throws ExpressionException {
+		return arguments.get(0).evaluateBoolean(context)
+				? arguments.get(1).evaluateDouble(context)
+				: arguments.get(2).evaluateDouble(context);
+	}
+
 	@Override
 	public void check() throws ExpressionException {
 		checkArguments(new Class<?>[] { Boolean.class, Double.class,
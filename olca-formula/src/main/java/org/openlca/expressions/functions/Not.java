@@ -8,14 +8,14 @@ class Not extends AbstractExpression {
 
 	@Override
 	public Object evaluate(Scope context) throws ExpressionException {
+		return evaluateBoolean(context);
+	}
+
+	@Override
+	public boolean evaluateBoolean(Scope context) throws ExpressionException {
 		if (arguments == null || arguments.size() == 0)
 			return false;
-
-		boolean result = ((Boolean) arguments.get(0).evaluate(context))
-				.booleanValue();
-		if (result)
-			return Boolean.FALSE;
-		return Boolean.TRUE;
+		return !arguments.get(0).evaluateBoolean(context);
 	}
 
 	@Override
@@ -11,6 +11,11 @@ class Pi extends AbstractExpression {
 		return Math.PI;
 	}
 
+	@Override
+	public double evaluateDouble(Scope context) {
+		return Math.PI;
+	}
+
 	@Override
 	public Class<?> getResultType() {
 		return Double.class;
@@ -11,6 +11,11 @@ class Random extends AbstractExpression {
 		return Math.random();
 	}
 
+	@Override
+	public double evaluateDouble(Scope context) {
+		return Math.random();
+	}
+
 	@Override
 	public Class<?> getResultType() {
 		return Double.class;
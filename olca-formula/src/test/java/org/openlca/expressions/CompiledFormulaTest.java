@@ -0,0 +1,93 @@
+package org.openlca.expressions;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompiledFormulaTest {
+
+	@Test
+	public void testEvalInScopes() throws Exception {
+		var interpreter = new FormulaInterpreter();
+		interpreter.bind("a", 2);
+		var s1 = interpreter.createScope(1);
+		s1.bind("b", "a * 3");
+		var s2 = interpreter.createScope(2);
+		s2.bind("b", 10);
+
+		var formula = interpreter.compile("if(b > 5; a * b; -1)");
+		Assert.assertEquals(12, formula.eval(s1), 1e-16);
+		Assert.assertEquals(20, formula.eval(s2), 1e-16);
+		Assert.assertEquals(12, s1.eval(formula), 1e-16);
+
+		// changed bindings are considered in the next evaluation
+		interpreter.bind("a", 1);
+		Assert.assertEquals(-1, formula.eval(s1), 1e-16);
+		Assert.assertEquals(10, formula.eval(s2), 1e-16);
+	}
+
+	@Test
+	public void testCache() throws Exception {
+		var interpreter = new FormulaInterpreter();
+		var f1 = interpreter.compile("1 + 2 * 3");
+		var f2 = interpreter.compile("1 + 2 * 3");
+		Assert.assertSame(f1, f2);
+		Assert.assertEquals(7, f1.eval(interpreter.getGlobalScope()), 1e-16);
+	}
+
+	@Test(expected = InterpreterException.class)
+	public void testSyntaxError() throws Exception {
+		new FormulaInterpreter().compile("1 + * 3");
+	}
+
+	@Test(expected = InterpreterException.class)
+	public void testNoNumber() throws Exception {
+		var interpreter = new FormulaInterpreter();
+		var formula = interpreter.compile("1 < 2");
+		formula.eval(interpreter.getGlobalScope());
+	}
+
+	@Test
+	public void testPrimitiveComparisons() throws Exception {
+		var interpreter = new FormulaInterpreter();
+		interpreter.bind("x", 0.0);
+		interpreter.bind("y", "-0.0 * 1");
+		Assert.assertEquals(1, interpreter.eval("if(1 = 1; 1; 0)"), 1e-16);
+		Assert.assertEquals(1, interpreter.eval("if(x = 0; 1; 0)"), 1e-16);
+		Assert.assertEquals(1, interpreter.eval("if(2 >= x; 1; 0)"), 1e-16);
+		Assert.assertEquals(0, interpreter.eval("if(x <> 0; 1; 0)"), 1e-16);
+		Assert.assertEquals(1, interpreter.eval(
+				"if(x < 1 && not(x > 1); 1; 0)"), 1e-16);
+	}
+
+	@Test
+	public void testThreadSafety() throws Exception {
+		var formula = new FormulaInterpreter().compile("a * b + sqr(a)");
+		var pool = Executors.newFixedThreadPool(4);
+		var futures = new ArrayList<Future<Boolean>>();
+		for (int t = 0; t < 4; t++) {
+			int offset = t;
+			Callable<Boolean> task = () -> {
+				var interpreter = new FormulaInterpreter();
+				for (int i = 0; i < 1000; i++) {
+					double a = i + offset;
+					interpreter.bind("a", a);
+					interpreter.bind("b", 2);
+					double r = formula.eval(interpreter.getGlobalScope());
+					if (r != a * 2 + a * a)
+						return false;
+				}
+				return true;
+			};
+			futures.add(pool.submit(task));
+		}
+		for (var future : futures) {
+			Assert.assertTrue(future.get());
+		}
+		pool.shutdown();
+	}
+}
@@ -0,0 +1,107 @@
+package org.openlca.expressions;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Variable values are cached between evaluations and only re-calculated when
+ * a variable they depend on changes. We use `rand()` in the formulas here to
+ * detect whether a variable was re-calculated or not.
+ */
+public class IncrementalEvaluationTest {
+
+	@Test
+	public void testCachedValues() throws Exception {
+		var interpreter = new FormulaInterpreter();
+		interpreter.bind("r", "rand()");
+		double r = interpreter.eval("r");
+		Assert.assertEquals(r, interpreter.eval("r"), 0);
+		Assert.assertEquals(2 * r, interpreter.eval("2 * r"), 0);
+	}
+
+	@Test
+	public void testRecalculateDependents() throws Exception {
+		var interpreter = new FormulaInterpreter();
+		interpreter.bind("a", 1);
+		interpreter.bind("b", "a + 0 * rand()");
+		interpreter.bind("c", "b * 2");
+		interpreter.bind("other", "rand()");
+		Assert.assertEquals(2, interpreter.eval("c"), 1e-16);
+		double other = interpreter.eval("other");
+
+		interpreter.bind("a", 2);
+		Assert.assertEquals(4, interpreter.eval("c"), 1e-16);
+		Assert.assertEquals(2, interpreter.eval("b"), 1e-16);
+		// independent variables are not re-calculated
+		Assert.assertEquals(other, interpreter.eval("other"), 0);
+
+		interpreter.bind("b", "a * 3");
+		Assert.assertEquals(12, interpreter.eval("c"), 1e-16);
+		interpreter.bind("b", 1);
+		Assert.assertEquals(2, interpreter.eval("c"), 1e-16);
+	}
+
+	@Test
+	public void testRecalculateAcrossScopes() throws Exception {
+		var interpreter = new FormulaInterpreter();
+		interpreter.bind("a", 1);
+		interpreter.bind("g", "a * 10");
+		var local = interpreter.createScope(1);
+		local.bind("l", "g + 1");
+		Assert.assertEquals(11, local.eval("l"), 1e-16);
+
+		interpreter.bind("a", 2);
+		Assert.assertEquals(21, local.eval("l"), 1e-16);
+	}
+
+	@Test
+	public void testShadowing() throws Exception {
+		var interpreter = new FormulaInterpreter();
+		interpreter.bind("a", 1);
+		var local = interpreter.createScope(1);
+		local.bind("b", "a * pi");
+		Assert.assertEquals(Math.PI, local.eval("b"), 1e-16);
+
+		// a new local variable shadows the global one
+		local.bind("a", 2);
+		Assert.assertEquals(2 * Math.PI, local.eval("b"), 1e-16);
+
+		// a new variable shadows the constant
+		local.bind("pi", 3);
+		Assert.assertEquals(6, local.eval("b"), 1e-16);
+	}
+
+	@Test
+	public void testClear() throws Exception {
+		var interpreter = new FormulaInterpreter();
+		interpreter.bind("a", 1);
+		var local = interpreter.createScope(1);
+		local.bind("b", "a + 1");
+		Assert.assertEquals(2, local.eval("b"), 1e-16);
+		interpreter.getGlobalScope().clear();
+		try {
+			local.eval("b");
+			Assert.fail("a is not defined anymore");
+		} catch (InterpreterException e) {
+			interpreter.bind("a", 5);
+			Assert.assertEquals(6, local.eval("b"), 1e-16);
+		}
+	}
+
+	@Test
+	public void testCycleAfterRebind() throws Exception {
+		var interpreter = new FormulaInterpreter();
+		interpreter.bind("a", 1);
+		interpreter.bind("b", "a + 1");
+		Assert.assertEquals(2, interpreter.eval("b"), 1e-16);
+		interpreter.bind("a", "b");
+		try {
+			interpreter.eval("b");
+			Assert.fail("cycle not detected");
+		} catch (InterpreterException e) {
+			// the failed evaluation should not leave a broken state
+			interpreter.bind("a", 3);
+			Assert.assertEquals(4, interpreter.eval("b"), 1e-16);
+		}
+	}
+}
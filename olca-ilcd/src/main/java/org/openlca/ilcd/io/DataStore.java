@@ -4,7 +4,11 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.InputStream;
 import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.openlca.ilcd.commons.IDataSet;
 import org.openlca.ilcd.sources.Source;
@@ -27,6 +31,18 @@ public interface DataStore extends Closeable {
 
 	<T extends IDataSet> boolean contains(Class<T> type, String id);
 
+	/**
+	 * Returns a stream of the data sets of the given type in this store. The
+	 * default implementation wraps the iterator of the store into a
+	 * sequential stream; stores that support parallel reads can override this.
+	 */
+	default <T extends IDataSet> Stream<T> stream(Class<T> type) {
+		Spliterator<T> s = Spliterators.spliteratorUnknownSize(
+				iterator(type), Spliterator.ORDERED);
+		return StreamSupport.stream(s, false)
+				.filter(t -> t != null);
+	}
+
 	default <T extends IDataSet> void each(Class<T> type, Consumer<T> fn) {
 		try {
 			Iterator<T> it = iterator(type);
@@ -8,6 +8,7 @@ import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
 import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
@@ -32,12 +33,18 @@ import org.openlca.ilcd.units.UnitGroup;
  * A helper class for reading and writing ILCD types from / to XML. Uses the
  * standard JAXB mechanisms but in combination with some ILCD specific things.
  * The binder can be used for multiple IO-operations, the marshalers and
- * un-marshalers for the class types are cached.
+ * un-marshalers for the class types are cached. The binder is thread-safe: the
+ * JAXB contexts are shared between all binders and each thread gets its own
+ * marshalers and un-marshalers (as these are not thread-safe).
  */
 public class XmlBinder {
 
-	private HashMap<Class<?>, Marshaller> marshallers = new HashMap<>();
-	private HashMap<Class<?>, Unmarshaller> unmarshallers = new HashMap<>();
+	private static final ConcurrentHashMap<Class<?>, JAXBContext> contexts = new ConcurrentHashMap<>();
+
+	private final ThreadLocal<HashMap<Class<?>, Marshaller>> marshallers = ThreadLocal
+			.withInitial(HashMap::new);
+	private final ThreadLocal<HashMap<Class<?>, Unmarshaller>> unmarshallers = ThreadLocal
+			.withInitial(HashMap::new);
 
 	/** Writes the given ILCD object to a file. */
 	public void toFile(Object ilcdObject, File file) throws JAXBException {
@@ -75,17 +82,17 @@ public class XmlBinder {
 
 	private Marshaller getMarshaller(Object ilcdObject) throws JAXBException {
 		Class<?> clazz = ilcdObject.getClass();
-		Marshaller marshaller = marshallers.get(clazz);
+		HashMap<Class<?>, Marshaller> map = marshallers.get();
+		Marshaller marshaller = map.get(clazz);
 		if (marshaller != null)
 			return marshaller;
-		marshaller = createMarshaller(ilcdObject);
-		marshallers.put(clazz, marshaller);
+		marshaller = createMarshaller(clazz);
+		map.put(clazz, marshaller);
 		return marshaller;
 	}
 
-	private Marshaller createMarshaller(Object ilcdObject) throws JAXBException {
-		JAXBContext context = JAXBContext.newInstance(ilcdObject.getClass());
-		Marshaller marshaller = context.createMarshaller();
+	private Marshaller createMarshaller(Class<?> clazz) throws JAXBException {
+		Marshaller marshaller = getContext(clazz).createMarshaller();
 		marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
 		return marshaller;
 	}
@@ -128,19 +135,23 @@ public class XmlBinder {
 	}
 
 	private Unmarshaller getUnmarshaller(Class<?> clazz) throws JAXBException {
-		Unmarshaller unmarshaller = unmarshallers.get(clazz);
+		HashMap<Class<?>, Unmarshaller> map = unmarshallers.get();
+		Unmarshaller unmarshaller = map.get(clazz);
 		if (unmarshaller != null)
 			return unmarshaller;
-		unmarshaller = createUnmarshaller(clazz);
-		unmarshallers.put(clazz, unmarshaller);
+		unmarshaller = getContext(clazz).createUnmarshaller();
+		map.put(clazz, unmarshaller);
 		return unmarshaller;
 	}
 
-	private Unmarshaller createUnmarshaller(Class<?> clazz)
+	private static JAXBContext getContext(Class<?> clazz)
 			throws JAXBException {
-		JAXBContext context = JAXBContext.newInstance(clazz);
-		Unmarshaller unmarshaller = context.createUnmarshaller();
-		return unmarshaller;
+		JAXBContext context = contexts.get(clazz);
+		if (context != null)
+			return context;
+		context = JAXBContext.newInstance(clazz);
+		JAXBContext other = contexts.putIfAbsent(clazz, context);
+		return other != null ? other : context;
 	}
 
 	/**
@@ -1,18 +1,29 @@
 package org.openlca.ilcd.io;
 
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Iterates over the data sets of a type in a zip store. The iterator reads a
+ * window of entries ahead of its current position in parallel, so that the
+ * XML parsing of the next data sets runs while the consumer processes the
+ * current one. The data sets are returned in the order of the entries.
+ */
 class ZipEntryIterator<T> implements Iterator<T> {
 
 	private final ZipStore zipStore;
-	private Iterator<Path> it;
-	private Class<T> clazz;
+	private final Class<T> clazz;
+	private final Iterator<Path> it;
+	private final ArrayDeque<CompletableFuture<T>> window = new ArrayDeque<>();
+	private final int windowSize;
 
 	public ZipEntryIterator(ZipStore zipStore, Class<T> clazz) {
 		this.zipStore = zipStore;
@@ -23,18 +34,25 @@ class ZipEntryIterator<T> implements Iterator<T> {
 				list.add(p);
 		}
 		this.it = list.iterator();
+		this.windowSize = 2 * ForkJoinPool.getCommonPoolParallelism();
 	}
 
 	@Override
 	public boolean hasNext() {
-		return it != null && it.hasNext();
+		return !window.isEmpty() || it.hasNext();
 	}
 
 	@Override
 	public T next() {
-		if (it == null)
-			return null;
-		Path entry = it.next();
+		while (window.size() < windowSize && it.hasNext()) {
+			Path entry = it.next();
+			window.add(CompletableFuture.supplyAsync(() -> read(entry)));
+		}
+		CompletableFuture<T> next = window.poll();
+		return next != null ? next.join() : null;
+	}
+
+	private T read(Path entry) {
 		try {
 			return zipStore.unmarshal(clazz, entry);
 		} catch (Exception e) {
@@ -44,8 +62,4 @@ class ZipEntryIterator<T> implements Iterator<T> {
 		}
 	}
 
-	@Override
-	public void remove() {
-		it.remove();
-	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,89 @@
+package org.openlca.ilcd.io;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A spliterator over the data sets of a type in a zip store. The entries are
+ * split by index ranges so that the data sets can be read in parallel. Entries
+ * that cannot be read are skipped.
+ */
+class ZipEntrySpliterator<T> implements Spliterator<T> {
+
+	private final ZipStore zipStore;
+	private final Class<T> clazz;
+	private final List<Path> entries;
+	private int pos;
+	private final int end;
+
+	ZipEntrySpliterator(ZipStore zipStore, Class<T> clazz) {
+		this.zipStore = zipStore;
+		this.clazz = clazz;
+		this.entries = new ArrayList<>();
+		for (Path p : zipStore.getEntries(Dir.get(clazz))) {
+			if (Util.isXml(p))
+				entries.add(p);
+		}
+		this.pos = 0;
+		this.end = entries.size();
+	}
+
+	private ZipEntrySpliterator(ZipEntrySpliterator<T> parent,
+			int pos, int end) {
+		this.zipStore = parent.zipStore;
+		this.clazz = parent.clazz;
+		this.entries = parent.entries;
+		this.pos = pos;
+		this.end = end;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super T> action) {
+		while (pos < end) {
+			Path entry = entries.get(pos++);
+			T next = read(entry);
+			if (next != null) {
+				action.accept(next);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private T read(Path entry) {
+		try {
+			return zipStore.unmarshal(clazz, entry);
+		} catch (Exception e) {
+			Logger log = LoggerFactory.getLogger(getClass());
+			log.error("Cannot load type " + clazz + " from entry " + entry, e);
+			return null;
+		}
+	}
+
+	@Override
+	public Spliterator<T> trySplit() {
+		int mid = (pos + end) >>> 1;
+		if (mid <= pos)
+			return null;
+		Spliterator<T> prefix = new ZipEntrySpliterator<>(this, pos, mid);
+		pos = mid;
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+		return end - pos;
+	}
+
+	@Override
+	public int characteristics() {
+		// not SIZED as entries that cannot be read are skipped
+		return ORDERED | NONNULL | IMMUTABLE;
+	}
+}
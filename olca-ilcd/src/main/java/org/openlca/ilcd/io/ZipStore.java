@@ -15,30 +15,45 @@ import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.openlca.ilcd.commons.IDataSet;
 import org.openlca.ilcd.sources.Source;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * A data store that reads and writes data sets from and to a zip file. When
+ * the zip is opened, the entries are indexed by their directories and by their
+ * UUIDs and file names; thus, data sets can be found in constant time. Reading
+ * from the store is thread-safe: data sets can be read from multiple threads
+ * in parallel (see {@link #stream(Class)}). Writing is not thread-safe.
+ */
 public class ZipStore implements DataStore {
 
 	private Logger log = LoggerFactory.getLogger(getClass());
 	private FileSystem zip;
 	private HashMap<String, List<Path>> entries;
 
+	/**
+	 * Maps the UUIDs and file names of the entries to the entries: directory
+	 * -> (UUID | file name) -> entry. The keys are in lower case.
+	 */
+	private HashMap<String, Map<String, Path>> index;
+
 	/**
 	 * Contains the IDs that where added to this zip store. This is used to make
 	 * the contains check faster because in the export we usually first call
 	 * contains and then do the export if necessary.
 	 */
-	private HashMap<Class<?>, Set<String>> addedContent = new HashMap<>();
+	private Map<Class<?>, Set<String>> addedContent = new ConcurrentHashMap<>();
 
 	private XmlBinder binder = new XmlBinder();
 
@@ -55,6 +70,7 @@ public class ZipStore implements DataStore {
 
 	private void initEntries() throws IOException {
 		entries = new HashMap<>();
+		index = new HashMap<>();
 		for (Path root : zip.getRootDirectories()) {
 			Files.walkFileTree(root, new FileVisitor(f -> {
 				Path p = f.getParent();
@@ -64,12 +80,28 @@ public class ZipStore implements DataStore {
 				if (dirPath == null)
 					return;
 				String dir = dirPath.toString().toLowerCase();
-				List<Path> list = getEntries(dir);
-				list.add(f);
+				addEntry(dir, f);
 			}));
 		}
 	}
 
+	private void addEntry(String dir, Path entry) {
+		getEntries(dir).add(entry);
+		Path namePath = entry.getFileName();
+		if (namePath == null)
+			return;
+		String name = namePath.toString().toLowerCase();
+		Map<String, Path> map = index.computeIfAbsent(
+				dir, d -> new HashMap<>());
+		map.put(name, entry);
+		// the file names of data sets start with the UUID of the data set,
+		// optionally followed by the version: <uuid>[_<version>].xml
+		if (name.length() >= 36 && name.charAt(8) == '-'
+				&& name.charAt(13) == '-') {
+			map.putIfAbsent(name.substring(0, 36), entry);
+		}
+	}
+
 	/** Get the entries of the given directory. */
 	public List<Path> getEntries(String dir) {
 		List<Path> list = entries.get(dir);
@@ -107,14 +139,10 @@ public class ZipStore implements DataStore {
 				Files.createDirectories(parent);
 			OutputStream os = Files.newOutputStream(entry);
 			binder.toStream(ds, os);
-			List<Path> list = getEntries(dir);
-			list.add(entry);
-			Set<String> ids = addedContent.get(ds.getClass());
-			if (ids == null) {
-				ids = new HashSet<>();
-				addedContent.put(ds.getClass(), ids);
-			}
-			ids.add(ds.getUUID());
+			addEntry(dir, entry);
+			addedContent.computeIfAbsent(ds.getClass(),
+					c -> ConcurrentHashMap.newKeySet())
+					.add(ds.getUUID());
 		} catch (Exception e) {
 			throw new RuntimeException("Could not add file  " + entryName, e);
 		}
@@ -135,8 +163,7 @@ public class ZipStore implements DataStore {
 						.getPath("ILCD/external_docs/" + file.getName());
 				Files.copy(file.toPath(), entry,
 						StandardCopyOption.REPLACE_EXISTING);
-				List<Path> list = getEntries("external_docs");
-				list.add(entry);
+				addEntry("external_docs", entry);
 			}
 		} catch (Exception e) {
 			throw new RuntimeException("Could not store digital files", e);
@@ -173,23 +200,12 @@ public class ZipStore implements DataStore {
 	}
 
 	private Path findEntry(String dir, String id) {
-		List<Path> list = entries.get(dir);
-		if (list == null)
+		if (id == null)
 			return null;
-		for (Path entry : list) {
-			try {
-				String name = entry.getFileName().toString();
-				if (name.contains(id))
-					return entry;
-			} catch (Exception e) {
-				// an exception can occur when getting the string
-				// representation of an entry in older JDK
-				// versions:https://bugs.openjdk.java.net/browse/JDK-8061777
-				// log.warn("Could not read zip entry {}", entry);
-				continue;
-			}
-		}
-		return null;
+		Map<String, Path> map = index.get(dir);
+		if (map == null)
+			return null;
+		return map.get(id.toLowerCase());
 	}
 
 	@Override
@@ -198,20 +214,25 @@ public class ZipStore implements DataStore {
 		return new ZipEntryIterator<>(this, type);
 	}
 
+	/**
+	 * Returns a stream of the data sets of the given type in this store. The
+	 * stream is backed by a spliterator over the zip entries so that it can be
+	 * processed in parallel, e.g. via `store.stream(Process.class).parallel()`.
+	 * Entries that cannot be read are skipped.
+	 */
+	@Override
+	public <T extends IDataSet> Stream<T> stream(Class<T> type) {
+		log.trace("create stream for type {}", type);
+		return StreamSupport.stream(
+				new ZipEntrySpliterator<>(this, type), false);
+	}
+
 	@Override
 	public <T extends IDataSet> boolean contains(Class<T> type, String id) {
 		Set<String> ids = addedContent.get(type);
 		if (ids != null && ids.contains(id))
 			return true;
-		Path entry = findEntry(Dir.get(type), id);
-		if (entry == null)
-			return false;
-		if (ids == null) {
-			ids = new HashSet<>();
-			addedContent.put(type, ids);
-		}
-		ids.add(id);
-		return true;
+		return findEntry(Dir.get(type), id) != null;
 	}
 
 	@Override
@@ -220,6 +241,7 @@ public class ZipStore implements DataStore {
 		if (entries == null)
 			return;
 		entries = null;
+		index = null;
 		try {
 			zip.close();
 		} catch (Exception e) {
@@ -6,7 +6,12 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -58,4 +63,37 @@ public class ZipStoreTest {
 		assertFalse(store.iterator(Contact.class).hasNext());
 	}
 
+	@Test
+	public void testParallelRead() throws Exception {
+		List<String> ids = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			DataSetInfo info = new DataSetInfo();
+			info.uuid = UUID.randomUUID().toString();
+			Source source = SampleSource.create();
+			source.sourceInfo = new SourceInfo();
+			source.sourceInfo.dataSetInfo = info;
+			store.put(source);
+			ids.add(info.uuid);
+		}
+
+		// lookups by UUID are case insensitive
+		String id = ids.get(0);
+		assertNotNull(store.get(Source.class, id.toUpperCase()));
+
+		Set<String> streamed = store.stream(Source.class)
+				.parallel()
+				.map(Source::getUUID)
+				.collect(Collectors.toSet());
+		assertTrue(streamed.containsAll(ids));
+
+		List<String> iterated = new ArrayList<>();
+		Iterator<Source> it = store.iterator(Source.class);
+		while (it.hasNext()) {
+			iterated.add(it.next().getUUID());
+		}
+		assertEquals(streamed.size(), iterated.size());
+		assertEquals(ids, iterated.subList(
+				iterated.size() - ids.size(), iterated.size()));
+	}
+
 }
@@ -7,36 +7,76 @@ import spold2.EcoSpold2;
 
 import java.io.Closeable;
 import java.io.File;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
+/**
+ * Iterates over the data sets of a set of SPOLD files and ZIP files that
+ * contain such files. The XML parsing of the data sets is done in parallel on
+ * worker threads: the iterator parses a window of data sets ahead of the
+ * current position while the consumer processes the current data set. The
+ * data sets are returned in the order of the files and ZIP entries.
+ */
 class DataSetIterator implements Iterator<DataSet>, Closeable {
 
-	private Logger log = LoggerFactory.getLogger(getClass());
-	private DataSet next;
-	private File[] files;
-	private int currentFile;
+	private final Logger log = LoggerFactory.getLogger(getClass());
 
-	private ZipFile zipFile;
-	private int currentZipEntry;
-	private ZipEntry[] zipEntries;
+	private final List<ZipFile> zipFiles = new ArrayList<>();
+	private final ArrayDeque<Callable<DataSet>> tasks = new ArrayDeque<>();
+	private final ArrayDeque<Future<DataSet>> window = new ArrayDeque<>();
+	private final ExecutorService pool;
+	private final int windowSize;
+	private DataSet next;
 
 	public DataSetIterator(File[] files) {
 		log.trace("initialize data set iterator");
-		this.files = files;
-		currentFile = 0;
+		if (files != null) {
+			for (File file : files) {
+				if (isSpoldFile(file.getName()))
+					tasks.add(() -> EcoSpold2.read(file).activity());
+				else if (isZip(file))
+					addZipEntries(file);
+				else
+					log.trace("ignore file {}", file);
+			}
+		}
+		int threads = Math.max(1,
+				Runtime.getRuntime().availableProcessors() - 1);
+		windowSize = 4 * threads;
+		pool = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "EcoSpold2 reader");
+			thread.setDaemon(true);
+			return thread;
+		});
 		moveNext();
 	}
 
 	@Override
 	public void close() {
 		next = null;
-		files = null;
-		closeZip();
+		tasks.clear();
+		for (Future<DataSet> f : window) {
+			f.cancel(true);
+		}
+		window.clear();
+		pool.shutdownNow();
+		for (ZipFile zip : zipFiles) {
+			try {
+				zip.close();
+			} catch (Exception e) {
+				log.error("failed to close zip file " + zip.getName(), e);
+			}
+		}
+		zipFiles.clear();
 	}
 
 	@Override
@@ -56,89 +96,49 @@ class DataSetIterator implements Iterator<DataSet>, Closeable {
 	}
 
 	private void moveNext() {
-		if (zipFile != null) {
-			moveNextInZip();
-			return;
-		}
 		next = null;
-		if (files == null || currentFile >= files.length) {
-			log.trace("no more files");
-			return;
-		}
-		log.trace("move data set pointer in files");
-		File file = files[currentFile];
-		currentFile++;
-		if (isSpoldFile(file.getName()))
-			nextSpold(file);
-		else if (isZip(file)) {
-			openZip(file);
-			moveNextInZip();
-		} else {
-			log.trace("ignore file {}", file);
-			moveNext();
+		while (next == null) {
+			fillWindow();
+			Future<DataSet> f = window.poll();
+			if (f == null) {
+				log.trace("no more data sets");
+				return;
+			}
+			try {
+				next = f.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (Exception e) {
+				log.error("failed to read data set", e);
+			}
 		}
 	}
 
-	private void nextSpold(File file) {
-		try {
-			next = EcoSpold2.read(file).activity();
-		} catch (Exception e) {
-			log.error("failed to read spold file " + file, e);
-			moveNext();
+	private void fillWindow() {
+		while (window.size() < windowSize && !tasks.isEmpty()) {
+			window.add(pool.submit(tasks.poll()));
 		}
 	}
 
-	private void openZip(File file) {
+	private void addZipEntries(File file) {
 		log.trace("open zip file {}", file);
 		try {
-			currentZipEntry = 0;
-			zipFile = new ZipFile(file);
-			Enumeration<? extends ZipEntry> entries = zipFile.entries();
-			List<ZipEntry> spoldEntries = new ArrayList<>();
+			ZipFile zip = new ZipFile(file);
+			zipFiles.add(zip);
+			Enumeration<? extends ZipEntry> entries = zip.entries();
 			while (entries.hasMoreElements()) {
 				ZipEntry entry = entries.nextElement();
-				if (entry.isDirectory())
+				if (entry.isDirectory() || !isSpoldFile(entry.getName()))
 					continue;
-				if (isSpoldFile(entry.getName()))
-					spoldEntries.add(entry);
+				tasks.add(() -> {
+					try (var stream = zip.getInputStream(entry)) {
+						return EcoSpold2.read(stream).activity();
+					}
+				});
 			}
-			this.zipEntries = spoldEntries.toArray(new ZipEntry[0]);
 		} catch (Exception e) {
 			log.error("failed to open Zip file " + file, e);
-			closeZip();
-		}
-	}
-
-	private void moveNextInZip() {
-		next = null;
-		if (zipFile == null || zipEntries == null
-				|| currentZipEntry >= zipEntries.length) {
-			log.trace("no  more zip entries");
-			moveNext();
-		}
-		log.trace("move data set pointer in zip entries");
-		ZipEntry entry = zipEntries[currentZipEntry];
-		currentZipEntry++;
-		try {
-			next = EcoSpold2.read(zipFile.getInputStream(entry)).activity();
-			if (currentZipEntry >= zipEntries.length)
-				closeZip();
-		} catch (Exception e) {
-			log.error("failed to open zip entry", e);
-		}
-	}
-
-	private void closeZip() {
-		if (zipFile == null)
-			return;
-		try {
-			zipFile.close();
-		} catch (Exception e) {
-			log.error("failed to close zip file " + zipFile, e);
-		} finally {
-			zipFile = null;
-			zipEntries = null;
-			currentZipEntry = 0;
 		}
 	}
 
@@ -48,8 +48,7 @@ public class EcoSpold2Import implements FileImport {
 			return;
 		}
 		log.trace("run import with: {}", config);
-		RefDataIndex index = importRefData(files);
-		importProcesses(files, index);
+		importDataSets(files);
 
 		// expand ISIC category trees
 		log.info("expand ISIC categories");
@@ -61,33 +60,31 @@ public class EcoSpold2Import implements FileImport {
 		config.db.getEntityFactory().getCache().evictAll();
 	}
 
-	private RefDataIndex importRefData(File[] files) {
-		log.trace("import reference data");
-		RefDataImport imp = new RefDataImport(config);
+	/**
+	 * Imports the data sets in a single pass over the files: the reference
+	 * data of a data set (flows, locations, categories etc.) are imported
+	 * directly before the process of the data set. Links to default providers
+	 * that are not imported yet are set when the provider is imported. The
+	 * data sets are parsed in parallel by the iterator.
+	 */
+	private void importDataSets(File[] files) {
+		log.trace("import data sets");
+		RefDataImport refData = new RefDataImport(config);
+		ProcessImport processes = new ProcessImport(
+				refData.getIndex(), config);
 		if (eventBus != null)
 			eventBus.post(new ImportEvent("reference data"));
-		try (DataSetIterator it = new DataSetIterator(files)) {
-			while (!canceled && it.hasNext()) {
-				DataSet ds = it.next();
-				imp.importDataSet(ds);
-			}
-		} catch (Exception e) {
-			log.error("reference data import failed", e);
-		}
-		return imp.getIndex();
-	}
-
-	private void importProcesses(File[] files, RefDataIndex index) {
-		log.trace("import processes");
-		ProcessImport imp = new ProcessImport(index, config);
 		try (DataSetIterator it = new DataSetIterator(files)) {
 			while (!canceled && it.hasNext()) {
 				DataSet ds = it.next();
 				fireEvent(ds);
-				imp.importDataSet(ds);
+				refData.importDataSet(ds);
+				processes.importDataSet(ds);
 			}
 		} catch (Exception e) {
-			log.error("process import failed", e);
+			log.error("data set import failed", e);
+		} finally {
+			processes.flush();
 		}
 	}
 
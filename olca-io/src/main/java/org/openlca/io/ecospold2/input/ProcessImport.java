@@ -2,10 +2,11 @@ package org.openlca.io.ecospold2.input;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
-import org.openlca.core.database.ExchangeDao;
+import org.openlca.core.database.NativeSql;
 import org.openlca.core.database.ParameterDao;
 import org.openlca.core.database.ProcessDao;
 import org.openlca.core.model.Category;
@@ -49,6 +50,23 @@ class ProcessImport {
 	/** Exchanges that wait for a default provider: provider-id -> exchanges. */
 	private final HashMap<String, List<Exchange>> linkQueue = new HashMap<>();
 
+	/**
+	 * The number of processes that are inserted together in one transaction.
+	 */
+	private static final int BATCH_SIZE = 100;
+
+	/** The processes that are not yet inserted into the database. */
+	private final List<Process> batch = new ArrayList<>();
+
+	/** The reference IDs of the processes in the current batch. */
+	private final HashSet<String> batchIds = new HashSet<>();
+
+	/**
+	 * The default providers of exchanges that were inserted before their
+	 * providers: pairs of exchange and provider IDs.
+	 */
+	private final List<long[]> providerUpdates = new ArrayList<>();
+
 	ProcessImport(RefDataIndex index, ImportConfig config) {
 		this.index = index;
 		this.config = config;
@@ -77,7 +95,8 @@ class ProcessImport {
 		Activity activity = Spold2.getActivity(ds);
 		try {
 			String refId = RefId.forProcess(ds);
-			boolean contains = dao.contains(refId);
+			boolean contains = batchIds.contains(refId)
+					|| dao.contains(refId);
 			if (contains) {
 				log.trace("process {} is already in the database",
 						activity.id);
@@ -152,9 +171,71 @@ class ProcessImport {
 
 		p.exchangeDqSystem = dqSystem;
 		new DocImportMapper(config.db).map(ds, p);
-		new ProcessDao(config.db).insert(p);
-		index.putProcessId(refId, p.id);
-		flushLinkQueue(p);
+		batch.add(p);
+		batchIds.add(refId);
+		if (batch.size() >= BATCH_SIZE) {
+			flushBatch();
+		}
+	}
+
+	/**
+	 * Inserts the processes of the current batch and sets the default
+	 * providers of the exchanges that were waiting for these processes. This
+	 * method needs to be called at the end of the import to write the
+	 * remaining processes and links into the database.
+	 */
+	void flush() {
+		flushBatch();
+		if (providerUpdates.isEmpty())
+			return;
+		try {
+			String sql = "UPDATE tbl_exchanges SET f_default_provider = ? "
+					+ "WHERE id = ?";
+			NativeSql.on(config.db).batchInsert(sql, providerUpdates.size(),
+					(i, stmt) -> {
+						long[] update = providerUpdates.get(i);
+						stmt.setLong(1, update[1]);
+						stmt.setLong(2, update[0]);
+						return true;
+					});
+			providerUpdates.clear();
+			// the exchanges were updated via native SQL
+			config.db.clearCache();
+		} catch (Exception e) {
+			log.error("failed to update default providers", e);
+		}
+	}
+
+	/**
+	 * Inserts the processes of the current batch in a single transaction. If
+	 * this fails, the processes are inserted one by one so that only the
+	 * invalid data sets are skipped.
+	 */
+	private void flushBatch() {
+		if (batch.isEmpty())
+			return;
+		List<Process> inserted = batch;
+		try {
+			dao.insertAll(batch);
+		} catch (Exception e) {
+			log.warn("Failed to insert a batch of processes;"
+					+ " insert them one by one", e);
+			inserted = new ArrayList<>();
+			for (Process p : batch) {
+				try {
+					dao.insert(p);
+					inserted.add(p);
+				} catch (Exception ex) {
+					log.error("Failed to insert process " + p.refId, ex);
+				}
+			}
+		}
+		for (Process p : inserted) {
+			index.putProcessId(p.refId, p.id);
+			flushLinkQueue(p);
+		}
+		batch.clear();
+		batchIds.clear();
 	}
 
 	private void handleParameters(DataSet dataSet, Process process) {
@@ -183,14 +264,11 @@ class ProcessImport {
 		List<Exchange> exchanges = linkQueue.remove(process.refId);
 		if (exchanges == null || process.id == 0)
 			return;
-		try {
-			ExchangeDao dao = new ExchangeDao(config.db);
-			for (Exchange exchange : exchanges) {
-				exchange.defaultProviderId = process.id;
-				dao.update(exchange);
+		for (Exchange exchange : exchanges) {
+			exchange.defaultProviderId = process.id;
+			if (exchange.id != 0) {
+				providerUpdates.add(new long[] { exchange.id, process.id });
 			}
-		} catch (Exception e) {
-			log.error("failed to update default provider", e);
 		}
 	}
 
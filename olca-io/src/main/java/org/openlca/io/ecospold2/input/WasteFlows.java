@@ -41,7 +41,7 @@ public class WasteFlows {
 		Set<Long> wastes = w.identifyWasteFlows(products);
 		w.changeFlowType(wastes, "WASTE_FLOW");
 		w.invertExchanges(wastes);
-		db.getEntityFactory().getCache().evictAll();
+		db.clearCache();
 	}
 
 	public static void unmap(IDatabase db) {
@@ -49,7 +49,7 @@ public class WasteFlows {
 		Set<Long> wastes = w.getFlows("WASTE_FLOW");
 		w.changeFlowType(wastes, "PRODUCT_FLOW");
 		w.invertExchanges(wastes);
-		db.getEntityFactory().getCache().evictAll();
+		db.clearCache();
 	}
 
 	/**
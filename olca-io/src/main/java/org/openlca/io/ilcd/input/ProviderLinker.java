@@ -118,7 +118,7 @@ public class ProviderLinker {
 			update.close();
 			con.commit();
 			con.close();
-			db.getEntityFactory().getCache().evictAll();
+			db.clearCache();
 
 		} catch (Exception e) {
 			Logger log = LoggerFactory.getLogger(getClass());
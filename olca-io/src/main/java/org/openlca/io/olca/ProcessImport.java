@@ -199,6 +199,7 @@ class ProcessImport {
 			providerIds.add(newId);
 		}
 		updateDefaultProviders(exchangeIds, providerIds);
+		dest.clearCache();
 	}
 
 	private void updateDefaultProviders(final TLongArrayList exchangeIds,
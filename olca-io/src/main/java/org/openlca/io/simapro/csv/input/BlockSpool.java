@@ -0,0 +1,124 @@
+package org.openlca.io.simapro.csv.input;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openlca.simapro.csv.io.BlockReader;
+import org.openlca.simapro.csv.io.BlockWriter;
+import org.openlca.simapro.csv.model.Block;
+import org.openlca.simapro.csv.model.Section;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects raw blocks of a CSV file for later processing, so that a file
+ * needs to be read only once. The blocks are kept in memory until their
+ * estimated size exceeds a memory budget. Then, all blocks are moved to a
+ * temporary file.
+ */
+class BlockSpool implements Closeable {
+
+	private final Logger log = LoggerFactory.getLogger(getClass());
+	private final long maxBytes;
+
+	private List<Block> blocks = new ArrayList<>();
+	private long bytes;
+
+	private File file;
+	private BlockWriter writer;
+
+	BlockSpool() {
+		this(Runtime.getRuntime().maxMemory() / 8);
+	}
+
+	BlockSpool(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	void add(Block block) throws IOException {
+		if (block == null)
+			return;
+		if (file != null) {
+			writer.write(block);
+			return;
+		}
+		blocks.add(block);
+		bytes += sizeOf(block);
+		if (bytes > maxBytes) {
+			spillToFile();
+		}
+	}
+
+	private void spillToFile() throws IOException {
+		file = Files.createTempFile("_olca_sp_spool_", ".csv").toFile();
+		log.trace("memory budget exceeded; spool blocks to {}", file);
+		writer = new BlockWriter(Files.newBufferedWriter(
+				file.toPath(), StandardCharsets.UTF_8));
+		for (Block block : blocks) {
+			writer.write(block);
+		}
+		blocks = null;
+	}
+
+	private long sizeOf(Block block) {
+		long size = 64 + 2 * block.header.length();
+		for (String row : block.dataRows) {
+			size += 48 + 2 * row.length();
+		}
+		for (Section section : block.getSections()) {
+			size += 64 + 2 * section.header.length();
+			for (String row : section.dataRows) {
+				size += 48 + 2 * row.length();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Passes the collected blocks in their original order to the given
+	 * function.
+	 */
+	void each(BlockFn fn) throws Exception {
+		if (file == null) {
+			for (Block block : blocks) {
+				fn.accept(block);
+			}
+			return;
+		}
+		if (writer != null) {
+			writer.close();
+			writer = null;
+		}
+		try (var reader = new BlockReader(file, "UTF-8")) {
+			Block block;
+			while ((block = reader.read()) != null) {
+				fn.accept(block);
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		blocks = null;
+		try {
+			if (writer != null) {
+				writer.close();
+			}
+		} catch (IOException e) {
+			log.error("failed to close spool file " + file, e);
+		}
+		if (file != null && !file.delete()) {
+			file.deleteOnExit();
+		}
+	}
+
+	@FunctionalInterface
+	interface BlockFn {
+		void accept(Block block) throws Exception;
+	}
+}
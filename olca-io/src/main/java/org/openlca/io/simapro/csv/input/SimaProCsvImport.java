@@ -1,10 +1,15 @@
 package org.openlca.io.simapro.csv.input;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
 import org.openlca.core.database.IDatabase;
 import org.openlca.io.FileImport;
+import org.openlca.simapro.csv.CsvConfig;
 import org.openlca.simapro.csv.SimaProCSV;
+import org.openlca.simapro.csv.io.BlockUnmarshaller;
+import org.openlca.simapro.csv.model.process.ProcessBlock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,27 +46,52 @@ public class SimaProCsvImport implements FileImport {
 		this.eventBus = eventBus;
 	}
 
+	/**
+	 * Imports the files in a single pass: while the reference data index is
+	 * built, the process blocks are collected in a spool. After the reference
+	 * data are synchronized with the database, the processes are imported from
+	 * this spool.
+	 */
 	@Override
 	public void run() {
 		if (files == null || files.length == 0)
 			return;
 		try {
 			for (File file : files) {
+				if (canceled)
+					break;
 				log.trace("import SimaPro CSV file {}", file);
-				log.trace("extract reference data");
-				SpRefIndexHandler refDataHandler = new SpRefIndexHandler();
-				SimaProCSV.parse(file, refDataHandler);
-				SpRefDataIndex index = refDataHandler.getIndex();
-				log.trace("sync. reference data");
-				RefDataSync sync = new RefDataSync(index, database);
-				RefData refData = sync.run();
-				log.trace("import processes");
-				ProcessHandler processHandler = new ProcessHandler(database,
-						refData);
-				SimaProCSV.parse(file, processHandler);
+				try (var spool = new BlockSpool()) {
+					log.trace("extract reference data");
+					SpRefIndexHandler refDataHandler = new SpRefIndexHandler();
+					SimaProCSV.parse(file, refDataHandler, block -> {
+						if (!"Process".equals(block.header))
+							return;
+						try {
+							spool.add(block);
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					});
+					SpRefDataIndex index = refDataHandler.getIndex();
+					log.trace("sync. reference data");
+					RefDataSync sync = new RefDataSync(index, database);
+					RefData refData = sync.run();
+					log.trace("import processes");
+					ProcessHandler processHandler = new ProcessHandler(
+							database, refData);
+					var unmarshaller = new BlockUnmarshaller(
+							CsvConfig.of(file));
+					spool.each(block -> {
+						if (canceled)
+							return;
+						processHandler.handleProcess(unmarshaller.unmarshall(
+								block, ProcessBlock.class));
+					});
+				}
 			}
 		} catch (Exception e) {
-			log.error("SimaPro CSV import failed");
+			log.error("SimaPro CSV import failed", e);
 		}
 	}
 
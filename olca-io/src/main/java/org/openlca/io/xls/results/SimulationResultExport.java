@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.util.List;
 import java.util.function.BiFunction;
+import java.util.function.Supplier;
 
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
@@ -23,7 +24,12 @@ import org.openlca.io.xls.Excel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** Exports a simulation result to Excel. */
+/**
+ * Exports a simulation result to Excel. For each result, the statistics are
+ * written and, when the values of the single runs are stored in the result,
+ * also these values. For results that only keep online statistics, the columns
+ * of the single runs are omitted.
+ */
 public class SimulationResultExport {
 
 	private static final String[] FLOW_HEADER = { "Flow UUID", "Flow",
@@ -50,7 +56,8 @@ public class SimulationResultExport {
 	 * Runs the result export. The given file should be an xlsx file.
 	 */
 	public void run(File file) throws Exception {
-		useStreaming = result.getNumberOfRuns() > 150;
+		useStreaming = result.hasRunValues()
+				&& result.getNumberOfRuns() > 150;
 		log.trace("create workbook, using streaming: {}", useStreaming);
 		Workbook wb = useStreaming
 				? new SXSSFWorkbook(-1)
@@ -91,8 +98,9 @@ public class SimulationResultExport {
 
 		for (ImpactCategoryDescriptor impact : result.getImpacts()) {
 			writer.impactRow(sheet, row, 1, impact);
-			double[] values = result.getAll(impact);
-			writeValues(sheet, row, IMPACT_HEADER.length + 1, values);
+			writeValues(sheet, row, IMPACT_HEADER.length + 1,
+					result.getStatistics(impact),
+					() -> result.getAll(impact));
 			row++;
 		}
 		for (int i = 0; i < IMPACT_HEADER.length + 7; i++)
@@ -127,8 +135,9 @@ public class SimulationResultExport {
 			if (flow.isInput != forInputs)
 				continue;
 			writer.flowRow(sheet, row, 1, flow);
-			double[] values = result.getAll(flow);
-			writeValues(sheet, row, FLOW_HEADER.length + 1, values);
+			writeValues(sheet, row, FLOW_HEADER.length + 1,
+					result.getStatistics(flow),
+					() -> result.getAll(flow));
 			row++;
 		}
 	}
@@ -171,8 +180,9 @@ public class SimulationResultExport {
 			writeValueHeaders(sheet, row++, valCol);
 			for (ImpactCategoryDescriptor impact : result.getImpacts()) {
 				writer.impactRow(sheet, row, 1, impact);
-				double[] values = result.getAllDirect(pp, impact);
-				writeValues(sheet, row, IMPACT_HEADER.length + 1, values);
+				writeValues(sheet, row, IMPACT_HEADER.length + 1,
+						result.getDirectStatistics(pp, impact),
+						() -> result.getAllDirect(pp, impact));
 				row++;
 			}
 			row++;
@@ -182,8 +192,9 @@ public class SimulationResultExport {
 			writeValueHeaders(sheet, row++, valCol);
 			for (ImpactCategoryDescriptor impact : result.getImpacts()) {
 				writer.impactRow(sheet, row, 1, impact);
-				double[] values = result.getAllUpstream(pp, impact);
-				writeValues(sheet, row, IMPACT_HEADER.length + 1, values);
+				writeValues(sheet, row, IMPACT_HEADER.length + 1,
+						result.getUpstreamStatistics(pp, impact),
+						() -> result.getAllUpstream(pp, impact));
 				row++;
 			}
 			row++;
@@ -192,18 +203,22 @@ public class SimulationResultExport {
 		List<IndexFlow> flows = result.getFlows();
 
 		writer.headerRow(sheet, row++, 1, "Direct LCI contributions - Inputs");
-		writeFlowContributions(flows, pp, true, result::getAllDirect, sheet);
+		writeFlowContributions(flows, pp, true,
+				result::getDirectStatistics, result::getAllDirect, sheet);
 
 		writer.headerRow(sheet, row++, 1, "Direct LCI contributions - Outputs");
-		writeFlowContributions(flows, pp, false, result::getAllDirect, sheet);
+		writeFlowContributions(flows, pp, false,
+				result::getDirectStatistics, result::getAllDirect, sheet);
 
 		writer.headerRow(sheet, row++, 1,
 				"Upstream LCI contributions - Inputs");
-		writeFlowContributions(flows, pp, true, result::getAllUpstream, sheet);
+		writeFlowContributions(flows, pp, true,
+				result::getUpstreamStatistics, result::getAllUpstream, sheet);
 
 		writer.headerRow(sheet, row++, 1,
 				"Upstream LCI contributions - Outputs");
-		writeFlowContributions(flows, pp, false, result::getAllUpstream, sheet);
+		writeFlowContributions(flows, pp, false,
+				result::getUpstreamStatistics, result::getAllUpstream, sheet);
 
 	}
 
@@ -211,7 +226,8 @@ public class SimulationResultExport {
 			List<IndexFlow> flows,
 			ProcessProduct pp,
 			boolean forInputs,
-			BiFunction<ProcessProduct, IndexFlow, double[]> fn,
+			BiFunction<ProcessProduct, IndexFlow, Statistics> statsFn,
+			BiFunction<ProcessProduct, IndexFlow, double[]> valuesFn,
 			Sheet sheet) {
 		writer.headerRow(sheet, row, 1, FLOW_HEADER);
 		int valCol = FLOW_HEADER.length + 1;
@@ -220,8 +236,8 @@ public class SimulationResultExport {
 			if (flow.isInput != forInputs)
 				continue;
 			writer.flowRow(sheet, row, 1, flow);
-			double[] values = fn.apply(pp, flow);
-			writeValues(sheet, row, valCol, values);
+			writeValues(sheet, row, valCol, statsFn.apply(pp, flow),
+					() -> valuesFn.apply(pp, flow));
 			row++;
 		}
 		row++;
@@ -232,17 +248,22 @@ public class SimulationResultExport {
 				"Median", "5% Percentile", "95% Percentile" };
 		for (int i = 0; i < vals.length; i++)
 			writer.cell(sheet, row, startCol + i, vals[i], true);
+		if (!result.hasRunValues())
+			return;
 		int nextCol = startCol + vals.length;
 		for (int i = 0; i < result.getNumberOfRuns(); i++)
 			writer.cell(sheet, row, nextCol++, "Run " + (i + 1), true);
 	}
 
+	/**
+	 * Writes the given statistics and, if available, the values of the single
+	 * runs into the given row.
+	 */
 	private void writeValues(Sheet sheet, int row, int startCol,
-			double[] values) {
-		if (values == null)
+			Statistics stats, Supplier<double[]> runValues) {
+		if (stats == null)
 			return;
 		int col = startCol;
-		Statistics stats = Statistics.of(values);
 		Excel.cell(sheet, row, col++, stats.mean);
 		Excel.cell(sheet, row, col++, stats.standardDeviation);
 		Excel.cell(sheet, row, col++, stats.min);
@@ -250,6 +271,9 @@ public class SimulationResultExport {
 		Excel.cell(sheet, row, col++, stats.median);
 		Excel.cell(sheet, row, col++, stats.getPercentileValue(5));
 		Excel.cell(sheet, row, col++, stats.getPercentileValue(95));
+		if (!result.hasRunValues())
+			return;
+		double[] values = runValues.get();
 		for (int i = 0; i < values.length; i++) {
 			Excel.cell(sheet, row, col++, values[i]);
 		}
@@ -0,0 +1,60 @@
+package org.openlca.io.ecospold2.input;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import spold2.DataSet;
+import spold2.EcoSpold2;
+import spold2.Spold2;
+
+public class DataSetIteratorTest {
+
+	private File zip;
+
+	@Before
+	public void setUp() throws Exception {
+		DataSet ds = EcoSpold2.read(getClass()
+				.getResourceAsStream("sample_ecospold2.xml")).activity();
+		zip = Files.createTempFile("_olca_es2_", ".zip").toFile();
+		try (var out = new ZipOutputStream(Files.newOutputStream(
+				zip.toPath()))) {
+			for (int i = 0; i < 100; i++) {
+				Spold2.getActivity(ds).id = "activity " + i;
+				out.putNextEntry(new ZipEntry("datasets/" + i + ".spold"));
+				EcoSpold2.write(ds, out);
+				out.closeEntry();
+			}
+			out.putNextEntry(new ZipEntry("datasets/readme.txt"));
+			out.write("not a data set".getBytes());
+			out.closeEntry();
+		}
+	}
+
+	@After
+	public void tearDown() {
+		zip.delete();
+	}
+
+	@Test
+	public void testOrder() {
+		List<String> ids = new ArrayList<>();
+		try (var it = new DataSetIterator(new File[] { zip })) {
+			while (it.hasNext()) {
+				ids.add(Spold2.getActivity(it.next()).id);
+			}
+		}
+		Assert.assertEquals(100, ids.size());
+		for (int i = 0; i < 100; i++) {
+			Assert.assertEquals("activity " + i, ids.get(i));
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package org.openlca.io.simapro.csv.input;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openlca.simapro.csv.model.Block;
+import org.openlca.simapro.csv.model.Section;
+
+public class BlockSpoolTest {
+
+	@Test
+	public void testInMemory() throws Exception {
+		check(new BlockSpool());
+	}
+
+	@Test
+	public void testInFile() throws Exception {
+		// a budget of 1 byte moves the blocks directly into a file
+		check(new BlockSpool(1));
+	}
+
+	private void check(BlockSpool spool) throws Exception {
+		try (spool) {
+			for (int i = 0; i < 10; i++) {
+				var block = new Block("Process");
+				var section = new Section("Process identifier");
+				section.dataRows.add("P" + i);
+				block.addSection(section);
+				spool.add(block);
+			}
+			List<String> ids = new ArrayList<>();
+			spool.each(block -> ids.add(block.getSection(
+					"Process identifier").dataRows.get(0)));
+			Assert.assertEquals(10, ids.size());
+			for (int i = 0; i < 10; i++) {
+				Assert.assertEquals("P" + i, ids.get(i));
+			}
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package org.openlca.io.xls.results;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openlca.core.database.EntityCache;
+import org.openlca.core.math.CalculationSetup;
+import org.openlca.core.matrix.DIndex;
+import org.openlca.core.matrix.FlowIndex;
+import org.openlca.core.matrix.MatrixData;
+import org.openlca.core.matrix.ProcessProduct;
+import org.openlca.core.matrix.TechIndex;
+import org.openlca.core.model.ProductSystem;
+import org.openlca.core.model.descriptors.FlowDescriptor;
+import org.openlca.core.model.descriptors.ImpactCategoryDescriptor;
+import org.openlca.core.model.descriptors.ProcessDescriptor;
+import org.openlca.core.results.SimpleResult;
+import org.openlca.core.results.SimulationResult;
+import org.openlca.core.results.simulation.SimulationStorage;
+import org.openlca.io.Tests;
+
+public class SimulationResultExportTest {
+
+	@Test
+	public void testOnlineStatistics() throws Exception {
+		Sheet sheet = export(SimulationStorage.ONLINE_STATISTICS);
+		Row header = sheet.getRow(5);
+		Assert.assertEquals("Mean", header.getCell(6).getStringCellValue());
+		Assert.assertNull(header.getCell(13));
+
+		// the first output flow: values 1, 2, .., 10; there are no inputs
+		Row row = sheet.getRow(6);
+		Assert.assertEquals("CO2", row.getCell(2).getStringCellValue());
+		Assert.assertEquals(5.5, row.getCell(6).getNumericCellValue(), 1e-10);
+		Assert.assertEquals(1, row.getCell(8).getNumericCellValue(), 1e-10);
+		Assert.assertEquals(10, row.getCell(9).getNumericCellValue(), 1e-10);
+		Assert.assertNull(row.getCell(13));
+	}
+
+	@Test
+	public void testRunValues() throws Exception {
+		Sheet sheet = export(SimulationStorage.IN_MEMORY);
+		Row header = sheet.getRow(5);
+		Assert.assertEquals("Run 1", header.getCell(13).getStringCellValue());
+		Row row = sheet.getRow(6);
+		Assert.assertEquals(5.5, row.getCell(6).getNumericCellValue(), 1e-10);
+		for (int i = 0; i < 10; i++) {
+			Cell cell = row.getCell(13 + i);
+			Assert.assertEquals(i + 1, cell.getNumericCellValue(), 1e-10);
+		}
+	}
+
+	/**
+	 * Exports a simulation result with 10 runs and a pinned product and
+	 * returns the sheet with the inventory result.
+	 */
+	private Sheet export(SimulationStorage storage) throws Exception {
+		var process = new ProcessDescriptor();
+		process.id = 1;
+		process.name = "process";
+		var product = new FlowDescriptor();
+		product.id = 2;
+		product.name = "product";
+		var pp = ProcessProduct.of(process, product);
+
+		var co2 = new FlowDescriptor();
+		co2.id = 3;
+		co2.name = "CO2";
+		var gwp = new ImpactCategoryDescriptor();
+		gwp.id = 4;
+		gwp.name = "GWP";
+
+		var data = new MatrixData();
+		data.techIndex = new TechIndex(pp);
+		data.flowIndex = FlowIndex.create();
+		data.flowIndex.putOutput(co2);
+		data.impactIndex = new DIndex<>();
+		data.impactIndex.put(gwp);
+
+		var result = new SimulationResult(data, storage);
+		for (int i = 1; i <= 10; i++) {
+			var r = new SimpleResult();
+			r.totalFlowResults = new double[] { i };
+			r.totalImpactResults = new double[] { 2 * i };
+			result.append(r);
+			result.append(pp, r, r);
+		}
+
+		var system = new ProductSystem();
+		system.name = "system";
+		var setup = new CalculationSetup(system);
+		File file = Files.createTempFile("olca_sim_export_", ".xlsx").toFile();
+		try {
+			new SimulationResultExport(setup, result,
+					EntityCache.create(Tests.getDb())).run(file);
+			try (Workbook wb = new XSSFWorkbook(file)) {
+				Assert.assertNotNull(wb.getSheet("Impact Assessment"));
+				Assert.assertNotNull(wb.getSheet("Contributions 1"));
+				Sheet sheet = wb.getSheet("Inventory");
+				Assert.assertNotNull(sheet);
+				return sheet;
+			}
+		} finally {
+			result.dispose();
+			file.delete();
+		}
+	}
+}
@@ -1,21 +1,301 @@
 package org.openlca.ipc;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
+import org.slf4j.LoggerFactory;
+
+/**
+ * The cache of the IPC server for results, simulators etc. that can be
+ * accessed by their IDs in further requests. The cache is thread-safe and
+ * bounded: when the estimated size of the cached objects exceeds the memory
+ * budget of the cache, the least recently used objects are evicted. Also,
+ * objects that were not accessed within the time-to-live of the cache are
+ * removed. Thus, clients that forget to call `dispose` on their results do
+ * not bring the server out of memory. Objects that implement the
+ * {@link Disposable} interface are disposed when they are removed from the
+ * cache; this is done outside of the lock of the cache.
+ * <p>
+ * The size of an object can change while it is cached, e.g. when runs are
+ * added to a simulator or rows of a lazy upstream matrix are calculated. The
+ * size is measured again when the object is accessed via `get` and when
+ * `update` is called for it.
+ */
 public class Cache {
 
-	private final HashMap<String, Object> cache = new HashMap<>();
+	/**
+	 * The assumed size of objects that do not implement the {@link Sized}
+	 * interface.
+	 */
+	private static final long DEFAULT_SIZE = 1024 * 1024;
+
+	private final long maxBytes;
+	private final long ttl;
+
+	/** An LRU map: the first entry is the least recently used. */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(
+			16, 0.75f, true);
+
+	private long bytes;
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long expirations;
+	private long rejections;
+
+	/**
+	 * Creates a cache with a memory budget of a quarter of the maximum heap
+	 * size and no time-to-live.
+	 */
+	public Cache() {
+		this(Runtime.getRuntime().maxMemory() / 4, 0);
+	}
+
+	/**
+	 * Creates a new cache.
+	 *
+	 * @param maxBytes the memory budget of the cache in bytes
+	 * @param ttl      the time-to-live of cached objects in milliseconds; they
+	 *                 are removed when they were not accessed within this
+	 *                 time. A value <= 0 means that objects do not expire.
+	 */
+	public Cache(long maxBytes, long ttl) {
+		this.maxBytes = maxBytes;
+		this.ttl = ttl;
+	}
 
 	public Object get(String id) {
-		return cache.get(id);
+		List<Object> removed = new ArrayList<>();
+		Object value;
+		synchronized (this) {
+			removeExpired(removed);
+			Entry e = entries.get(id);
+			if (e == null) {
+				misses++;
+				value = null;
+			} else {
+				hits++;
+				e.lastAccess = System.currentTimeMillis();
+				value = e.value;
+				resize(e);
+				evict(removed, e);
+			}
+		}
+		dispose(removed);
+		return value;
 	}
 
-	public void put(String id, Object obj) {
-		cache.put(id, obj);
+	/**
+	 * Puts the given object into the cache. An object that is larger than the
+	 * memory budget of the cache is not cached as this would evict all other
+	 * objects; `false` is returned in this case and the caller is responsible
+	 * for disposing the object.
+	 */
+	public boolean put(String id, Object obj) {
+		List<Object> removed = new ArrayList<>();
+		synchronized (this) {
+			removeExpired(removed);
+			Entry e = obj != null ? new Entry(obj) : null;
+			if (e != null && e.size > maxBytes) {
+				rejections++;
+				LoggerFactory.getLogger(getClass()).warn(
+						"Did not cache {}: its size of {} bytes exceeds the "
+								+ "memory budget of the cache",
+						id, e.size);
+				return false;
+			}
+			Entry old = entries.remove(id);
+			if (old != null) {
+				bytes -= old.size;
+				if (old.value != obj) {
+					removed.add(old.value);
+				}
+			}
+			if (e != null) {
+				entries.put(id, e);
+				bytes += e.size;
+				evict(removed, e);
+			}
+		}
+		dispose(removed);
+		return true;
 	}
 
+	/**
+	 * Measures the size of the object with the given ID again, e.g. after
+	 * a simulation run was added to a cached simulator, and evicts other
+	 * objects when the cache exceeds its memory budget then. When the object
+	 * itself has grown beyond the memory budget, it is removed from the cache
+	 * and disposed.
+	 */
+	public void update(String id) {
+		List<Object> removed = new ArrayList<>();
+		synchronized (this) {
+			Entry e = entries.get(id);
+			if (e == null)
+				return;
+			resize(e);
+			if (e.size > maxBytes) {
+				entries.remove(id);
+				bytes -= e.size;
+				removed.add(e.value);
+				evictions++;
+				LoggerFactory.getLogger(getClass()).warn(
+						"Evicted {}: its size of {} bytes exceeds the "
+								+ "memory budget of the cache",
+						id, e.size);
+			} else {
+				evict(removed, e);
+			}
+		}
+		dispose(removed);
+	}
+
+	private void resize(Entry e) {
+		long size = Entry.sizeOf(e.value);
+		bytes += size - e.size;
+		e.size = size;
+	}
+
+	/**
+	 * Evicts the least recently used entries, except the given entry, until
+	 * the cache is within its memory budget.
+	 */
+	private void evict(List<Object> removed, Entry keep) {
+		Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+		while (bytes > maxBytes && it.hasNext()) {
+			Map.Entry<String, Entry> eldest = it.next();
+			if (eldest.getValue() == keep)
+				continue;
+			bytes -= eldest.getValue().size;
+			it.remove();
+			removed.add(eldest.getValue().value);
+			evictions++;
+			LoggerFactory.getLogger(getClass()).info(
+					"Evicted {} from the cache", eldest.getKey());
+		}
+	}
+
+	/**
+	 * Removes the object with the given ID from the cache and disposes it.
+	 * Returns the removed object or `null` when there was no object with the
+	 * given ID in the cache.
+	 */
 	public Object remove(String id) {
-		return cache.remove(id);
+		Entry e;
+		synchronized (this) {
+			e = entries.remove(id);
+			if (e == null)
+				return null;
+			bytes -= e.size;
+		}
+		dispose(List.of(e.value));
+		return e.value;
+	}
+
+	/**
+	 * Returns the current statistics of the cache.
+	 */
+	public Stats stats() {
+		List<Object> removed = new ArrayList<>();
+		Stats s = stats(removed);
+		dispose(removed);
+		return s;
 	}
 
+	private synchronized Stats stats(List<Object> removed) {
+		removeExpired(removed);
+		Stats s = new Stats();
+		s.entries = entries.size();
+		s.bytes = bytes;
+		s.maxBytes = maxBytes;
+		s.hits = hits;
+		s.misses = misses;
+		s.evictions = evictions;
+		s.expirations = expirations;
+		s.rejections = rejections;
+		return s;
+	}
+
+	private void removeExpired(List<Object> removed) {
+		if (ttl <= 0 || entries.isEmpty())
+			return;
+		long limit = System.currentTimeMillis() - ttl;
+		Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, Entry> next = it.next();
+			// entries are in access order; so we can stop at the first entry
+			// that is not expired
+			if (next.getValue().lastAccess > limit)
+				break;
+			bytes -= next.getValue().size;
+			it.remove();
+			removed.add(next.getValue().value);
+			expirations++;
+			LoggerFactory.getLogger(getClass()).info(
+					"Removed expired {} from the cache", next.getKey());
+		}
+	}
+
+	private void dispose(List<Object> removed) {
+		for (Object obj : removed) {
+			if (!(obj instanceof Disposable))
+				continue;
+			try {
+				((Disposable) obj).dispose();
+			} catch (Exception e) {
+				LoggerFactory.getLogger(getClass()).error(
+						"Failed to dispose cached object", e);
+			}
+		}
+	}
+
+	/**
+	 * Objects that implement this interface can estimate their size in memory.
+	 * This size is used for checking the memory budget of the cache.
+	 */
+	public interface Sized {
+		long byteSize();
+	}
+
+	/**
+	 * Objects that implement this interface hold resources (e.g. native memory)
+	 * that are released when they are removed from the cache.
+	 */
+	public interface Disposable {
+		void dispose();
+	}
+
+	public static class Stats {
+		public int entries;
+		public long bytes;
+		public long maxBytes;
+		public long hits;
+		public long misses;
+		public long evictions;
+		public long expirations;
+		public long rejections;
+	}
+
+	private static class Entry {
+
+		final Object value;
+		long size;
+		long lastAccess;
+
+		Entry(Object value) {
+			this.value = value;
+			this.size = sizeOf(value);
+			this.lastAccess = System.currentTimeMillis();
+		}
+
+		static long sizeOf(Object value) {
+			return value instanceof Sized
+					? ((Sized) value).byteSize()
+					: DEFAULT_SIZE;
+		}
+	}
 }
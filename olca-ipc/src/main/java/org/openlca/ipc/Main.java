@@ -6,7 +6,7 @@ import java.io.IOException;
 import org.openlca.core.database.IDatabase;
 import org.openlca.core.database.derby.DerbyDatabase;
 import org.openlca.core.matrix.solvers.IMatrixSolver;
-import org.openlca.core.matrix.solvers.JavaSolver;
+import org.openlca.core.matrix.solvers.SparseLUSolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,6 +16,8 @@ public class Main {
 
 	private String db;
 	private String port;
+	private String cacheSize;
+	private String cacheTTL;
 
 	private static Main parseArgs(String[] args) {
 		Main main = new Main();
@@ -36,6 +38,12 @@ public class Main {
 			case "-port":
 				main.port = arg;
 				break;
+			case "-cache-size":
+				main.cacheSize = arg;
+				break;
+			case "-cache-ttl":
+				main.cacheTTL = arg;
+				break;
 			}
 			flag = null;
 		}
@@ -50,7 +58,7 @@ public class Main {
 		try {
 			IMatrixSolver solver = initSolver();
 			Server server = new Server(port)
-					.withDefaultHandlers(db, solver);
+					.withDefaultHandlers(db, solver, initCache());
 			server.start();
 			Runtime.getRuntime().addShutdownHook(
 					new Thread(() -> shutdown(server, db)));
@@ -89,6 +97,28 @@ public class Main {
 		return port;
 	}
 
+	/**
+	 * Creates the result cache. The memory budget is given in MB and the
+	 * time-to-live of cached results in minutes.
+	 */
+	private Cache initCache() {
+		long maxBytes = Runtime.getRuntime().maxMemory() / 4;
+		long ttl = 0;
+		try {
+			if (cacheSize != null) {
+				maxBytes = Long.parseLong(cacheSize) * 1024 * 1024;
+			}
+			if (cacheTTL != null) {
+				ttl = Long.parseLong(cacheTTL) * 60 * 1000;
+			}
+		} catch (Exception e) {
+			log.error("Invalid cache size or time-to-live", e);
+		}
+		log.info("Result cache: {} MB, time-to-live: {} min",
+				maxBytes / (1024 * 1024), ttl / (60 * 1000));
+		return new Cache(maxBytes, ttl);
+	}
+
 	private IMatrixSolver initSolver() {
 		try {
 //			if (Julia.loadFromDir(new File("."))
@@ -101,14 +131,12 @@ public class Main {
 //				log.info("Loaded olca-eigen library and solver");
 //				return new DenseSolver();
 //			}
-//			log.warn("Could not load a native library; use plain Java solver" +
-//					"; this can be very slow");
-			return new JavaSolver();
+//			log.warn("Could not load a native library; use sparse Java solver");
+			return new SparseLUSolver();
 		} catch (Exception e) {
 			log.error("Initialization of matrix solver failed", e);
-			log.warn("Could not load a native library; use plain Java solver" +
-					"; this can be very slow");
-			return new JavaSolver();
+			log.warn("Could not load a native library; use sparse Java solver");
+			return new SparseLUSolver();
 		}
 	}
 
@@ -33,8 +33,15 @@ public class Server extends NanoHTTPD {
 	}
 
 	public Server withDefaultHandlers(IDatabase db, IMatrixSolver solver) {
+		return withDefaultHandlers(db, solver, new Cache());
+	}
+
+	/**
+	 * Registers the default handlers with the given result cache.
+	 */
+	public Server withDefaultHandlers(IDatabase db, IMatrixSolver solver,
+			Cache cache) {
 		log.info("Register default handlers");
-		Cache cache = new Cache();
 		HandlerContext context = new HandlerContext(this, db, solver, cache);
 		register(new ModelHandler(context));
 		register(new Calculator(context));
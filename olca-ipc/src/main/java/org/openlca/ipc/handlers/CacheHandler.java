@@ -36,4 +36,25 @@ public class CacheHandler {
 		return Responses.ok("Did not find something with @id="
 				+ id + "in memory; did nothing", req);
 	}
+
+	/**
+	 * Returns the statistics of the cache: the number of cached objects, their
+	 * estimated size and the memory budget in bytes, and the number of cache
+	 * hits, misses, evictions, expirations, and rejected objects that were
+	 * larger than the memory budget.
+	 */
+	@Rpc("cache/stats")
+	public RpcResponse stats(RpcRequest req) {
+		Cache.Stats stats = cache.stats();
+		JsonObject obj = new JsonObject();
+		obj.addProperty("entries", stats.entries);
+		obj.addProperty("bytes", stats.bytes);
+		obj.addProperty("maxBytes", stats.maxBytes);
+		obj.addProperty("hits", stats.hits);
+		obj.addProperty("misses", stats.misses);
+		obj.addProperty("evictions", stats.evictions);
+		obj.addProperty("expirations", stats.expirations);
+		obj.addProperty("rejections", stats.rejections);
+		return Responses.ok(obj, req);
+	}
 }
@@ -1,8 +1,26 @@
 package org.openlca.ipc.handlers;
 
 import org.openlca.core.math.CalculationSetup;
+import org.openlca.core.math.Simulator;
+import org.openlca.core.math.UpstreamMatrix;
+import org.openlca.core.matrix.DIndex;
+import org.openlca.core.matrix.FlowIndex;
+import org.openlca.core.matrix.format.CSCMatrix;
+import org.openlca.core.matrix.format.HashPointMatrix;
+import org.openlca.core.matrix.format.IMatrix;
+import org.openlca.core.results.ContributionResult;
+import org.openlca.core.results.FullResult;
+import org.openlca.core.results.SimpleResult;
+import org.openlca.core.results.SimulationResult;
+import org.openlca.ipc.Cache;
 
-class CachedResult<T> {
+class CachedResult<T> implements Cache.Sized, Cache.Disposable {
+
+	/**
+	 * The assumed size of the matrix data of a simulator and of other objects
+	 * for which we have no better estimate.
+	 */
+	private static final long BASE_SIZE = 1024 * 1024;
 
 	CalculationSetup setup;
 	T result;
@@ -13,4 +31,105 @@ class CachedResult<T> {
 		r.result = result;
 		return r;
 	}
+
+	/**
+	 * Estimates the size of the result from the sizes of its vectors and
+	 * matrices. For upstream matrices that are calculated on demand, only the
+	 * rows that were already calculated are counted. The size of a simulator
+	 * is estimated from the number of runs and the sizes of its indices. As
+	 * these sizes grow while the object is used, the cache measures them
+	 * again on access.
+	 */
+	@Override
+	public long byteSize() {
+		if (result instanceof Simulator)
+			return bytes((Simulator) result);
+		if (!(result instanceof SimpleResult))
+			return BASE_SIZE;
+		long size = 0;
+		SimpleResult r = (SimpleResult) result;
+		size += bytes(r.scalingVector);
+		size += bytes(r.totalRequirements);
+		size += bytes(r.totalFlowResults);
+		size += bytes(r.totalImpactResults);
+		if (r instanceof ContributionResult) {
+			ContributionResult cr = (ContributionResult) r;
+			size += bytes(cr.directFlowResults);
+			size += bytes(cr.directImpactResults);
+			size += bytes(cr.directCostResults);
+			size += bytes(cr.directFlowImpacts);
+			size += bytes(cr.impactFactors);
+		}
+		if (r instanceof FullResult) {
+			FullResult fr = (FullResult) r;
+			size += bytes(fr.techMatrix);
+			size += bytes(fr.upstreamFlowResults);
+			size += bytes(fr.upstreamImpactResults);
+			size += bytes(fr.upstreamCostResults);
+		}
+		return size;
+	}
+
+	/**
+	 * Releases the resources of the result when it is removed from the cache,
+	 * e.g. the factorizations of the technology matrix of a full result or the
+	 * preconditioner and the result stores of a simulator.
+	 */
+	@Override
+	public void dispose() {
+		if (result instanceof FullResult) {
+			((FullResult) result).dispose();
+		} else if (result instanceof Simulator) {
+			((Simulator) result).dispose();
+		}
+	}
+
+	/**
+	 * The runs of a simulation are stored in the flow and impact result
+	 * stores and in 2 stores for each pinned product (direct and upstream
+	 * contributions). The run values are only kept in the heap for in-memory
+	 * storage; memory mapped stores keep them in files and online statistics
+	 * keep a fixed number of values per index entry.
+	 */
+	private static long bytes(Simulator simulator) {
+		SimulationResult r = simulator.getResult();
+		long width = size(simulator.getEnviIndex())
+				+ size(simulator.getImpactIndex());
+		long stores = 1 + 2L * r.getPinnedProducts().size();
+		switch (r.getStorage()) {
+		case MEMORY_MAPPED:
+			return BASE_SIZE;
+		case ONLINE_STATISTICS:
+			// an online statistics object per index entry
+			return BASE_SIZE + 48L * width * stores;
+		default:
+			return BASE_SIZE + 8L * width * stores * r.getNumberOfRuns();
+		}
+	}
+
+	private static long size(FlowIndex index) {
+		return index == null ? 0 : index.size();
+	}
+
+	private static long size(DIndex<?> index) {
+		return index == null ? 0 : index.size();
+	}
+
+	private static long bytes(double[] v) {
+		return v == null ? 0 : 8L * v.length;
+	}
+
+	private static long bytes(IMatrix m) {
+		if (m == null)
+			return 0;
+		if (m instanceof HashPointMatrix)
+			return 32L * ((HashPointMatrix) m).getNumberOfEntries();
+		if (m instanceof CSCMatrix)
+			return 12L * ((CSCMatrix) m).values.length;
+		if (m instanceof UpstreamMatrix) {
+			var u = (UpstreamMatrix) m;
+			return 8L * u.calculatedRows() * u.columns();
+		}
+		return 8L * m.rows() * m.columns();
+	}
 }
@@ -61,7 +61,11 @@ public class Calculator {
 		JsonObject obj = new JsonObject();
 		obj.addProperty("@id", id);
 		obj.addProperty("@type", "Simulator");
-		context.cache.put(id, CachedResult.of(setup, simulator));
+		CachedResult<Simulator> cached = CachedResult.of(setup, simulator);
+		if (!context.cache.put(id, cached)) {
+			cached.dispose();
+			return tooLarge(req);
+		}
 		return Responses.ok(obj, req);
 	}
 
@@ -92,6 +96,8 @@ public class Calculator {
 			return Responses.internalServerError(
 					"Simulation failed", req);
 		JsonObject result = JsonRpc.encode(r, id, EntityCache.create(db));
+		// the simulator grew with the new run
+		context.cache.update(id);
 		return Responses.ok(result, req);
 	}
 
@@ -203,7 +209,11 @@ public class Calculator {
 			}
 			String id = UUID.randomUUID().toString();
 			log.info("encode and cache result {}", id);
-			context.cache.put(id, CachedResult.of(setup, r));
+			CachedResult<SimpleResult> cached = CachedResult.of(setup, r);
+			if (!context.cache.put(id, cached)) {
+				cached.dispose();
+				return tooLarge(req);
+			}
 			JsonObject result = JsonRpc.encode(r, id, EntityCache.create(db));
 			return Responses.ok(result, req);
 		} catch (Exception e) {
@@ -212,4 +222,10 @@ public class Calculator {
 		}
 	}
 
+	private RpcResponse tooLarge(RpcRequest req) {
+		return Responses.error(507, "The result is larger than the memory"
+				+ " budget of the result cache; restart the server with a"
+				+ " larger -cache-size", req);
+	}
+
 }
@@ -178,6 +178,19 @@ public class ImpactHandler {
 		});
 	}
 
+	@Rpc("get/impacts/upstream/tree")
+	public RpcResponse getUpstreamTree(RpcRequest req) {
+		return utils.fullImpact(req, (result, impact, cache) -> {
+			UpstreamTree tree = result.getTree(impact);
+			String unit = impact.referenceUnit;
+			return Upstream.tree(tree, req.params.getAsJsonObject(), cache,
+					json -> {
+						json.addProperty("unit", unit);
+						json.add("upstream", json.remove("amount"));
+					});
+		});
+	}
+
 	private double getImpactFactor(ContributionResult result,
 			ImpactCategoryDescriptor impact, IndexFlow flow) {
 		int row = result.impactIndex.of(impact);
@@ -149,4 +149,17 @@ public class InventoryHandler {
 		});
 	}
 
+	@Rpc("get/inventory/upstream/tree")
+	public RpcResponse getUpstreamTree(RpcRequest req) {
+		return utils.fullFlow(req, (result, flow, cache) -> {
+			UpstreamTree tree = result.getTree(flow);
+			String unit = utils.getUnit(flow, cache);
+			return Upstream.tree(tree, req.params.getAsJsonObject(), cache,
+					json -> {
+						json.addProperty("unit", unit);
+						json.add("upstream", json.remove("amount"));
+					});
+		});
+	}
+
 }
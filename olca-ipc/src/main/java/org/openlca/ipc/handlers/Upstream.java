@@ -1,11 +1,18 @@
 package org.openlca.ipc.handlers;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Stack;
+import java.util.function.Consumer;
 
+import org.openlca.core.database.EntityCache;
 import org.openlca.core.results.UpstreamNode;
 import org.openlca.core.results.UpstreamTree;
+import org.openlca.jsonld.Json;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 
 class Upstream {
 
@@ -29,6 +36,42 @@ class Upstream {
 		return results;
 	}
 	
+	/**
+	 * Calculates the tree down to the cutoff and maximum depth given in the
+	 * request parameters and converts it into a nested JSON object where the
+	 * child nodes of a node are stored in the `childs` array. If no cutoff
+	 * and maximum depth are given, a cutoff of 1% is used.
+	 */
+	static JsonObject tree(UpstreamTree tree, JsonObject params,
+			EntityCache cache, Consumer<JsonObject> modifier) {
+		double cutoff = Json.getDouble(params, "cutoff", 0);
+		int maxDepth = Json.getInt(params, "maxDepth", 0);
+		if (cutoff <= 0 && maxDepth <= 0) {
+			cutoff = 0.01;
+		}
+		tree.expand(cutoff, maxDepth);
+		double total = tree.root.result;
+		List<JsonObject> parents = new ArrayList<>();
+		tree.each((node, depth) -> {
+			JsonObject obj = JsonRpc.encode(node, total, cache, modifier);
+			if (depth > 0) {
+				JsonObject parent = parents.get(depth - 1);
+				JsonArray childs = parent.getAsJsonArray("childs");
+				if (childs == null) {
+					childs = new JsonArray();
+					parent.add("childs", childs);
+				}
+				childs.add(obj);
+			}
+			if (parents.size() > depth) {
+				parents.set(depth, obj);
+			} else {
+				parents.add(obj);
+			}
+		});
+		return parents.get(0);
+	}
+
 	static class StringPair {
 
 		final String first;
@@ -0,0 +1,157 @@
+package org.openlca.ipc;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CacheTest {
+
+	@Test
+	public void testEvictLeastRecentlyUsed() {
+		Cache cache = new Cache(100, 0);
+		cache.put("a", sized(40));
+		cache.put("b", sized(40));
+		Assert.assertNotNull(cache.get("a"));
+		cache.put("c", sized(40));
+
+		// b was the least recently used entry
+		Assert.assertNull(cache.get("b"));
+		Assert.assertNotNull(cache.get("a"));
+		Assert.assertNotNull(cache.get("c"));
+
+		Cache.Stats stats = cache.stats();
+		Assert.assertEquals(2, stats.entries);
+		Assert.assertEquals(80, stats.bytes);
+		Assert.assertEquals(1, stats.evictions);
+		Assert.assertEquals(3, stats.hits);
+		Assert.assertEquals(1, stats.misses);
+	}
+
+	@Test
+	public void testRejectLargeEntry() {
+		Cache cache = new Cache(100, 0);
+		Assert.assertTrue(cache.put("a", sized(40)));
+		Assert.assertFalse(cache.put("b", sized(500)));
+
+		// the other entries are kept
+		Assert.assertNotNull(cache.get("a"));
+		Assert.assertNull(cache.get("b"));
+		Cache.Stats stats = cache.stats();
+		Assert.assertEquals(40, stats.bytes);
+		Assert.assertEquals(0, stats.evictions);
+		Assert.assertEquals(1, stats.rejections);
+	}
+
+	@Test
+	public void testExpire() throws Exception {
+		Cache cache = new Cache(100, 50);
+		cache.put("a", sized(10));
+		Assert.assertNotNull(cache.get("a"));
+		Thread.sleep(100);
+		Assert.assertNull(cache.get("a"));
+		Assert.assertEquals(1, cache.stats().expirations);
+		Assert.assertEquals(0, cache.stats().bytes);
+	}
+
+	@Test
+	public void testConcurrentAccess() throws Exception {
+		Cache cache = new Cache(1000, 0);
+		var pool = Executors.newFixedThreadPool(4);
+		var futures = new ArrayList<Future<?>>();
+		for (int t = 0; t < 4; t++) {
+			int offset = t;
+			futures.add(pool.submit(() -> {
+				for (int i = 0; i < 1000; i++) {
+					String id = offset + "_" + i;
+					cache.put(id, sized(10));
+					cache.get(id);
+					if (i % 2 == 0) {
+						cache.remove(id);
+					}
+				}
+			}));
+		}
+		for (var f : futures) {
+			f.get();
+		}
+		pool.shutdown();
+		Cache.Stats stats = cache.stats();
+		Assert.assertTrue(stats.bytes <= 1000);
+		Assert.assertEquals(10L * stats.entries, stats.bytes);
+	}
+
+	@Test
+	public void testDisposeRemoved() {
+		Cache cache = new Cache(100, 0);
+		Disposed a = new Disposed(40);
+		Disposed b = new Disposed(40);
+		Disposed c = new Disposed(40);
+		cache.put("a", a);
+		cache.put("b", b);
+		cache.put("c", c);
+		Assert.assertTrue(a.disposed);
+		Assert.assertFalse(b.disposed);
+
+		// replacing an entry with the same object does not dispose it
+		cache.put("b", b);
+		Assert.assertFalse(b.disposed);
+		cache.remove("b");
+		Assert.assertTrue(b.disposed);
+		Assert.assertFalse(c.disposed);
+	}
+
+	@Test
+	public void testUpdateSize() {
+		Cache cache = new Cache(100, 0);
+		Disposed a = new Disposed(30);
+		Disposed b = new Disposed(30);
+		cache.put("a", a);
+		cache.put("b", b);
+
+		// a grows; the size is measured again on access
+		a.size = 50;
+		Assert.assertSame(a, cache.get("a"));
+		Assert.assertEquals(80, cache.stats().bytes);
+
+		// b grows beyond the budget; as it is accessed, a is evicted
+		b.size = 60;
+		cache.update("b");
+		Assert.assertTrue(a.disposed);
+		Assert.assertFalse(b.disposed);
+		Assert.assertEquals(60, cache.stats().bytes);
+
+		// an object that grows beyond the budget is removed
+		b.size = 120;
+		cache.update("b");
+		Assert.assertTrue(b.disposed);
+		Assert.assertNull(cache.get("b"));
+		Assert.assertEquals(0, cache.stats().bytes);
+	}
+
+	private Cache.Sized sized(long size) {
+		return () -> size;
+	}
+
+	private static class Disposed implements Cache.Sized, Cache.Disposable {
+
+		long size;
+		boolean disposed;
+
+		Disposed(long size) {
+			this.size = size;
+		}
+
+		@Override
+		public long byteSize() {
+			return size;
+		}
+
+		@Override
+		public void dispose() {
+			disposed = true;
+		}
+	}
+}
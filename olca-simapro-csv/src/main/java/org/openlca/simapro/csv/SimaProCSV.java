@@ -6,9 +6,11 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.openlca.simapro.csv.io.BlockReader;
 import org.openlca.simapro.csv.io.ModelReader;
+import org.openlca.simapro.csv.model.Block;
 import org.openlca.simapro.csv.model.annotations.BlockHandler;
 import org.openlca.simapro.csv.model.annotations.BlockModel;
 import org.slf4j.Logger;
@@ -20,17 +22,31 @@ public class SimaProCSV {
 
 	private final File file;
 	private final Object handler;
+	private final Consumer<Block> blockListener;
 	private final HashMap<Class<?>, List<Method>> methodHandlers = new HashMap<>();
 
-	private SimaProCSV(File file, Object handler) {
+	private SimaProCSV(File file, Object handler,
+			Consumer<Block> blockListener) {
 		this.file = file;
 		this.handler = handler;
+		this.blockListener = blockListener;
 	}
 
 	public static void parse(File file, Object handler) throws Exception {
+		parse(file, handler, null);
+	}
+
+	/**
+	 * Parses the given file with the given handler. Additionally, the given
+	 * block listener (which can be null) is called with each raw block of the
+	 * file before the block is converted into a model. This can be used to
+	 * collect blocks for later processing in a single pass over the file.
+	 */
+	public static void parse(File file, Object handler,
+			Consumer<Block> blockListener) throws Exception {
 		if (file == null || handler == null)
 			return;
-		new SimaProCSV(file, handler).parse();
+		new SimaProCSV(file, handler, blockListener).parse();
 	}
 
 	private void parse() throws Exception {
@@ -59,7 +75,9 @@ public class SimaProCSV {
 			i++;
 		}
 		log.trace("create a model reader with {} classes", i);
-		return new ModelReader(blockReader, config, classes);
+		var reader = new ModelReader(blockReader, config, classes);
+		reader.setBlockListener(blockListener);
+		return reader;
 	}
 
 	private void registerMethods() {
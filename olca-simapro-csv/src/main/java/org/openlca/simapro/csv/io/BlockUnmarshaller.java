@@ -1,10 +1,14 @@
 package org.openlca.simapro.csv.io;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 
 import org.openlca.simapro.csv.CsvConfig;
@@ -20,14 +24,24 @@ import org.openlca.simapro.csv.model.enums.ValueEnum;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Converts blocks into instances of the block model classes. The annotated
+ * fields of a model class are analyzed only once: for each class, a list of
+ * field binders with method handles for the field access and the row
+ * constructors is created and shared by all unmarshallers. An unmarshaller is
+ * not thread-safe (because of the date format) but the binders are.
+ */
 public class BlockUnmarshaller {
 
-	private Logger log = LoggerFactory.getLogger(getClass());
+	private static final ClassValue<ClassBinder> binders = new ClassValue<>() {
+		@Override
+		protected ClassBinder computeValue(Class<?> type) {
+			return new ClassBinder(type);
+		}
+	};
 
 	private final CsvConfig config;
-
-	private Block block;
-	private Object model;
+	private SimpleDateFormat dateFormat;
 
 	public BlockUnmarshaller(CsvConfig config) {
 		this.config = config;
@@ -36,193 +50,269 @@ public class BlockUnmarshaller {
 	public <T> T unmarshall(Block block, Class<T> clazz) throws Exception {
 		if (block == null || clazz == null)
 			return null;
-		log.trace("unmarshall block {} to class {}", block, clazz);
-		T modelBlock = clazz.newInstance();
-		this.model = modelBlock;
-		this.block = block;
-		for (Field field : clazz.getDeclaredFields()) {
-			if (field.isAnnotationPresent(BlockRows.class))
-				setBlockRows(field);
-			if (field.isAnnotationPresent(SectionValue.class))
-				setSectionValue(field);
-			if (field.isAnnotationPresent(SectionRow.class))
-				setSectionRow(field);
-			if (field.isAnnotationPresent(SectionRows.class))
-				setSectionRows(field);
-		}
-		this.model = null;
-		this.block = null;
-		return modelBlock;
+		ClassBinder binder = binders.get(clazz);
+		try {
+			Object model = binder.constructor.invoke();
+			for (FieldBinder field : binder.fields) {
+				field.bind(this, block, model);
+			}
+			return clazz.cast(model);
+		} catch (Exception e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new RuntimeException("failed to unmarshall block "
+					+ block + " to class " + clazz, e);
+		}
 	}
 
-	private void setSectionRow(Field field) throws Exception {
-		SectionRow sectionRow = field.getAnnotation(SectionRow.class);
-		String sectionHeader = sectionRow.value();
-		Section section = block.getSection(sectionHeader);
-		if (section == null || section.dataRows.isEmpty())
-			return;
-		Class<?> type = field.getType();
-		if (!(IDataRow.class.isAssignableFrom(type))) {
-			logNoSectionList(field);
-			return;
-		}
-		field.setAccessible(true);
-		IDataRow instance = (IDataRow) type.newInstance();
-		String row = section.dataRows.get(0);
-		instance.fill(row, config);
-		field.set(model, instance);
+	private Date parseDate(String val) throws Exception {
+		if (config.dateFormat == null) {
+			Logger log = LoggerFactory.getLogger(getClass());
+			log.warn("no date-format given in CSV configuration; cannot set "
+					+ "date values");
+			return null;
+		}
+		if (dateFormat == null) {
+			dateFormat = new SimpleDateFormat(config.dateFormat);
+		}
+		return dateFormat.parse(val);
 	}
 
-	private void setBlockRows(Field field) {
-		if (field == null)
-			return;
-		setDataRows(field, block.dataRows);
-	}
+	/** The pre-computed binders of a model class. */
+	private static class ClassBinder {
 
-	private void setSectionRows(Field field) {
-		if (field == null)
-			return;
-		SectionRows rows = field.getAnnotation(SectionRows.class);
-		Section section = block.getSection(rows.value());
-		if (section == null || section.dataRows.isEmpty())
-			return;
-		setDataRows(field, section.dataRows);
-	}
+		final MethodHandle constructor;
+		final List<FieldBinder> fields = new ArrayList<>();
 
-	@SuppressWarnings({ "rawtypes", "unchecked" })
-	private void setDataRows(Field field, List<String> lines) {
-		try {
-			field.setAccessible(true);
-			List list = getListField(field);
-			if (list == null)
-				return;
-			Class<?> argClass = getRowClass(field);
-			if (argClass == null)
-				return;
-			for (String line : lines) {
-				IDataRow row = (IDataRow) argClass.newInstance();
-				row.fill(line, config);
-				list.add(row);
+		ClassBinder(Class<?> clazz) {
+			constructor = constructorOf(clazz);
+			for (Field field : clazz.getDeclaredFields()) {
+				if (field.isAnnotationPresent(BlockRows.class)) {
+					add(rowsBinder(field, null));
+				}
+				SectionValue value = field.getAnnotation(SectionValue.class);
+				if (value != null) {
+					add(valueBinder(field, value.value()));
+				}
+				SectionRow row = field.getAnnotation(SectionRow.class);
+				if (row != null) {
+					add(rowBinder(field, row.value()));
+				}
+				SectionRows rows = field.getAnnotation(SectionRows.class);
+				if (rows != null) {
+					add(rowsBinder(field, rows.value()));
+				}
 			}
-		} catch (Exception e) {
-			log.error("failed to set data rows to field " + field, e);
 		}
-	}
 
-	@SuppressWarnings("rawtypes")
-	private List getListField(Field field) throws Exception {
-		Object fieldContent = field.get(model);
-		if (!(fieldContent instanceof List)) {
-			logNoSectionList(field);
-			return null;
+		private void add(FieldBinder binder) {
+			if (binder != null) {
+				fields.add(binder);
+			}
 		}
-		List list = (List) fieldContent;
-		return list;
-	}
 
-	private Class<?> getRowClass(Field field) {
-		Type type = field.getGenericType();
-		if (!(type instanceof ParameterizedType)) {
-			logNoSectionList(field);
-			return null;
+		/**
+		 * Creates a binder for a single row of a section. Returns null if the
+		 * field is not valid for this.
+		 */
+		private FieldBinder rowBinder(Field field, String header) {
+			Class<?> type = field.getType();
+			if (!(IDataRow.class.isAssignableFrom(type))) {
+				logNoSectionList(field);
+				return null;
+			}
+			MethodHandle setter = setterOf(field);
+			MethodHandle rowConstructor = constructorOf(type);
+			return (u, block, model) -> {
+				Section section = block.getSection(header);
+				if (section == null || section.dataRows.isEmpty())
+					return;
+				IDataRow instance = (IDataRow) rowConstructor.invoke();
+				instance.fill(section.dataRows.get(0), u.config);
+				setter.invoke(model, instance);
+			};
 		}
-		ParameterizedType pType = (ParameterizedType) type;
-		Type[] typeArgs = pType.getActualTypeArguments();
-		if (typeArgs == null || typeArgs.length != 1) {
-			logNoSectionList(field);
-			return null;
+
+		/**
+		 * Creates a binder that fills the rows of a block (if the section
+		 * header is null) or a section into a list field. Returns null if the
+		 * field is not valid for this.
+		 */
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		private FieldBinder rowsBinder(Field field, String header) {
+			Class<?> rowClass = getRowClass(field);
+			if (rowClass == null)
+				return null;
+			MethodHandle getter = getterOf(field);
+			MethodHandle rowConstructor = constructorOf(rowClass);
+			return (u, block, model) -> {
+				List<String> lines;
+				if (header == null) {
+					lines = block.dataRows;
+				} else {
+					Section section = block.getSection(header);
+					if (section == null || section.dataRows.isEmpty())
+						return;
+					lines = section.dataRows;
+				}
+				try {
+					Object content = getter.invoke(model);
+					if (!(content instanceof List)) {
+						logNoSectionList(field);
+						return;
+					}
+					List list = (List) content;
+					for (String line : lines) {
+						IDataRow row = (IDataRow) rowConstructor.invoke();
+						row.fill(line, u.config);
+						list.add(row);
+					}
+				} catch (Throwable e) {
+					log().error("failed to set data rows to field " + field, e);
+				}
+			};
 		}
-		Type arg = typeArgs[0];
-		if (!(arg instanceof Class)) {
-			logNoSectionList(field);
-			return null;
+
+		/**
+		 * Creates a binder that sets the first row of a section as value of a
+		 * field. Returns null if the field type is not supported.
+		 */
+		private FieldBinder valueBinder(Field field, String header) {
+			Class<?> type = field.getType();
+			ValueParser parser;
+			if (type.equals(String.class)) {
+				parser = (u, val) -> CsvUtils.strip(val);
+			} else if (type.equals(Boolean.class)) {
+				parser = (u, val) -> parseBoolean(val);
+			} else if (type.equals(Date.class)) {
+				parser = (u, val) -> u.parseDate(val);
+			} else if (ValueEnum.class.isAssignableFrom(type)) {
+				HashMap<String, Object> constants = new HashMap<>();
+				for (Object o : type.getEnumConstants()) {
+					if (!(o instanceof ValueEnum))
+						continue;
+					String key = ((ValueEnum) o).getValue();
+					if (key != null) {
+						constants.putIfAbsent(key.toLowerCase(), o);
+					}
+				}
+				parser = (u, val) -> {
+					Object e = constants.get(val.toLowerCase());
+					if (e == null) {
+						log().error("did not find an enum value for {} at "
+								+ "field {}", val, field);
+					}
+					return e;
+				};
+			} else {
+				log().error("at field: {}; can only set section values "
+						+ "to strings, booleans, dates and "
+						+ "enumerations types that implement ValueEnum",
+						field);
+				return null;
+			}
+			MethodHandle setter = setterOf(field);
+			return (u, block, model) -> {
+				Section section = block.getSection(header);
+				if (section == null || section.dataRows.isEmpty())
+					return;
+				String val = section.dataRows.get(0);
+				if (val.isEmpty())
+					return;
+				try {
+					Object value = parser.parse(u, val);
+					if (value != null) {
+						setter.invoke(model, value);
+					}
+				} catch (Throwable e) {
+					log().error("failed to set value on field " + field, e);
+				}
+			};
 		}
-		Class<?> argClass = (Class<?>) arg;
-		if (!(IDataRow.class.isAssignableFrom(argClass))) {
-			logNoSectionList(field);
-			return null;
+
+		private static Boolean parseBoolean(String val) {
+			String lowerVal = val.toLowerCase();
+			return lowerVal.equals("yes")
+					|| lowerVal.equals("true")
+					|| lowerVal.equals("1");
 		}
-		return argClass;
-	}
 
-	private void logNoSectionList(Field field) {
-		log.error(
-				"The field {} is not valid for section or block rows: it must be a"
-						+ " live list with a declared type argument that is a "
-						+ " class which implements IDataRow; e.g. List<Quantity>");
-	}
+		private static Class<?> getRowClass(Field field) {
+			Type type = field.getGenericType();
+			if (!(type instanceof ParameterizedType)) {
+				logNoSectionList(field);
+				return null;
+			}
+			ParameterizedType pType = (ParameterizedType) type;
+			Type[] typeArgs = pType.getActualTypeArguments();
+			if (typeArgs == null || typeArgs.length != 1) {
+				logNoSectionList(field);
+				return null;
+			}
+			Type arg = typeArgs[0];
+			if (!(arg instanceof Class)) {
+				logNoSectionList(field);
+				return null;
+			}
+			Class<?> argClass = (Class<?>) arg;
+			if (!(IDataRow.class.isAssignableFrom(argClass))) {
+				logNoSectionList(field);
+				return null;
+			}
+			return argClass;
+		}
 
-	private void setSectionValue(Field field) {
-		if (field == null)
-			return;
-		try {
-			SectionValue sectionValue = field.getAnnotation(SectionValue.class);
-			String sectionHeader = sectionValue.value();
-			Section section = block.getSection(sectionHeader);
-			if (section == null || section.dataRows.isEmpty())
-				return;
-			String val = section.dataRows.get(0);
-			if (val.isEmpty())
-				return;
-			field.setAccessible(true);
-			setFieldValue(field, val);
-		} catch (Exception e) {
-			log.error("failed to set value on field " + field, e);
+		private static MethodHandle constructorOf(Class<?> clazz) {
+			try {
+				var constructor = clazz.getDeclaredConstructor();
+				constructor.setAccessible(true);
+				return MethodHandles.lookup().unreflectConstructor(constructor);
+			} catch (Exception e) {
+				throw new IllegalArgumentException(
+						"no default constructor available for " + clazz, e);
+			}
 		}
-	}
 
-	private void setFieldValue(Field field, String val)
-			throws IllegalAccessException, Exception {
-		Class<?> type = field.getType();
-		if (type.equals(String.class))
-			field.set(model, CsvUtils.strip(val));
-		else if (type.equals(Boolean.class))
-			setBooleanValue(field, val);
-		else if (type.equals(Date.class))
-			setDateValue(field, val);
-		else if (ValueEnum.class.isAssignableFrom(type))
-			setEnumValue(field, type, val);
-		else
-			log.error("at field: {} with value: {}; "
-					+ "can only set section values "
-					+ "to strings, booleans, dates and "
-					+ "enumerations types that implement ValueEnum", field,
-					val);
-	}
+		private static MethodHandle setterOf(Field field) {
+			try {
+				field.setAccessible(true);
+				return MethodHandles.lookup().unreflectSetter(field);
+			} catch (Exception e) {
+				throw new IllegalArgumentException(
+						"cannot access field " + field, e);
+			}
+		}
 
-	private void setEnumValue(Field field, Class<?> type, String val)
-			throws Exception {
-		if (val == null)
-			return;
-		for (Object o : type.getEnumConstants()) {
-			if (!(o instanceof ValueEnum))
-				continue;
-			ValueEnum e = (ValueEnum) o;
-			if (val.equalsIgnoreCase(e.getValue())) {
-				field.set(model, e);
-				return;
+		private static MethodHandle getterOf(Field field) {
+			try {
+				field.setAccessible(true);
+				return MethodHandles.lookup().unreflectGetter(field);
+			} catch (Exception e) {
+				throw new IllegalArgumentException(
+						"cannot access field " + field, e);
 			}
 		}
-		log.error("did not find an enum value for {} at field {}", val, field);
+
+		private static void logNoSectionList(Field field) {
+			log().error("The field {} is not valid for section or block rows: "
+					+ "it must be a live list with a declared type argument "
+					+ "that is a class which implements IDataRow; "
+					+ "e.g. List<Quantity>", field);
+		}
+
+		private static Logger log() {
+			return LoggerFactory.getLogger(BlockUnmarshaller.class);
+		}
 	}
 
-	private void setBooleanValue(Field field, String val) throws Exception {
-		String lowerVal = val.toLowerCase();
-		if (lowerVal.equals("yes") || lowerVal.equals("true")
-				|| lowerVal.equals("1"))
-			field.set(model, Boolean.TRUE);
-		else
-			field.set(model, Boolean.FALSE);
+	@FunctionalInterface
+	private interface FieldBinder {
+		void bind(BlockUnmarshaller u, Block block, Object model)
+				throws Throwable;
 	}
 
-	private void setDateValue(Field field, String val) throws Exception {
-		if (config.dateFormat == null) {
-			log.warn("no date-format given in CSV configuration; cannot set "
-					+ "date values");
-			return;
-		}
-		SimpleDateFormat format = new SimpleDateFormat(config.dateFormat);
-		Date date = format.parse(val);
-		field.set(model, date);
+	@FunctionalInterface
+	private interface ValueParser {
+		Object parse(BlockUnmarshaller u, String val) throws Exception;
 	}
 }
@@ -0,0 +1,54 @@
+package org.openlca.simapro.csv.io;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+import org.openlca.simapro.csv.model.Block;
+import org.openlca.simapro.csv.model.Section;
+
+/**
+ * Writes blocks in the format that can be read by the {@link BlockReader}.
+ * Line breaks within rows are written as character 127 like in SimaPro CSV
+ * files.
+ */
+public class BlockWriter implements Closeable {
+
+	private final BufferedWriter buffer;
+
+	public BlockWriter(Writer writer) {
+		this.buffer = writer instanceof BufferedWriter
+				? (BufferedWriter) writer
+				: new BufferedWriter(writer);
+	}
+
+	public void write(Block block) throws IOException {
+		if (block == null || block.header == null)
+			return;
+		line(block.header);
+		for (String row : block.dataRows) {
+			line(row);
+		}
+		for (Section section : block.getSections()) {
+			buffer.newLine();
+			line(section.header);
+			for (String row : section.dataRows) {
+				line(row);
+			}
+		}
+		buffer.newLine();
+		line("End");
+		buffer.newLine();
+	}
+
+	private void line(String s) throws IOException {
+		buffer.write(s.replace('\n', (char) 127));
+		buffer.newLine();
+	}
+
+	@Override
+	public void close() throws IOException {
+		buffer.close();
+	}
+}
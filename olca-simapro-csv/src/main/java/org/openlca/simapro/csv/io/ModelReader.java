@@ -3,6 +3,7 @@ package org.openlca.simapro.csv.io;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.function.Consumer;
 
 import org.openlca.simapro.csv.CsvConfig;
 import org.openlca.simapro.csv.model.Block;
@@ -18,6 +19,7 @@ public class ModelReader implements Closeable {
 	private final BlockUnmarshaller unmarshaller;
 
 	private final HashMap<String, Class<?>> blockTypes = new HashMap<>();
+	private Consumer<Block> blockListener;
 
 	public ModelReader(BlockReader blockReader, CsvConfig config,
 			Class<?>... classes) {
@@ -42,10 +44,21 @@ public class ModelReader implements Closeable {
 		}
 	}
 
+	/**
+	 * Sets a listener that is called with each raw block that is read, also
+	 * with blocks for which no model class is registered.
+	 */
+	public void setBlockListener(Consumer<Block> blockListener) {
+		this.blockListener = blockListener;
+	}
+
 	public Object read() throws Exception {
 		Block block;
 		Object model = null;
 		while ((block = blockReader.read()) != null) {
+			if (blockListener != null) {
+				blockListener.accept(block);
+			}
 			model = tryGetModel(block);
 			if (model != null)
 				break;
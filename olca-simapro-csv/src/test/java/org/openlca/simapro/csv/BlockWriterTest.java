@@ -0,0 +1,49 @@
+package org.openlca.simapro.csv;
+
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openlca.simapro.csv.io.BlockReader;
+import org.openlca.simapro.csv.io.BlockUnmarshaller;
+import org.openlca.simapro.csv.io.BlockWriter;
+import org.openlca.simapro.csv.model.Block;
+import org.openlca.simapro.csv.model.process.ProcessBlock;
+
+public class BlockWriterTest {
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		Block block;
+		try (var stream = getClass().getResourceAsStream("simple_process.csv");
+				var reader = new BlockReader(new InputStreamReader(stream))) {
+			block = reader.read();
+		}
+		var text = new StringWriter();
+		try (var writer = new BlockWriter(text)) {
+			writer.write(block);
+		}
+		Block copy;
+		try (var reader = new BlockReader(new StringReader(text.toString()))) {
+			copy = reader.read();
+			Assert.assertNull(reader.read());
+		}
+
+		Assert.assertEquals(block.header, copy.header);
+		Assert.assertEquals(block.dataRows, copy.dataRows);
+		Assert.assertEquals(block.getSections().size(),
+				copy.getSections().size());
+		for (var section : block.getSections()) {
+			Assert.assertEquals(section.dataRows,
+					copy.getSection(section.header).dataRows);
+		}
+
+		var unmarshaller = new BlockUnmarshaller(CsvConfig.getDefault());
+		var p = unmarshaller.unmarshall(copy, ProcessBlock.class);
+		Assert.assertEquals("DefaultX25250700002", p.identifier);
+		Assert.assertEquals("Test process", p.name);
+		Assert.assertFalse(p.products.isEmpty());
+	}
+}